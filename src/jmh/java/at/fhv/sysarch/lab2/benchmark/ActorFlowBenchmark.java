@@ -0,0 +1,48 @@
+package at.fhv.sysarch.lab2.benchmark;
+
+import akka.actor.testkit.typed.javadsl.ActorTestKit;
+import com.typesafe.config.Config;
+import com.typesafe.config.ConfigFactory;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+
+/**
+ * Common lifecycle for the flow benchmarks: one actor system per trial and a silenced {@code System.out}, because
+ * several devices print to the console on every message.
+ */
+public abstract class ActorFlowBenchmark {
+
+    protected ActorTestKit testKit;
+    protected CompletionProbe probe;
+    private PrintStream stdout;
+
+    @Setup(Level.Trial)
+    public void startSystem() {
+        stdout = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+
+        testKit = ActorTestKit.create(getClass().getSimpleName(), config().withFallback(ConfigFactory.load("application-test")));
+        probe = new CompletionProbe();
+        spawnFlow();
+    }
+
+    @TearDown(Level.Trial)
+    public void stopSystem() {
+        testKit.shutdownTestKit();
+        System.setOut(stdout);
+    }
+
+    protected abstract void spawnFlow();
+
+    /**
+     * Settings of this benchmark on top of {@code application-test.conf}.
+     */
+    protected Config config() {
+        return ConfigFactory.empty();
+    }
+
+}
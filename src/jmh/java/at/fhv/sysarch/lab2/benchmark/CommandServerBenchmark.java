@@ -0,0 +1,114 @@
+package at.fhv.sysarch.lab2.benchmark;
+
+import akka.actor.typed.ActorRef;
+import at.fhv.sysarch.lab2.homeautomation.devices.AirCondition;
+import at.fhv.sysarch.lab2.homeautomation.devices.DeviceKind;
+import at.fhv.sysarch.lab2.homeautomation.devices.DeviceRegistry;
+import at.fhv.sysarch.lab2.homeautomation.devices.TemperatureSensor;
+import at.fhv.sysarch.lab2.homeautomation.domain.valueobjects.ProductCatalog;
+import at.fhv.sysarch.lab2.homeautomation.environment.Environment;
+import at.fhv.sysarch.lab2.homeautomation.ui.CommandDispatcher;
+import at.fhv.sysarch.lab2.homeautomation.ui.CommandParser;
+import at.fhv.sysarch.lab2.homeautomation.ui.CommandServer;
+import com.typesafe.config.Config;
+import com.typesafe.config.ConfigFactory;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Temperature readings sent through the command server by one client, {@code pipelined} lines per round trip. With
+ * one line per round trip the rate is bound by the socket latency, pipelining amortizes it over the batch.
+ */
+@State(Scope.Benchmark)
+public class CommandServerBenchmark extends ActorFlowBenchmark {
+
+    private static final int BATCH = 1_000;
+    private static final int PORT = 19096;
+    private static final byte[] LINE = {'t', ' ', '2', '1', '.', '5', '\n'};
+    private static final int REPLY_LENGTH = "ok\n".length();
+
+    @Param({"1", "100"})
+    public int pipelined;
+
+    private SocketChannel client;
+    private ByteBuffer request;
+    private ByteBuffer replies;
+    private long sent;
+
+    @Override
+    protected Config config() {
+        return ConfigFactory.parseString("homeautomation.commands.server.port = " + PORT);
+    }
+
+    @Override
+    protected void spawnFlow() {
+        ActorRef<Environment.EnvironmentCommand> environment = testKit.<Environment.EnvironmentCommand>createTestProbe().getRef();
+        ActorRef<AirCondition.AirConditionCommand> airCondition = testKit.spawn(AirCondition.create("2", "1"), "AirCondition");
+        DeviceRegistry devices = new DeviceRegistry();
+        // the same reading every time, only the first one goes on to the air condition
+        ActorRef<TemperatureSensor.TemperatureCommand> tempSensor = testKit.spawn(
+                devices.track(DeviceKind.TEMPERATURE_SENSOR, "1", "1", probe.watch(TemperatureSensor.create(airCondition, environment, "1", "1"), TemperatureSensor.TemperatureCommand.class, TemperatureSensor.ReadTemperatureCommand.class)),
+                "TemperatureSensor"
+        );
+        devices.register(DeviceKind.TEMPERATURE_SENSOR, "1", "1", tempSensor);
+        CommandDispatcher dispatcher = new CommandDispatcher(devices, "1");
+        testKit.spawn(CommandServer.create(new CommandParser(dispatcher, ProductCatalog.getDefault())), "CommandServer");
+        sent = probe.completed();
+
+        request = ByteBuffer.allocate(LINE.length * pipelined);
+        for (int i = 0; i < pipelined; i++) {
+            request.put(LINE);
+        }
+        replies = ByteBuffer.allocate(REPLY_LENGTH * pipelined);
+        try {
+            client = connect();
+        } catch (IOException e) {
+            throw new IllegalStateException("Command server not reachable", e);
+        }
+    }
+
+    private static SocketChannel connect() throws IOException {
+        // the server binds asynchronously while it is spawned
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (true) {
+            try {
+                return SocketChannel.open(new InetSocketAddress("127.0.0.1", PORT));
+            } catch (IOException e) {
+                if (System.nanoTime() > deadline) {
+                    throw e;
+                }
+                Thread.onSpinWait();
+            }
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void disconnect() throws IOException {
+        client.close();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    @OperationsPerInvocation(BATCH)
+    public void readings() throws IOException {
+        for (int i = 0; i < BATCH; i += pipelined) {
+            request.clear();
+            while (request.hasRemaining()) {
+                client.write(request);
+            }
+            replies.clear();
+            while (replies.hasRemaining()) {
+                client.read(replies);
+            }
+            sent += pipelined;
+        }
+        probe.awaitCompleted(sent);
+    }
+
+}
@@ -0,0 +1,47 @@
+package at.fhv.sysarch.lab2.benchmark;
+
+import akka.actor.typed.Behavior;
+import akka.actor.typed.BehaviorInterceptor;
+import akka.actor.typed.TypedActorContext;
+import akka.actor.typed.javadsl.Behaviors;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counts how many messages of a watched type an actor has finished handling, so a benchmark thread can wait for
+ * the end of a message flow without changing the actors under test.
+ */
+final class CompletionProbe {
+
+    private static final long TIMEOUT_NANOS = Duration.ofSeconds(10).toNanos();
+
+    private final AtomicLong completed = new AtomicLong();
+
+    <T> Behavior<T> watch(Behavior<T> behavior, Class<T> protocol, Class<? extends T> watched) {
+        return Behaviors.intercept(() -> new BehaviorInterceptor<T, T>(protocol) {
+            @Override
+            public Behavior<T> aroundReceive(TypedActorContext<T> ctx, T msg, ReceiveTarget<T> target) {
+                Behavior<T> next = target.apply(ctx, msg);
+                if (watched.isInstance(msg)) {
+                    completed.incrementAndGet();
+                }
+                return next;
+            }
+        }, behavior);
+    }
+
+    long completed() {
+        return completed.get();
+    }
+
+    void awaitCompleted(long count) {
+        long deadline = System.nanoTime() + TIMEOUT_NANOS;
+        while (completed.get() < count) {
+            if (System.nanoTime() > deadline) {
+                throw new IllegalStateException("Flow did not complete: " + completed.get() + "/" + count);
+            }
+            Thread.onSpinWait();
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package at.fhv.sysarch.lab2.benchmark;
+
+import akka.actor.typed.ActorRef;
+import at.fhv.sysarch.lab2.homeautomation.environment.Environment;
+import com.typesafe.config.Config;
+import com.typesafe.config.ConfigFactory;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * How many temperature changes the environment handles per second while its output goes to a slow console, printed
+ * by the environment itself ({@code direct}) or handed to the output sink ({@code async}).
+ */
+@State(Scope.Benchmark)
+public class ConsoleOutputBenchmark extends ActorFlowBenchmark {
+
+    private static final int BATCH = 1_000;
+
+    /**
+     * Time a console takes per write call, roughly a terminal rendering a line.
+     */
+    private static final long WRITE_NANOS = TimeUnit.MICROSECONDS.toNanos(20);
+
+    @Param({"direct", "async"})
+    public String mode;
+
+    private ActorRef<Environment.EnvironmentCommand> environment;
+    private long sent;
+
+    @Override
+    protected Config config() {
+        return ConfigFactory.parseString("homeautomation.output.mode = " + mode);
+    }
+
+    @Override
+    protected void spawnFlow() {
+        System.setOut(new PrintStream(new SlowConsole()));
+        environment = testKit.spawn(
+                probe.watch(Environment.create(), Environment.EnvironmentCommand.class, Environment.TemperatureChangerCommand.class),
+                "Environment"
+        );
+        sent = probe.completed();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    @OperationsPerInvocation(BATCH)
+    public void temperatureChanges() {
+        for (int i = 0; i < BATCH; i++) {
+            environment.tell(Environment.TemperatureChangerCommand.INSTANCE);
+            sent++;
+        }
+        probe.awaitCompleted(sent);
+    }
+
+    private static final class SlowConsole extends OutputStream {
+
+        @Override
+        public void write(int b) {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            long until = System.nanoTime() + WRITE_NANOS;
+            while (System.nanoTime() < until) {
+                Thread.onSpinWait();
+            }
+        }
+    }
+
+}
@@ -0,0 +1,73 @@
+package at.fhv.sysarch.lab2.benchmark;
+
+import akka.actor.typed.ActorRef;
+import at.fhv.sysarch.lab2.homeautomation.devices.fridge.Fridge;
+import at.fhv.sysarch.lab2.homeautomation.devices.fridge.FridgeSettings;
+import at.fhv.sysarch.lab2.homeautomation.domain.enums.OrderStrategy;
+import at.fhv.sysarch.lab2.homeautomation.domain.valueobjects.Product;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@code Fridge.RequestOrderProductCommand} &rarr; {@code OrderProcessor} &rarr; {@code FridgeCapacityView}, or
+ * {@code OrderAdmission} &rarr; {@code FridgeWeightSensor}/{@code FridgeSpaceSensor} &rarr;
+ * {@code Fridge.StockFridgeCommand}.
+ *
+ * The fridge only has room for a handful of extra items, so every stocked apple is consumed again before the next
+ * order is placed. Throughput is therefore measured as a closed loop of one order at a time.
+ */
+@State(Scope.Benchmark)
+public class FridgeOrderFlowBenchmark extends ActorFlowBenchmark {
+
+    @Param({"ADMISSION", "PER_ORDER"})
+    public OrderStrategy strategy;
+
+    private final Product apple = Product.create("apple").get();
+
+    private ActorRef<Fridge.FridgeCommand> fridge;
+    private long sent;
+
+    @Override
+    protected void spawnFlow() {
+        Path journal;
+        try {
+            journal = Files.createTempFile("fridge-benchmark", ".orders");
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        journal.toFile().deleteOnExit();
+
+        fridge = testKit.spawn(
+                probe.watch(Fridge.create("5", "1", FridgeSettings.DEFAULT.withOrderJournalFile(journal).withOrderStrategy(strategy)), Fridge.FridgeCommand.class, Fridge.StockFridgeCommand.class),
+                "Fridge"
+        );
+        sent = probe.completed();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SampleTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public void latency() {
+        order();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    public void throughput() {
+        order();
+    }
+
+    private void order() {
+        fridge.tell(new Fridge.RequestOrderProductCommand(apple));
+        sent++;
+        probe.awaitCompleted(sent);
+        fridge.tell(new Fridge.ConsumeProductCommand(apple));
+    }
+
+}
@@ -0,0 +1,67 @@
+package at.fhv.sysarch.lab2.benchmark;
+
+import akka.actor.typed.ActorRef;
+import at.fhv.sysarch.lab2.homeautomation.devices.fridge.Fridge;
+import at.fhv.sysarch.lab2.homeautomation.devices.fridge.FridgeSettings;
+import at.fhv.sysarch.lab2.homeautomation.domain.enums.OrderStrategy;
+import at.fhv.sysarch.lab2.homeautomation.domain.valueobjects.Product;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Orders per second for bursts of concurrent orders, comparing the order admission pipeline with spawning one
+ * {@code OrderProcessor} per order. The fridge is large enough to accept every order of the run.
+ */
+@State(Scope.Benchmark)
+public class OrderBurstBenchmark extends ActorFlowBenchmark {
+
+    private static final int BURST = 1_000;
+
+    @Param({"ADMISSION", "PER_ORDER"})
+    public OrderStrategy strategy;
+
+    private final Product apple = Product.create("apple").get();
+
+    private ActorRef<Fridge.FridgeCommand> fridge;
+    private long sent;
+
+    @Override
+    protected void spawnFlow() {
+        Path journal;
+        try {
+            journal = Files.createTempFile("order-burst-benchmark", ".orders");
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        journal.toFile().deleteOnExit();
+
+        FridgeSettings settings = FridgeSettings.DEFAULT
+                .withOrderJournalFile(journal)
+                .withOrderStrategy(strategy)
+                .withCapacity(Integer.MAX_VALUE / 2, Integer.MAX_VALUE / 2);
+
+        fridge = testKit.spawn(
+                probe.watch(Fridge.create("5", "1", settings), Fridge.FridgeCommand.class, Fridge.StockFridgeCommand.class),
+                "Fridge"
+        );
+        sent = probe.completed();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    @OperationsPerInvocation(BURST)
+    public void burst() {
+        for (int i = 0; i < BURST; i++) {
+            fridge.tell(new Fridge.RequestOrderProductCommand(apple));
+        }
+        sent += BURST;
+        probe.awaitCompleted(sent);
+    }
+
+}
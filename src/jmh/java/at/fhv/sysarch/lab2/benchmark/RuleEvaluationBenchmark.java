@@ -0,0 +1,90 @@
+package at.fhv.sysarch.lab2.benchmark;
+
+import at.fhv.sysarch.lab2.homeautomation.rules.Action;
+import at.fhv.sysarch.lab2.homeautomation.rules.Rule;
+import at.fhv.sysarch.lab2.homeautomation.rules.RuleBook;
+import at.fhv.sysarch.lab2.homeautomation.rules.RuleParser;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Temperature readings decided by {@code homes} homes with ten rules each, through the decision tables of the rule
+ * book ({@code indexed}) or by checking every rule in turn ({@code scan}), the way hard-coded conditions grow.
+ */
+@State(Scope.Benchmark)
+public class RuleEvaluationBenchmark {
+
+    private static final int BATCH = 1_000;
+
+    @Param({"1", "100", "1000"})
+    public int homes;
+
+    private RuleBook ruleBook;
+    private List<Rule> rules;
+    private String[] readingHomes;
+    private double[] readings;
+
+    @Setup
+    public void setUp() throws IOException {
+        StringBuilder text = new StringBuilder();
+        for (int home = 0; home < homes; home++) {
+            for (int step = 0; step < 10; step++) {
+                int from = 10 + 2 * step;
+                text.append(String.format("r%d-%d: for %d when temperature >= %d and temperature < %d then aircondition %s%n",
+                        home, step, home, from, from + 2, step % 2 == 0 ? "off" : "on"));
+            }
+        }
+        rules = RuleParser.parse(new StringReader(text.toString()), "benchmark");
+        ruleBook = RuleBook.of(rules);
+
+        Random random = new Random(42);
+        readingHomes = new String[BATCH];
+        readings = new double[BATCH];
+        for (int i = 0; i < BATCH; i++) {
+            readingHomes[i] = String.valueOf(random.nextInt(homes));
+            readings[i] = 5 + random.nextDouble() * 30;
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    @OperationsPerInvocation(BATCH)
+    public int indexed() {
+        int on = 0;
+        for (int i = 0; i < BATCH; i++) {
+            if (ruleBook.decide(readingHomes[i], Action.Device.AIR_CONDITION, readings[i]) == Action.AIR_CONDITION_ON) {
+                on++;
+            }
+        }
+        return on;
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    @OperationsPerInvocation(BATCH)
+    public int scan() {
+        int on = 0;
+        for (int i = 0; i < BATCH; i++) {
+            Action action = null;
+            for (Rule rule : rules) {
+                if (rule.getHome().equals(readingHomes[i])
+                        && rule.getAction().getDevice() == Action.Device.AIR_CONDITION
+                        && rule.matches(readings[i])) {
+                    action = rule.getAction();
+                }
+            }
+            if (action == Action.AIR_CONDITION_ON) {
+                on++;
+            }
+        }
+        return on;
+    }
+
+}
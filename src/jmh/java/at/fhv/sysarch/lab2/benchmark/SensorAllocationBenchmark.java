@@ -0,0 +1,56 @@
+package at.fhv.sysarch.lab2.benchmark;
+
+import akka.actor.typed.ActorRef;
+import at.fhv.sysarch.lab2.homeautomation.devices.AirCondition;
+import at.fhv.sysarch.lab2.homeautomation.devices.TemperatureSensor;
+import at.fhv.sysarch.lab2.homeautomation.domain.enums.TemperatureUnit;
+import at.fhv.sysarch.lab2.homeautomation.environment.Environment;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Steady state of the {@code TemperatureSensor} &rarr; {@code AirCondition} loop, meant to be run with the GC
+ * profiler ({@code -prof gc}, or {@code ./gradlew jmh -Pjmh.includes=SensorAllocation -Pjmh.profilers=gc}).
+ * The readings are built once up front, so {@code gc.alloc.rate.norm} is what the sensor allocates per reading
+ * besides Akka's envelope and mailbox node. Readings that don't switch the air condition aren't forwarded, so the
+ * flow ends at the sensor.
+ */
+@State(Scope.Benchmark)
+public class SensorAllocationBenchmark extends ActorFlowBenchmark {
+
+    private static final int BATCH = 1_000;
+
+    private final TemperatureSensor.ReadTemperatureCommand[] readings = {
+            // both above the activation threshold, switching the air condition on and off is not the steady state
+            new TemperatureSensor.ReadTemperatureCommand(21.0, TemperatureUnit.CELSIUS),
+            new TemperatureSensor.ReadTemperatureCommand(21.5, TemperatureUnit.CELSIUS)
+    };
+
+    private ActorRef<TemperatureSensor.TemperatureCommand> tempSensor;
+    private long sent;
+
+    @Override
+    protected void spawnFlow() {
+        ActorRef<Environment.EnvironmentCommand> environment = testKit.<Environment.EnvironmentCommand>createTestProbe().getRef();
+        ActorRef<AirCondition.AirConditionCommand> airCondition = testKit.spawn(AirCondition.create("2", "1"), "AirCondition");
+        tempSensor = testKit.spawn(
+                probe.watch(TemperatureSensor.create(airCondition, environment, "1", "1"), TemperatureSensor.TemperatureCommand.class, TemperatureSensor.ReadTemperatureCommand.class),
+                "TemperatureSensor"
+        );
+        sent = probe.completed();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    @OperationsPerInvocation(BATCH)
+    public void readings() {
+        for (int i = 0; i < BATCH; i++) {
+            tempSensor.tell(readings[(int) (sent & 1)]);
+            sent++;
+        }
+        probe.awaitCompleted(sent);
+    }
+
+}
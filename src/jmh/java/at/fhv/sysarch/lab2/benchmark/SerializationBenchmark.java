@@ -0,0 +1,110 @@
+package at.fhv.sysarch.lab2.benchmark;
+
+import akka.actor.ExtendedActorSystem;
+import akka.actor.testkit.typed.javadsl.ActorTestKit;
+import akka.actor.typed.ActorRef;
+import akka.serialization.Serialization;
+import akka.serialization.Serialization$;
+import akka.serialization.SerializationExtension;
+import akka.serialization.Serializer;
+import akka.serialization.Serializers;
+import at.fhv.sysarch.lab2.homeautomation.devices.AirCondition;
+import at.fhv.sysarch.lab2.homeautomation.devices.TemperatureSensor;
+import at.fhv.sysarch.lab2.homeautomation.devices.fridge.Fridge;
+import at.fhv.sysarch.lab2.homeautomation.devices.fridge.FridgeWeightSensor;
+import at.fhv.sysarch.lab2.homeautomation.devices.fridge.OrderAdmission;
+import at.fhv.sysarch.lab2.homeautomation.domain.enums.TemperatureUnit;
+import at.fhv.sysarch.lab2.homeautomation.home.Home;
+import com.typesafe.config.ConfigFactory;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.NotSerializableException;
+import java.time.LocalDateTime;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Encoding and decoding one message with the {@code binary} serializer of the cluster or with Akka's Jackson JSON
+ * serializer, which encodes field names and class names with every message. The size of the encoded message is
+ * printed at the start of the trial.
+ */
+@State(Scope.Benchmark)
+public class SerializationBenchmark {
+
+    // identifier of akka.serialization.jackson.JacksonJsonSerializer in Akka's reference.conf
+    private static final int JACKSON_JSON = 31;
+
+    @Param({"temperature", "power", "reserve", "history"})
+    public String message;
+
+    @Param({"binary", "jackson-json"})
+    public String serializer;
+
+    private ActorTestKit testKit;
+    private ExtendedActorSystem system;
+    private Serialization serialization;
+    private Serializer chosen;
+    private Object sample;
+    private byte[] encoded;
+    private String manifest;
+
+    @Setup(Level.Trial)
+    public void setUp() throws NotSerializableException {
+        testKit = ActorTestKit.create(
+                getClass().getSimpleName(),
+                // Jackson only encodes classes bound to it, the messages are bound to the binary serializer
+                ConfigFactory.parseString("akka.serialization.jackson.allowed-class-prefix = [\"at.fhv.sysarch\"]")
+                        .withFallback(ConfigFactory.load("application-test"))
+        );
+        system = (ExtendedActorSystem) testKit.system().classicSystem();
+        serialization = SerializationExtension.get(system);
+        chosen = "binary".equals(serializer)
+                ? serialization.serializerFor(Home.ForwardToFridgeCommand.class)
+                : serialization.serializerByIdentity().apply(JACKSON_JSON);
+
+        ActorRef<OrderAdmission.OrderAdmissionCommand> admission = testKit.<OrderAdmission.OrderAdmissionCommand>createTestProbe().getRef();
+        switch (message) {
+            case "temperature":
+                sample = new Home.ForwardToTemperatureSensorCommand(
+                        new TemperatureSensor.ReadTemperatureCommand(21.5, TemperatureUnit.CELSIUS));
+                break;
+            case "power":
+                sample = new Home.ForwardToAirConditionCommand(new AirCondition.PowerAirConditionCommand(Optional.of(true)));
+                break;
+            case "reserve":
+                sample = new FridgeWeightSensor.ReserveWeightCommand(42L, new int[]{20, 1, 2, 5, 1}, admission);
+                break;
+            case "history":
+                sample = new Fridge.DisplayOrderHistoryBetweenCommand(
+                        LocalDateTime.of(2024, 1, 1, 0, 0), LocalDateTime.of(2024, 12, 31, 23, 59));
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown message " + message);
+        }
+        encoded = encode();
+        manifest = Serializers.manifestFor(chosen, sample);
+        System.out.printf("%n%s with %s: %d bytes%n", message, serializer, encoded.length);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        testKit.shutdownTestKit();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public byte[] encode() {
+        // Jackson resolves actor refs through the system of the transport, set while Akka serializes a message
+        return Serialization$.MODULE$.withTransportInformation(system, () -> chosen.toBinary(sample));
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public Object decode() {
+        return Serialization$.MODULE$.withTransportInformation(system,
+                () -> serialization.deserialize(encoded, chosen.identifier(), manifest).get());
+    }
+
+}
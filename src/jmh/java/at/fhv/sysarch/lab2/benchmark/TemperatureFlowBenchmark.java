@@ -0,0 +1,61 @@
+package at.fhv.sysarch.lab2.benchmark;
+
+import akka.actor.typed.ActorRef;
+import at.fhv.sysarch.lab2.homeautomation.devices.AirCondition;
+import at.fhv.sysarch.lab2.homeautomation.devices.TemperatureSensor;
+import at.fhv.sysarch.lab2.homeautomation.domain.enums.TemperatureUnit;
+import at.fhv.sysarch.lab2.homeautomation.environment.Environment;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@code TemperatureSensor.ReadTemperatureCommand} &rarr; {@code AirCondition.EnrichedTemperatureCommand}.
+ */
+@State(Scope.Benchmark)
+public class TemperatureFlowBenchmark extends ActorFlowBenchmark {
+
+    private static final int BATCH = 1_000;
+
+    private ActorRef<TemperatureSensor.TemperatureCommand> tempSensor;
+    private long sent;
+
+    @Override
+    protected void spawnFlow() {
+        // readings are injected directly, a real environment would push its own changes into the measurement
+        ActorRef<Environment.EnvironmentCommand> environment = testKit.<Environment.EnvironmentCommand>createTestProbe().getRef();
+        ActorRef<AirCondition.AirConditionCommand> airCondition = testKit.spawn(
+                probe.watch(AirCondition.create("2", "1"), AirCondition.AirConditionCommand.class, AirCondition.EnrichedTemperatureCommand.class),
+                "AirCondition"
+        );
+        tempSensor = testKit.spawn(TemperatureSensor.create(airCondition, environment, "1", "1"), "TemperatureSensor");
+        sent = probe.completed();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SampleTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public void latency() {
+        send();
+        probe.awaitCompleted(sent);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    @OperationsPerInvocation(BATCH)
+    public void throughput() {
+        for (int i = 0; i < BATCH; i++) {
+            send();
+        }
+        probe.awaitCompleted(sent);
+    }
+
+    private void send() {
+        // alternate around the activation threshold so the air condition switches state
+        double value = (sent & 1) == 0 ? 18.5 : 21.5;
+        tempSensor.tell(new TemperatureSensor.ReadTemperatureCommand(value, TemperatureUnit.CELSIUS));
+        sent++;
+    }
+
+}
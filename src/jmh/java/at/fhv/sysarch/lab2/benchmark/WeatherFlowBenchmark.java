@@ -0,0 +1,60 @@
+package at.fhv.sysarch.lab2.benchmark;
+
+import akka.actor.typed.ActorRef;
+import at.fhv.sysarch.lab2.homeautomation.devices.Blinds;
+import at.fhv.sysarch.lab2.homeautomation.devices.WeatherSensor;
+import at.fhv.sysarch.lab2.homeautomation.domain.enums.WeatherCondition;
+import at.fhv.sysarch.lab2.homeautomation.environment.Environment;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@code WeatherSensor.ReadWeatherCommand} &rarr; {@code Blinds.OpenBlindsCommand}/{@code Blinds.CloseBlindsCommand}.
+ */
+@State(Scope.Benchmark)
+public class WeatherFlowBenchmark extends ActorFlowBenchmark {
+
+    private static final int BATCH = 1_000;
+
+    private ActorRef<WeatherSensor.WeatherCommand> weatherSensor;
+    private long sent;
+
+    @Override
+    protected void spawnFlow() {
+        // readings are injected directly, a real environment would push its own changes into the measurement
+        ActorRef<Environment.EnvironmentCommand> environment = testKit.<Environment.EnvironmentCommand>createTestProbe().getRef();
+        ActorRef<Blinds.BlindsCommand> blinds = testKit.spawn(
+                probe.watch(Blinds.create("4", "1"), Blinds.BlindsCommand.class, Blinds.BlindsCommand.class),
+                "Blinds"
+        );
+        weatherSensor = testKit.spawn(WeatherSensor.create(environment, blinds, "3", "1"), "WeatherSensor");
+        sent = probe.completed();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SampleTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public void latency() {
+        send();
+        probe.awaitCompleted(sent);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    @OperationsPerInvocation(BATCH)
+    public void throughput() {
+        for (int i = 0; i < BATCH; i++) {
+            send();
+        }
+        probe.awaitCompleted(sent);
+    }
+
+    private void send() {
+        WeatherCondition weather = (sent & 1) == 0 ? WeatherCondition.SUNNY : WeatherCondition.CLOUDY;
+        weatherSensor.tell(new WeatherSensor.ReadWeatherCommand(weather));
+        sent++;
+    }
+
+}
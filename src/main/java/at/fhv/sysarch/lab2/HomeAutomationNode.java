@@ -0,0 +1,31 @@
+package at.fhv.sysarch.lab2;
+
+import akka.actor.typed.ActorSystem;
+import at.fhv.sysarch.lab2.homeautomation.HomeAutomationController;
+import com.typesafe.config.Config;
+import com.typesafe.config.ConfigFactory;
+import com.typesafe.config.ConfigValueFactory;
+
+/**
+ * Starts a node of the home automation cluster on localhost, see {@code cluster.conf}. The homes are sharded over
+ * all nodes, the command line of each node talks to one of them.
+ * <p>
+ * Arguments: the port of the node (default 2551, the first seed node; the second one is 2552) and the id of the home
+ * its commands go to (default 1).
+ */
+public class HomeAutomationNode {
+
+    public static void main(String[] args) {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 2551;
+        String home = args.length > 1 ? args[1] : "1";
+
+        Config config = ConfigFactory.empty()
+                .withValue("akka.remote.artery.canonical.port", ConfigValueFactory.fromAnyRef(port))
+                .withValue("homeautomation.cluster.home", ConfigValueFactory.fromAnyRef(home))
+                .withFallback(ConfigFactory.parseResources("cluster.conf"))
+                .withFallback(ConfigFactory.load())
+                .resolve();
+        ActorSystem<Void> node = ActorSystem.create(HomeAutomationController.create(), "HomeAutomation", config);
+    }
+
+}
@@ -0,0 +1,40 @@
+package at.fhv.sysarch.lab2;
+
+import at.fhv.sysarch.lab2.homeautomation.HomeAutomationController;
+import at.fhv.sysarch.lab2.homeautomation.simulation.DeviceClock;
+import at.fhv.sysarch.lab2.homeautomation.simulation.Simulation;
+import at.fhv.sysarch.lab2.homeautomation.simulation.SimulationReport;
+import com.typesafe.config.Config;
+import com.typesafe.config.ConfigFactory;
+
+import java.time.Duration;
+
+/**
+ * Runs the home for a simulated duration on virtual time and prints what the sensors recorded.
+ * <p>
+ * Arguments: the duration, e.g. {@code 7d} or {@code 12h} (default 7d), and the seed of the environment
+ * (default 42).
+ */
+public class HomeAutomationSimulation {
+
+    public static void main(String[] args) {
+        Duration duration = args.length > 0 ? ConfigFactory.parseString("d = " + args[0]).getDuration("d") : Duration.ofDays(7);
+        long seed = args.length > 1 ? Long.parseLong(args[1]) : 42;
+        // the device logs of a week are noise next to the report
+        System.setProperty("homeautomation.loglevel", System.getProperty("homeautomation.loglevel", "WARN"));
+
+        Config config = Simulation.config(seed, ConfigFactory.load());
+        // room for every temperature reading of the run
+        long readings = duration.toMillis() / config.getDuration("homeautomation.environment.temperature-interval").toMillis() + 16;
+        config = ConfigFactory.parseString("homeautomation.timeseries.capacity = " + readings).withFallback(config);
+
+        long started = System.nanoTime();
+        try (Simulation simulation = new Simulation(HomeAutomationController.create(), "HomeAutomation", config)) {
+            long from = DeviceClock.get(simulation.getSystem()).millis();
+            simulation.advance(duration);
+            SimulationReport.collect(simulation, from).print(System.out);
+        }
+        System.out.printf("Took %d ms%n", Duration.ofNanos(System.nanoTime() - started).toMillis());
+    }
+
+}
@@ -3,24 +3,32 @@ package at.fhv.sysarch.lab2.homeautomation;
 import akka.actor.typed.ActorRef;
 import akka.actor.typed.Behavior;
 import akka.actor.typed.PostStop;
+import akka.actor.typed.Props;
 import akka.actor.typed.javadsl.AbstractBehavior;
 import akka.actor.typed.javadsl.ActorContext;
 import akka.actor.typed.javadsl.Behaviors;
 import akka.actor.typed.javadsl.Receive;
-import at.fhv.sysarch.lab2.homeautomation.devices.*;
+import akka.cluster.sharding.typed.ShardingEnvelope;
+import at.fhv.sysarch.lab2.homeautomation.devices.AirCondition;
+import at.fhv.sysarch.lab2.homeautomation.devices.DeviceKind;
+import at.fhv.sysarch.lab2.homeautomation.devices.DeviceRegistry;
 import at.fhv.sysarch.lab2.homeautomation.devices.fridge.Fridge;
+import at.fhv.sysarch.lab2.homeautomation.domain.valueobjects.ProductCatalog;
 import at.fhv.sysarch.lab2.homeautomation.environment.Environment;
+import at.fhv.sysarch.lab2.homeautomation.home.Home;
+import at.fhv.sysarch.lab2.homeautomation.home.HomeRegistry;
+import at.fhv.sysarch.lab2.homeautomation.home.HomeSharding;
+import at.fhv.sysarch.lab2.homeautomation.load.LoadGenerator;
+import at.fhv.sysarch.lab2.homeautomation.ui.CommandDispatcher;
+import at.fhv.sysarch.lab2.homeautomation.ui.CommandParser;
+import at.fhv.sysarch.lab2.homeautomation.ui.CommandServer;
 import at.fhv.sysarch.lab2.homeautomation.ui.UI;
+import com.typesafe.config.Config;
 
-public class HomeAutomationController extends AbstractBehavior<Void> {
+import java.time.Duration;
+import java.util.function.Consumer;
 
-    private ActorRef<Environment.EnvironmentCommand> environment;
-    private ActorRef<AirCondition.AirConditionCommand> airCondition;
-    private ActorRef<TemperatureSensor.TemperatureCommand> tempSensor;
-    private ActorRef<WeatherSensor.WeatherCommand> weatherSensor;
-    private ActorRef<Blinds.BlindsCommand> blinds;
-    private ActorRef<MediaStation.MediaStationCommand> mediaStation;
-    private ActorRef<Fridge.FridgeCommand> fridge;
+public class HomeAutomationController extends AbstractBehavior<Void> {
 
     public static Behavior<Void> create() {
         return Behaviors.setup(HomeAutomationController::new);
@@ -30,19 +38,51 @@ public class HomeAutomationController extends AbstractBehavior<Void> {
         super(context);
 
         // TODO: consider guardians and hierarchies. Who should create and communicate with which Actors?
+        Config config = getContext().getSystem().settings().config();
+        boolean cluster = config.getBoolean("homeautomation.cluster.enabled");
+        String homeId;
+        Consumer<Home.HomeCommand> toHome;
+        if (cluster) {
+            // the devices live in a home somewhere in the cluster, the commands of this node go to it
+            ActorRef<ShardingEnvelope<Home.HomeCommand>> homes = HomeSharding.init(getContext().getSystem(), config.getDuration("homeautomation.cluster.passivate-after"));
+            homeId = config.getString("homeautomation.cluster.home");
+            toHome = command -> homes.tell(new ShardingEnvelope<>(homeId, command));
+        } else {
+            Duration passivateAfter = config.hasPath("homeautomation.homes.passivate-after") ? config.getDuration("homeautomation.homes.passivate-after") : null;
+            ActorRef<HomeRegistry.RegistryCommand> homes = getContext().spawn(HomeRegistry.create(passivateAfter), "HomeRegistry");
+            homeId = config.getString("homeautomation.homes.home");
+            homes.tell(new HomeRegistry.StartHomeCommand(homeId));
+            toHome = command -> homes.tell(new HomeRegistry.DeliverToHomeCommand(homeId, command));
+        }
+        getContext().getLog().info("Commands go to home {}", homeId);
 
-        this.environment = getContext().spawn(Environment.create(), "Environment");
-
-        this.airCondition = getContext().spawn(AirCondition.create("2", "1"), "AirCondition");
-        this.tempSensor = getContext().spawn(TemperatureSensor.create(this.airCondition, this.environment, "1", "1"), "TemperatureSensor");
-
-        this.blinds = getContext().spawn(Blinds.create("4", "1"), "Blinds");
-        this.weatherSensor = getContext().spawn(WeatherSensor.create(this.environment, this.blinds, "3", "1"), "WeatherSensor");
-        this.mediaStation = getContext().spawn(MediaStation.create(this.blinds, "4", "1"), "MediaStation");
-
-        this.fridge = getContext().spawn(Fridge.create("5", "1"), "Fridge");
+        // local stand-ins for the devices of the home, they have a registry of their own, the one of the node has
+        // the devices of the homes hosted here
+        DeviceRegistry devices = new DeviceRegistry();
+        ActorRef<Environment.EnvironmentCommand> environment = devices.spawn(getContext(), DeviceKind.ENVIRONMENT, homeId, "1", Home.forwarder(toHome, Home.ForwardToEnvironmentCommand::new), "Environment", Props.empty());
+        ActorRef<AirCondition.AirConditionCommand> airCondition = devices.spawn(getContext(), DeviceKind.AIR_CONDITION, homeId, "1", Home.forwarder(toHome, Home.ForwardToAirConditionCommand::new), "AirCondition", Props.empty());
+        devices.spawn(getContext(), DeviceKind.TEMPERATURE_SENSOR, homeId, "1", Home.forwarder(toHome, Home.ForwardToTemperatureSensorCommand::new), "TemperatureSensor", Props.empty());
+        devices.spawn(getContext(), DeviceKind.MEDIA_STATION, homeId, "1", Home.forwarder(toHome, Home.ForwardToMediaStationCommand::new), "MediaStation", Props.empty());
+        ActorRef<Fridge.FridgeCommand> fridge = devices.spawn(getContext(), DeviceKind.FRIDGE, homeId, "1", Home.forwarder(toHome, Home.ForwardToFridgeCommand::new), "Fridge", Props.empty());
 
-        ActorRef<Void> ui = getContext().spawn(UI.create(this.environment, this.airCondition, this.tempSensor, this.mediaStation, this.fridge), "UI");
+        CommandParser commands = new CommandParser(
+                new CommandDispatcher(devices, homeId),
+                ProductCatalog.getDefault()
+        );
+        if (getContext().getSystem().settings().config().getBoolean("homeautomation.commands.console.enabled")) {
+            getContext().spawn(UI.create(commands), "UI");
+        }
+        if (getContext().getSystem().settings().config().getBoolean("homeautomation.commands.server.enabled")) {
+            getContext().spawn(CommandServer.create(commands), "CommandServer");
+        }
+        if (getContext().getSystem().settings().config().getBoolean("homeautomation.load.enabled")) {
+            if (cluster) {
+                // it measures through the event stream of this node, the devices publish on theirs
+                getContext().getLog().warn("The load generator only runs on a single node, not in cluster mode");
+            } else {
+                getContext().spawn(LoadGenerator.create(environment, airCondition, fridge), "LoadGenerator");
+            }
+        }
 
         getContext().getLog().info("HomeAutomation Application started");
     }
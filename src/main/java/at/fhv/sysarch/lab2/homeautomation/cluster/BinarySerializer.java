@@ -0,0 +1,125 @@
+package at.fhv.sysarch.lab2.homeautomation.cluster;
+
+import akka.actor.ExtendedActorSystem;
+import akka.actor.typed.ActorRefResolver;
+import akka.actor.typed.javadsl.Adapter;
+import akka.serialization.SerializerWithStringManifest;
+import at.fhv.sysarch.lab2.homeautomation.devices.DeviceCodec;
+import at.fhv.sysarch.lab2.homeautomation.devices.fridge.FridgeCodec;
+import at.fhv.sysarch.lab2.homeautomation.environment.EnvironmentCodec;
+import at.fhv.sysarch.lab2.homeautomation.home.HomeCodec;
+import at.fhv.sysarch.lab2.homeautomation.timeseries.TimeseriesCodec;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compact binary encoding of the {@link ClusterMessage}s, bound to them in {@code reference.conf}. A message is its
+ * schema version followed by its fields as encoded by the {@link MessageCodec} of its package, without field names
+ * or type information; the manifest names the type. A temperature reading takes 10 bytes.
+ * <p>
+ * Messages only sent between the actors of one device, e.g. timer ticks, are not registered and fail to serialize.
+ */
+public class BinarySerializer extends SerializerWithStringManifest {
+
+    // unique among the serializers of the actor system, Akka uses 0 to 40
+    static final int IDENTIFIER = 4701;
+
+    private static final List<MessageCodec> CODECS = List.of(
+            new HomeCodec(),
+            new EnvironmentCodec(),
+            new DeviceCodec(),
+            new FridgeCodec(),
+            new TimeseriesCodec()
+    );
+
+    private final ActorRefResolver resolver;
+    private final Map<Class<?>, MessageCodec.Registration<?>> byType = new HashMap<>();
+    private final Map<String, MessageCodec.Registration<?>> byManifest = new HashMap<>();
+
+    public BinarySerializer(ExtendedActorSystem system) {
+        this(system, CODECS);
+    }
+
+    /**
+     * With codecs of its own instead of the ones of the home automation, e.g. of the messages of a test.
+     */
+    BinarySerializer(ExtendedActorSystem system, List<MessageCodec> codecs) {
+        this.resolver = ActorRefResolver.get(Adapter.toTyped(system));
+        for (MessageCodec codec : codecs) {
+            for (MessageCodec.Registration<?> registration : codec.getRegistrations()) {
+                if (byManifest.put(registration.manifest, registration) != null) {
+                    throw new IllegalStateException("Manifest " + registration.manifest + " is registered twice");
+                }
+                if (byType.put(registration.type, registration) != null) {
+                    throw new IllegalStateException(registration.type.getName() + " is registered twice");
+                }
+            }
+        }
+    }
+
+    @Override
+    public int identifier() {
+        return IDENTIFIER;
+    }
+
+    @Override
+    public String manifest(Object message) {
+        return registration(message).manifest;
+    }
+
+    @Override
+    public byte[] toBinary(Object message) {
+        MessageWriter out = new MessageWriter(this, resolver);
+        encode(registration(message), message, out);
+        return out.toByteArray();
+    }
+
+    @Override
+    public Object fromBinary(byte[] bytes, String manifest) {
+        MessageReader in = new MessageReader(this, resolver, bytes);
+        return decode(registration(manifest), in);
+    }
+
+    void write(Object message, MessageWriter out) {
+        MessageCodec.Registration<?> registration = registration(message);
+        out.writeString(registration.manifest);
+        encode(registration, message, out);
+    }
+
+    Object read(MessageReader in) {
+        return decode(registration(in.readString()), in);
+    }
+
+    private static <T> void encode(MessageCodec.Registration<T> registration, Object message, MessageWriter out) {
+        out.writeByte(registration.version);
+        registration.encoder.encode(registration.type.cast(message), out);
+    }
+
+    private static Object decode(MessageCodec.Registration<?> registration, MessageReader in) {
+        int version = in.readByte();
+        if (version < 1 || version > registration.version) {
+            throw new IllegalArgumentException("Unknown version " + version + " of " + registration.type.getName());
+        }
+        in.setVersion(version);
+        return registration.decoder.decode(in);
+    }
+
+    private MessageCodec.Registration<?> registration(Object message) {
+        MessageCodec.Registration<?> registration = byType.get(message.getClass());
+        if (registration == null) {
+            throw new IllegalArgumentException("No encoding for " + message.getClass().getName() + ", it is only sent locally");
+        }
+        return registration;
+    }
+
+    private MessageCodec.Registration<?> registration(String manifest) {
+        MessageCodec.Registration<?> registration = byManifest.get(manifest);
+        if (registration == null) {
+            throw new IllegalArgumentException("Unknown manifest " + manifest);
+        }
+        return registration;
+    }
+
+}
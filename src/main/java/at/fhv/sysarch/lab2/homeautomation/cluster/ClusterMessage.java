@@ -0,0 +1,19 @@
+package at.fhv.sysarch.lab2.homeautomation.cluster;
+
+import com.fasterxml.jackson.annotation.JsonAutoDetect;
+import com.fasterxml.jackson.annotation.JsonTypeInfo;
+
+/**
+ * Messages that may cross nodes in cluster mode, encoded by the {@link BinarySerializer}. They are readable by the
+ * jackson serializers too, for comparison and debugging: their fields are serialized whatever their visibility, the
+ * messages keep package-private fields like every other message, and a message carries its class, so a home command
+ * can wrap any device command.
+ */
+@JsonAutoDetect(
+        fieldVisibility = JsonAutoDetect.Visibility.ANY,
+        getterVisibility = JsonAutoDetect.Visibility.NONE,
+        isGetterVisibility = JsonAutoDetect.Visibility.NONE
+)
+@JsonTypeInfo(use = JsonTypeInfo.Id.CLASS)
+public interface ClusterMessage {
+}
@@ -0,0 +1,67 @@
+package at.fhv.sysarch.lab2.homeautomation.cluster;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Encodings of the messages of one package, registered with {@link BinarySerializer}. Codecs live next to their
+ * messages, so they read the package-private fields like the actors do.
+ * <p>
+ * Every message type has a short manifest, which must never change or be reused, and a schema version written in
+ * front of its fields. A change of the fields of a message bumps its version; the decoder keeps reading the older
+ * versions, see {@link MessageReader#getVersion()}, so nodes of the previous release still understand each other
+ * during a rolling update.
+ */
+public abstract class MessageCodec {
+
+    public interface Encoder<T> {
+        void encode(T message, MessageWriter out);
+    }
+
+    public interface Decoder<T> {
+        T decode(MessageReader in);
+    }
+
+    static final class Registration<T> {
+        final String manifest;
+        final Class<T> type;
+        final int version;
+        final Encoder<T> encoder;
+        final Decoder<T> decoder;
+
+        Registration(String manifest, Class<T> type, int version, Encoder<T> encoder, Decoder<T> decoder) {
+            this.manifest = manifest;
+            this.type = type;
+            this.version = version;
+            this.encoder = encoder;
+            this.decoder = decoder;
+        }
+    }
+
+    private final List<Registration<?>> registrations = new ArrayList<>();
+
+    /**
+     * @param version current schema version of the message, from 1
+     */
+    protected final <T> void register(String manifest, Class<T> type, int version, Encoder<T> encoder, Decoder<T> decoder) {
+        if (version < 1 || version > Byte.MAX_VALUE) {
+            throw new IllegalArgumentException("Version of " + manifest + " out of range: " + version);
+        }
+        registrations.add(new Registration<>(manifest, type, version, encoder, decoder));
+    }
+
+    /**
+     * Registers a message without fields, decoded as {@code instance}.
+     */
+    @SuppressWarnings("unchecked")
+    protected final <T> void register(String manifest, T instance) {
+        register(manifest, (Class<T>) instance.getClass(), 1, (message, out) -> {
+        }, in -> instance);
+    }
+
+    List<Registration<?>> getRegistrations() {
+        return Collections.unmodifiableList(registrations);
+    }
+
+}
@@ -0,0 +1,133 @@
+package at.fhv.sysarch.lab2.homeautomation.cluster;
+
+import akka.actor.typed.ActorRef;
+import akka.actor.typed.ActorRefResolver;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Decodes the fields {@link MessageWriter} encoded. Reading past the end throws an
+ * {@link IllegalArgumentException}.
+ */
+public final class MessageReader {
+
+    private final BinarySerializer serializer;
+    private final ActorRefResolver resolver;
+    private final byte[] buffer;
+    private int position;
+    private int version;
+
+    MessageReader(BinarySerializer serializer, ActorRefResolver resolver, byte[] buffer) {
+        this.serializer = serializer;
+        this.resolver = resolver;
+        this.buffer = buffer;
+    }
+
+    /**
+     * @return schema version the message being read was written with, for decoders of messages whose encoding
+     * changed
+     */
+    public int getVersion() {
+        return version;
+    }
+
+    void setVersion(int version) {
+        this.version = version;
+    }
+
+    public int readByte() {
+        ensure(1);
+        return buffer[position++];
+    }
+
+    public boolean readBoolean() {
+        return readByte() != 0;
+    }
+
+    public int readInt() {
+        long zigzag = readVarLong();
+        return (int) (zigzag >>> 1) ^ -(int) (zigzag & 1);
+    }
+
+    public long readLong() {
+        long zigzag = readVarLong();
+        return (zigzag >>> 1) ^ -(zigzag & 1);
+    }
+
+    public double readDouble() {
+        ensure(8);
+        long bits = 0;
+        for (int i = 0; i < 8; i++) {
+            bits = (bits << 8) | (buffer[position++] & 0xFF);
+        }
+        return Double.longBitsToDouble(bits);
+    }
+
+    public String readString() {
+        int length = readLength();
+        ensure(length);
+        String value = new String(buffer, position, length, StandardCharsets.UTF_8);
+        position += length;
+        return value;
+    }
+
+    public <E extends Enum<E>> E readEnum(Class<E> type) {
+        E[] constants = type.getEnumConstants();
+        int ordinal = readLength();
+        if (ordinal >= constants.length) {
+            throw new IllegalArgumentException("Unknown " + type.getSimpleName() + " " + ordinal);
+        }
+        return constants[ordinal];
+    }
+
+    /**
+     * @param <T> protocol of the actor, not checked
+     */
+    public <T> ActorRef<T> readActorRef() {
+        return resolver.resolveActorRef(readString());
+    }
+
+    /**
+     * Reads a message nested in this one, see {@link MessageWriter#writeMessage(Object)}.
+     */
+    public <T> T readMessage(Class<T> type) {
+        int outer = version;
+        Object message = serializer.read(this);
+        version = outer;
+        if (!type.isInstance(message)) {
+            throw new IllegalArgumentException("Expected a " + type.getName() + " instead of a " + message.getClass().getName());
+        }
+        return type.cast(message);
+    }
+
+    /**
+     * @see MessageWriter#writeLength(int)
+     */
+    public int readLength() {
+        long value = readVarLong();
+        if (value < 0 || value > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Invalid length " + value);
+        }
+        return (int) value;
+    }
+
+    private long readVarLong() {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            ensure(1);
+            byte b = buffer[position++];
+            value |= (long) (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Malformed varint");
+    }
+
+    private void ensure(int bytes) {
+        if (position + bytes > buffer.length) {
+            throw new IllegalArgumentException("Message ends after " + buffer.length + " bytes");
+        }
+    }
+
+}
@@ -0,0 +1,102 @@
+package at.fhv.sysarch.lab2.homeautomation.cluster;
+
+import akka.actor.typed.ActorRef;
+import akka.actor.typed.ActorRefResolver;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Encodes the fields of a message for {@link BinarySerializer}. Integers are written as varints, zigzag encoded so
+ * small negative numbers stay small too; enums as their ordinal, so constants may only be appended.
+ */
+public final class MessageWriter {
+
+    private final BinarySerializer serializer;
+    private final ActorRefResolver resolver;
+    private byte[] buffer = new byte[32];
+    private int position;
+
+    MessageWriter(BinarySerializer serializer, ActorRefResolver resolver) {
+        this.serializer = serializer;
+        this.resolver = resolver;
+    }
+
+    public void writeByte(int value) {
+        ensure(1);
+        buffer[position++] = (byte) value;
+    }
+
+    public void writeBoolean(boolean value) {
+        writeByte(value ? 1 : 0);
+    }
+
+    public void writeInt(int value) {
+        writeVarLong(((value << 1) ^ (value >> 31)) & 0xFFFFFFFFL);
+    }
+
+    public void writeLong(long value) {
+        writeVarLong((value << 1) ^ (value >> 63));
+    }
+
+    public void writeDouble(double value) {
+        ensure(8);
+        long bits = Double.doubleToRawLongBits(value);
+        for (int shift = 56; shift >= 0; shift -= 8) {
+            buffer[position++] = (byte) (bits >>> shift);
+        }
+    }
+
+    public void writeString(String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarLong(bytes.length);
+        ensure(bytes.length);
+        System.arraycopy(bytes, 0, buffer, position, bytes.length);
+        position += bytes.length;
+    }
+
+    /**
+     * Writes a count, e.g. the length of an array, one byte up to 127.
+     */
+    public void writeLength(int length) {
+        if (length < 0) {
+            throw new IllegalArgumentException("Negative length " + length);
+        }
+        writeVarLong(length);
+    }
+
+    public void writeEnum(Enum<?> value) {
+        writeVarLong(value.ordinal());
+    }
+
+    public void writeActorRef(ActorRef<?> value) {
+        writeString(resolver.toSerializationFormat(value));
+    }
+
+    /**
+     * Writes a message nested in this one, e.g. the device command a home command forwards.
+     */
+    public void writeMessage(Object message) {
+        serializer.write(message, this);
+    }
+
+    private void writeVarLong(long value) {
+        ensure(10);
+        while ((value & ~0x7FL) != 0) {
+            buffer[position++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        buffer[position++] = (byte) value;
+    }
+
+    private void ensure(int bytes) {
+        if (position + bytes > buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, position + bytes));
+        }
+    }
+
+    byte[] toByteArray() {
+        return Arrays.copyOf(buffer, position);
+    }
+
+}
@@ -2,10 +2,20 @@ package at.fhv.sysarch.lab2.homeautomation.devices;
 
 import akka.actor.typed.Behavior;
 import akka.actor.typed.PostStop;
+import akka.actor.typed.eventstream.EventStream;
 import akka.actor.typed.javadsl.AbstractBehavior;
 import akka.actor.typed.javadsl.ActorContext;
 import akka.actor.typed.javadsl.Behaviors;
 import akka.actor.typed.javadsl.Receive;
+import at.fhv.sysarch.lab2.homeautomation.cluster.ClusterMessage;
+import at.fhv.sysarch.lab2.homeautomation.domain.enums.TemperatureUnit;
+import at.fhv.sysarch.lab2.homeautomation.mailbox.Conflatable;
+import at.fhv.sysarch.lab2.homeautomation.persistence.DeviceStore;
+import at.fhv.sysarch.lab2.homeautomation.persistence.DeviceStores;
+import com.fasterxml.jackson.annotation.JsonCreator;
+import org.slf4j.Logger;
+
+import java.nio.ByteBuffer;
 import java.util.Optional;
 
 /**
@@ -22,45 +32,103 @@ import java.util.Optional;
 @SuppressWarnings("JavadocReference")
 public class AirCondition extends AbstractBehavior<AirCondition.AirConditionCommand> {
 
-    public interface AirConditionCommand {
+    public interface AirConditionCommand extends ClusterMessage {
     }
 
     public static final class PowerAirConditionCommand implements AirConditionCommand {
         final Optional<Boolean> value;
 
+        @JsonCreator
         public PowerAirConditionCommand(Optional<Boolean> value) {
             this.value = value;
         }
     }
 
-    public static final class EnrichedTemperatureCommand implements AirConditionCommand {
-        Optional<Double> value;
-        Optional<String> unit;
+    /**
+     * A reading together with whether the rules want the air condition active at it.
+     */
+    public static final class EnrichedTemperatureCommand implements AirConditionCommand, Conflatable {
+        final double value;
+        final TemperatureUnit unit;
+        final boolean active;
 
-        public EnrichedTemperatureCommand(Optional<Double> value, Optional<String> unit) {
+        public EnrichedTemperatureCommand(double value, TemperatureUnit unit, boolean active) {
             this.value = value;
             this.unit = unit;
+            this.active = active;
+        }
+    }
+
+    /**
+     * Published on the event stream whenever the air condition is activated or deactivated.
+     */
+    public static final class ActiveChangedEvent {
+        private final String groupId;
+        private final String deviceId;
+        private final boolean active;
+        private final long nanoTime;
+
+        public ActiveChangedEvent(String groupId, String deviceId, boolean active, long nanoTime) {
+            this.groupId = groupId;
+            this.deviceId = deviceId;
+            this.active = active;
+            this.nanoTime = nanoTime;
+        }
+
+        public String getGroupId() {
+            return groupId;
+        }
+
+        public String getDeviceId() {
+            return deviceId;
+        }
+
+        public boolean isActive() {
+            return active;
+        }
+
+        /**
+         * @return {@link System#nanoTime()} when the state changed
+         */
+        public long getNanoTime() {
+            return nanoTime;
         }
     }
 
     public static Behavior<AirConditionCommand> create(String groupId, String deviceId) {
-        return Behaviors.setup(context -> new AirCondition(context, groupId, deviceId));
+        return Behaviors.setup(context -> new AirCondition(context, groupId, deviceId).recoveredBehavior());
     }
 
+    private static final byte ACTIVE_CHANGED = 1;
+    private static final byte POWER_CHANGED = 2;
+
     private final String groupId;
     private final String deviceId;
+    // only for level checks, getLog() copies the MDC on every call
+    private final Logger log;
     private boolean active = false;
     private boolean poweredOn = true;
+    // readings only come when they switch the air condition, so one that came while powered off is kept
+    private Boolean wanted;
+    private final DeviceStore store;
 
     public AirCondition(ActorContext<AirConditionCommand> context, String groupId, String deviceId) {
         super(context);
 
         this.groupId = groupId;
         this.deviceId = deviceId;
+        this.log = getContext().getLog();
+
+        this.store = DeviceStores.get(getContext().getSystem()).open("aircondition-" + groupId + "-" + deviceId);
+        store.recover(this::applySnapshot, this::applyEvent);
 
         getContext().getLog().info("AirCondition started");
     }
 
+    private Behavior<AirConditionCommand> recoveredBehavior() {
+        return poweredOn ? this : powerOff();
+    }
+
     @Override
     public Receive<AirConditionCommand> createReceive() {
         return newReceiveBuilder()
@@ -71,23 +139,38 @@ public class AirCondition extends AbstractBehavior<AirCondition.AirConditionComm
     }
 
     private Behavior<AirConditionCommand> onReadTemperature(EnrichedTemperatureCommand c) {
-        getContext().getLog().info("AirCondition reading {}", c.value.get());
-
-        if (c.value.get() >= 20) {
-            getContext().getLog().info("AirCondition is activated");
-            this.active = true;
-        } else {
-            getContext().getLog().info("AirCondition is deactivated");
-            this.active = false;
+        if (log.isDebugEnabled()) {
+            getContext().getLog().debug("AirCondition reading {} {}", c.value, c.unit);
         }
 
+        wanted = c.active;
+        apply();
         return Behaviors.same();
     }
 
+    private Behavior<AirConditionCommand> onReadTemperatureWhilePoweredOff(EnrichedTemperatureCommand c) {
+        wanted = c.active;
+        return Behaviors.same();
+    }
+
+    private void apply() {
+        if (wanted == null) {
+            return;
+        }
+        boolean active = wanted;
+        if (this.active != active) {
+            this.active = active;
+            persist(ACTIVE_CHANGED, active);
+            getContext().getSystem().eventStream().tell(new EventStream.Publish<>(new ActiveChangedEvent(groupId, deviceId, active, System.nanoTime())));
+            getContext().getLog().info(active ? "AirCondition is activated" : "AirCondition is deactivated");
+        }
+    }
+
     private Behavior<AirConditionCommand> onPowerAirConditionOff(PowerAirConditionCommand c) {
         getContext().getLog().info("Turning AirCondition to {}", c.value);
 
         if (!c.value.get()) {
+            persist(POWER_CHANGED, false);
             return this.powerOff();
         }
 
@@ -98,6 +181,9 @@ public class AirCondition extends AbstractBehavior<AirCondition.AirConditionComm
         getContext().getLog().info("Turning AirCondition to {}", c.value);
 
         if (c.value.get()) {
+            this.poweredOn = true;
+            persist(POWER_CHANGED, true);
+            apply();
             return Behaviors.receive(AirConditionCommand.class)
                     .onMessage(EnrichedTemperatureCommand.class, this::onReadTemperature)
                     .onMessage(PowerAirConditionCommand.class, this::onPowerAirConditionOff)
@@ -111,12 +197,36 @@ public class AirCondition extends AbstractBehavior<AirCondition.AirConditionComm
     private Behavior<AirConditionCommand> powerOff() {
         this.poweredOn = false;
         return Behaviors.receive(AirConditionCommand.class)
+                .onMessage(EnrichedTemperatureCommand.class, this::onReadTemperatureWhilePoweredOff)
                 .onMessage(PowerAirConditionCommand.class, this::onPowerAirConditionOn)
                 .onSignal(PostStop.class, signal -> onPostStop())
                 .build();
     }
 
+    private void persist(byte event, boolean value) {
+        store.persist(new byte[]{event, (byte) (value ? 1 : 0)}, this::snapshot);
+    }
+
+    private void applyEvent(ByteBuffer event) {
+        byte type = event.get();
+        if (type == ACTIVE_CHANGED) {
+            active = event.get() == 1;
+        } else if (type == POWER_CHANGED) {
+            poweredOn = event.get() == 1;
+        }
+    }
+
+    private byte[] snapshot() {
+        return new byte[]{(byte) (active ? 1 : 0), (byte) (poweredOn ? 1 : 0)};
+    }
+
+    private void applySnapshot(ByteBuffer snapshot) {
+        active = snapshot.get() == 1;
+        poweredOn = snapshot.get() == 1;
+    }
+
     private AirCondition onPostStop() {
+        store.close();
         getContext().getLog().info("AirCondition actor {}-{} stopped", groupId, deviceId);
         return this;
     }
@@ -2,15 +2,22 @@ package at.fhv.sysarch.lab2.homeautomation.devices;
 
 import akka.actor.typed.Behavior;
 import akka.actor.typed.PostStop;
+import akka.actor.typed.eventstream.EventStream;
 import akka.actor.typed.javadsl.AbstractBehavior;
 import akka.actor.typed.javadsl.ActorContext;
 import akka.actor.typed.javadsl.Behaviors;
 import akka.actor.typed.javadsl.Receive;
+import at.fhv.sysarch.lab2.homeautomation.cluster.ClusterMessage;
 import at.fhv.sysarch.lab2.homeautomation.domain.enums.BlindsState;
+import at.fhv.sysarch.lab2.homeautomation.mailbox.Conflatable;
+import at.fhv.sysarch.lab2.homeautomation.persistence.DeviceStore;
+import at.fhv.sysarch.lab2.homeautomation.persistence.DeviceStores;
+
+import java.nio.ByteBuffer;
 
 public class Blinds extends AbstractBehavior<Blinds.BlindsCommand> {
 
-    public interface BlindsCommand {
+    public interface BlindsCommand extends ClusterMessage {
     }
 
     public static final class CloseBlindsCommand implements BlindsCommand {
@@ -19,7 +26,7 @@ public class Blinds extends AbstractBehavior<Blinds.BlindsCommand> {
     public static final class OpenBlindsCommand implements BlindsCommand {
     }
 
-    public static final class MovieStateChangedCommand implements BlindsCommand {
+    public static final class MovieStateChangedCommand implements BlindsCommand, Conflatable {
         boolean isMoviePlaying;
 
         public MovieStateChangedCommand(boolean isMoviePlaying) {
@@ -27,6 +34,42 @@ public class Blinds extends AbstractBehavior<Blinds.BlindsCommand> {
         }
     }
 
+    /**
+     * Published on the event stream whenever the blinds open or close.
+     */
+    public static final class StateChangedEvent {
+        private final String groupId;
+        private final String deviceId;
+        private final BlindsState state;
+        private final long nanoTime;
+
+        public StateChangedEvent(String groupId, String deviceId, BlindsState state, long nanoTime) {
+            this.groupId = groupId;
+            this.deviceId = deviceId;
+            this.state = state;
+            this.nanoTime = nanoTime;
+        }
+
+        public String getGroupId() {
+            return groupId;
+        }
+
+        public String getDeviceId() {
+            return deviceId;
+        }
+
+        public BlindsState getState() {
+            return state;
+        }
+
+        /**
+         * @return {@link System#nanoTime()} when the state changed
+         */
+        public long getNanoTime() {
+            return nanoTime;
+        }
+    }
+
     public static Behavior<BlindsCommand> create(
             String groupId,
             String deviceId
@@ -34,10 +77,14 @@ public class Blinds extends AbstractBehavior<Blinds.BlindsCommand> {
         return Behaviors.setup(context -> new Blinds(context, groupId, deviceId));
     }
 
+    private static final byte BLINDS_STATE_CHANGED = 1;
+    private static final byte MOVIE_STATE_CHANGED = 2;
+
     private boolean isMoviePlaying = false;
     private final String groupId;
     private final String deviceId;
     private BlindsState blindsState = BlindsState.OPEN;
+    private final DeviceStore store;
 
     public Blinds(
             ActorContext<Blinds.BlindsCommand> context,
@@ -49,6 +96,9 @@ public class Blinds extends AbstractBehavior<Blinds.BlindsCommand> {
         this.groupId = groupId;
         this.deviceId = deviceId;
 
+        this.store = DeviceStores.get(getContext().getSystem()).open("blinds-" + groupId + "-" + deviceId);
+        store.recover(this::applySnapshot, this::applyEvent);
+
         getContext().getLog().info("Blinds started");
     }
 
@@ -65,8 +115,7 @@ public class Blinds extends AbstractBehavior<Blinds.BlindsCommand> {
     private Behavior<Blinds.BlindsCommand> onOpenBlindsCommand(OpenBlindsCommand c) {
         //only open blinds if they aren't already open and no movie is playing
         if (blindsState != BlindsState.OPEN && !isMoviePlaying) {
-            blindsState = BlindsState.OPEN;
-            getContext().getLog().info("Blinds: {}", blindsState);
+            changeState(BlindsState.OPEN);
         }
         return this;
     }
@@ -74,22 +123,53 @@ public class Blinds extends AbstractBehavior<Blinds.BlindsCommand> {
     private Behavior<Blinds.BlindsCommand> onCloseBlindsCommand(CloseBlindsCommand c) {
         //only close blinds if they aren't already closed
         if (blindsState != BlindsState.CLOSED) {
-            blindsState = BlindsState.CLOSED;
-            getContext().getLog().info("Blinds: {}", blindsState);
+            changeState(BlindsState.CLOSED);
         }
         return this;
     }
 
     private Behavior<Blinds.BlindsCommand> onMovieStateChangedCommand(MovieStateChangedCommand c) {
-        this.isMoviePlaying = c.isMoviePlaying;
+        if (this.isMoviePlaying != c.isMoviePlaying) {
+            this.isMoviePlaying = c.isMoviePlaying;
+            persist(MOVIE_STATE_CHANGED, isMoviePlaying ? 1 : 0);
+        }
         if(isMoviePlaying && blindsState != BlindsState.CLOSED) {
-            blindsState = BlindsState.CLOSED;
-            getContext().getLog().info("Blinds: {}", blindsState);
+            changeState(BlindsState.CLOSED);
         }
         return this;
     }
 
+    private void changeState(BlindsState state) {
+        blindsState = state;
+        persist(BLINDS_STATE_CHANGED, state.ordinal());
+        getContext().getSystem().eventStream().tell(new EventStream.Publish<>(new StateChangedEvent(groupId, deviceId, state, System.nanoTime())));
+        getContext().getLog().info("Blinds: {}", state);
+    }
+
+    private void persist(byte event, int value) {
+        store.persist(new byte[]{event, (byte) value}, this::snapshot);
+    }
+
+    private void applyEvent(ByteBuffer event) {
+        byte type = event.get();
+        if (type == BLINDS_STATE_CHANGED) {
+            blindsState = BlindsState.values()[event.get()];
+        } else if (type == MOVIE_STATE_CHANGED) {
+            isMoviePlaying = event.get() == 1;
+        }
+    }
+
+    private byte[] snapshot() {
+        return new byte[]{(byte) blindsState.ordinal(), (byte) (isMoviePlaying ? 1 : 0)};
+    }
+
+    private void applySnapshot(ByteBuffer snapshot) {
+        blindsState = BlindsState.values()[snapshot.get()];
+        isMoviePlaying = snapshot.get() == 1;
+    }
+
     private Blinds onPostStop() {
+        store.close();
         getContext().getLog().info("Blinds actor {}-{} stopped", groupId, deviceId);
         return this;
     }
@@ -0,0 +1,97 @@
+package at.fhv.sysarch.lab2.homeautomation.devices;
+
+import akka.actor.typed.ActorSystem;
+import akka.actor.typed.javadsl.TimerScheduler;
+
+import java.time.Duration;
+import java.util.Objects;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+
+/**
+ * The state a sensor wants its actuator in, and the state it last commanded. Commands only go out on transitions,
+ * readings that want the commanded state again send nothing. A transition waits for the coalescing window
+ * ({@code homeautomation.sensors.coalescing-window}) and is dropped if it is reverted before the window is over, so
+ * readings flip-flopping around a threshold don't make the actuator flip-flop too. The first transition is sent
+ * right away, the sensor doesn't know the state of the actuator before.
+ * <p>
+ * While the mailbox of the actuator signals backpressure, transitions are held back and retried every
+ * {@code homeautomation.sensors.backpressure-retry}; only the state wanted by then is sent once it caught up.
+ *
+ * @param <T> protocol of the sensor
+ * @param <S> state of the actuator
+ */
+final class CoalescingActuation<T, S> {
+
+    static Duration configuredWindow(ActorSystem<?> system) {
+        return system.settings().config().getDuration("homeautomation.sensors.coalescing-window");
+    }
+
+    static Duration configuredRetry(ActorSystem<?> system) {
+        return system.settings().config().getDuration("homeautomation.sensors.backpressure-retry");
+    }
+
+    private final TimerScheduler<T> timers;
+    private final T windowOver;
+    private final Duration window;
+    private final Duration retry;
+    private final BooleanSupplier backpressured;
+    private final Consumer<S> command;
+
+    private S commanded;
+    private S wanted;
+
+    /**
+     * @param windowOver    message the sensor passes to {@link #windowOver()}, also the key of the window timer
+     * @param retry         how long a transition is held back while the actuator signals backpressure
+     * @param backpressured whether the actuator signals backpressure, see {@code Mailboxes#isBackpressured}
+     * @param command       sends the command for a state to the actuator
+     */
+    CoalescingActuation(
+            TimerScheduler<T> timers,
+            T windowOver,
+            Duration window,
+            Duration retry,
+            BooleanSupplier backpressured,
+            Consumer<S> command
+    ) {
+        this.timers = timers;
+        this.windowOver = windowOver;
+        this.window = window;
+        this.retry = retry;
+        this.backpressured = backpressured;
+        this.command = command;
+    }
+
+    void want(S state) {
+        wanted = state;
+        if (Objects.equals(state, commanded)) {
+            if (timers.isTimerActive(windowOver)) {
+                // reverted within the window
+                timers.cancel(windowOver);
+            }
+        } else if (commanded == null || window.isZero()) {
+            send();
+        } else if (!timers.isTimerActive(windowOver)) {
+            timers.startSingleTimer(windowOver, window);
+        }
+    }
+
+    void windowOver() {
+        if (!Objects.equals(wanted, commanded)) {
+            send();
+        }
+    }
+
+    private void send() {
+        if (backpressured.getAsBoolean()) {
+            if (!timers.isTimerActive(windowOver)) {
+                timers.startSingleTimer(windowOver, retry);
+            }
+            return;
+        }
+        commanded = wanted;
+        command.accept(wanted);
+    }
+
+}
@@ -0,0 +1,82 @@
+package at.fhv.sysarch.lab2.homeautomation.devices;
+
+import at.fhv.sysarch.lab2.homeautomation.cluster.MessageCodec;
+import at.fhv.sysarch.lab2.homeautomation.domain.enums.TemperatureUnit;
+import at.fhv.sysarch.lab2.homeautomation.domain.enums.WeatherCondition;
+import at.fhv.sysarch.lab2.homeautomation.timeseries.TimeseriesCodec;
+
+import java.util.Optional;
+
+/**
+ * Encodings of the commands of the air condition, the sensors, the room aggregator, the blinds and the media station.
+ */
+public final class DeviceCodec extends MessageCodec {
+
+    // the power command may leave the power as it is
+    private static final int POWER_UNCHANGED = 0;
+    private static final int POWER_OFF = 1;
+    private static final int POWER_ON = 2;
+
+    public DeviceCodec() {
+        register("A1", AirCondition.PowerAirConditionCommand.class, 1,
+                (c, out) -> out.writeByte(c.value.map(on -> on ? POWER_ON : POWER_OFF).orElse(POWER_UNCHANGED)),
+                in -> {
+                    int power = in.readByte();
+                    return new AirCondition.PowerAirConditionCommand(power == POWER_UNCHANGED ? Optional.empty() : Optional.of(power == POWER_ON));
+                });
+        register("A2", AirCondition.EnrichedTemperatureCommand.class, 1,
+                (c, out) -> {
+                    out.writeDouble(c.value);
+                    out.writeEnum(c.unit);
+                    out.writeBoolean(c.active);
+                },
+                in -> new AirCondition.EnrichedTemperatureCommand(in.readDouble(), in.readEnum(TemperatureUnit.class), in.readBoolean()));
+
+        register("T1", TemperatureSensor.ReadTemperatureCommand.class, 1,
+                (c, out) -> {
+                    out.writeDouble(c.value);
+                    out.writeEnum(c.unit);
+                },
+                in -> new TemperatureSensor.ReadTemperatureCommand(in.readDouble(), in.readEnum(TemperatureUnit.class)));
+        register("T2", TemperatureSensor.QueryReadingsCommand.class, 1,
+                (c, out) -> TimeseriesCodec.writeRequest(c.request, out),
+                in -> new TemperatureSensor.QueryReadingsCommand(TimeseriesCodec.readRequest(in)));
+        register("T3", TemperatureSensor.SubscribeReadingsCommand.class, 2,
+                (c, out) -> {
+                    out.writeActorRef(c.aggregator);
+                    out.writeInt(c.slot);
+                    out.writeInt(c.generation);
+                },
+                in -> new TemperatureSensor.SubscribeReadingsCommand(in.readActorRef(), in.readInt(), in.getVersion() >= 2 ? in.readInt() : 0));
+        register("T4", TemperatureSensor.UnsubscribeReadingsCommand.class, 1,
+                (c, out) -> out.writeActorRef(c.aggregator),
+                in -> new TemperatureSensor.UnsubscribeReadingsCommand(in.readActorRef()));
+
+        register("RA1", RoomAggregator.TemperatureReadCommand.class, 2,
+                (c, out) -> {
+                    out.writeInt(c.slot);
+                    out.writeInt(c.generation);
+                    out.writeDouble(c.celsius);
+                },
+                in -> in.getVersion() >= 2
+                        ? new RoomAggregator.TemperatureReadCommand(in.readInt(), in.readInt(), in.readDouble())
+                        : new RoomAggregator.TemperatureReadCommand(in.readInt(), 0, in.readDouble()));
+
+        register("W1", WeatherSensor.ReadWeatherCommand.class, 1,
+                (c, out) -> out.writeEnum(c.weather),
+                in -> new WeatherSensor.ReadWeatherCommand(in.readEnum(WeatherCondition.class)));
+        register("W2", WeatherSensor.QueryReadingsCommand.class, 1,
+                (c, out) -> TimeseriesCodec.writeRequest(c.request, out),
+                in -> new WeatherSensor.QueryReadingsCommand(TimeseriesCodec.readRequest(in)));
+
+        register("B1", new Blinds.CloseBlindsCommand());
+        register("B2", new Blinds.OpenBlindsCommand());
+        register("B3", Blinds.MovieStateChangedCommand.class, 1,
+                (c, out) -> out.writeBoolean(c.isMoviePlaying),
+                in -> new Blinds.MovieStateChangedCommand(in.readBoolean()));
+
+        register("M1", new MediaStation.StartMovieCommand());
+        register("M2", new MediaStation.StopMovieCommand());
+    }
+
+}
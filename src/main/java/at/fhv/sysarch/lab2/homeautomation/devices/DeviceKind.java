@@ -0,0 +1,36 @@
+package at.fhv.sysarch.lab2.homeautomation.devices;
+
+import at.fhv.sysarch.lab2.homeautomation.devices.fridge.Fridge;
+import at.fhv.sysarch.lab2.homeautomation.environment.Environment;
+
+/**
+ * Kind of a device in the {@link DeviceRegistry}, typed with the commands the device takes, so a lookup returns a
+ * reference of the right type. The name is the one its mailbox is configured under in {@code homeautomation.mailboxes}.
+ */
+public final class DeviceKind<T> {
+
+    public static final DeviceKind<Environment.EnvironmentCommand> ENVIRONMENT = new DeviceKind<>("environment");
+    public static final DeviceKind<AirCondition.AirConditionCommand> AIR_CONDITION = new DeviceKind<>("air-condition");
+    public static final DeviceKind<TemperatureSensor.TemperatureCommand> TEMPERATURE_SENSOR = new DeviceKind<>("temperature-sensor");
+    public static final DeviceKind<RoomAggregator.RoomAggregatorCommand> ROOM_AGGREGATOR = new DeviceKind<>("room-aggregator");
+    public static final DeviceKind<WeatherSensor.WeatherCommand> WEATHER_SENSOR = new DeviceKind<>("weather-sensor");
+    public static final DeviceKind<Blinds.BlindsCommand> BLINDS = new DeviceKind<>("blinds");
+    public static final DeviceKind<MediaStation.MediaStationCommand> MEDIA_STATION = new DeviceKind<>("media-station");
+    public static final DeviceKind<Fridge.FridgeCommand> FRIDGE = new DeviceKind<>("fridge");
+
+    private final String name;
+
+    private DeviceKind(String name) {
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+
+}
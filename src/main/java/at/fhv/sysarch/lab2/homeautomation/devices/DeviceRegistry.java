@@ -0,0 +1,256 @@
+package at.fhv.sysarch.lab2.homeautomation.devices;
+
+import akka.actor.typed.ActorRef;
+import akka.actor.typed.ActorSystem;
+import akka.actor.typed.Behavior;
+import akka.actor.typed.BehaviorInterceptor;
+import akka.actor.typed.Extension;
+import akka.actor.typed.ExtensionId;
+import akka.actor.typed.PostStop;
+import akka.actor.typed.Props;
+import akka.actor.typed.Signal;
+import akka.actor.typed.TypedActorContext;
+import akka.actor.typed.javadsl.ActorContext;
+import akka.actor.typed.javadsl.Behaviors;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Finds the devices of this node by their group and device id, e.g. the air condition of home 7 or all temperature
+ * sensors of a room. The devices are indexed by group, then {@link DeviceKind}, then device id: a lookup is three hash
+ * lookups, and the devices of a group are read without going through the other groups.
+ * <p>
+ * Devices spawned with {@link #spawn} are registered once the spawn returns and leave the registry when they stop.
+ * Thread safe, the command line and the command server look devices up from their own threads.
+ */
+public final class DeviceRegistry implements Extension {
+
+    public static class Id extends ExtensionId<DeviceRegistry> {
+
+        private static final Id instance = new Id();
+
+        private Id() {
+        }
+
+        @Override
+        public DeviceRegistry createExtension(ActorSystem<?> system) {
+            return new DeviceRegistry();
+        }
+
+        public static DeviceRegistry get(ActorSystem<?> system) {
+            return instance.apply(system);
+        }
+    }
+
+    /**
+     * @return the registry of the devices of this node
+     */
+    public static DeviceRegistry get(ActorSystem<?> system) {
+        return Id.get(system);
+    }
+
+    public static final class Device {
+        private final DeviceKind<?> kind;
+        private final String groupId;
+        private final String deviceId;
+        private final ActorRef<?> ref;
+
+        private Device(DeviceKind<?> kind, String groupId, String deviceId, ActorRef<?> ref) {
+            this.kind = kind;
+            this.groupId = groupId;
+            this.deviceId = deviceId;
+            this.ref = ref;
+        }
+
+        public DeviceKind<?> getKind() {
+            return kind;
+        }
+
+        public String getGroupId() {
+            return groupId;
+        }
+
+        public String getDeviceId() {
+            return deviceId;
+        }
+
+        public ActorRef<?> getRef() {
+            return ref;
+        }
+
+        @Override
+        public String toString() {
+            return kind + "-" + groupId + "-" + deviceId + " " + ref.path();
+        }
+    }
+
+    private static final Logger log = LoggerFactory.getLogger(DeviceRegistry.class);
+
+    // group id > kind > device id, a group is changed only while holding its entry in groups
+    private final Map<String, Map<DeviceKind<?>, Map<String, Device>>> groups = new ConcurrentHashMap<>();
+
+    /**
+     * A registry of its own rather than the one of the node, e.g. for the forwarders to the devices of a home
+     * somewhere in the cluster.
+     */
+    public DeviceRegistry() {
+    }
+
+    /**
+     * Spawns a device as a child of {@code context} and registers it.
+     */
+    public <T> ActorRef<T> spawn(
+            ActorContext<?> context,
+            DeviceKind<T> kind,
+            String groupId,
+            String deviceId,
+            Behavior<T> behavior,
+            String name,
+            Props props
+    ) {
+        ActorRef<T> device = context.spawn(track(kind, groupId, deviceId, behavior), name, props);
+        register(kind, groupId, deviceId, device);
+        return device;
+    }
+
+    /**
+     * Registers the device spawned with {@code behavior} when it starts, and removes it when it stops. Devices spawned
+     * without an {@link ActorContext}, e.g. by a test kit, can be found before they started by {@link #register}ing
+     * them right after the spawn.
+     */
+    public <T> Behavior<T> track(DeviceKind<T> kind, String groupId, String deviceId, Behavior<T> behavior) {
+        @SuppressWarnings("unchecked")
+        Behavior<Object> untyped = (Behavior<Object>) behavior;
+        return Behaviors.intercept(() -> new Registration(kind, groupId, deviceId), untyped).narrow();
+    }
+
+    /**
+     * Registers {@code device}, replacing a device of the same kind and ids.
+     */
+    public <T> void register(DeviceKind<T> kind, String groupId, String deviceId, ActorRef<T> device) {
+        Device registered = new Device(kind, groupId, deviceId, device);
+        groups.compute(groupId, (group, kinds) -> {
+            if (kinds == null) {
+                kinds = new ConcurrentHashMap<>();
+            }
+            Device replaced = kinds.computeIfAbsent(kind, k -> new ConcurrentHashMap<>()).put(deviceId, registered);
+            if (replaced != null && !replaced.ref.equals(device)) {
+                log.warn("Device {} replaces {}", registered, replaced);
+            }
+            return kinds;
+        });
+    }
+
+    private void deregister(DeviceKind<?> kind, String groupId, String deviceId, ActorRef<?> device) {
+        groups.computeIfPresent(groupId, (group, kinds) -> {
+            Map<String, Device> devices = kinds.get(kind);
+            if (devices != null) {
+                Device registered = devices.get(deviceId);
+                // a device replacing it stays
+                if (registered != null && registered.ref.equals(device)) {
+                    devices.remove(deviceId);
+                    if (devices.isEmpty()) {
+                        kinds.remove(kind);
+                    }
+                }
+            }
+            return kinds.isEmpty() ? null : kinds;
+        });
+    }
+
+    /**
+     * @return the device, null if there is none
+     */
+    @SuppressWarnings("unchecked")
+    public <T> ActorRef<T> lookup(DeviceKind<T> kind, String groupId, String deviceId) {
+        Map<DeviceKind<?>, Map<String, Device>> kinds = groups.get(groupId);
+        if (kinds == null) {
+            return null;
+        }
+        Map<String, Device> devices = kinds.get(kind);
+        if (devices == null) {
+            return null;
+        }
+        Device device = devices.get(deviceId);
+        return device == null ? null : (ActorRef<T>) device.ref;
+    }
+
+    /**
+     * @return the devices of {@code kind} in the group, e.g. all temperature sensors of a room
+     */
+    @SuppressWarnings("unchecked")
+    public <T> List<ActorRef<T>> group(DeviceKind<T> kind, String groupId) {
+        List<ActorRef<T>> group = new ArrayList<>();
+        Map<DeviceKind<?>, Map<String, Device>> kinds = groups.get(groupId);
+        if (kinds != null) {
+            Map<String, Device> devices = kinds.get(kind);
+            if (devices != null) {
+                for (Device device : devices.values()) {
+                    group.add((ActorRef<T>) device.ref);
+                }
+            }
+        }
+        return group;
+    }
+
+    /**
+     * @return every device of the group, e.g. of a home
+     */
+    public List<Device> group(String groupId) {
+        List<Device> group = new ArrayList<>();
+        Map<DeviceKind<?>, Map<String, Device>> kinds = groups.get(groupId);
+        if (kinds != null) {
+            for (Map<String, Device> devices : kinds.values()) {
+                group.addAll(devices.values());
+            }
+        }
+        return group;
+    }
+
+    /**
+     * Keeps the registry up to date with the device it intercepts.
+     */
+    private final class Registration extends BehaviorInterceptor<Object, Object> {
+
+        private final DeviceKind<?> kind;
+        private final String groupId;
+        private final String deviceId;
+
+        Registration(DeviceKind<?> kind, String groupId, String deviceId) {
+            super(Object.class);
+            this.kind = kind;
+            this.groupId = groupId;
+            this.deviceId = deviceId;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public Behavior<Object> aroundStart(TypedActorContext<Object> ctx, PreStartTarget<Object> target) {
+            register((DeviceKind<Object>) kind, groupId, deviceId, ctx.asJava().getSelf());
+            return target.start(ctx);
+        }
+
+        @Override
+        public Behavior<Object> aroundReceive(TypedActorContext<Object> ctx, Object msg, ReceiveTarget<Object> target) {
+            Behavior<Object> next = target.apply(ctx, msg);
+            if (!Behavior.isAlive(next)) {
+                deregister(kind, groupId, deviceId, ctx.asJava().getSelf());
+            }
+            return next;
+        }
+
+        @Override
+        public Behavior<Object> aroundSignal(TypedActorContext<Object> ctx, Signal signal, SignalTarget<Object> target) {
+            if (signal instanceof PostStop) {
+                deregister(kind, groupId, deviceId, ctx.asJava().getSelf());
+            }
+            return target.apply(ctx, signal);
+        }
+    }
+
+}
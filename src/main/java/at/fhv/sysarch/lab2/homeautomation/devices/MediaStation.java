@@ -7,10 +7,15 @@ import akka.actor.typed.javadsl.AbstractBehavior;
 import akka.actor.typed.javadsl.ActorContext;
 import akka.actor.typed.javadsl.Behaviors;
 import akka.actor.typed.javadsl.Receive;
+import at.fhv.sysarch.lab2.homeautomation.cluster.ClusterMessage;
+import at.fhv.sysarch.lab2.homeautomation.persistence.DeviceStore;
+import at.fhv.sysarch.lab2.homeautomation.persistence.DeviceStores;
+
+import java.nio.ByteBuffer;
 
 public class MediaStation extends AbstractBehavior<MediaStation.MediaStationCommand> {
 
-    public interface MediaStationCommand {
+    public interface MediaStationCommand extends ClusterMessage {
     }
 
     public static final class StartMovieCommand implements MediaStationCommand {
@@ -27,6 +32,7 @@ public class MediaStation extends AbstractBehavior<MediaStation.MediaStationComm
     private Boolean isMoviePlaying = false;
     private final String groupId;
     private final String deviceId;
+    private final DeviceStore store;
 
     public MediaStation(
             ActorContext<MediaStationCommand> context,
@@ -40,6 +46,10 @@ public class MediaStation extends AbstractBehavior<MediaStation.MediaStationComm
         this.groupId = groupId;
         this.deviceId = deviceId;
 
+        // the only state is whether a movie is playing, so the event is the snapshot
+        this.store = DeviceStores.get(getContext().getSystem()).open("mediastation-" + groupId + "-" + deviceId);
+        store.recover(this::applyState, this::applyState);
+
         getContext().getLog().info("MediaStation started");
     }
 
@@ -56,6 +66,7 @@ public class MediaStation extends AbstractBehavior<MediaStation.MediaStationComm
     private Behavior<MediaStationCommand> onStartMovie(StartMovieCommand c) {
         if (!isMoviePlaying) {
             isMoviePlaying = true;
+            store.persist(state(), this::state);
             getContext().getLog().info("Movie starts playing...");
             this.blinds.tell(new Blinds.MovieStateChangedCommand(isMoviePlaying));
         } else {
@@ -67,6 +78,7 @@ public class MediaStation extends AbstractBehavior<MediaStation.MediaStationComm
     private Behavior<MediaStationCommand> onStopMovie(StopMovieCommand c) {
         if (isMoviePlaying) {
             isMoviePlaying = false;
+            store.persist(state(), this::state);
             getContext().getLog().info("Movie stops playing...");
             this.blinds.tell(new Blinds.MovieStateChangedCommand(isMoviePlaying));
         } else {
@@ -75,7 +87,16 @@ public class MediaStation extends AbstractBehavior<MediaStation.MediaStationComm
         return this;
     }
 
+    private byte[] state() {
+        return new byte[]{(byte) (isMoviePlaying ? 1 : 0)};
+    }
+
+    private void applyState(ByteBuffer state) {
+        isMoviePlaying = state.get() == 1;
+    }
+
     private MediaStation onPostStop() {
+        store.close();
         getContext().getLog().info("MediaStation actor {}-{} stopped", groupId, deviceId);
         return this;
     }
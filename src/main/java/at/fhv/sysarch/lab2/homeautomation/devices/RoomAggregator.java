@@ -0,0 +1,300 @@
+package at.fhv.sysarch.lab2.homeautomation.devices;
+
+import akka.actor.typed.ActorRef;
+import akka.actor.typed.Behavior;
+import akka.actor.typed.PostStop;
+import akka.actor.typed.javadsl.*;
+import akka.actor.typed.receptionist.Receptionist;
+import akka.actor.typed.receptionist.ServiceKey;
+import at.fhv.sysarch.lab2.homeautomation.cluster.ClusterMessage;
+import at.fhv.sysarch.lab2.homeautomation.domain.enums.TemperatureUnit;
+import at.fhv.sysarch.lab2.homeautomation.mailbox.Mailboxes;
+import at.fhv.sysarch.lab2.homeautomation.metrics.Metrics;
+import at.fhv.sysarch.lab2.homeautomation.rules.Action;
+import at.fhv.sysarch.lab2.homeautomation.rules.RuleBook;
+import com.typesafe.config.Config;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Sits between the temperature sensors of a room and its air condition. The sensors are found through the
+ * receptionist ({@link TemperatureSensor#serviceKey(String)}) and subscribed to, each gets a slot its readings are
+ * tagged with. A slot is reused once its sensor left, with a new generation, so a late reading of the sensor that
+ * left is told apart from those of the one that took its slot.
+ * <p>
+ * Every slide ({@code homeautomation.rooms.slide}) the readings of the last window ({@code homeautomation.rooms.window})
+ * are averaged: the mean of each sensor, its last reading if it had none in the window, then the mean over the
+ * sensors. The window is a ring of slide-long panes holding a sum and a count per slot in primitive arrays. The rules
+ * decide on the average, and the air condition is only commanded when that changes its state, so it hears about N
+ * sensors at most once per slide. While no readings come in the aggregator is idle.
+ */
+public class RoomAggregator extends AbstractBehavior<RoomAggregator.RoomAggregatorCommand> {
+
+    public interface RoomAggregatorCommand extends ClusterMessage {
+    }
+
+    public static final class TemperatureReadCommand implements RoomAggregatorCommand {
+        final int slot;
+        final int generation;
+        final double celsius;
+
+        public TemperatureReadCommand(int slot, int generation, double celsius) {
+            this.slot = slot;
+            this.generation = generation;
+            this.celsius = celsius;
+        }
+    }
+
+    private static final class SensorsChangedCommand implements RoomAggregatorCommand {
+        final Receptionist.Listing listing;
+
+        SensorsChangedCommand(Receptionist.Listing listing) {
+            this.listing = listing;
+        }
+    }
+
+    private static final class SlideOverCommand implements RoomAggregatorCommand {
+        static final SlideOverCommand INSTANCE = new SlideOverCommand();
+
+        private SlideOverCommand() {
+        }
+    }
+
+    public static Behavior<RoomAggregatorCommand> create(
+            ActorRef<AirCondition.AirConditionCommand> airCondition,
+            String groupId,
+            String deviceId
+    ) {
+        return Behaviors.setup(context -> {
+            Config config = context.getSystem().settings().config().getConfig("homeautomation.rooms");
+            Duration window = config.getDuration("window");
+            Duration slide = config.getDuration("slide");
+            if (slide.isZero() || slide.isNegative() || window.toMillis() % slide.toMillis() != 0 || window.compareTo(slide) < 0) {
+                throw new IllegalArgumentException("The room window must be a multiple of the slide: " + window + ", " + slide);
+            }
+            return Metrics.withTimers(timers -> new RoomAggregator(context, timers, airCondition, (int) (window.toMillis() / slide.toMillis()), slide, groupId, deviceId));
+        });
+    }
+
+    private final TimerScheduler<RoomAggregatorCommand> timers;
+    private final ActorRef<AirCondition.AirConditionCommand> airCondition;
+    private final ServiceKey<TemperatureSensor.TemperatureCommand> sensorKey;
+    private final Mailboxes mailboxes;
+    private final RuleBook rules;
+    private final int panes;
+    private final Duration slide;
+    private final String groupId;
+    private final String deviceId;
+
+    private final Map<ActorRef<TemperatureSensor.TemperatureCommand>, Integer> slots = new HashMap<>();
+    private final BitSet usedSlots = new BitSet();
+    private int capacity;
+    // per pane and slot at pane * capacity + slot
+    private double[] sums;
+    private int[] counts;
+    // per slot, NaN before its first reading
+    private double[] last;
+    // per slot, increased whenever it is given to a sensor
+    private int[] generations;
+    private final int[] paneReadings;
+    private int pane;
+
+    // the state the rules want at the average, and the one last commanded, null before there was one
+    private Boolean wanted;
+    private double wantedAt;
+    private Boolean commanded;
+
+    public RoomAggregator(
+            ActorContext<RoomAggregatorCommand> context,
+            TimerScheduler<RoomAggregatorCommand> timers,
+            ActorRef<AirCondition.AirConditionCommand> airCondition,
+            int panes,
+            Duration slide,
+            String groupId,
+            String deviceId
+    ) {
+        super(context);
+
+        this.timers = timers;
+        this.airCondition = airCondition;
+        this.sensorKey = TemperatureSensor.serviceKey(groupId);
+        this.mailboxes = Mailboxes.get(getContext().getSystem());
+        this.rules = RuleBook.get(getContext().getSystem());
+        this.panes = panes;
+        this.slide = slide;
+        this.groupId = groupId;
+        this.deviceId = deviceId;
+        this.paneReadings = new int[panes];
+        resize(4);
+
+        ActorRef<Receptionist.Listing> listings = getContext().messageAdapter(Receptionist.Listing.class, SensorsChangedCommand::new);
+        getContext().getSystem().receptionist().tell(Receptionist.subscribe(sensorKey, listings));
+
+        getContext().getLog().info("RoomAggregator started");
+    }
+
+    @Override
+    public Receive<RoomAggregatorCommand> createReceive() {
+        return newReceiveBuilder()
+                .onMessage(TemperatureReadCommand.class, this::onTemperatureRead)
+                .onMessage(SensorsChangedCommand.class, this::onSensorsChanged)
+                .onMessage(SlideOverCommand.class, c -> onSlideOver())
+                .onSignal(PostStop.class, signal -> onPostStop())
+                .build();
+    }
+
+    private Behavior<RoomAggregatorCommand> onTemperatureRead(TemperatureReadCommand c) {
+        // a reading of a sensor that left while it was on its way, its slot may have gone to another one since
+        if (c.slot >= capacity || !usedSlots.get(c.slot) || c.generation != generations[c.slot]) {
+            return this;
+        }
+
+        int index = pane * capacity + c.slot;
+        sums[index] += c.celsius;
+        counts[index]++;
+        paneReadings[pane]++;
+        last[c.slot] = c.celsius;
+
+        if (!timers.isTimerActive(SlideOverCommand.INSTANCE)) {
+            timers.startSingleTimer(SlideOverCommand.INSTANCE, slide);
+        }
+        return this;
+    }
+
+    private Behavior<RoomAggregatorCommand> onSensorsChanged(SensorsChangedCommand c) {
+        Set<ActorRef<TemperatureSensor.TemperatureCommand>> sensors = c.listing.getServiceInstances(sensorKey);
+
+        Iterator<Map.Entry<ActorRef<TemperatureSensor.TemperatureCommand>, Integer>> known = slots.entrySet().iterator();
+        while (known.hasNext()) {
+            Map.Entry<ActorRef<TemperatureSensor.TemperatureCommand>, Integer> entry = known.next();
+            if (!sensors.contains(entry.getKey())) {
+                entry.getKey().tell(new TemperatureSensor.UnsubscribeReadingsCommand(getContext().getSelf()));
+                clearSlot(entry.getValue());
+                usedSlots.clear(entry.getValue());
+                known.remove();
+            }
+        }
+
+        for (ActorRef<TemperatureSensor.TemperatureCommand> sensor : sensors) {
+            if (!slots.containsKey(sensor)) {
+                int slot = usedSlots.nextClearBit(0);
+                if (slot >= capacity) {
+                    resize(capacity * 2);
+                }
+                clearSlot(slot);
+                usedSlots.set(slot);
+                slots.put(sensor, slot);
+                sensor.tell(new TemperatureSensor.SubscribeReadingsCommand(getContext().getSelf(), slot, ++generations[slot]));
+            }
+        }
+
+        getContext().getLog().info("RoomAggregator {} averages {} temperature sensors", groupId, slots.size());
+        return this;
+    }
+
+    private Behavior<RoomAggregatorCommand> onSlideOver() {
+        double sum = 0;
+        int sensors = 0;
+        for (int slot = usedSlots.nextSetBit(0); slot >= 0; slot = usedSlots.nextSetBit(slot + 1)) {
+            double slotSum = 0;
+            int slotCount = 0;
+            for (int p = 0; p < panes; p++) {
+                slotSum += sums[p * capacity + slot];
+                slotCount += counts[p * capacity + slot];
+            }
+            if (slotCount > 0) {
+                sum += slotSum / slotCount;
+                sensors++;
+            } else if (!Double.isNaN(last[slot])) {
+                sum += last[slot];
+                sensors++;
+            }
+        }
+
+        if (sensors > 0) {
+            double average = sum / sensors;
+            Action action = rules.decide(groupId, Action.Device.AIR_CONDITION, average);
+            if (action != null) {
+                wanted = action == Action.AIR_CONDITION_ON;
+                wantedAt = average;
+            }
+        }
+
+        boolean pending = wanted != null && !wanted.equals(commanded);
+        if (pending && !mailboxes.isBackpressured(airCondition)) {
+            airCondition.tell(new AirCondition.EnrichedTemperatureCommand(wantedAt, TemperatureUnit.CELSIUS, wanted));
+            commanded = wanted;
+            pending = false;
+        }
+
+        // the oldest pane leaves the window
+        pane = (pane + 1) % panes;
+        Arrays.fill(sums, pane * capacity, (pane + 1) * capacity, 0);
+        Arrays.fill(counts, pane * capacity, (pane + 1) * capacity, 0);
+        paneReadings[pane] = 0;
+
+        if (pending || hasReadings()) {
+            timers.startSingleTimer(SlideOverCommand.INSTANCE, slide);
+        }
+        return this;
+    }
+
+    private boolean hasReadings() {
+        for (int readings : paneReadings) {
+            if (readings > 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void clearSlot(int slot) {
+        if (slot >= capacity) {
+            return;
+        }
+        for (int p = 0; p < panes; p++) {
+            int index = p * capacity + slot;
+            paneReadings[p] -= counts[index];
+            sums[index] = 0;
+            counts[index] = 0;
+        }
+        last[slot] = Double.NaN;
+    }
+
+    private void resize(int newCapacity) {
+        double[] newSums = new double[panes * newCapacity];
+        int[] newCounts = new int[panes * newCapacity];
+        for (int p = 0; p < panes && capacity > 0; p++) {
+            System.arraycopy(sums, p * capacity, newSums, p * newCapacity, capacity);
+            System.arraycopy(counts, p * capacity, newCounts, p * newCapacity, capacity);
+        }
+        double[] newLast = new double[newCapacity];
+        Arrays.fill(newLast, Double.NaN);
+        int[] newGenerations = new int[newCapacity];
+        if (capacity > 0) {
+            System.arraycopy(last, 0, newLast, 0, capacity);
+            System.arraycopy(generations, 0, newGenerations, 0, capacity);
+        }
+
+        sums = newSums;
+        counts = newCounts;
+        last = newLast;
+        generations = newGenerations;
+        capacity = newCapacity;
+    }
+
+    private RoomAggregator onPostStop() {
+        for (ActorRef<TemperatureSensor.TemperatureCommand> sensor : slots.keySet()) {
+            sensor.tell(new TemperatureSensor.UnsubscribeReadingsCommand(getContext().getSelf()));
+        }
+        getContext().getLog().info("RoomAggregator actor {}-{} stopped", groupId, deviceId);
+        return this;
+    }
+
+}
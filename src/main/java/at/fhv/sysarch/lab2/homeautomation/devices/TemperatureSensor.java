@@ -4,26 +4,97 @@ import akka.actor.typed.ActorRef;
 import akka.actor.typed.Behavior;
 import akka.actor.typed.PostStop;
 import akka.actor.typed.javadsl.*;
-import at.fhv.sysarch.lab2.homeautomation.domain.Temperature;
+import akka.actor.typed.receptionist.Receptionist;
+import akka.actor.typed.receptionist.ServiceKey;
+import at.fhv.sysarch.lab2.homeautomation.cluster.ClusterMessage;
+import at.fhv.sysarch.lab2.homeautomation.domain.enums.TemperatureUnit;
 import at.fhv.sysarch.lab2.homeautomation.environment.Environment;
+import at.fhv.sysarch.lab2.homeautomation.mailbox.Conflatable;
+import at.fhv.sysarch.lab2.homeautomation.mailbox.Mailboxes;
+import at.fhv.sysarch.lab2.homeautomation.metrics.Metrics;
+import at.fhv.sysarch.lab2.homeautomation.rules.Action;
+import at.fhv.sysarch.lab2.homeautomation.rules.RuleBook;
+import at.fhv.sysarch.lab2.homeautomation.simulation.DeviceClock;
+import at.fhv.sysarch.lab2.homeautomation.timeseries.ReadingBuffer;
+import at.fhv.sysarch.lab2.homeautomation.timeseries.ReadingsQuery;
+import at.fhv.sysarch.lab2.homeautomation.timeseries.ReadingsRequest;
+import org.slf4j.Logger;
 
-import java.time.Duration;
-import java.util.Optional;
+import java.util.ArrayList;
+import java.util.List;
 
+/**
+ * Reads the temperature the {@link Environment} pushes. Either commands an air condition itself, or is one of the
+ * sensors of a room: then it registers with the receptionist under {@link #serviceKey(String)} and only passes its
+ * readings on to the {@link RoomAggregator} that subscribed to them.
+ */
 public class TemperatureSensor extends AbstractBehavior<TemperatureSensor.TemperatureCommand> {
 
-    public interface TemperatureCommand {
+    public interface TemperatureCommand extends ClusterMessage {
     }
 
-    public static final class ReadTemperatureCommand implements TemperatureCommand {
-        Temperature temperature;
+    public static final class ReadTemperatureCommand implements TemperatureCommand, Conflatable {
+        final double value;
+        final TemperatureUnit unit;
 
-        public ReadTemperatureCommand(Temperature temperature) {
-            this.temperature = temperature;
+        public ReadTemperatureCommand(double value, TemperatureUnit unit) {
+            this.value = value;
+            this.unit = unit;
         }
     }
 
-    public static final class RequestTemperatureFromEnvironmentCommand implements TemperatureCommand {
+    /**
+     * Answers the query from the readings this sensor kept, replying to {@code replyTo}.
+     */
+    public static final class QueryReadingsCommand implements TemperatureCommand {
+        final ReadingsRequest request;
+
+        public <R> QueryReadingsCommand(ReadingsQuery<R> query, ActorRef<R> replyTo) {
+            this(ReadingsRequest.of(query, replyTo));
+        }
+
+        public QueryReadingsCommand(ReadingsRequest request) {
+            this.request = request;
+        }
+    }
+
+    /**
+     * Every reading from now on goes to {@code aggregator}, tagged with {@code slot} and its {@code generation}; the
+     * current one right away.
+     */
+    public static final class SubscribeReadingsCommand implements TemperatureCommand {
+        final ActorRef<RoomAggregator.RoomAggregatorCommand> aggregator;
+        final int slot;
+        final int generation;
+
+        public SubscribeReadingsCommand(ActorRef<RoomAggregator.RoomAggregatorCommand> aggregator, int slot, int generation) {
+            this.aggregator = aggregator;
+            this.slot = slot;
+            this.generation = generation;
+        }
+    }
+
+    public static final class UnsubscribeReadingsCommand implements TemperatureCommand {
+        final ActorRef<RoomAggregator.RoomAggregatorCommand> aggregator;
+
+        public UnsubscribeReadingsCommand(ActorRef<RoomAggregator.RoomAggregatorCommand> aggregator) {
+            this.aggregator = aggregator;
+        }
+    }
+
+    private static final class SubscriberTerminatedCommand implements TemperatureCommand {
+        final ActorRef<RoomAggregator.RoomAggregatorCommand> aggregator;
+
+        SubscriberTerminatedCommand(ActorRef<RoomAggregator.RoomAggregatorCommand> aggregator) {
+            this.aggregator = aggregator;
+        }
+    }
+
+    private static final class ActuationWindowOverCommand implements TemperatureCommand {
+        static final ActuationWindowOverCommand INSTANCE = new ActuationWindowOverCommand();
+
+        private ActuationWindowOverCommand() {
+        }
     }
 
     public static Behavior<TemperatureCommand> create(
@@ -32,29 +103,88 @@ public class TemperatureSensor extends AbstractBehavior<TemperatureSensor.Temper
             String groupId,
             String deviceId
     ) {
-        return Behaviors.setup(context -> Behaviors.withTimers(timer -> new TemperatureSensor(context, airCondition, environment, groupId, deviceId, timer)));
+        return Behaviors.setup(context -> Metrics.withTimers(timers -> new TemperatureSensor(context, timers, airCondition, environment, groupId, deviceId)));
+    }
+
+    /**
+     * A sensor of the room {@code groupId}, leaving the air condition to the {@link RoomAggregator} of the room.
+     */
+    public static Behavior<TemperatureCommand> create(
+            ActorRef<Environment.EnvironmentCommand> environment,
+            String groupId,
+            String deviceId
+    ) {
+        return create(null, environment, groupId, deviceId);
+    }
+
+    /**
+     * @return key the sensors of the room {@code groupId} are registered under with the receptionist
+     */
+    public static ServiceKey<TemperatureCommand> serviceKey(String groupId) {
+        return ServiceKey.create(TemperatureCommand.class, "temperature-sensor-" + groupId);
+    }
+
+    private static final class Subscription {
+        final ActorRef<RoomAggregator.RoomAggregatorCommand> aggregator;
+        final int slot;
+        final int generation;
+
+        Subscription(ActorRef<RoomAggregator.RoomAggregatorCommand> aggregator, int slot, int generation) {
+            this.aggregator = aggregator;
+            this.slot = slot;
+            this.generation = generation;
+        }
     }
 
     private final String groupId;
     private final String deviceId;
+    private final ReadingBuffer readings;
+    private final DeviceClock clock;
+    private final RuleBook rules;
+    // null for a sensor of a room
+    private final CoalescingActuation<TemperatureCommand, Boolean> airConditionActive;
+    private final List<Subscription> subscriptions = new ArrayList<>();
+    // only for level checks, getLog() copies the MDC on every call
+    private final Logger log;
     private ActorRef<AirCondition.AirConditionCommand> airCondition;
     private ActorRef<Environment.EnvironmentCommand> environment;
+    // the reading that wants the air condition in the state it is sent to
+    private double value;
+    private TemperatureUnit unit;
 
     public TemperatureSensor(
             ActorContext<TemperatureCommand> context,
+            TimerScheduler<TemperatureCommand> timers,
             ActorRef<AirCondition.AirConditionCommand> airCondition,
             ActorRef<Environment.EnvironmentCommand> environment,
             String groupId,
-            String deviceId,
-            TimerScheduler<TemperatureSensor.TemperatureCommand> temperatureTimeScheduler
+            String deviceId
     ) {
         super(context);
         this.airCondition = airCondition;
         this.groupId = groupId;
         this.deviceId = deviceId;
         this.environment = environment;
+        this.log = getContext().getLog();
+        this.readings = new ReadingBuffer(ReadingBuffer.configuredCapacity(getContext().getSystem()));
+        this.clock = DeviceClock.get(getContext().getSystem());
+        this.rules = RuleBook.get(getContext().getSystem());
+        if (airCondition != null) {
+            Mailboxes mailboxes = Mailboxes.get(getContext().getSystem());
+            this.airConditionActive = new CoalescingActuation<>(
+                    timers,
+                    ActuationWindowOverCommand.INSTANCE,
+                    CoalescingActuation.configuredWindow(getContext().getSystem()),
+                    CoalescingActuation.configuredRetry(getContext().getSystem()),
+                    () -> mailboxes.isBackpressured(this.airCondition),
+                    active -> this.airCondition.tell(new AirCondition.EnrichedTemperatureCommand(value, unit, active))
+            );
+        } else {
+            this.airConditionActive = null;
+            getContext().getSystem().receptionist().tell(Receptionist.register(serviceKey(groupId), getContext().getSelf()));
+        }
 
-        temperatureTimeScheduler.startTimerAtFixedRate(new RequestTemperatureFromEnvironmentCommand(), Duration.ofSeconds(5));
+        environment.tell(new Environment.SubscribeTemperatureCommand(getContext().getSelf()));
 
         getContext().getLog().info("TemperatureSensor started");
     }
@@ -62,25 +192,73 @@ public class TemperatureSensor extends AbstractBehavior<TemperatureSensor.Temper
     @Override
     public Receive<TemperatureCommand> createReceive() {
         return newReceiveBuilder()
-                .onMessage(RequestTemperatureFromEnvironmentCommand.class, this::onRequestTemperatureFromEnvironment)
                 .onMessage(ReadTemperatureCommand.class, this::onReadTemperature)
+                .onMessage(QueryReadingsCommand.class, this::onQueryReadings)
+                .onMessage(SubscribeReadingsCommand.class, this::onSubscribeReadings)
+                .onMessage(UnsubscribeReadingsCommand.class, this::onUnsubscribeReadings)
+                .onMessage(SubscriberTerminatedCommand.class, c -> unsubscribe(c.aggregator))
+                .onMessage(ActuationWindowOverCommand.class, c -> onActuationWindowOver())
                 .onSignal(PostStop.class, signal -> onPostStop())
                 .build();
     }
 
-    private Behavior<TemperatureCommand> onRequestTemperatureFromEnvironment(RequestTemperatureFromEnvironmentCommand c) {
-        environment.tell(new Environment.ReceiveTemperatureRequestCommand(getContext().getSelf()));
+    private Behavior<TemperatureCommand> onReadTemperature(ReadTemperatureCommand c) {
+        if (log.isDebugEnabled()) {
+            getContext().getLog().debug("TemperatureSensor received {} {}", c.value, c.unit);
+        }
+        double celsius = c.unit.toCelsius(c.value);
+        readings.add(clock.millis(), celsius);
+        this.value = c.value;
+        this.unit = c.unit;
+        for (int i = 0; i < subscriptions.size(); i++) {
+            Subscription subscription = subscriptions.get(i);
+            subscription.aggregator.tell(new RoomAggregator.TemperatureReadCommand(subscription.slot, subscription.generation, celsius));
+        }
+        if (airConditionActive == null) {
+            return this;
+        }
+        // the air condition only hears about readings that switch it
+        Action action = rules.decide(groupId, Action.Device.AIR_CONDITION, celsius);
+        if (action != null) {
+            airConditionActive.want(action == Action.AIR_CONDITION_ON);
+        }
+        return this;
+    }
+
+    private Behavior<TemperatureCommand> onSubscribeReadings(SubscribeReadingsCommand c) {
+        // subscribing again replaces the slot
+        getContext().unwatch(c.aggregator);
+        unsubscribe(c.aggregator);
+        subscriptions.add(new Subscription(c.aggregator, c.slot, c.generation));
+        getContext().watchWith(c.aggregator, new SubscriberTerminatedCommand(c.aggregator));
+        if (unit != null) {
+            c.aggregator.tell(new RoomAggregator.TemperatureReadCommand(c.slot, c.generation, unit.toCelsius(value)));
+        }
         return this;
     }
 
-    private Behavior<TemperatureCommand> onReadTemperature(ReadTemperatureCommand c) {
-        getContext().getLog().info("TemperatureSensor received {}", c.temperature.getValue());
-        this.airCondition.tell(new AirCondition.EnrichedTemperatureCommand(Optional.of(c.temperature.getValue()), Optional.of(c.temperature.getUnit())));
-        System.out.println("TemperatureSensor received: " + c.temperature.getValue());
+    private Behavior<TemperatureCommand> onUnsubscribeReadings(UnsubscribeReadingsCommand c) {
+        getContext().unwatch(c.aggregator);
+        return unsubscribe(c.aggregator);
+    }
+
+    private Behavior<TemperatureCommand> unsubscribe(ActorRef<RoomAggregator.RoomAggregatorCommand> aggregator) {
+        subscriptions.removeIf(subscription -> subscription.aggregator.equals(aggregator));
+        return this;
+    }
+
+    private Behavior<TemperatureCommand> onActuationWindowOver() {
+        airConditionActive.windowOver();
+        return this;
+    }
+
+    private Behavior<TemperatureCommand> onQueryReadings(QueryReadingsCommand c) {
+        c.request.answer(readings, clock.millis());
         return this;
     }
 
     private TemperatureSensor onPostStop() {
+        environment.tell(new Environment.UnsubscribeTemperatureCommand(getContext().getSelf()));
         getContext().getLog().info("TemperatureSensor actor {}-{} stopped", groupId, deviceId);
         return this;
     }
@@ -4,20 +4,26 @@ import akka.actor.typed.ActorRef;
 import akka.actor.typed.Behavior;
 import akka.actor.typed.PostStop;
 import akka.actor.typed.javadsl.*;
+import at.fhv.sysarch.lab2.homeautomation.cluster.ClusterMessage;
+import at.fhv.sysarch.lab2.homeautomation.domain.enums.BlindsState;
 import at.fhv.sysarch.lab2.homeautomation.domain.enums.WeatherCondition;
 import at.fhv.sysarch.lab2.homeautomation.environment.Environment;
-
-import java.time.Duration;
+import at.fhv.sysarch.lab2.homeautomation.mailbox.Conflatable;
+import at.fhv.sysarch.lab2.homeautomation.mailbox.Mailboxes;
+import at.fhv.sysarch.lab2.homeautomation.metrics.Metrics;
+import at.fhv.sysarch.lab2.homeautomation.rules.Action;
+import at.fhv.sysarch.lab2.homeautomation.rules.RuleBook;
+import at.fhv.sysarch.lab2.homeautomation.simulation.DeviceClock;
+import at.fhv.sysarch.lab2.homeautomation.timeseries.ReadingBuffer;
+import at.fhv.sysarch.lab2.homeautomation.timeseries.ReadingsQuery;
+import at.fhv.sysarch.lab2.homeautomation.timeseries.ReadingsRequest;
 
 public class WeatherSensor extends AbstractBehavior<WeatherSensor.WeatherCommand> {
 
-    public interface WeatherCommand {
-    }
-
-    public static final class RequestWeatherFromEnvironmentCommand implements WeatherCommand {
+    public interface WeatherCommand extends ClusterMessage {
     }
 
-    public static final class ReadWeatherCommand implements WeatherCommand {
+    public static final class ReadWeatherCommand implements WeatherCommand, Conflatable {
         WeatherCondition weather;
 
         public ReadWeatherCommand(WeatherCondition weather) {
@@ -25,26 +31,52 @@ public class WeatherSensor extends AbstractBehavior<WeatherSensor.WeatherCommand
         }
     }
 
+    /**
+     * Answers the query from the readings this sensor kept, replying to {@code replyTo}.
+     */
+    public static final class QueryReadingsCommand implements WeatherCommand {
+        final ReadingsRequest request;
+
+        public <R> QueryReadingsCommand(ReadingsQuery<R> query, ActorRef<R> replyTo) {
+            this(ReadingsRequest.of(query, replyTo));
+        }
+
+        public QueryReadingsCommand(ReadingsRequest request) {
+            this.request = request;
+        }
+    }
+
+    private static final class ActuationWindowOverCommand implements WeatherCommand {
+        static final ActuationWindowOverCommand INSTANCE = new ActuationWindowOverCommand();
+
+        private ActuationWindowOverCommand() {
+        }
+    }
+
     public static Behavior<WeatherCommand> create(
             ActorRef<Environment.EnvironmentCommand> environment,
             ActorRef<Blinds.BlindsCommand> blinds,
             String groupId,
             String deviceId
     ) {
-        return Behaviors.setup(context -> Behaviors.withTimers(timer -> new WeatherSensor(context, environment, blinds, groupId, deviceId, timer)));
+        return Behaviors.setup(context -> Metrics.withTimers(timers -> new WeatherSensor(context, timers, environment, blinds, groupId, deviceId)));
     }
 
     private final String groupId;
     private final String deviceId;
+    private final ReadingBuffer readings;
+    private final DeviceClock clock;
+    private final RuleBook rules;
+    private final CoalescingActuation<WeatherCommand, BlindsState> blindsState;
     private ActorRef<Environment.EnvironmentCommand> environment;
     private ActorRef<Blinds.BlindsCommand> blinds;
 
     public WeatherSensor(ActorContext<WeatherCommand> context,
+                         TimerScheduler<WeatherCommand> timers,
                          ActorRef<Environment.EnvironmentCommand> environment,
                          ActorRef<Blinds.BlindsCommand> blinds,
                          String groupId,
-                         String deviceId,
-                         TimerScheduler<WeatherSensor.WeatherCommand> weatherTimeScheduler
+                         String deviceId
     ) {
         super(context);
 
@@ -52,8 +84,20 @@ public class WeatherSensor extends AbstractBehavior<WeatherSensor.WeatherCommand
         this.deviceId = deviceId;
         this.environment = environment;
         this.blinds = blinds;
-
-        weatherTimeScheduler.startTimerAtFixedRate(new RequestWeatherFromEnvironmentCommand(), Duration.ofSeconds(5));
+        this.readings = new ReadingBuffer(ReadingBuffer.configuredCapacity(getContext().getSystem()));
+        this.clock = DeviceClock.get(getContext().getSystem());
+        this.rules = RuleBook.get(getContext().getSystem());
+        Mailboxes mailboxes = Mailboxes.get(getContext().getSystem());
+        this.blindsState = new CoalescingActuation<>(
+                timers,
+                ActuationWindowOverCommand.INSTANCE,
+                CoalescingActuation.configuredWindow(getContext().getSystem()),
+                CoalescingActuation.configuredRetry(getContext().getSystem()),
+                () -> mailboxes.isBackpressured(this.blinds),
+                state -> this.blinds.tell(state == BlindsState.CLOSED ? new Blinds.CloseBlindsCommand() : new Blinds.OpenBlindsCommand())
+        );
+
+        environment.tell(new Environment.SubscribeWeatherCommand(getContext().getSelf()));
 
         getContext().getLog().info("WeatherSensor started");
     }
@@ -61,28 +105,36 @@ public class WeatherSensor extends AbstractBehavior<WeatherSensor.WeatherCommand
     @Override
     public Receive<WeatherCommand> createReceive() {
         return newReceiveBuilder()
-                .onMessage(RequestWeatherFromEnvironmentCommand.class, this::onRequestWeatherFromEnvironment)
                 .onMessage(ReadWeatherCommand.class, this::onReadWeather)
+                .onMessage(QueryReadingsCommand.class, this::onQueryReadings)
+                .onMessage(ActuationWindowOverCommand.class, c -> onActuationWindowOver())
                 .onSignal(PostStop.class, signal -> onPostStop())
                 .build();
     }
 
-    private Behavior<WeatherSensor.WeatherCommand> onRequestWeatherFromEnvironment(RequestWeatherFromEnvironmentCommand c) {
-        environment.tell(new Environment.ReceiveWeatherRequestCommand(getContext().getSelf()));
-        return this;
-    }
-
     private Behavior<WeatherSensor.WeatherCommand> onReadWeather(ReadWeatherCommand c) {
         getContext().getLog().info("WeatherSensor received {}", c.weather);
-        if (c.weather == WeatherCondition.SUNNY) {
-            blinds.tell(new Blinds.CloseBlindsCommand());
-        } else {
-            blinds.tell(new Blinds.OpenBlindsCommand());
+        readings.add(clock.millis(), c.weather.ordinal());
+        // the blinds only hear about weather that moves them
+        Action action = rules.decide(groupId, Action.Device.BLINDS, c.weather.ordinal());
+        if (action != null) {
+            blindsState.want(action == Action.BLINDS_CLOSE ? BlindsState.CLOSED : BlindsState.OPEN);
         }
         return this;
     }
 
+    private Behavior<WeatherCommand> onActuationWindowOver() {
+        blindsState.windowOver();
+        return this;
+    }
+
+    private Behavior<WeatherCommand> onQueryReadings(QueryReadingsCommand c) {
+        c.request.answer(readings, clock.millis());
+        return this;
+    }
+
     private WeatherSensor onPostStop() {
+        environment.tell(new Environment.UnsubscribeWeatherCommand(getContext().getSelf()));
         getContext().getLog().info("WeatherSensor actor {}-{} stopped", groupId, deviceId);
         return this;
     }
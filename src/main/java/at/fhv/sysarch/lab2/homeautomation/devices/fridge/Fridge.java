@@ -7,179 +7,481 @@ import akka.actor.typed.javadsl.AbstractBehavior;
 import akka.actor.typed.javadsl.ActorContext;
 import akka.actor.typed.javadsl.Receive;
 import akka.actor.typed.javadsl.Behaviors;
+import akka.actor.typed.javadsl.TimerScheduler;
+import at.fhv.sysarch.lab2.homeautomation.cluster.ClusterMessage;
 import at.fhv.sysarch.lab2.homeautomation.domain.Order;
+import at.fhv.sysarch.lab2.homeautomation.domain.enums.OrderStrategy;
 import at.fhv.sysarch.lab2.homeautomation.domain.valueobjects.Product;
-
-import java.sql.SQLOutput;
+import at.fhv.sysarch.lab2.homeautomation.domain.valueobjects.ProductCatalog;
+
+import at.fhv.sysarch.lab2.homeautomation.mailbox.Mailboxes;
+import at.fhv.sysarch.lab2.homeautomation.mailbox.Sheddable;
+import at.fhv.sysarch.lab2.homeautomation.metrics.Metrics;
+import at.fhv.sysarch.lab2.homeautomation.metrics.ValueMetrics;
+import at.fhv.sysarch.lab2.homeautomation.output.Console;
+import at.fhv.sysarch.lab2.homeautomation.persistence.DeviceStore;
+import at.fhv.sysarch.lab2.homeautomation.persistence.DeviceStores;
+import at.fhv.sysarch.lab2.homeautomation.rules.Action;
+import at.fhv.sysarch.lab2.homeautomation.rules.RuleBook;
+import at.fhv.sysarch.lab2.homeautomation.simulation.DeviceClock;
+import at.fhv.sysarch.lab2.homeautomation.timeseries.ReadingsQuery;
+import at.fhv.sysarch.lab2.homeautomation.timeseries.ReadingsRequest;
+import com.fasterxml.jackson.annotation.JsonCreator;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
-import java.util.ArrayList;
-import java.util.LinkedList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 
 public class Fridge extends AbstractBehavior<Fridge.FridgeCommand> {
 
-    public interface FridgeCommand {
+    /**
+     * The requests from outside are {@link Sheddable}: when the fridge can't keep up it refuses them, never the
+     * stocking of ordered products or the bookkeeping of its order processors.
+     */
+    public interface FridgeCommand extends ClusterMessage {
     }
 
-    public static final class ConsumeProductCommand implements FridgeCommand {
-        Product product;
+    public static final class ConsumeProductCommand implements FridgeCommand, Sheddable {
+        int productId;
 
         public ConsumeProductCommand(Product product) {
-            this.product = product;
+            this(product.getId());
+        }
+
+        @JsonCreator
+        public ConsumeProductCommand(int productId) {
+            this.productId = productId;
         }
     }
 
-    public static final class RequestOrderProductCommand implements FridgeCommand {
-        Product product;
+    public static final class RequestOrderProductCommand implements FridgeCommand, Sheddable {
+        int productId;
 
         public RequestOrderProductCommand(Product product) {
-            this.product = product;
+            this(product.getId());
+        }
+
+        @JsonCreator
+        public RequestOrderProductCommand(int productId) {
+            this.productId = productId;
         }
     }
 
     public static final class StockFridgeCommand implements FridgeCommand {
-        Product product;
+        int productId;
 
         public StockFridgeCommand(Product product) {
-            this.product = product;
+            this(product.getId());
+        }
+
+        public StockFridgeCommand(int productId) {
+            this.productId = productId;
+        }
+    }
+
+    public static final class DisplayStockCommand implements FridgeCommand, FridgeQueryView.FridgeQueryViewCommand, Sheddable {
+    }
+
+    public static final class DisplayOrderHistoryCommand implements FridgeCommand, FridgeQueryView.FridgeQueryViewCommand, Sheddable {
+        final long page;
+        final int pageSize;
+
+        public DisplayOrderHistoryCommand() {
+            this(0, DEFAULT_HISTORY_PAGE_SIZE);
+        }
+
+        /**
+         * @param page 0 being the most recent orders
+         * @throws IllegalArgumentException if the page is negative or the page size not positive
+         */
+        public DisplayOrderHistoryCommand(long page, int pageSize) {
+            checkPage(page, pageSize);
+            this.page = page;
+            this.pageSize = pageSize;
+        }
+    }
+
+    public static final class DisplayOrderHistoryBetweenCommand implements FridgeCommand, FridgeQueryView.FridgeQueryViewCommand, Sheddable {
+        LocalDateTime from;
+        LocalDateTime to;
+
+        public DisplayOrderHistoryBetweenCommand(LocalDateTime from, LocalDateTime to) {
+            this.from = from;
+            this.to = to;
+        }
+    }
+
+    /**
+     * Answers with the current stock, see {@link FridgeStock}.
+     */
+    public static final class GetStockCommand implements FridgeCommand, FridgeQueryView.FridgeQueryViewCommand, Sheddable {
+        ActorRef<FridgeStock> replyTo;
+
+        public GetStockCommand(ActorRef<FridgeStock> replyTo) {
+            this.replyTo = replyTo;
+        }
+    }
+
+    /**
+     * Answers with a page of the order history, see {@link OrderHistory}.
+     */
+    public static final class GetOrderHistoryCommand implements FridgeCommand, FridgeQueryView.FridgeQueryViewCommand, Sheddable {
+        long page;
+        int pageSize;
+        ActorRef<OrderHistory> replyTo;
+
+        public GetOrderHistoryCommand(ActorRef<OrderHistory> replyTo) {
+            this(0, DEFAULT_HISTORY_PAGE_SIZE, replyTo);
+        }
+
+        /**
+         * @param page 0 being the most recent orders
+         * @throws IllegalArgumentException if the page is negative or the page size not positive
+         */
+        public GetOrderHistoryCommand(long page, int pageSize, ActorRef<OrderHistory> replyTo) {
+            checkPage(page, pageSize);
+            this.page = page;
+            this.pageSize = pageSize;
+            this.replyTo = replyTo;
+        }
+    }
+
+    public static final class QueryWeightReadingsCommand implements FridgeCommand, Sheddable {
+        ReadingsRequest request;
+
+        public <R> QueryWeightReadingsCommand(ReadingsQuery<R> query, ActorRef<R> replyTo) {
+            this(ReadingsRequest.of(query, replyTo));
+        }
+
+        public QueryWeightReadingsCommand(ReadingsRequest request) {
+            this.request = request;
+        }
+    }
+
+    public static final class QuerySpaceReadingsCommand implements FridgeCommand, Sheddable {
+        ReadingsRequest request;
+
+        public <R> QuerySpaceReadingsCommand(ReadingsQuery<R> query, ActorRef<R> replyTo) {
+            this(ReadingsRequest.of(query, replyTo));
+        }
+
+        public QuerySpaceReadingsCommand(ReadingsRequest request) {
+            this.request = request;
         }
     }
 
-    public static final class DisplayStockCommand implements FridgeCommand {
+    private static final class OrderProcessorStoppedCommand implements FridgeCommand {
+        final ActorRef<OrderProcessor.OrderProcessorCommand> processor;
+
+        OrderProcessorStoppedCommand(ActorRef<OrderProcessor.OrderProcessorCommand> processor) {
+            this.processor = processor;
+        }
     }
 
-    public static final class DisplayOrderHistoryCommand implements FridgeCommand {
+    private static final class SweepOrderProcessorsCommand implements FridgeCommand {
+        static final SweepOrderProcessorsCommand INSTANCE = new SweepOrderProcessorsCommand();
+
+        private SweepOrderProcessorsCommand() {
+        }
+    }
+
+    public static final int DEFAULT_HISTORY_PAGE_SIZE = 20;
+
+    // checked where a history command is created or decoded, the query view would fail on it
+    private static void checkPage(long page, int pageSize) {
+        if (page < 0 || pageSize <= 0) {
+            throw new IllegalArgumentException("Page " + page + " of " + pageSize + " orders doesn't exist");
+        }
     }
 
     public static Behavior<FridgeCommand> create(
             String groupId,
             String deviceId
     ) {
-        return Behaviors.setup(context -> new Fridge(context, groupId, deviceId));
+        return create(groupId, deviceId, FridgeSettings.DEFAULT);
+    }
+
+    public static Behavior<FridgeCommand> create(
+            String groupId,
+            String deviceId,
+            FridgeSettings settings
+    ) {
+        return Behaviors.setup(context -> Metrics.withTimers(timers -> new Fridge(context, timers, groupId, deviceId, settings, openJournal(settings.getOrderJournalFile(groupId, deviceId)))));
     }
 
-    private final List<Order> orders;
-    private final List<Product> products;
+    private static OrderJournal openJournal(Path file) {
+        try {
+            return OrderJournal.open(file);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot open order journal " + file, e);
+        }
+    }
+
+    private static final byte PRODUCT_STOCKED = 1;
+    private static final byte PRODUCT_CONSUMED = 2;
+
+    private static final DateTimeFormatter RECEIPT_DATE_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    private final ProductCatalog catalog;
+    private final Console console;
+    private final Metrics metrics;
+    private final Mailboxes mailboxes;
+    private final DeviceClock clock;
+    private final RuleBook rules;
+    private final OrderJournal orders;
+    private final Inventory inventory;
+    private final DeviceStore store;
+    private final OrderStrategy orderStrategy;
     private final String groupId;
     private final String deviceId;
 
     private final ActorRef<FridgeWeightSensor.FridgeWeightSensorCommand> weightSensor;
     private final ActorRef<FridgeSpaceSensor.FridgeSpaceSensorCommand> spaceSensor;
+    private final ActorRef<FridgeCapacityView.FridgeCapacityViewCommand> capacityView;
+    private final ActorRef<FridgeQueryView.FridgeQueryViewCommand> queryView;
+    // increases with every product stocked or consumed, the version of the stock the query view answers with
+    private long stockVersion;
+    private final ActorRef<OrderAdmission.OrderAdmissionCommand> orderAdmission;
+
+    private final TimerScheduler<FridgeCommand> timers;
+    private final Duration orderTimeout;
+    private final ValueMetrics leakedProcessors;
+    // when each running order processor should have stopped by itself at the latest, in epoch millis
+    private final Map<ActorRef<OrderProcessor.OrderProcessorCommand>, Long> processorDeadlines = new HashMap<>();
 
     public Fridge(
             ActorContext<FridgeCommand> context,
+            TimerScheduler<FridgeCommand> timers,
             String groupId,
-            String deviceId
+            String deviceId,
+            FridgeSettings settings,
+            OrderJournal orders
     ) {
         super(context);
 
-        this.orders = new LinkedList<>();
-        this.products = new ArrayList<>(List.of(
-                Product.create("apple").get(),
-                Product.create("apple").get(),
-                Product.create("apple").get(),
-                Product.create("watermelon").get(),
-                Product.create("elden ring").get(),
-                Product.create("beer").get()
-        ));
+        this.timers = timers;
+        this.catalog = ProductCatalog.getDefault();
+        this.console = Console.get(getContext().getSystem());
+        this.metrics = Metrics.get(getContext().getSystem());
+        this.mailboxes = Mailboxes.get(getContext().getSystem());
+        this.clock = DeviceClock.get(getContext().getSystem());
+        this.rules = RuleBook.get(getContext().getSystem());
+        this.orders = orders;
+        this.inventory = new Inventory(catalog);
+        this.store = DeviceStores.get(getContext().getSystem()).open("fridge-" + groupId + "-" + deviceId);
+        // the initial stock is snapshotted before the first event, so a fridge emptied since is not stocked again
+        if (store.recover(this::applySnapshot, this::applyEvent) < 0) {
+            for (String name : List.of("apple", "apple", "apple", "watermelon", "elden ring", "beer")) {
+                this.inventory.add(catalog.find(name).get());
+            }
+            store.saveSnapshot(snapshot());
+        }
 
+        this.orderStrategy = settings.getOrderStrategy();
+        this.orderTimeout = settings.getOrderTimeout();
+        this.leakedProcessors = metrics.counter("fridge_order_processors_leaked_total");
         this.groupId = groupId;
         this.deviceId = deviceId;
 
-        this.weightSensor = getContext().spawn(FridgeWeightSensor.create(getWeightOfProducts(), "1", "1"), "FridgeWeightSensor");
-        this.spaceSensor = getContext().spawn(FridgeSpaceSensor.create(products.size(), "1", "1"), "FridgeSpaceSensor");
+        this.capacityView = getContext().spawn(metrics.instrument(FridgeCapacityView.create(getContext().getSelf(), "1", "1")), "FridgeCapacityView", mailboxes.forDevice("fridge-capacity-view"));
+        this.weightSensor = getContext().spawn(metrics.instrument(FridgeWeightSensor.create(inventory.getTotalWeight(), settings.getMaxWeight(), capacityView, "1", "1")), "FridgeWeightSensor", mailboxes.forDevice("fridge-weight-sensor"));
+        this.spaceSensor = getContext().spawn(metrics.instrument(FridgeSpaceSensor.create(inventory.getTotalItems(), settings.getMaxSpace(), capacityView, "1", "1")), "FridgeSpaceSensor", mailboxes.forDevice("fridge-space-sensor"));
+        capacityView.tell(new FridgeCapacityView.ConnectSensorsCommand(weightSensor, spaceSensor));
+        this.queryView = getContext().spawn(metrics.instrument(FridgeQueryView.create(inventory.snapshot(stockVersion), orders, "1", "1")), "FridgeQueryView", mailboxes.forDevice("fridge-query-view"));
+        this.orderAdmission = getContext().spawn(metrics.instrument(OrderAdmission.create(getContext().getSelf(), weightSensor, spaceSensor, settings.getAdmissionBatchSize(), settings.getOrderTimeout(), "1", "1")), "OrderAdmission", mailboxes.forDevice("order-admission"));
 
         getContext().getLog().info("Fridge started");
     }
 
-    private int getWeightOfProducts() {
-        return products.stream().mapToInt(Product::getWeight).sum();
-    }
-
     @Override
     public Receive<FridgeCommand> createReceive() {
         return newReceiveBuilder()
                 .onMessage(RequestOrderProductCommand.class, this::onRequestOrderProduct)
                 .onMessage(ConsumeProductCommand.class, this::onConsumeProduct)
                 .onMessage(StockFridgeCommand.class, this::onStockFridge)
-                .onMessage(DisplayStockCommand.class, this::onDisplayStock)
-                .onMessage(DisplayOrderHistoryCommand.class, this::onDisplayOrderHistory)
+                .onMessage(DisplayStockCommand.class, this::onQuery)
+                .onMessage(DisplayOrderHistoryCommand.class, this::onQuery)
+                .onMessage(DisplayOrderHistoryBetweenCommand.class, this::onQuery)
+                .onMessage(GetStockCommand.class, this::onQuery)
+                .onMessage(GetOrderHistoryCommand.class, this::onQuery)
+                .onMessage(QueryWeightReadingsCommand.class, this::onQueryWeightReadings)
+                .onMessage(QuerySpaceReadingsCommand.class, this::onQuerySpaceReadings)
+                .onMessage(OrderProcessorStoppedCommand.class, this::onOrderProcessorStopped)
+                .onMessage(SweepOrderProcessorsCommand.class, c -> onSweepOrderProcessors())
                 .onSignal(PostStop.class, signal -> onPostStop())
                 .build();
     }
 
     private Behavior<FridgeCommand> onRequestOrderProduct(RequestOrderProductCommand c) {
+        Product product = find(c.productId, "order");
+        if (product == null) {
+            return this;
+        }
+
+        if (orderStrategy == OrderStrategy.ADMISSION) {
+            orderAdmission.tell(new OrderAdmission.AdmitOrderCommand(product));
+        } else {
+            ActorRef<OrderProcessor.OrderProcessorCommand> processor = getContext().spawn(metrics.instrument(OrderProcessor.create(capacityView, product, orderTimeout, "1", "1")), "OrderProcessor-" + UUID.randomUUID(), mailboxes.forDevice("order-processor"));
+            getContext().watchWith(processor, new OrderProcessorStoppedCommand(processor));
+            // a processor gives up by itself after two timeouts, waiting for the order and then for its withdrawal;
+            // one still running three timeouts is stuck
+            processorDeadlines.put(processor, clock.millis() + 3 * orderTimeout.toMillis());
+            if (!timers.isTimerActive(SweepOrderProcessorsCommand.INSTANCE)) {
+                timers.startSingleTimer(SweepOrderProcessorsCommand.INSTANCE, orderTimeout.multipliedBy(3));
+            }
+        }
 
-        getContext().spawn(OrderProcessor.create(getContext().getSelf(), weightSensor, spaceSensor, c.product, "1", "1"), "OrderProcessor" + UUID.randomUUID());
+        return this;
+    }
 
+    private Behavior<FridgeCommand> onOrderProcessorStopped(OrderProcessorStoppedCommand c) {
+        processorDeadlines.remove(c.processor);
+        return this;
+    }
+
+    private Behavior<FridgeCommand> onSweepOrderProcessors() {
+        long now = clock.millis();
+        processorDeadlines.forEach((processor, deadline) -> {
+            if (deadline <= now) {
+                getContext().getLog().warn("{} is still running {} ms after its order timed out, stopping it", processor.path().name(), now - deadline + 2 * orderTimeout.toMillis());
+                leakedProcessors.increment();
+                getContext().stop(processor);
+            }
+        });
+        if (!processorDeadlines.isEmpty()) {
+            timers.startSingleTimer(SweepOrderProcessorsCommand.INSTANCE, orderTimeout);
+        }
         return this;
     }
 
     private Behavior<FridgeCommand> onConsumeProduct(ConsumeProductCommand c) {
-        if (products.contains(c.product)) {
-            products.remove(c.product);
-            getContext().getLog().info("Removed {} from fridge", c.product.getName());
-            weightSensor.tell(new FridgeWeightSensor.RemoveWeightCommand(c.product.getWeight()));
+        Product product = find(c.productId, "consumption");
+        if (product == null) {
+            return this;
+        }
+
+        if (inventory.remove(product)) {
+            persist(PRODUCT_CONSUMED, product);
+            stockChanged(product);
+            getContext().getLog().info("Removed {} from fridge", product.getName());
+            weightSensor.tell(new FridgeWeightSensor.RemoveWeightCommand(product.getWeight()));
             spaceSensor.tell(new FridgeSpaceSensor.RemoveSpaceCommand(1));
 
             //restock fridge
-            if (!products.contains(c.product)) {
-                getContext().getLog().info("Last {} consumed, ordering more...", c.product.getName());
-                getContext().getSelf().tell(new RequestOrderProductCommand(c.product));
+            if (rules.decide(groupId, Action.Device.FRIDGE, inventory.count(product)) == Action.FRIDGE_ORDER) {
+                getContext().getLog().info("{} left of {}, ordering more...", inventory.count(product), product.getName());
+                getContext().getSelf().tell(new RequestOrderProductCommand(c.productId));
             }
 
         } else {
-            getContext().getLog().info("No {} in fridge", c.product.getName());
+            getContext().getLog().info("No {} in fridge", product.getName());
         }
 
         return this;
     }
 
     private Behavior<FridgeCommand> onStockFridge(StockFridgeCommand c) {
-        products.add(c.product);
-        weightSensor.tell(new FridgeWeightSensor.AddWeightCommand(c.product.getWeight()));
-        spaceSensor.tell(new FridgeSpaceSensor.AddSpaceCommand());
-        getContext().getLog().info("Added {} to fridge", c.product.getName());
+        Product product = find(c.productId, "stocking");
+        if (product == null) {
+            return this;
+        }
+        // weight and space were already accounted for by whoever admitted the order
+        inventory.add(product);
+        persist(PRODUCT_STOCKED, product);
+        stockChanged(product);
+        getContext().getLog().info("Added {} to fridge", product.getName());
 
-        Order order = new Order(c.product);
-        Product product = order.getProduct();
+        Order order = new Order(UUID.randomUUID(), clock.now(), product);
 
-        System.out.println("\nReceipt:\n" +
-                order.getOrderDate().format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss")) + "\n\n" +
+        console.println("\nReceipt:\n" +
+                order.getOrderDate().format(RECEIPT_DATE_FORMAT) + "\n\n" +
                 product.toString() + "\n\n" +
                 "Total \t€" + product.getPrice() + "\n"
         );
 
-        orders.add(order);
+        try {
+            orders.append(order);
+        } catch (IOException e) {
+            getContext().getLog().error("Order {} could not be written to {}", order.getUuid(), orders, e);
+        }
         return this;
     }
 
-    private Behavior<FridgeCommand> onDisplayStock(DisplayStockCommand c) {
-        System.out.println("\nFridge content:\n");
-
-        for (Product product : this.products) {
-            System.out.println(product.toString());
-        }
+    private <C extends FridgeCommand & FridgeQueryView.FridgeQueryViewCommand> Behavior<FridgeCommand> onQuery(C c) {
+        queryView.tell(c);
+        return this;
+    }
 
-        System.out.println();
+    private Behavior<FridgeCommand> onQueryWeightReadings(QueryWeightReadingsCommand c) {
+        weightSensor.tell(new FridgeWeightSensor.QueryReadingsCommand(c.request));
+        return this;
+    }
 
+    private Behavior<FridgeCommand> onQuerySpaceReadings(QuerySpaceReadingsCommand c) {
+        spaceSensor.tell(new FridgeSpaceSensor.QueryReadingsCommand(c.request));
         return this;
     }
 
-    private Behavior<FridgeCommand> onDisplayOrderHistory(DisplayOrderHistoryCommand c) {
-        System.out.println("\nOrder history:\n");
+    /**
+     * @return null for an id that isn't in the catalog, e.g. sent by a node with another catalog, after logging it
+     */
+    private Product find(int productId, String request) {
+        Product product = catalog.find(productId).orElse(null);
+        if (product == null) {
+            getContext().getLog().warn("Ignoring {} of unknown product id {}", request, productId);
+        }
+        return product;
+    }
+
+    private void stockChanged(Product product) {
+        queryView.tell(new FridgeQueryView.StockChangedCommand(++stockVersion, product.getId(), inventory.count(product)));
+    }
+
+    private void persist(byte event, Product product) {
+        byte[] bytes = ByteBuffer.allocate(5).put(event).putInt(product.getId()).array();
+        store.persist(bytes, this::snapshot);
+    }
 
-        for (Order order : this.orders) {
-            System.out.println(order.toString());
+    private void applyEvent(ByteBuffer event) {
+        byte type = event.get();
+        Product product = catalog.get(event.getInt());
+        if (type == PRODUCT_STOCKED) {
+            inventory.add(product);
+        } else if (type == PRODUCT_CONSUMED) {
+            inventory.remove(product);
         }
+    }
 
-        System.out.println();
+    private byte[] snapshot() {
+        ByteBuffer snapshot = ByteBuffer.allocate(4 + 8 * inventory.getDistinctProducts());
+        snapshot.putInt(inventory.getDistinctProducts());
+        inventory.forEach((product, count) -> snapshot.putInt(product.getId()).putInt(count));
+        return snapshot.array();
+    }
 
-        return this;
+    private void applySnapshot(ByteBuffer snapshot) {
+        int distinct = snapshot.getInt();
+        for (int i = 0; i < distinct; i++) {
+            Product product = catalog.get(snapshot.getInt());
+            inventory.add(product, snapshot.getInt());
+        }
     }
 
     private Fridge onPostStop() {
+        store.close();
+        try {
+            orders.close();
+        } catch (IOException e) {
+            getContext().getLog().warn("Closing {} failed", orders, e);
+        }
         getContext().getLog().info("Fridge actor {}-{} stopped", groupId, deviceId);
         return this;
     }
@@ -0,0 +1,56 @@
+package at.fhv.sysarch.lab2.homeautomation.devices.fridge;
+
+/**
+ * Weight and space available in the fridge at one point, as the {@link FridgeCapacityView} saw it when it answered an
+ * order: what both sensors last reported, less what the view reserved since.
+ */
+public final class FridgeCapacity {
+
+    private final long weightVersion;
+    private final long spaceVersion;
+    private final int availableWeight;
+    private final int availableSpace;
+
+    public FridgeCapacity(long weightVersion, long spaceVersion, int availableWeight, int availableSpace) {
+        this.weightVersion = weightVersion;
+        this.spaceVersion = spaceVersion;
+        this.availableWeight = availableWeight;
+        this.availableSpace = availableSpace;
+    }
+
+    /**
+     * @return increases with every change either sensor reported, so the later of two snapshots has the higher one
+     */
+    public long getVersion() {
+        return weightVersion + spaceVersion;
+    }
+
+    public long getWeightVersion() {
+        return weightVersion;
+    }
+
+    public long getSpaceVersion() {
+        return spaceVersion;
+    }
+
+    public int getAvailableWeight() {
+        return availableWeight;
+    }
+
+    public int getAvailableSpace() {
+        return availableSpace;
+    }
+
+    /**
+     * @return whether a product of this weight fits, the same check the {@link FridgeWeightSensor} reserves with
+     */
+    public boolean fits(int weight) {
+        return availableWeight > weight && availableSpace > 0;
+    }
+
+    @Override
+    public String toString() {
+        return "FridgeCapacity{version=" + getVersion() + ", availableWeight=" + availableWeight + ", availableSpace=" + availableSpace + "}";
+    }
+
+}
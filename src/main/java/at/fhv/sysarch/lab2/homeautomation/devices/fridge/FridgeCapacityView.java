@@ -0,0 +1,240 @@
+package at.fhv.sysarch.lab2.homeautomation.devices.fridge;
+
+import akka.actor.typed.ActorRef;
+import akka.actor.typed.Behavior;
+import akka.actor.typed.PostStop;
+import akka.actor.typed.javadsl.AbstractBehavior;
+import akka.actor.typed.javadsl.ActorContext;
+import akka.actor.typed.javadsl.Behaviors;
+import akka.actor.typed.javadsl.Receive;
+import at.fhv.sysarch.lab2.homeautomation.cluster.ClusterMessage;
+import at.fhv.sysarch.lab2.homeautomation.domain.valueobjects.Product;
+import at.fhv.sysarch.lab2.homeautomation.domain.valueobjects.ProductCatalog;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Combined view of the weight and space available in the fridge, so an {@link OrderProcessor} gets its order admitted
+ * with a single request instead of asking each sensor and waiting for two answers that may straddle another order.
+ * <p>
+ * The sensors push every change with their own version; a change older than the one seen is ignored. An order that
+ * fits is reserved right away, the view then stocks the fridge and tells the sensors itself. A reservation counts
+ * against the capacity until the sensor reports the change that settles it, so concurrent orders can never overfill
+ * the fridge. Requests arriving before both sensors reported are admitted one after another once they have.
+ * <p>
+ * Every admission changes the capacity, so each gets an answer of its own. A refusal doesn't, the answer refusing an
+ * order is built once and sent as is to every order refused until the capacity changes, e.g. to all the orders a
+ * full fridge refuses.
+ */
+public class FridgeCapacityView extends AbstractBehavior<FridgeCapacityView.FridgeCapacityViewCommand> {
+
+    public interface FridgeCapacityViewCommand extends ClusterMessage {
+    }
+
+    public static final class ConnectSensorsCommand implements FridgeCapacityViewCommand {
+        final ActorRef<FridgeWeightSensor.FridgeWeightSensorCommand> weightSensor;
+        final ActorRef<FridgeSpaceSensor.FridgeSpaceSensorCommand> spaceSensor;
+
+        public ConnectSensorsCommand(ActorRef<FridgeWeightSensor.FridgeWeightSensorCommand> weightSensor, ActorRef<FridgeSpaceSensor.FridgeSpaceSensorCommand> spaceSensor) {
+            this.weightSensor = weightSensor;
+            this.spaceSensor = spaceSensor;
+        }
+    }
+
+    public static final class ReserveCapacityCommand implements FridgeCapacityViewCommand {
+        final int productId;
+        final ActorRef<OrderProcessor.OrderProcessorCommand> replyTo;
+
+        public ReserveCapacityCommand(Product product, ActorRef<OrderProcessor.OrderProcessorCommand> replyTo) {
+            this(product.getId(), replyTo);
+        }
+
+        public ReserveCapacityCommand(int productId, ActorRef<OrderProcessor.OrderProcessorCommand> replyTo) {
+            this.productId = productId;
+            this.replyTo = replyTo;
+        }
+    }
+
+    /**
+     * Withdraws the request of an order that timed out, if it is still waiting for the sensors. Answered with a
+     * {@link OrderProcessor.ReservationCancelledCommand}, after the answer to the request if it was answered already.
+     */
+    public static final class CancelReservationCommand implements FridgeCapacityViewCommand {
+        final ActorRef<OrderProcessor.OrderProcessorCommand> replyTo;
+
+        public CancelReservationCommand(ActorRef<OrderProcessor.OrderProcessorCommand> replyTo) {
+            this.replyTo = replyTo;
+        }
+    }
+
+    public static final class WeightChangedCommand implements FridgeCapacityViewCommand {
+        final long version;
+        final int availableWeight;
+        // weight the view reserved that this change added
+        final int settledWeight;
+
+        public WeightChangedCommand(long version, int availableWeight, int settledWeight) {
+            this.version = version;
+            this.availableWeight = availableWeight;
+            this.settledWeight = settledWeight;
+        }
+    }
+
+    public static final class SpaceChangedCommand implements FridgeCapacityViewCommand {
+        final long version;
+        final int availableSpace;
+        // items the view reserved space for that this change added
+        final int settledSpace;
+
+        public SpaceChangedCommand(long version, int availableSpace, int settledSpace) {
+            this.version = version;
+            this.availableSpace = availableSpace;
+            this.settledSpace = settledSpace;
+        }
+    }
+
+    public static Behavior<FridgeCapacityViewCommand> create(ActorRef<Fridge.FridgeCommand> fridge, String groupId, String deviceId) {
+        return Behaviors.setup(context -> new FridgeCapacityView(context, fridge, groupId, deviceId));
+    }
+
+    private final ProductCatalog catalog;
+    private final ActorRef<Fridge.FridgeCommand> fridge;
+    private final String groupId;
+    private final String deviceId;
+
+    // null until the fridge connected them
+    private ActorRef<FridgeWeightSensor.FridgeWeightSensorCommand> weightSensor;
+    private ActorRef<FridgeSpaceSensor.FridgeSpaceSensorCommand> spaceSensor;
+    // 0 until the sensor reported for the first time
+    private long weightVersion;
+    private long spaceVersion;
+    private int availableWeight;
+    private int availableSpace;
+    // admitted, but not yet reported by the sensors
+    private int reservedWeight;
+    private int reservedSpace;
+    private final List<ReserveCapacityCommand> waiting = new ArrayList<>();
+    // the answer refusing an order at the current capacity, null until an order is refused
+    private OrderProcessor.CapacityReservedCommand refusal;
+
+    public FridgeCapacityView(ActorContext<FridgeCapacityViewCommand> context, ActorRef<Fridge.FridgeCommand> fridge, String groupId, String deviceId) {
+        super(context);
+
+        this.catalog = ProductCatalog.getDefault();
+        this.fridge = fridge;
+        this.groupId = groupId;
+        this.deviceId = deviceId;
+
+        getContext().getLog().info("FridgeCapacityView started");
+    }
+
+    @Override
+    public Receive<FridgeCapacityViewCommand> createReceive() {
+        return newReceiveBuilder()
+                .onMessage(ConnectSensorsCommand.class, this::onConnectSensors)
+                .onMessage(ReserveCapacityCommand.class, this::onReserveCapacity)
+                .onMessage(CancelReservationCommand.class, this::onCancelReservation)
+                .onMessage(WeightChangedCommand.class, this::onWeightChanged)
+                .onMessage(SpaceChangedCommand.class, this::onSpaceChanged)
+                .onSignal(PostStop.class, signal -> onPostStop())
+                .build();
+    }
+
+    private Behavior<FridgeCapacityViewCommand> onConnectSensors(ConnectSensorsCommand c) {
+        weightSensor = c.weightSensor;
+        spaceSensor = c.spaceSensor;
+        changed();
+        return this;
+    }
+
+    private Behavior<FridgeCapacityViewCommand> onReserveCapacity(ReserveCapacityCommand c) {
+        if (isComplete()) {
+            reserve(c);
+        } else {
+            waiting.add(c);
+        }
+        return this;
+    }
+
+    private Behavior<FridgeCapacityViewCommand> onCancelReservation(CancelReservationCommand c) {
+        waiting.removeIf(request -> request.replyTo.equals(c.replyTo));
+        c.replyTo.tell(new OrderProcessor.ReservationCancelledCommand());
+        return this;
+    }
+
+    private Behavior<FridgeCapacityViewCommand> onWeightChanged(WeightChangedCommand c) {
+        // a reservation whose change is ignored stays reserved, refusing an order rather than overfilling the fridge
+        if (c.version > weightVersion) {
+            weightVersion = c.version;
+            availableWeight = c.availableWeight;
+            reservedWeight -= c.settledWeight;
+            refusal = null;
+            changed();
+        }
+        return this;
+    }
+
+    private Behavior<FridgeCapacityViewCommand> onSpaceChanged(SpaceChangedCommand c) {
+        if (c.version > spaceVersion) {
+            spaceVersion = c.version;
+            availableSpace = c.availableSpace;
+            reservedSpace -= c.settledSpace;
+            refusal = null;
+            changed();
+        }
+        return this;
+    }
+
+    private void changed() {
+        if (isComplete() && !waiting.isEmpty()) {
+            for (ReserveCapacityCommand request : waiting) {
+                reserve(request);
+            }
+            getContext().getLog().debug("Answered {} capacity requests waiting for the sensors", waiting.size());
+            waiting.clear();
+        }
+    }
+
+    private boolean isComplete() {
+        return weightSensor != null && weightVersion > 0 && spaceVersion > 0;
+    }
+
+    private void reserve(ReserveCapacityCommand c) {
+        Product product = catalog.find(c.productId).orElse(null);
+        if (product == null) {
+            getContext().getLog().warn("Refusing to reserve capacity for unknown product id {}", c.productId);
+            c.replyTo.tell(refusal());
+            return;
+        }
+
+        if (capacity().fits(product.getWeight())) {
+            reservedWeight += product.getWeight();
+            reservedSpace++;
+            refusal = null;
+            weightSensor.tell(new FridgeWeightSensor.AddWeightCommand(product.getWeight()));
+            spaceSensor.tell(new FridgeSpaceSensor.AddSpaceCommand());
+            fridge.tell(new Fridge.StockFridgeCommand(product));
+            c.replyTo.tell(new OrderProcessor.CapacityReservedCommand(true, capacity()));
+        } else {
+            c.replyTo.tell(refusal());
+        }
+    }
+
+    private OrderProcessor.CapacityReservedCommand refusal() {
+        if (refusal == null) {
+            refusal = new OrderProcessor.CapacityReservedCommand(false, capacity());
+        }
+        return refusal;
+    }
+
+    private FridgeCapacity capacity() {
+        return new FridgeCapacity(weightVersion, spaceVersion, availableWeight - reservedWeight, availableSpace - reservedSpace);
+    }
+
+    private FridgeCapacityView onPostStop() {
+        getContext().getLog().info("FridgeCapacityView actor {}-{} stopped", groupId, deviceId);
+        return this;
+    }
+
+}
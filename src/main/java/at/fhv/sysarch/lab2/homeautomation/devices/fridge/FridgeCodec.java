@@ -0,0 +1,241 @@
+package at.fhv.sysarch.lab2.homeautomation.devices.fridge;
+
+import at.fhv.sysarch.lab2.homeautomation.cluster.MessageCodec;
+import at.fhv.sysarch.lab2.homeautomation.cluster.MessageReader;
+import at.fhv.sysarch.lab2.homeautomation.cluster.MessageWriter;
+import at.fhv.sysarch.lab2.homeautomation.domain.Order;
+import at.fhv.sysarch.lab2.homeautomation.domain.valueobjects.Product;
+import at.fhv.sysarch.lab2.homeautomation.domain.valueobjects.ProductCatalog;
+import at.fhv.sysarch.lab2.homeautomation.timeseries.TimeseriesCodec;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.UUID;
+
+/**
+ * Encodings of the commands of the fridge and its sensors, views, admission and order processors, and of the answers
+ * to fridge queries. Products are sent as their id in the default catalog.
+ */
+public final class FridgeCodec extends MessageCodec {
+
+    public FridgeCodec() {
+        ProductCatalog catalog = ProductCatalog.getDefault();
+
+        register("F1", Fridge.ConsumeProductCommand.class, 1,
+                (c, out) -> out.writeInt(c.productId),
+                in -> new Fridge.ConsumeProductCommand(in.readInt()));
+        register("F2", Fridge.RequestOrderProductCommand.class, 1,
+                (c, out) -> out.writeInt(c.productId),
+                in -> new Fridge.RequestOrderProductCommand(in.readInt()));
+        register("F3", Fridge.StockFridgeCommand.class, 1,
+                (c, out) -> out.writeInt(c.productId),
+                in -> new Fridge.StockFridgeCommand(in.readInt()));
+        register("F4", new Fridge.DisplayStockCommand());
+        register("F5", Fridge.DisplayOrderHistoryCommand.class, 1,
+                (c, out) -> {
+                    out.writeLong(c.page);
+                    out.writeInt(c.pageSize);
+                },
+                in -> new Fridge.DisplayOrderHistoryCommand(in.readLong(), in.readInt()));
+        register("F6", Fridge.DisplayOrderHistoryBetweenCommand.class, 1,
+                (c, out) -> {
+                    writeDateTime(c.from, out);
+                    writeDateTime(c.to, out);
+                },
+                in -> new Fridge.DisplayOrderHistoryBetweenCommand(readDateTime(in), readDateTime(in)));
+        register("F7", Fridge.QueryWeightReadingsCommand.class, 1,
+                (c, out) -> TimeseriesCodec.writeRequest(c.request, out),
+                in -> new Fridge.QueryWeightReadingsCommand(TimeseriesCodec.readRequest(in)));
+        register("F8", Fridge.QuerySpaceReadingsCommand.class, 1,
+                (c, out) -> TimeseriesCodec.writeRequest(c.request, out),
+                in -> new Fridge.QuerySpaceReadingsCommand(TimeseriesCodec.readRequest(in)));
+        register("F9", Fridge.GetStockCommand.class, 1,
+                (c, out) -> out.writeActorRef(c.replyTo),
+                in -> new Fridge.GetStockCommand(in.readActorRef()));
+        register("F10", Fridge.GetOrderHistoryCommand.class, 1,
+                (c, out) -> {
+                    out.writeLong(c.page);
+                    out.writeInt(c.pageSize);
+                    out.writeActorRef(c.replyTo);
+                },
+                in -> new Fridge.GetOrderHistoryCommand(in.readLong(), in.readInt(), in.readActorRef()));
+
+        register("FQ1", FridgeQueryView.StockChangedCommand.class, 1,
+                (c, out) -> {
+                    out.writeLong(c.version);
+                    out.writeInt(c.productId);
+                    out.writeInt(c.count);
+                },
+                in -> new FridgeQueryView.StockChangedCommand(in.readLong(), in.readInt(), in.readInt()));
+        register("FQ2", FridgeStock.class, 1,
+                (stock, out) -> {
+                    out.writeLong(stock.getVersion());
+                    out.writeLength(stock.size());
+                    for (int i = 0; i < stock.size(); i++) {
+                        out.writeInt(stock.productAt(i).getId());
+                        out.writeInt(stock.countAt(i));
+                    }
+                    out.writeInt(stock.getTotalWeight());
+                    out.writeInt(stock.getTotalItems());
+                },
+                in -> {
+                    long version = in.readLong();
+                    Product[] products = new Product[in.readLength()];
+                    int[] counts = new int[products.length];
+                    for (int i = 0; i < products.length; i++) {
+                        products[i] = catalog.get(in.readInt());
+                        counts[i] = in.readInt();
+                    }
+                    return new FridgeStock(version, products, counts, in.readInt(), in.readInt());
+                });
+        register("FQ3", OrderHistory.class, 1,
+                (history, out) -> {
+                    out.writeLong(history.getVersion());
+                    out.writeLong(history.getPage());
+                    out.writeInt(history.getPageSize());
+                    out.writeLong(history.getPages());
+                    out.writeLength(history.getOrders().size());
+                    for (Order order : history.getOrders()) {
+                        out.writeLong(order.getUuid().getMostSignificantBits());
+                        out.writeLong(order.getUuid().getLeastSignificantBits());
+                        writeDateTime(order.getOrderDate(), out);
+                        out.writeInt(order.getProduct().getId());
+                    }
+                },
+                in -> {
+                    long version = in.readLong();
+                    long page = in.readLong();
+                    int pageSize = in.readInt();
+                    long pages = in.readLong();
+                    Order[] orders = new Order[in.readLength()];
+                    for (int i = 0; i < orders.length; i++) {
+                        UUID uuid = new UUID(in.readLong(), in.readLong());
+                        LocalDateTime orderDate = readDateTime(in);
+                        orders[i] = new Order(uuid, orderDate, catalog.get(in.readInt()));
+                    }
+                    return new OrderHistory(version, page, pageSize, pages, Arrays.asList(orders));
+                });
+
+        // FW1, FS1, FP1 and FP2 were the separate weight and space queries of the order processor, retired
+        register("FW2", FridgeWeightSensor.ReserveWeightCommand.class, 1,
+                (c, out) -> {
+                    out.writeLong(c.batchId);
+                    out.writeLength(c.weights.length);
+                    for (int weight : c.weights) {
+                        out.writeInt(weight);
+                    }
+                    out.writeActorRef(c.orderAdmission);
+                },
+                in -> {
+                    long batchId = in.readLong();
+                    int[] weights = new int[in.readLength()];
+                    for (int i = 0; i < weights.length; i++) {
+                        weights[i] = in.readInt();
+                    }
+                    return new FridgeWeightSensor.ReserveWeightCommand(batchId, weights, in.readActorRef());
+                });
+        register("FW3", FridgeWeightSensor.AddWeightCommand.class, 1,
+                (c, out) -> out.writeInt(c.weight),
+                in -> new FridgeWeightSensor.AddWeightCommand(in.readInt()));
+        register("FW4", FridgeWeightSensor.RemoveWeightCommand.class, 1,
+                (c, out) -> out.writeInt(c.weight),
+                in -> new FridgeWeightSensor.RemoveWeightCommand(in.readInt()));
+        register("FW5", FridgeWeightSensor.QueryReadingsCommand.class, 1,
+                (c, out) -> TimeseriesCodec.writeRequest(c.request, out),
+                in -> new FridgeWeightSensor.QueryReadingsCommand(TimeseriesCodec.readRequest(in)));
+
+        register("FS2", FridgeSpaceSensor.ReserveSpaceCommand.class, 1,
+                (c, out) -> {
+                    out.writeLong(c.batchId);
+                    out.writeInt(c.count);
+                    out.writeActorRef(c.orderAdmission);
+                },
+                in -> new FridgeSpaceSensor.ReserveSpaceCommand(in.readLong(), in.readInt(), in.readActorRef()));
+        register("FS3", new FridgeSpaceSensor.AddSpaceCommand());
+        register("FS4", FridgeSpaceSensor.RemoveSpaceCommand.class, 1,
+                (c, out) -> out.writeInt(c.space),
+                in -> new FridgeSpaceSensor.RemoveSpaceCommand(in.readInt()));
+        register("FS5", FridgeSpaceSensor.QueryReadingsCommand.class, 1,
+                (c, out) -> TimeseriesCodec.writeRequest(c.request, out),
+                in -> new FridgeSpaceSensor.QueryReadingsCommand(TimeseriesCodec.readRequest(in)));
+
+        register("FA1", OrderAdmission.AdmitOrderCommand.class, 1,
+                (c, out) -> out.writeInt(c.product.getId()),
+                in -> new OrderAdmission.AdmitOrderCommand(catalog.get(in.readInt())));
+        register("FA2", OrderAdmission.WeightReservedCommand.class, 1,
+                (c, out) -> {
+                    out.writeLong(c.batchId);
+                    out.writeLength(c.granted.length);
+                    for (boolean granted : c.granted) {
+                        out.writeBoolean(granted);
+                    }
+                },
+                in -> {
+                    long batchId = in.readLong();
+                    boolean[] granted = new boolean[in.readLength()];
+                    for (int i = 0; i < granted.length; i++) {
+                        granted[i] = in.readBoolean();
+                    }
+                    return new OrderAdmission.WeightReservedCommand(batchId, granted);
+                });
+        register("FA3", OrderAdmission.SpaceReservedCommand.class, 1,
+                (c, out) -> {
+                    out.writeLong(c.batchId);
+                    out.writeInt(c.granted);
+                },
+                in -> new OrderAdmission.SpaceReservedCommand(in.readLong(), in.readInt()));
+
+        // FC1 and FP3 were the capacity snapshot the order processor decided on itself, retired
+        register("FC2", FridgeCapacityView.WeightChangedCommand.class, 2,
+                (c, out) -> {
+                    out.writeLong(c.version);
+                    out.writeInt(c.availableWeight);
+                    out.writeInt(c.settledWeight);
+                },
+                in -> new FridgeCapacityView.WeightChangedCommand(in.readLong(), in.readInt(), in.getVersion() >= 2 ? in.readInt() : 0));
+        register("FC3", FridgeCapacityView.SpaceChangedCommand.class, 2,
+                (c, out) -> {
+                    out.writeLong(c.version);
+                    out.writeInt(c.availableSpace);
+                    out.writeInt(c.settledSpace);
+                },
+                in -> new FridgeCapacityView.SpaceChangedCommand(in.readLong(), in.readInt(), in.getVersion() >= 2 ? in.readInt() : 0));
+        register("FC4", FridgeCapacityView.ConnectSensorsCommand.class, 1,
+                (c, out) -> {
+                    out.writeActorRef(c.weightSensor);
+                    out.writeActorRef(c.spaceSensor);
+                },
+                in -> new FridgeCapacityView.ConnectSensorsCommand(in.readActorRef(), in.readActorRef()));
+        register("FC5", FridgeCapacityView.ReserveCapacityCommand.class, 1,
+                (c, out) -> {
+                    out.writeInt(c.productId);
+                    out.writeActorRef(c.replyTo);
+                },
+                in -> new FridgeCapacityView.ReserveCapacityCommand(in.readInt(), in.readActorRef()));
+        register("FC6", FridgeCapacityView.CancelReservationCommand.class, 1,
+                (c, out) -> out.writeActorRef(c.replyTo),
+                in -> new FridgeCapacityView.CancelReservationCommand(in.readActorRef()));
+
+        register("FP4", OrderProcessor.CapacityReservedCommand.class, 1,
+                (c, out) -> {
+                    out.writeBoolean(c.reserved);
+                    out.writeLong(c.capacity.getWeightVersion());
+                    out.writeLong(c.capacity.getSpaceVersion());
+                    out.writeInt(c.capacity.getAvailableWeight());
+                    out.writeInt(c.capacity.getAvailableSpace());
+                },
+                in -> new OrderProcessor.CapacityReservedCommand(in.readBoolean(), new FridgeCapacity(in.readLong(), in.readLong(), in.readInt(), in.readInt())));
+        register("FP5", new OrderProcessor.ReservationCancelledCommand());
+    }
+
+    private static void writeDateTime(LocalDateTime dateTime, MessageWriter out) {
+        out.writeLong(dateTime.toEpochSecond(ZoneOffset.UTC));
+        out.writeInt(dateTime.getNano());
+    }
+
+    private static LocalDateTime readDateTime(MessageReader in) {
+        return LocalDateTime.ofEpochSecond(in.readLong(), in.readInt(), ZoneOffset.UTC);
+    }
+
+}
@@ -0,0 +1,167 @@
+package at.fhv.sysarch.lab2.homeautomation.devices.fridge;
+
+import akka.actor.typed.Behavior;
+import akka.actor.typed.PostStop;
+import akka.actor.typed.javadsl.AbstractBehavior;
+import akka.actor.typed.javadsl.ActorContext;
+import akka.actor.typed.javadsl.Behaviors;
+import akka.actor.typed.javadsl.Receive;
+import at.fhv.sysarch.lab2.homeautomation.cluster.ClusterMessage;
+import at.fhv.sysarch.lab2.homeautomation.domain.Order;
+import at.fhv.sysarch.lab2.homeautomation.domain.valueobjects.Product;
+import at.fhv.sysarch.lab2.homeautomation.domain.valueobjects.ProductCatalog;
+import at.fhv.sysarch.lab2.homeautomation.output.Console;
+
+import java.util.List;
+
+/**
+ * Read side of the {@link Fridge}: answers the stock and order history queries the fridge forwards, so reading
+ * never holds up stocking and consuming in the mailbox of the fridge.
+ * <p>
+ * The fridge pushes every change of the stock with a new version. The answer to a stock query is built once per
+ * version and shared by every query until the stock changes again; the history page asked for last is kept for as
+ * long as no order is added to the {@link OrderJournal}, which this view reads while the fridge appends to it.
+ */
+public class FridgeQueryView extends AbstractBehavior<FridgeQueryView.FridgeQueryViewCommand> {
+
+    public interface FridgeQueryViewCommand extends ClusterMessage {
+    }
+
+    public static final class StockChangedCommand implements FridgeQueryViewCommand {
+        long version;
+        int productId;
+        int count;
+
+        public StockChangedCommand(long version, int productId, int count) {
+            this.version = version;
+            this.productId = productId;
+            this.count = count;
+        }
+    }
+
+    public static Behavior<FridgeQueryViewCommand> create(FridgeStock stock, OrderJournal orders, String groupId, String deviceId) {
+        return Behaviors.setup(context -> new FridgeQueryView(context, stock, orders, groupId, deviceId));
+    }
+
+    private final ProductCatalog catalog;
+    private final Console console;
+    private final OrderJournal orders;
+    private final String groupId;
+    private final String deviceId;
+
+    private final Inventory inventory;
+    private long version;
+    // the answer for the current version, null until it is asked for
+    private FridgeStock stock;
+    // the page asked for last, valid while no order is added
+    private OrderHistory lastHistory;
+
+    public FridgeQueryView(ActorContext<FridgeQueryViewCommand> context, FridgeStock stock, OrderJournal orders, String groupId, String deviceId) {
+        super(context);
+
+        this.catalog = ProductCatalog.getDefault();
+        this.console = Console.get(getContext().getSystem());
+        this.orders = orders;
+        this.groupId = groupId;
+        this.deviceId = deviceId;
+        this.inventory = new Inventory(catalog);
+        stock.forEach(inventory::add);
+        this.version = stock.getVersion();
+        this.stock = stock;
+
+        getContext().getLog().info("FridgeQueryView started");
+    }
+
+    @Override
+    public Receive<FridgeQueryViewCommand> createReceive() {
+        return newReceiveBuilder()
+                .onMessage(StockChangedCommand.class, this::onStockChanged)
+                .onMessage(Fridge.GetStockCommand.class, this::onGetStock)
+                .onMessage(Fridge.GetOrderHistoryCommand.class, this::onGetOrderHistory)
+                .onMessage(Fridge.DisplayStockCommand.class, this::onDisplayStock)
+                .onMessage(Fridge.DisplayOrderHistoryCommand.class, this::onDisplayOrderHistory)
+                .onMessage(Fridge.DisplayOrderHistoryBetweenCommand.class, this::onDisplayOrderHistoryBetween)
+                .onSignal(PostStop.class, signal -> onPostStop())
+                .build();
+    }
+
+    private Behavior<FridgeQueryViewCommand> onStockChanged(StockChangedCommand c) {
+        if (c.version > version) {
+            Product product = catalog.find(c.productId).orElse(null);
+            if (product != null) {
+                inventory.add(product, c.count - inventory.count(product));
+            } else {
+                getContext().getLog().warn("Ignoring the stock of unknown product id {}", c.productId);
+            }
+            version = c.version;
+            stock = null;
+        }
+        return this;
+    }
+
+    private Behavior<FridgeQueryViewCommand> onGetStock(Fridge.GetStockCommand c) {
+        c.replyTo.tell(stock());
+        return this;
+    }
+
+    private Behavior<FridgeQueryViewCommand> onGetOrderHistory(Fridge.GetOrderHistoryCommand c) {
+        c.replyTo.tell(history(c.page, c.pageSize));
+        return this;
+    }
+
+    private Behavior<FridgeQueryViewCommand> onDisplayStock(Fridge.DisplayStockCommand c) {
+        StringBuilder content = new StringBuilder("\nFridge content:\n\n");
+
+        stock().forEach((product, count) -> content.append(count).append(" x ").append(product).append('\n'));
+
+        console.println(content.toString());
+
+        return this;
+    }
+
+    private Behavior<FridgeQueryViewCommand> onDisplayOrderHistory(Fridge.DisplayOrderHistoryCommand c) {
+        OrderHistory history = history(c.page, c.pageSize);
+        printOrders("\nOrder history (page " + history.getPage() + " of " + history.getPages() + ", newest last):\n", history.getOrders());
+
+        return this;
+    }
+
+    private Behavior<FridgeQueryViewCommand> onDisplayOrderHistoryBetween(Fridge.DisplayOrderHistoryBetweenCommand c) {
+        printOrders("\nOrder history from " + c.from + " to " + c.to + ":\n", orders.between(c.from, c.to, Fridge.DEFAULT_HISTORY_PAGE_SIZE));
+
+        return this;
+    }
+
+    private FridgeStock stock() {
+        if (stock == null) {
+            stock = inventory.snapshot(version);
+        }
+        return stock;
+    }
+
+    private OrderHistory history(long page, int pageSize) {
+        long size = orders.size();
+        OrderHistory history = lastHistory;
+        if (history == null || history.getVersion() != size || history.getPage() != page || history.getPageSize() != pageSize) {
+            long pages = (size + pageSize - 1) / pageSize;
+            history = new OrderHistory(size, page, pageSize, pages, orders.page(page, pageSize));
+            lastHistory = history;
+        }
+        return history;
+    }
+
+    private void printOrders(String title, List<Order> page) {
+        StringBuilder history = new StringBuilder(title).append('\n');
+        for (Order order : page) {
+            history.append(order).append('\n');
+        }
+
+        console.println(history.toString());
+    }
+
+    private FridgeQueryView onPostStop() {
+        getContext().getLog().info("FridgeQueryView actor {}-{} stopped", groupId, deviceId);
+        return this;
+    }
+
+}
@@ -0,0 +1,83 @@
+package at.fhv.sysarch.lab2.homeautomation.devices.fridge;
+
+import at.fhv.sysarch.lab2.homeautomation.domain.enums.OrderStrategy;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.Optional;
+
+/**
+ * Immutable configuration of a {@link Fridge}. Start from {@link #DEFAULT} and override single values.
+ */
+public final class FridgeSettings {
+
+    public static final FridgeSettings DEFAULT = new FridgeSettings(Optional.empty(), OrderStrategy.ADMISSION, 100, 10, 64, Duration.ofSeconds(5));
+
+    private final Optional<Path> orderJournalFile;
+    private final OrderStrategy orderStrategy;
+    private final int maxWeight;
+    private final int maxSpace;
+    private final int admissionBatchSize;
+    private final Duration orderTimeout;
+
+    private FridgeSettings(Optional<Path> orderJournalFile, OrderStrategy orderStrategy, int maxWeight, int maxSpace, int admissionBatchSize, Duration orderTimeout) {
+        this.orderJournalFile = orderJournalFile;
+        this.orderStrategy = orderStrategy;
+        this.maxWeight = maxWeight;
+        this.maxSpace = maxSpace;
+        this.admissionBatchSize = admissionBatchSize;
+        this.orderTimeout = orderTimeout;
+    }
+
+    public FridgeSettings withOrderJournalFile(Path orderJournalFile) {
+        return new FridgeSettings(Optional.of(orderJournalFile), orderStrategy, maxWeight, maxSpace, admissionBatchSize, orderTimeout);
+    }
+
+    public FridgeSettings withOrderStrategy(OrderStrategy orderStrategy) {
+        return new FridgeSettings(orderJournalFile, orderStrategy, maxWeight, maxSpace, admissionBatchSize, orderTimeout);
+    }
+
+    public FridgeSettings withCapacity(int maxWeight, int maxSpace) {
+        return new FridgeSettings(orderJournalFile, orderStrategy, maxWeight, maxSpace, admissionBatchSize, orderTimeout);
+    }
+
+    public FridgeSettings withAdmissionBatchSize(int admissionBatchSize) {
+        return new FridgeSettings(orderJournalFile, orderStrategy, maxWeight, maxSpace, admissionBatchSize, orderTimeout);
+    }
+
+    /**
+     * @param orderTimeout how long an order waits for the sensors before it fails
+     */
+    public FridgeSettings withOrderTimeout(Duration orderTimeout) {
+        return new FridgeSettings(orderJournalFile, orderStrategy, maxWeight, maxSpace, admissionBatchSize, orderTimeout);
+    }
+
+    /**
+     * @return the configured journal file, or {@code data/fridge-<groupId>-<deviceId>.orders}
+     */
+    public Path getOrderJournalFile(String groupId, String deviceId) {
+        return orderJournalFile.orElseGet(() -> Paths.get("data", "fridge-" + groupId + "-" + deviceId + ".orders"));
+    }
+
+    public OrderStrategy getOrderStrategy() {
+        return orderStrategy;
+    }
+
+    public int getMaxWeight() {
+        return maxWeight;
+    }
+
+    public int getMaxSpace() {
+        return maxSpace;
+    }
+
+    public int getAdmissionBatchSize() {
+        return admissionBatchSize;
+    }
+
+    public Duration getOrderTimeout() {
+        return orderTimeout;
+    }
+
+}
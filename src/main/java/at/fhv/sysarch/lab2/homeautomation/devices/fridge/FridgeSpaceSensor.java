@@ -7,20 +7,39 @@ import akka.actor.typed.javadsl.AbstractBehavior;
 import akka.actor.typed.javadsl.ActorContext;
 import akka.actor.typed.javadsl.Behaviors;
 import akka.actor.typed.javadsl.Receive;
-
+import at.fhv.sysarch.lab2.homeautomation.cluster.ClusterMessage;
+import at.fhv.sysarch.lab2.homeautomation.simulation.DeviceClock;
+import at.fhv.sysarch.lab2.homeautomation.timeseries.ReadingBuffer;
+import at.fhv.sysarch.lab2.homeautomation.timeseries.ReadingsQuery;
+import at.fhv.sysarch.lab2.homeautomation.timeseries.ReadingsRequest;
+
+/**
+ * Counts the items in the fridge. Every change of the space available is pushed to the {@link FridgeCapacityView}
+ * with a new version.
+ */
 public class FridgeSpaceSensor extends AbstractBehavior<FridgeSpaceSensor.FridgeSpaceSensorCommand> {
 
-    public interface FridgeSpaceSensorCommand {
+    public interface FridgeSpaceSensorCommand extends ClusterMessage {
     }
 
-    public static final class GetAvailableSpaceCommand implements FridgeSpaceSensorCommand {
-        ActorRef<OrderProcessor.OrderProcessorCommand> orderProcessor;
-
-        public GetAvailableSpaceCommand(ActorRef<OrderProcessor.OrderProcessorCommand> orderProcessor) {
-            this.orderProcessor = orderProcessor;
+    /**
+     * Reserves space for up to {@code count} items. Reserved space counts as used until it is removed again.
+     */
+    public static final class ReserveSpaceCommand implements FridgeSpaceSensorCommand {
+        long batchId;
+        int count;
+        ActorRef<OrderAdmission.OrderAdmissionCommand> orderAdmission;
+
+        public ReserveSpaceCommand(long batchId, int count, ActorRef<OrderAdmission.OrderAdmissionCommand> orderAdmission) {
+            this.batchId = batchId;
+            this.count = count;
+            this.orderAdmission = orderAdmission;
         }
     }
 
+    /**
+     * Adds an item the {@link FridgeCapacityView} reserved space for, the change it pushes settles that reservation.
+     */
     public static final class AddSpaceCommand implements FridgeSpaceSensor.FridgeSpaceSensorCommand {
     }
 
@@ -32,31 +51,69 @@ public class FridgeSpaceSensor extends AbstractBehavior<FridgeSpaceSensor.Fridge
         }
     }
 
+    /**
+     * Answers the query from the readings this sensor kept, replying to {@code replyTo}.
+     */
+    public static final class QueryReadingsCommand implements FridgeSpaceSensor.FridgeSpaceSensorCommand {
+        final ReadingsRequest request;
+
+        public <R> QueryReadingsCommand(ReadingsQuery<R> query, ActorRef<R> replyTo) {
+            this(ReadingsRequest.of(query, replyTo));
+        }
+
+        public QueryReadingsCommand(ReadingsRequest request) {
+            this.request = request;
+        }
+    }
+
+    public static Behavior<FridgeSpaceSensor.FridgeSpaceSensorCommand> create(
+            int usedSpace,
+            ActorRef<FridgeCapacityView.FridgeCapacityViewCommand> capacityView,
+            String groupId,
+            String deviceId
+    ) {
+        return create(usedSpace, FridgeSettings.DEFAULT.getMaxSpace(), capacityView, groupId, deviceId);
+    }
+
     public static Behavior<FridgeSpaceSensor.FridgeSpaceSensorCommand> create(
             int usedSpace,
+            int maxSpace,
+            ActorRef<FridgeCapacityView.FridgeCapacityViewCommand> capacityView,
             String groupId,
             String deviceId
     ) {
-        return Behaviors.setup(context -> new FridgeSpaceSensor(context, usedSpace, groupId, deviceId));
+        return Behaviors.setup(context -> new FridgeSpaceSensor(context, usedSpace, maxSpace, capacityView, groupId, deviceId));
     }
 
-    private final int maxSpace = 10;
+    private final int maxSpace;
     private int usedSpace;
+    private final ActorRef<FridgeCapacityView.FridgeCapacityViewCommand> capacityView;
+    private long version;
 
     private final String groupId;
     private final String deviceId;
+    private final ReadingBuffer readings;
+    private final DeviceClock clock;
 
     public FridgeSpaceSensor(
             ActorContext<FridgeSpaceSensor.FridgeSpaceSensorCommand> context,
             int usedSpace,
+            int maxSpace,
+            ActorRef<FridgeCapacityView.FridgeCapacityViewCommand> capacityView,
             String groupId,
             String deviceId
     ) {
         super(context);
 
         this.usedSpace = usedSpace;
+        this.maxSpace = maxSpace;
+        this.capacityView = capacityView;
         this.groupId = groupId;
         this.deviceId = deviceId;
+        this.readings = new ReadingBuffer(ReadingBuffer.configuredCapacity(getContext().getSystem()));
+        this.clock = DeviceClock.get(getContext().getSystem());
+        this.readings.add(clock.millis(), usedSpace);
+        publish(0);
 
         getContext().getLog().info("FridgeSpaceSensor started");
     }
@@ -64,30 +121,49 @@ public class FridgeSpaceSensor extends AbstractBehavior<FridgeSpaceSensor.Fridge
     @Override
     public Receive<FridgeSpaceSensorCommand> createReceive() {
         return newReceiveBuilder()
-                .onMessage(GetAvailableSpaceCommand.class, this::onGetAvailableSpace)
+                .onMessage(ReserveSpaceCommand.class, this::onReserveSpace)
                 .onMessage(AddSpaceCommand.class, this::onAddSpace)
                 .onMessage(RemoveSpaceCommand.class, this::onRemoveSpace)
+                .onMessage(QueryReadingsCommand.class, this::onQueryReadings)
                 .onSignal(PostStop.class, signal -> onPostStop())
                 .build();
     }
 
-    private Behavior<FridgeSpaceSensorCommand> onGetAvailableSpace(GetAvailableSpaceCommand c) {
-        c.orderProcessor.tell(new OrderProcessor.SpaceReceivedCommand(maxSpace - usedSpace));
+    private Behavior<FridgeSpaceSensorCommand> onReserveSpace(ReserveSpaceCommand c) {
+        int granted = Math.max(0, Math.min(c.count, maxSpace - usedSpace));
+        usedSpace += granted;
+        readings.add(clock.millis(), usedSpace);
+        publish(0);
+        getContext().getLog().info("Space reserved for {} items \n used space: {}/{}", granted, usedSpace, maxSpace);
+        c.orderAdmission.tell(new OrderAdmission.SpaceReservedCommand(c.batchId, granted));
         return this;
     }
 
     private Behavior<FridgeSpaceSensorCommand> onAddSpace(AddSpaceCommand c) {
         usedSpace += 1;
+        readings.add(clock.millis(), usedSpace);
+        publish(1);
         getContext().getLog().info("Item added to Fridge \n used space: {}/{}", usedSpace, maxSpace);
         return this;
     }
 
     private Behavior<FridgeSpaceSensorCommand> onRemoveSpace(RemoveSpaceCommand c) {
-        usedSpace -= 1;
+        usedSpace -= c.space;
+        readings.add(clock.millis(), usedSpace);
+        publish(0);
         getContext().getLog().info("Item removed from Fridge \n used space: {}/{}", usedSpace, maxSpace);
         return this;
     }
 
+    private Behavior<FridgeSpaceSensorCommand> onQueryReadings(QueryReadingsCommand c) {
+        c.request.answer(readings, clock.millis());
+        return this;
+    }
+
+    private void publish(int settledSpace) {
+        capacityView.tell(new FridgeCapacityView.SpaceChangedCommand(++version, maxSpace - usedSpace, settledSpace));
+    }
+
     private FridgeSpaceSensor onPostStop() {
         getContext().getLog().info("FridgeSpaceSensor actor {}-{} stopped", groupId, deviceId);
         return this;
@@ -0,0 +1,85 @@
+package at.fhv.sysarch.lab2.homeautomation.devices.fridge;
+
+import at.fhv.sysarch.lab2.homeautomation.cluster.ClusterMessage;
+import at.fhv.sysarch.lab2.homeautomation.domain.valueobjects.Product;
+
+import java.util.function.ObjIntConsumer;
+
+/**
+ * Immutable stock of a fridge at one version, the answer to {@link Fridge.GetStockCommand}. The version increases
+ * with every product stocked or consumed, so a dashboard can skip a stock it has already seen.
+ */
+public final class FridgeStock implements ClusterMessage {
+
+    private final long version;
+    private final Product[] products;
+    private final int[] counts;
+    private final int totalWeight;
+    private final int totalItems;
+
+    /**
+     * Takes ownership of the arrays, they must not be changed afterwards.
+     */
+    FridgeStock(long version, Product[] products, int[] counts, int totalWeight, int totalItems) {
+        this.version = version;
+        this.products = products;
+        this.counts = counts;
+        this.totalWeight = totalWeight;
+        this.totalItems = totalItems;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * @return number of different products in stock
+     */
+    public int size() {
+        return products.length;
+    }
+
+    public Product productAt(int index) {
+        return products[index];
+    }
+
+    public int countAt(int index) {
+        return counts[index];
+    }
+
+    public int count(Product product) {
+        for (int i = 0; i < products.length; i++) {
+            if (products[i].getId() == product.getId()) {
+                return counts[i];
+            }
+        }
+        return 0;
+    }
+
+    public int getTotalWeight() {
+        return totalWeight;
+    }
+
+    public int getTotalItems() {
+        return totalItems;
+    }
+
+    /**
+     * Visits every product in stock together with its count, in the order of the catalog.
+     */
+    public void forEach(ObjIntConsumer<Product> consumer) {
+        for (int i = 0; i < products.length; i++) {
+            consumer.accept(products[i], counts[i]);
+        }
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder("FridgeStock{version=").append(version).append(", ");
+        for (int i = 0; i < products.length; i++) {
+            builder.append(counts[i]).append(" x ").append(products[i].getName()).append(", ");
+        }
+        return builder.append("totalWeight=").append(totalWeight).append(", totalItems=").append(totalItems).append('}').toString();
+    }
+
+}
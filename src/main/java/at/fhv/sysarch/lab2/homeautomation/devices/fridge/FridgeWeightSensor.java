@@ -7,20 +7,40 @@ import akka.actor.typed.javadsl.AbstractBehavior;
 import akka.actor.typed.javadsl.ActorContext;
 import akka.actor.typed.javadsl.Behaviors;
 import akka.actor.typed.javadsl.Receive;
-
+import at.fhv.sysarch.lab2.homeautomation.cluster.ClusterMessage;
+import at.fhv.sysarch.lab2.homeautomation.simulation.DeviceClock;
+import at.fhv.sysarch.lab2.homeautomation.timeseries.ReadingBuffer;
+import at.fhv.sysarch.lab2.homeautomation.timeseries.ReadingsQuery;
+import at.fhv.sysarch.lab2.homeautomation.timeseries.ReadingsRequest;
+
+/**
+ * Measures the weight in the fridge. Every change of the weight available is pushed to the
+ * {@link FridgeCapacityView} with a new version.
+ */
 public class FridgeWeightSensor extends AbstractBehavior<FridgeWeightSensor.FridgeWeightSensorCommand> {
 
-    public interface FridgeWeightSensorCommand {
+    public interface FridgeWeightSensorCommand extends ClusterMessage {
     }
 
-    public static final class GetAvailableWeightCommand implements FridgeWeightSensorCommand {
-        ActorRef<OrderProcessor.OrderProcessorCommand> orderProcessor;
-
-        public GetAvailableWeightCommand(ActorRef<OrderProcessor.OrderProcessorCommand> orderProcessor) {
-            this.orderProcessor = orderProcessor;
+    /**
+     * Reserves the weights in order, each one only if it still fits. Reserved weight counts as current weight until
+     * it is removed again.
+     */
+    public static final class ReserveWeightCommand implements FridgeWeightSensorCommand {
+        long batchId;
+        int[] weights;
+        ActorRef<OrderAdmission.OrderAdmissionCommand> orderAdmission;
+
+        public ReserveWeightCommand(long batchId, int[] weights, ActorRef<OrderAdmission.OrderAdmissionCommand> orderAdmission) {
+            this.batchId = batchId;
+            this.weights = weights;
+            this.orderAdmission = orderAdmission;
         }
     }
 
+    /**
+     * Adds weight the {@link FridgeCapacityView} reserved, the change it pushes settles that reservation.
+     */
     public static final class AddWeightCommand implements FridgeWeightSensorCommand {
         int weight;
 
@@ -37,31 +57,69 @@ public class FridgeWeightSensor extends AbstractBehavior<FridgeWeightSensor.Frid
         }
     }
 
+    /**
+     * Answers the query from the readings this sensor kept, replying to {@code replyTo}.
+     */
+    public static final class QueryReadingsCommand implements FridgeWeightSensorCommand {
+        final ReadingsRequest request;
+
+        public <R> QueryReadingsCommand(ReadingsQuery<R> query, ActorRef<R> replyTo) {
+            this(ReadingsRequest.of(query, replyTo));
+        }
+
+        public QueryReadingsCommand(ReadingsRequest request) {
+            this.request = request;
+        }
+    }
+
+    public static Behavior<FridgeWeightSensorCommand> create(
+            int currentWeight,
+            ActorRef<FridgeCapacityView.FridgeCapacityViewCommand> capacityView,
+            String groupId,
+            String deviceId
+    ) {
+        return create(currentWeight, FridgeSettings.DEFAULT.getMaxWeight(), capacityView, groupId, deviceId);
+    }
+
     public static Behavior<FridgeWeightSensorCommand> create(
             int currentWeight,
+            int maxWeight,
+            ActorRef<FridgeCapacityView.FridgeCapacityViewCommand> capacityView,
             String groupId,
             String deviceId
     ) {
-        return Behaviors.setup(context -> new FridgeWeightSensor(context, currentWeight, groupId, deviceId));
+        return Behaviors.setup(context -> new FridgeWeightSensor(context, currentWeight, maxWeight, capacityView, groupId, deviceId));
     }
 
-    private final int maxWeight = 100;
+    private final int maxWeight;
     private int currentWeight;
+    private final ActorRef<FridgeCapacityView.FridgeCapacityViewCommand> capacityView;
+    private long version;
 
     private final String groupId;
     private final String deviceId;
+    private final ReadingBuffer readings;
+    private final DeviceClock clock;
 
     public FridgeWeightSensor(
             ActorContext<FridgeWeightSensorCommand> context,
             int currentWeight,
+            int maxWeight,
+            ActorRef<FridgeCapacityView.FridgeCapacityViewCommand> capacityView,
             String groupId,
             String deviceId
     ) {
         super(context);
 
         this.currentWeight = currentWeight;
+        this.maxWeight = maxWeight;
+        this.capacityView = capacityView;
         this.groupId = groupId;
         this.deviceId = deviceId;
+        this.readings = new ReadingBuffer(ReadingBuffer.configuredCapacity(getContext().getSystem()));
+        this.clock = DeviceClock.get(getContext().getSystem());
+        this.readings.add(clock.millis(), currentWeight);
+        publish(0);
 
         getContext().getLog().info("FridgeWeightSensor started");
     }
@@ -69,30 +127,57 @@ public class FridgeWeightSensor extends AbstractBehavior<FridgeWeightSensor.Frid
     @Override
     public Receive<FridgeWeightSensorCommand> createReceive() {
         return newReceiveBuilder()
-                .onMessage(GetAvailableWeightCommand.class, this::onGetAvailableWeight)
+                .onMessage(ReserveWeightCommand.class, this::onReserveWeight)
                 .onMessage(AddWeightCommand.class, this::onAddWeight)
                 .onMessage(RemoveWeightCommand.class, this::onRemoveWeight)
+                .onMessage(QueryReadingsCommand.class, this::onQueryReadings)
                 .onSignal(PostStop.class, signal -> onPostStop())
                 .build();
     }
 
-    private Behavior<FridgeWeightSensorCommand> onGetAvailableWeight(GetAvailableWeightCommand c) {
-        c.orderProcessor.tell(new OrderProcessor.WeightReceivedCommand(maxWeight - currentWeight));
+    private Behavior<FridgeWeightSensorCommand> onReserveWeight(ReserveWeightCommand c) {
+        boolean[] granted = new boolean[c.weights.length];
+        int reserved = 0;
+
+        for (int i = 0; i < c.weights.length; i++) {
+            if (maxWeight - currentWeight > c.weights[i]) {
+                currentWeight += c.weights[i];
+                reserved += c.weights[i];
+                granted[i] = true;
+            }
+        }
+
+        readings.add(clock.millis(), currentWeight);
+        publish(0);
+        getContext().getLog().info("FridgeWeightSensor weight reserved: {} \n current total weight: {}", reserved, currentWeight);
+        c.orderAdmission.tell(new OrderAdmission.WeightReservedCommand(c.batchId, granted));
         return this;
     }
 
     private Behavior<FridgeWeightSensorCommand> onAddWeight(AddWeightCommand c) {
         currentWeight += c.weight;
+        readings.add(clock.millis(), currentWeight);
+        publish(c.weight);
         getContext().getLog().info("FridgeWeightSensor weight added: {} \n current total weight: {}", c.weight, currentWeight);
         return this;
     }
 
     private Behavior<FridgeWeightSensorCommand> onRemoveWeight(RemoveWeightCommand c) {
         currentWeight -= c.weight;
+        readings.add(clock.millis(), currentWeight);
+        publish(0);
         getContext().getLog().info("FridgeWeightSensor weight removed: {} \n current total weight: {}", c.weight, currentWeight);
         return this;
     }
 
+    private Behavior<FridgeWeightSensorCommand> onQueryReadings(QueryReadingsCommand c) {
+        c.request.answer(readings, clock.millis());
+        return this;
+    }
+
+    private void publish(int settledWeight) {
+        capacityView.tell(new FridgeCapacityView.WeightChangedCommand(++version, maxWeight - currentWeight, settledWeight));
+    }
 
     private FridgeWeightSensor onPostStop() {
         getContext().getLog().info("FridgeWeightSensor actor {}-{} stopped", groupId, deviceId);
@@ -0,0 +1,101 @@
+package at.fhv.sysarch.lab2.homeautomation.devices.fridge;
+
+import at.fhv.sysarch.lab2.homeautomation.domain.valueobjects.Product;
+import at.fhv.sysarch.lab2.homeautomation.domain.valueobjects.ProductCatalog;
+
+import java.util.function.ObjIntConsumer;
+
+/**
+ * Stock of a fridge, counted per product id instead of holding one object per item. Adding, removing and counting
+ * a product as well as the weight and item totals are constant time. Only products of the given catalog fit in.
+ */
+final class Inventory {
+
+    private final ProductCatalog catalog;
+    private final int[] counts;
+
+    private int totalWeight;
+    private int totalItems;
+
+    Inventory(ProductCatalog catalog) {
+        this.catalog = catalog;
+        this.counts = new int[catalog.size()];
+    }
+
+    void add(Product product) {
+        add(product, 1);
+    }
+
+    void add(Product product, int count) {
+        counts[product.getId()] += count;
+        totalWeight += product.getWeight() * count;
+        totalItems += count;
+    }
+
+    /**
+     * @return false if there was no such product to remove
+     */
+    boolean remove(Product product) {
+        int id = product.getId();
+        if (counts[id] == 0) {
+            return false;
+        }
+
+        counts[id]--;
+        totalWeight -= product.getWeight();
+        totalItems--;
+        return true;
+    }
+
+    int count(Product product) {
+        return counts[product.getId()];
+    }
+
+    int getDistinctProducts() {
+        int distinct = 0;
+        for (int count : counts) {
+            if (count > 0) {
+                distinct++;
+            }
+        }
+        return distinct;
+    }
+
+    int getTotalWeight() {
+        return totalWeight;
+    }
+
+    int getTotalItems() {
+        return totalItems;
+    }
+
+    /**
+     * @return copy of the current stock, tagged with {@code version}
+     */
+    FridgeStock snapshot(long version) {
+        int distinct = getDistinctProducts();
+        Product[] products = new Product[distinct];
+        int[] stocked = new int[distinct];
+        int i = 0;
+        for (int id = 0; id < counts.length; id++) {
+            if (counts[id] > 0) {
+                products[i] = catalog.get(id);
+                stocked[i] = counts[id];
+                i++;
+            }
+        }
+        return new FridgeStock(version, products, stocked, totalWeight, totalItems);
+    }
+
+    /**
+     * Visits every product that is currently in stock together with its count.
+     */
+    void forEach(ObjIntConsumer<Product> consumer) {
+        for (int id = 0; id < counts.length; id++) {
+            if (counts[id] > 0) {
+                consumer.accept(catalog.get(id), counts[id]);
+            }
+        }
+    }
+
+}
@@ -0,0 +1,297 @@
+package at.fhv.sysarch.lab2.homeautomation.devices.fridge;
+
+import akka.actor.typed.ActorRef;
+import akka.actor.typed.Behavior;
+import akka.actor.typed.PostStop;
+import akka.actor.typed.javadsl.AbstractBehavior;
+import akka.actor.typed.javadsl.ActorContext;
+import akka.actor.typed.javadsl.Behaviors;
+import akka.actor.typed.javadsl.Receive;
+import akka.actor.typed.javadsl.TimerScheduler;
+import at.fhv.sysarch.lab2.homeautomation.cluster.ClusterMessage;
+import at.fhv.sysarch.lab2.homeautomation.domain.valueobjects.Product;
+import at.fhv.sysarch.lab2.homeautomation.metrics.Metrics;
+import at.fhv.sysarch.lab2.homeautomation.metrics.ValueMetrics;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Long-lived alternative to spawning an {@link OrderProcessor} per order. Orders that arrive while a batch is being
+ * admitted queue up and form the next batch. A batch reserves weight for its products, then space for those whose
+ * weight fit, and finally stocks the fridge with every product that got both; weight reserved for products without
+ * space is released again. As the sensors reserve atomically, concurrent orders can never overfill the fridge.
+ * <p>
+ * A batch whose sensor doesn't answer within the order timeout fails: its products are not stocked, and whatever the
+ * sensors reserved for it is released when their answer comes in late. Like with the {@link OrderProcessor}, orders
+ * in flight are the gauge {@code fridge_orders_in_flight}, failed ones are counted as
+ * {@code fridge_orders_timed_out_total}.
+ */
+public class OrderAdmission extends AbstractBehavior<OrderAdmission.OrderAdmissionCommand> {
+
+    public interface OrderAdmissionCommand extends ClusterMessage {
+    }
+
+    public static final class AdmitOrderCommand implements OrderAdmissionCommand {
+        Product product;
+
+        public AdmitOrderCommand(Product product) {
+            this.product = product;
+        }
+    }
+
+    public static final class WeightReservedCommand implements OrderAdmissionCommand {
+        long batchId;
+        boolean[] granted;
+
+        public WeightReservedCommand(long batchId, boolean[] granted) {
+            this.batchId = batchId;
+            this.granted = granted;
+        }
+    }
+
+    public static final class SpaceReservedCommand implements OrderAdmissionCommand {
+        long batchId;
+        int granted;
+
+        public SpaceReservedCommand(long batchId, int granted) {
+            this.batchId = batchId;
+            this.granted = granted;
+        }
+    }
+
+    private static final class BatchTimedOutCommand implements OrderAdmissionCommand {
+        final long batchId;
+
+        BatchTimedOutCommand(long batchId) {
+            this.batchId = batchId;
+        }
+    }
+
+    public static Behavior<OrderAdmissionCommand> create(
+            ActorRef<Fridge.FridgeCommand> fridge,
+            ActorRef<FridgeWeightSensor.FridgeWeightSensorCommand> weightSensor,
+            ActorRef<FridgeSpaceSensor.FridgeSpaceSensorCommand> spaceSensor,
+            int maxBatchSize,
+            Duration timeout,
+            String groupId,
+            String deviceId
+    ) {
+        return Behaviors.setup(context -> Metrics.withTimers(timers -> new OrderAdmission(context, timers, fridge, weightSensor, spaceSensor, maxBatchSize, timeout, groupId, deviceId)));
+    }
+
+    // batches that timed out, whose reservations are released when the sensors answer after all
+    private static final int MAX_FAILED_BATCHES = 64;
+    private static final Object BATCH_TIMER = "batch";
+
+    private final TimerScheduler<OrderAdmissionCommand> timers;
+
+    private final ActorRef<Fridge.FridgeCommand> fridge;
+    private final ActorRef<FridgeWeightSensor.FridgeWeightSensorCommand> weightSensor;
+    private final ActorRef<FridgeSpaceSensor.FridgeSpaceSensorCommand> spaceSensor;
+    private final int maxBatchSize;
+    private final Duration timeout;
+    private final ValueMetrics inFlight;
+    private final ValueMetrics timedOut;
+    private final String groupId;
+    private final String deviceId;
+
+    private final Deque<Product> pending = new ArrayDeque<>();
+    // the products of failed batches still waiting for weight, null for those waiting for space
+    private final Map<Long, Product[]> failedBatches = new LinkedHashMap<>() {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, Product[]> eldest) {
+            return size() > MAX_FAILED_BATCHES;
+        }
+    };
+    private Product[] batch;
+    private boolean[] weightGranted;
+    private long batchId;
+
+    public OrderAdmission(
+            ActorContext<OrderAdmissionCommand> context,
+            TimerScheduler<OrderAdmissionCommand> timers,
+            ActorRef<Fridge.FridgeCommand> fridge,
+            ActorRef<FridgeWeightSensor.FridgeWeightSensorCommand> weightSensor,
+            ActorRef<FridgeSpaceSensor.FridgeSpaceSensorCommand> spaceSensor,
+            int maxBatchSize,
+            Duration timeout,
+            String groupId,
+            String deviceId
+    ) {
+        super(context);
+
+        this.timers = timers;
+        this.fridge = fridge;
+        this.weightSensor = weightSensor;
+        this.spaceSensor = spaceSensor;
+        this.maxBatchSize = maxBatchSize;
+        this.timeout = timeout;
+        Metrics metrics = Metrics.get(getContext().getSystem());
+        this.inFlight = metrics.gauge("fridge_orders_in_flight");
+        this.timedOut = metrics.counter("fridge_orders_timed_out_total");
+        this.groupId = groupId;
+        this.deviceId = deviceId;
+
+        getContext().getLog().info("OrderAdmission started");
+    }
+
+    @Override
+    public Receive<OrderAdmissionCommand> createReceive() {
+        return newReceiveBuilder()
+                .onMessage(AdmitOrderCommand.class, this::onAdmitOrder)
+                .onMessage(WeightReservedCommand.class, this::onWeightReserved)
+                .onMessage(SpaceReservedCommand.class, this::onSpaceReserved)
+                .onMessage(BatchTimedOutCommand.class, this::onBatchTimedOut)
+                .onSignal(PostStop.class, signal -> onPostStop())
+                .build();
+    }
+
+    private Behavior<OrderAdmissionCommand> onAdmitOrder(AdmitOrderCommand c) {
+        pending.add(c.product);
+        inFlight.increment();
+
+        if (batch == null) {
+            startBatch();
+        }
+
+        return this;
+    }
+
+    private Behavior<OrderAdmissionCommand> onWeightReserved(WeightReservedCommand c) {
+        if (c.batchId != batchId || batch == null) {
+            Product[] failed = failedBatches.get(c.batchId);
+            if (failed != null) {
+                failedBatches.remove(c.batchId);
+                int reserved = 0;
+                for (int i = 0; i < failed.length; i++) {
+                    if (c.granted[i]) {
+                        reserved += failed[i].getWeight();
+                    }
+                }
+                releaseWeight(reserved);
+            }
+            return this;
+        }
+
+        weightGranted = c.granted;
+        int count = 0;
+        for (boolean granted : weightGranted) {
+            if (granted) {
+                count++;
+            }
+        }
+
+        if (count > 0) {
+            spaceSensor.tell(new FridgeSpaceSensor.ReserveSpaceCommand(batchId, count, getContext().getSelf()));
+        } else {
+            completeBatch(0);
+        }
+
+        return this;
+    }
+
+    private Behavior<OrderAdmissionCommand> onSpaceReserved(SpaceReservedCommand c) {
+        if (c.batchId == batchId && batch != null) {
+            completeBatch(c.granted);
+        } else if (failedBatches.containsKey(c.batchId)) {
+            failedBatches.remove(c.batchId);
+            if (c.granted > 0) {
+                spaceSensor.tell(new FridgeSpaceSensor.RemoveSpaceCommand(c.granted));
+            }
+        }
+
+        return this;
+    }
+
+    private Behavior<OrderAdmissionCommand> onBatchTimedOut(BatchTimedOutCommand c) {
+        if (c.batchId != batchId || batch == null) {
+            return this;
+        }
+
+        if (weightGranted == null) {
+            getContext().getLog().warn("Order batch {} failed, no answer from the weight sensor within {}: {} products not stocked", batchId, timeout, batch.length);
+            failedBatches.put(batchId, batch);
+        } else {
+            getContext().getLog().warn("Order batch {} failed, no answer from the space sensor within {}: {} products not stocked", batchId, timeout, batch.length);
+            int reserved = 0;
+            for (int i = 0; i < batch.length; i++) {
+                if (weightGranted[i]) {
+                    reserved += batch[i].getWeight();
+                }
+            }
+            releaseWeight(reserved);
+            failedBatches.put(batchId, null);
+        }
+        timedOut.add(batch.length);
+        endBatch();
+
+        return this;
+    }
+
+    private void startBatch() {
+        batch = new Product[Math.min(pending.size(), maxBatchSize)];
+        int[] weights = new int[batch.length];
+        for (int i = 0; i < batch.length; i++) {
+            batch[i] = pending.poll();
+            weights[i] = batch[i].getWeight();
+        }
+
+        batchId++;
+        timers.startSingleTimer(BATCH_TIMER, new BatchTimedOutCommand(batchId), timeout);
+        weightSensor.tell(new FridgeWeightSensor.ReserveWeightCommand(batchId, weights, getContext().getSelf()));
+    }
+
+    private void completeBatch(int spaceGranted) {
+        int releasedWeight = 0;
+        int stocked = 0;
+
+        for (int i = 0; i < batch.length; i++) {
+            Product product = batch[i];
+
+            if (weightGranted[i] && stocked < spaceGranted) {
+                fridge.tell(new Fridge.StockFridgeCommand(product));
+                stocked++;
+            } else {
+                if (weightGranted[i]) {
+                    releasedWeight += product.getWeight();
+                }
+                getContext().getLog().info("Fridge can't be stocked with {} (weight {}): {}", product.getName(), product.getWeight(),
+                        weightGranted[i] ? "no space left" : "too heavy");
+            }
+        }
+
+        releaseWeight(releasedWeight);
+
+        getContext().getLog().info("Order batch {} admitted {} of {} products", batchId, stocked, batch.length);
+
+        endBatch();
+    }
+
+    private void endBatch() {
+        timers.cancel(BATCH_TIMER);
+        inFlight.add(-batch.length);
+        batch = null;
+        weightGranted = null;
+
+        if (!pending.isEmpty()) {
+            startBatch();
+        }
+    }
+
+    private void releaseWeight(int weight) {
+        if (weight > 0) {
+            weightSensor.tell(new FridgeWeightSensor.RemoveWeightCommand(weight));
+        }
+    }
+
+    private OrderAdmission onPostStop() {
+        inFlight.add(-pending.size() - (batch != null ? batch.length : 0));
+        getContext().getLog().info("OrderAdmission actor {}-{} stopped", groupId, deviceId);
+        return this;
+    }
+
+}
@@ -0,0 +1,59 @@
+package at.fhv.sysarch.lab2.homeautomation.devices.fridge;
+
+import at.fhv.sysarch.lab2.homeautomation.cluster.ClusterMessage;
+import at.fhv.sysarch.lab2.homeautomation.domain.Order;
+
+import java.util.List;
+
+/**
+ * Immutable page of the order history, the answer to {@link Fridge.GetOrderHistoryCommand}. Its version is the
+ * number of orders placed when the page was read.
+ */
+public final class OrderHistory implements ClusterMessage {
+
+    private final long version;
+    private final long page;
+    private final int pageSize;
+    private final long pages;
+    private final List<Order> orders;
+
+    public OrderHistory(long version, long page, int pageSize, long pages, List<Order> orders) {
+        this.version = version;
+        this.page = page;
+        this.pageSize = pageSize;
+        this.pages = pages;
+        this.orders = List.copyOf(orders);
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * @return 0 being the most recent orders
+     */
+    public long getPage() {
+        return page;
+    }
+
+    public int getPageSize() {
+        return pageSize;
+    }
+
+    public long getPages() {
+        return pages;
+    }
+
+    /**
+     * @return oldest first
+     */
+    public List<Order> getOrders() {
+        return orders;
+    }
+
+    @Override
+    public String toString() {
+        return "OrderHistory{version=" + version + ", page=" + page + " of " + pages + ", orders=" + orders + '}';
+    }
+
+}
@@ -0,0 +1,222 @@
+package at.fhv.sysarch.lab2.homeautomation.devices.fridge;
+
+import at.fhv.sysarch.lab2.homeautomation.domain.Order;
+import at.fhv.sysarch.lab2.homeautomation.domain.valueobjects.Product;
+import at.fhv.sysarch.lab2.homeautomation.domain.valueobjects.ProductCatalog;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Append-only order history in a memory-mapped file of fixed-size records:
+ *
+ * <pre>
+ * header: magic (int) | version (int) | record count (long)
+ * record: uuid msb (long) | uuid lsb (long) | epoch millis (long) | product id (int) | price (double) | weight (int)
+ * </pre>
+ *
+ * Record {@code n} lives at a computed offset, so pages are read without touching older records, and as timestamps
+ * never decrease (later orders are clamped to the latest timestamp) the records are their own time index for binary
+ * search. Heap usage only depends on the size of the requested page.
+ *
+ * Written by a single actor; reads from other threads see every record up to {@link #size()}. Orders read back
+ * carry the price and weight they were placed with.
+ */
+public final class OrderJournal implements Closeable {
+
+    private static final int MAGIC = 0x4F524431;
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 16;
+    private static final int COUNT_OFFSET = 8;
+    static final int RECORD_SIZE = 40;
+    private static final int GROWTH_RECORDS = 1 << 14;
+    private static final long MAX_RECORDS = (Integer.MAX_VALUE - HEADER_SIZE) / RECORD_SIZE;
+
+    private static final ZoneId ZONE = ZoneId.systemDefault();
+
+    private final Path file;
+    private final FileChannel channel;
+    private volatile MappedByteBuffer buffer;
+    private volatile long size;
+    private long lastTimestamp;
+
+    private OrderJournal(Path file, FileChannel channel, MappedByteBuffer buffer, long size) {
+        this.file = file;
+        this.channel = channel;
+        this.buffer = buffer;
+        this.size = size;
+        this.lastTimestamp = size > 0 ? buffer.getLong(offset(size - 1) + 16) : Long.MIN_VALUE;
+    }
+
+    public static OrderJournal open(Path file) throws IOException {
+        if (file.getParent() != null) {
+            Files.createDirectories(file.getParent());
+        }
+
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            long size = 0;
+            if (channel.size() >= HEADER_SIZE) {
+                MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE);
+                if (header.getInt(0) != MAGIC || header.getInt(4) != VERSION) {
+                    throw new IOException("Not an order journal: " + file);
+                }
+                size = header.getLong(COUNT_OFFSET);
+                if (size < 0 || offset(size) > channel.size()) {
+                    throw new IOException("Corrupt order journal " + file + ": " + size + " records announced");
+                }
+            }
+
+            MappedByteBuffer buffer = map(channel, Math.max(channel.size(), offset(Math.min(MAX_RECORDS, size + GROWTH_RECORDS))));
+            buffer.putInt(0, MAGIC);
+            buffer.putInt(4, VERSION);
+            buffer.putLong(COUNT_OFFSET, size);
+
+            return new OrderJournal(file, channel, buffer, size);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    public void append(Order order) throws IOException {
+        long index = size;
+        if (offset(index + 1) > buffer.capacity()) {
+            grow(index + 1);
+        }
+
+        long timestamp = Math.max(lastTimestamp, order.getOrderDate().atZone(ZONE).toInstant().toEpochMilli());
+        Product product = order.getProduct();
+
+        int offset = offset(index);
+        buffer.putLong(offset, order.getUuid().getMostSignificantBits());
+        buffer.putLong(offset + 8, order.getUuid().getLeastSignificantBits());
+        buffer.putLong(offset + 16, timestamp);
+        buffer.putInt(offset + 24, product.getId());
+        buffer.putDouble(offset + 28, product.getPrice());
+        buffer.putInt(offset + 36, product.getWeight());
+
+        // the count is committed last, so a crash in between never exposes a half written record
+        buffer.putLong(COUNT_OFFSET, index + 1);
+        lastTimestamp = timestamp;
+        size = index + 1;
+    }
+
+    public long size() {
+        return size;
+    }
+
+    /**
+     * @param from index of the first record, 0 being the oldest order
+     */
+    public List<Order> read(long from, int count) {
+        // size first: the writer maps a larger buffer before it counts a record beyond the old one
+        long end = Math.min(size, from + count);
+        MappedByteBuffer records = buffer;
+        List<Order> orders = new ArrayList<>((int) Math.max(0, end - from));
+        for (long index = Math.max(0, from); index < end; index++) {
+            orders.add(readOrder(records, offset(index)));
+        }
+        return orders;
+    }
+
+    /**
+     * @param page 0 being the page with the most recent orders
+     * @return the orders of the page, oldest first, none for a page past the oldest order
+     */
+    public List<Order> page(long page, int pageSize) {
+        if (page < 0 || pageSize <= 0) {
+            throw new IllegalArgumentException("Page " + page + " of size " + pageSize + " doesn't exist");
+        }
+        long count = size;
+        // checked before multiplying, a page that far back could overflow
+        if (page >= (count + pageSize - 1) / pageSize) {
+            return List.of();
+        }
+        long end = count - page * pageSize;
+        long from = Math.max(0, end - pageSize);
+        return read(from, (int) (end - from));
+    }
+
+    /**
+     * @return at most {@code limit} orders placed in {@code [from, to)}, oldest first
+     */
+    public List<Order> between(LocalDateTime from, LocalDateTime to, int limit) {
+        // size first: the writer maps a larger buffer before it counts a record beyond the old one
+        long count = size;
+        MappedByteBuffer records = buffer;
+
+        long toMillis = to.atZone(ZONE).toInstant().toEpochMilli();
+        long first = firstAtOrAfter(records, count, from.atZone(ZONE).toInstant().toEpochMilli());
+
+        List<Order> orders = new ArrayList<>();
+        for (long index = first; index < count && orders.size() < limit; index++) {
+            int offset = offset(index);
+            if (records.getLong(offset + 16) >= toMillis) {
+                break;
+            }
+            orders.add(readOrder(records, offset));
+        }
+        return orders;
+    }
+
+    @Override
+    public void close() throws IOException {
+        buffer.force();
+        channel.close();
+    }
+
+    @Override
+    public String toString() {
+        return "OrderJournal{" + file + ", size=" + size + '}';
+    }
+
+    private static long firstAtOrAfter(MappedByteBuffer records, long count, long millis) {
+        long low = 0;
+        long high = count;
+        while (low < high) {
+            long mid = (low + high) >>> 1;
+            if (records.getLong(offset(mid) + 16) < millis) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private void grow(long records) throws IOException {
+        if (records > MAX_RECORDS) {
+            throw new IOException("Order journal " + file + " is full");
+        }
+        buffer = map(channel, offset(Math.min(MAX_RECORDS, records + GROWTH_RECORDS)));
+    }
+
+    private static MappedByteBuffer map(FileChannel channel, long length) throws IOException {
+        return channel.map(FileChannel.MapMode.READ_WRITE, 0, length);
+    }
+
+    private static int offset(long index) {
+        return (int) (HEADER_SIZE + index * RECORD_SIZE);
+    }
+
+    private static Order readOrder(MappedByteBuffer records, int offset) {
+        UUID uuid = new UUID(records.getLong(offset), records.getLong(offset + 8));
+        LocalDateTime orderDate = LocalDateTime.ofInstant(Instant.ofEpochMilli(records.getLong(offset + 16)), ZONE);
+        // the price and weight the order was placed with, not the ones of today
+        Product product = ProductCatalog.getDefault().recorded(records.getInt(offset + 24), records.getDouble(offset + 28), records.getInt(offset + 36));
+        return new Order(uuid, orderDate, product);
+    }
+
+}
@@ -7,73 +7,94 @@ import akka.actor.typed.javadsl.AbstractBehavior;
 import akka.actor.typed.javadsl.ActorContext;
 import akka.actor.typed.javadsl.Behaviors;
 import akka.actor.typed.javadsl.Receive;
+import akka.actor.typed.javadsl.TimerScheduler;
+import at.fhv.sysarch.lab2.homeautomation.cluster.ClusterMessage;
 import at.fhv.sysarch.lab2.homeautomation.domain.valueobjects.Product;
-
-import java.util.OptionalInt;
-
+import at.fhv.sysarch.lab2.homeautomation.metrics.Metrics;
+import at.fhv.sysarch.lab2.homeautomation.metrics.ValueMetrics;
+
+import java.time.Duration;
+
+/**
+ * Handles a single order: asks the {@link FridgeCapacityView} to admit the product, which reserves its weight and
+ * space and stocks the fridge if it fits. If the view doesn't answer within the order timeout, e.g. because a sensor
+ * is restarting, the request is withdrawn. The view answers the withdrawal after any answer it sent to the request,
+ * so an order the view admitted just before is not taken for a failed one; the order only fails once the request
+ * was withdrawn, or the view didn't answer the withdrawal within another timeout either. Orders in flight are the
+ * gauge {@code fridge_orders_in_flight}, failed ones are counted as {@code fridge_orders_timed_out_total}.
+ */
 public class OrderProcessor extends AbstractBehavior<OrderProcessor.OrderProcessorCommand> {
 
-    public interface OrderProcessorCommand {
+    public interface OrderProcessorCommand extends ClusterMessage {
     }
 
-    public static final class WeightReceivedCommand implements OrderProcessorCommand {
-        int weight;
+    public static final class CapacityReservedCommand implements OrderProcessorCommand {
+        final boolean reserved;
+        // what is left after the reservation, or all there was if the product didn't fit
+        final FridgeCapacity capacity;
 
-        public WeightReceivedCommand(int weight) {
-            this.weight = weight;
+        public CapacityReservedCommand(boolean reserved, FridgeCapacity capacity) {
+            this.reserved = reserved;
+            this.capacity = capacity;
         }
     }
 
-    public static final class SpaceReceivedCommand implements OrderProcessorCommand {
-        int space;
+    /**
+     * The view's answer to a {@link FridgeCapacityView.CancelReservationCommand}: the request will not be admitted.
+     */
+    public static final class ReservationCancelledCommand implements OrderProcessorCommand {
+    }
+
+    private static final class TimedOutCommand implements OrderProcessorCommand {
+        static final TimedOutCommand INSTANCE = new TimedOutCommand();
 
-        public SpaceReceivedCommand(int space) {
-            this.space = space;
+        private TimedOutCommand() {
         }
     }
 
     public static Behavior<OrderProcessorCommand> create(
-            ActorRef<Fridge.FridgeCommand> fridge,
-            ActorRef<FridgeWeightSensor.FridgeWeightSensorCommand> weightSensor,
-            ActorRef<FridgeSpaceSensor.FridgeSpaceSensorCommand> spaceSensor,
+            ActorRef<FridgeCapacityView.FridgeCapacityViewCommand> capacityView,
             Product product,
+            Duration timeout,
             String groupId,
             String deviceId
     ) {
-        return Behaviors.setup(context -> new OrderProcessor(context, fridge, weightSensor, spaceSensor, product, groupId, deviceId));
+        return Behaviors.setup(context -> Metrics.withTimers(timers -> new OrderProcessor(context, timers, capacityView, product, timeout, groupId, deviceId)));
     }
 
-    private OptionalInt availableSpace = OptionalInt.empty();
-    private OptionalInt availableWeight = OptionalInt.empty();
-
-    private ActorRef<Fridge.FridgeCommand> fridge;
-    private ActorRef<FridgeWeightSensor.FridgeWeightSensorCommand> weightSensor;
-    private ActorRef<FridgeSpaceSensor.FridgeSpaceSensorCommand> spaceSensor;
+    private final TimerScheduler<OrderProcessorCommand> timers;
+    private final ActorRef<FridgeCapacityView.FridgeCapacityViewCommand> capacityView;
     private final Product product;
+    private final Duration timeout;
+    private final ValueMetrics inFlight;
     private final String groupId;
     private final String deviceId;
 
+    // the order timed out and its request is being withdrawn
+    private boolean cancelling;
 
     public OrderProcessor(
             ActorContext<OrderProcessorCommand> context,
-            ActorRef<Fridge.FridgeCommand> fridge,
-            ActorRef<FridgeWeightSensor.FridgeWeightSensorCommand> weightSensor,
-            ActorRef<FridgeSpaceSensor.FridgeSpaceSensorCommand> spaceSensor,
+            TimerScheduler<OrderProcessorCommand> timers,
+            ActorRef<FridgeCapacityView.FridgeCapacityViewCommand> capacityView,
             Product product,
+            Duration timeout,
             String groupId,
             String deviceId
     ) {
         super(context);
 
+        this.timers = timers;
+        this.capacityView = capacityView;
         this.product = product;
-        this.fridge = fridge;
+        this.timeout = timeout;
+        this.inFlight = Metrics.get(getContext().getSystem()).gauge("fridge_orders_in_flight");
+        inFlight.increment();
         this.groupId = groupId;
         this.deviceId = deviceId;
-        this.weightSensor = weightSensor;
-        this.spaceSensor = spaceSensor;
 
-        weightSensor.tell(new FridgeWeightSensor.GetAvailableWeightCommand(getContext().getSelf()));
-        spaceSensor.tell(new FridgeSpaceSensor.GetAvailableSpaceCommand(getContext().getSelf()));
+        timers.startSingleTimer(TimedOutCommand.INSTANCE, timeout);
+        capacityView.tell(new FridgeCapacityView.ReserveCapacityCommand(product, getContext().getSelf()));
 
         getContext().getLog().info("OrderProcessor started");
     }
@@ -81,42 +102,55 @@ public class OrderProcessor extends AbstractBehavior<OrderProcessor.OrderProcess
     @Override
     public Receive<OrderProcessorCommand> createReceive() {
         return newReceiveBuilder()
-                .onMessage(WeightReceivedCommand.class, this::onWeightReceived)
-                .onMessage(SpaceReceivedCommand.class, this::onSpaceReceived)
+                .onMessage(CapacityReservedCommand.class, this::onCapacityReserved)
+                .onMessage(ReservationCancelledCommand.class, c -> onReservationCancelled())
+                .onMessage(TimedOutCommand.class, c -> onTimedOut())
                 .onSignal(PostStop.class, signal -> onPostStop())
                 .build();
     }
 
-    private Behavior<OrderProcessorCommand> onWeightReceived(WeightReceivedCommand c) {
-        this.availableWeight = OptionalInt.of(c.weight);
+    private Behavior<OrderProcessorCommand> onCapacityReserved(CapacityReservedCommand c) {
+        FridgeCapacity capacity = c.capacity;
 
-        return continueOrComplete();
-    }
+        if (cancelling) {
+            getContext().getLog().info("Order of {} answered after the order timeout, before it was withdrawn", product.getName());
+        }
+
+        // the view already stocked the fridge if it could reserve
+        if (!c.reserved) {
+            getContext().getLog().info("Fridge can't be stocked with " + product.getName() + "\n" +
+                    "Available Space: " + capacity.getAvailableSpace() + "\n" +
+                    "Available Weight: " + capacity.getAvailableWeight() + "\n" +
+                    "Order Weight: " + product.getWeight());
+        }
 
-    private Behavior<OrderProcessorCommand> onSpaceReceived(SpaceReceivedCommand c) {
-        this.availableSpace = OptionalInt.of(c.space);
+        return Behaviors.stopped();
+    }
 
-        return continueOrComplete();
+    private Behavior<OrderProcessorCommand> onReservationCancelled() {
+        return failed("no answer from the capacity view within " + timeout);
     }
 
-    private Behavior<OrderProcessorCommand> continueOrComplete() {
-        if (availableSpace.isPresent() && availableWeight.isPresent()) {
-            if (availableWeight.getAsInt() > product.getWeight() && availableSpace.getAsInt() > 0) {
-                fridge.tell(new Fridge.StockFridgeCommand(product));
-            } else {
-                getContext().getLog().info("Fridge can't be stocked with " + product.getName() + "\n" +
-                        "Available Space: " + availableSpace.getAsInt() + "\n" +
-                        "Available Weight: " + availableWeight.getAsInt() + "\n" +
-                        "Order Weight: " + product.getWeight());
-            }
-
-            return Behaviors.stopped();
+    private Behavior<OrderProcessorCommand> onTimedOut() {
+        if (cancelling) {
+            return failed("the capacity view answered neither the order nor its withdrawal within " + timeout + " each");
         }
 
+        // a request still waiting for the sensors is never admitted
+        cancelling = true;
+        capacityView.tell(new FridgeCapacityView.CancelReservationCommand(getContext().getSelf()));
+        timers.startSingleTimer(TimedOutCommand.INSTANCE, timeout);
         return this;
     }
 
+    private Behavior<OrderProcessorCommand> failed(String reason) {
+        getContext().getLog().warn("Order of {} failed, {}", product.getName(), reason);
+        Metrics.get(getContext().getSystem()).counter("fridge_orders_timed_out_total").increment();
+        return Behaviors.stopped();
+    }
+
     private OrderProcessor onPostStop() {
+        inFlight.add(-1);
         getContext().getLog().info("OrderProcessor actor {}-{} stopped", groupId, deviceId);
         return this;
     }
@@ -13,8 +13,12 @@ public class Order {
     private final Product product;
 
     public Order(Product product) {
-        this.uuid = UUID.randomUUID();
-        this.orderDate = LocalDateTime.now();
+        this(UUID.randomUUID(), LocalDateTime.now(), product);
+    }
+
+    public Order(UUID uuid, LocalDateTime orderDate, Product product) {
+        this.uuid = uuid;
+        this.orderDate = orderDate;
 
         this.product = product;
     }
@@ -1,11 +1,13 @@
 package at.fhv.sysarch.lab2.homeautomation.domain;
 
-public class Temperature {
+import at.fhv.sysarch.lab2.homeautomation.domain.enums.TemperatureUnit;
 
-    private double value;
-    private String unit;
+public final class Temperature {
 
-    public Temperature(double value, String unit) {
+    private final double value;
+    private final TemperatureUnit unit;
+
+    public Temperature(double value, TemperatureUnit unit) {
         this.value = value;
         this.unit = unit;
     }
@@ -14,16 +16,17 @@ public class Temperature {
         return value;
     }
 
-    public void setValue(double value) {
-        this.value = value;
+    public TemperatureUnit getUnit() {
+        return unit;
     }
 
-    public String getUnit() {
-        return unit;
+    public Temperature to(TemperatureUnit unit) {
+        return unit == this.unit ? this : new Temperature(this.unit.convert(value, unit), unit);
     }
 
-    public void setUnit(String unit) {
-        this.unit = unit;
+    @Override
+    public String toString() {
+        return value + " " + unit;
     }
 
 }
@@ -0,0 +1,15 @@
+package at.fhv.sysarch.lab2.homeautomation.domain.enums;
+
+/**
+ * How a fridge decides whether ordered products fit in.
+ */
+public enum OrderStrategy {
+    /**
+     * One long-lived admission actor per fridge batches orders and reserves weight and space for them.
+     */
+    ADMISSION,
+    /**
+     * A short-lived order processor per order queries weight and space without reserving them.
+     */
+    PER_ORDER
+}
@@ -0,0 +1,45 @@
+package at.fhv.sysarch.lab2.homeautomation.domain.enums;
+
+public enum TemperatureUnit {
+    CELSIUS("Celsius") {
+        @Override
+        public double toCelsius(double value) {
+            return value;
+        }
+
+        @Override
+        public double fromCelsius(double celsius) {
+            return celsius;
+        }
+    },
+    FAHRENHEIT("Fahrenheit") {
+        @Override
+        public double toCelsius(double value) {
+            return (value - 32) * 5 / 9;
+        }
+
+        @Override
+        public double fromCelsius(double celsius) {
+            return celsius * 9 / 5 + 32;
+        }
+    };
+
+    private final String displayName;
+
+    TemperatureUnit(String displayName) {
+        this.displayName = displayName;
+    }
+
+    public abstract double toCelsius(double value);
+
+    public abstract double fromCelsius(double celsius);
+
+    public double convert(double value, TemperatureUnit target) {
+        return target == this ? value : target.fromCelsius(toCelsius(value));
+    }
+
+    @Override
+    public String toString() {
+        return displayName;
+    }
+}
@@ -5,41 +5,44 @@ import java.util.Optional;
 
 public class Product {
 
+    private final int id;
     private final String name;
     private final double price;
     private final int weight;
 
-    private Product(String name, double price, int weight) {
+    private final int hash;
+    private final Optional<Product> optional;
+
+    /**
+     * Only the {@link ProductCatalog} creates products, so there is a single instance of each, apart from products
+     * recorded with a price or weight that changed since.
+     */
+    Product(int id, String name, double price, int weight) {
+        this.id = id;
         this.name = name;
         this.price = price;
         this.weight = weight;
+        this.hash = Objects.hash(name, price, weight);
+        this.optional = Optional.of(this);
     }
 
-    public static Optional<Product> create(String name) {
-        Optional<Product> product;
-
-        switch (name) {
-            case "apple":
-                product = Optional.of(new Product(name, 1.0, 2));
-                break;
-
-            case "watermelon":
-                product = Optional.of(new Product(name, 3.0, 20));
-                break;
-
-            case "elden ring":
-                product = Optional.of(new Product(name, 69.0, 2));
-                break;
+    public static Optional<Product> byId(int id) {
+        return ProductCatalog.getDefault().find(id);
+    }
 
-            case "beer":
-                product = Optional.of(new Product(name, 2.3, 3));
-                break;
+    public static Optional<Product> create(String name) {
+        return ProductCatalog.getDefault().find(name);
+    }
 
-            default:
-                product = Optional.empty();
-        }
+    Optional<Product> asOptional() {
+        return optional;
+    }
 
-        return product;
+    /**
+     * Small, dense number identifying the kind of product, usable as an array index.
+     */
+    public int getId() {
+        return id;
     }
 
     public String getName() {
@@ -73,7 +76,7 @@ public class Product {
 
     @Override
     public int hashCode() {
-        return Objects.hash(name, price, weight);
+        return hash;
     }
 
 }
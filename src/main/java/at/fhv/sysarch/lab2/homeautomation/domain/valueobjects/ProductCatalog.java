@@ -0,0 +1,178 @@
+package at.fhv.sysarch.lab2.homeautomation.domain.valueobjects;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * All products that can be ordered, read once from a csv file with the columns {@code id,name,price,weight}. Ids
+ * have to be dense, starting at 0, so they can be used as array indices. Every product exists exactly once, which
+ * makes looking one up by id or name a constant time operation that allocates nothing.
+ */
+public final class ProductCatalog {
+
+    /**
+     * System property naming the csv file of the default catalog. Without it {@code products.csv} is read from the
+     * classpath.
+     */
+    public static final String FILE_PROPERTY = "homeautomation.products";
+
+    private static final class DefaultHolder {
+        static final ProductCatalog INSTANCE = loadDefault();
+    }
+
+    public static ProductCatalog getDefault() {
+        return DefaultHolder.INSTANCE;
+    }
+
+    private static ProductCatalog loadDefault() {
+        String file = System.getProperty(FILE_PROPERTY);
+        if (file != null) {
+            return load(Paths.get(file));
+        }
+
+        InputStream in = ProductCatalog.class.getResourceAsStream("/products.csv");
+        if (in == null) {
+            throw new IllegalStateException("products.csv is missing from the classpath");
+        }
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8))) {
+            return read(reader, "classpath:products.csv");
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot read classpath:products.csv", e);
+        }
+    }
+
+    public static ProductCatalog load(Path file) {
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            return read(reader, file.toString());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot read product catalog " + file, e);
+        }
+    }
+
+    /**
+     * @param source only used in error messages
+     */
+    public static ProductCatalog read(BufferedReader reader, String source) throws IOException {
+        List<Product> products = new ArrayList<>();
+        String line;
+        int lineNumber = 0;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            line = line.trim();
+            if (line.isEmpty() || line.startsWith("#") || (lineNumber == 1 && line.startsWith("id,"))) {
+                continue;
+            }
+
+            String[] columns = line.split(",");
+            if (columns.length != 4) {
+                throw new IllegalArgumentException(source + ":" + lineNumber + ": expected id,name,price,weight but got '" + line + "'");
+            }
+            try {
+                products.add(new Product(
+                        Integer.parseInt(columns[0].trim()),
+                        columns[1].trim(),
+                        Double.parseDouble(columns[2].trim()),
+                        Integer.parseInt(columns[3].trim())
+                ));
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException(source + ":" + lineNumber + ": " + e.getMessage(), e);
+            }
+        }
+
+        return new ProductCatalog(products, source);
+    }
+
+    private final Product[] byId;
+    private final Map<String, Product> byName;
+    private final List<String> names;
+
+    private ProductCatalog(List<Product> products, String source) {
+        this.byId = new Product[products.size()];
+        this.byName = new HashMap<>(products.size() * 2);
+
+        for (Product product : products) {
+            int id = product.getId();
+            if (id < 0 || id >= byId.length) {
+                throw new IllegalArgumentException(source + ": ids have to be dense from 0 to " + (byId.length - 1) + " but " + product.getName() + " has " + id);
+            }
+            if (byId[id] != null) {
+                throw new IllegalArgumentException(source + ": id " + id + " is used by " + byId[id].getName() + " and " + product.getName());
+            }
+            if (byName.putIfAbsent(product.getName(), product) != null) {
+                throw new IllegalArgumentException(source + ": " + product.getName() + " is listed twice");
+            }
+            byId[id] = product;
+        }
+
+        List<String> names = new ArrayList<>(byId.length);
+        for (Product product : byId) {
+            names.add(product.getName());
+        }
+        this.names = Collections.unmodifiableList(names);
+    }
+
+    public Optional<Product> find(int id) {
+        return id >= 0 && id < byId.length ? byId[id].asOptional() : Optional.empty();
+    }
+
+    public Optional<Product> find(String name) {
+        Product product = byName.get(name);
+        return product != null ? product.asOptional() : Optional.empty();
+    }
+
+    /**
+     * @throws IllegalArgumentException if there is no product with this id
+     */
+    public Product get(int id) {
+        if (id < 0 || id >= byId.length) {
+            throw new IllegalArgumentException("Unknown product id " + id);
+        }
+        return byId[id];
+    }
+
+    /**
+     * A product as it was recorded, e.g. with an order: the product of the catalog if its price and weight are still
+     * the same, otherwise one with the recorded price and weight, named as in the catalog, or {@code #<id>} if the
+     * id left the catalog.
+     */
+    public Product recorded(int id, double price, int weight) {
+        Product current = id >= 0 && id < byId.length ? byId[id] : null;
+        if (current != null && Double.compare(current.getPrice(), price) == 0 && current.getWeight() == weight) {
+            return current;
+        }
+        return new Product(id, current != null ? current.getName() : "#" + id, price, weight);
+    }
+
+    /**
+     * @return number of products, one more than the highest id
+     */
+    public int size() {
+        return byId.length;
+    }
+
+    /**
+     * @return product names ordered by id
+     */
+    public List<String> getNames() {
+        return names;
+    }
+
+    @Override
+    public String toString() {
+        return "ProductCatalog{" + byId.length + " products}";
+    }
+
+}
@@ -3,26 +3,42 @@ package at.fhv.sysarch.lab2.homeautomation.environment;
 import akka.actor.typed.ActorRef;
 import akka.actor.typed.Behavior;
 import akka.actor.typed.javadsl.*;
+import at.fhv.sysarch.lab2.homeautomation.cluster.ClusterMessage;
 import at.fhv.sysarch.lab2.homeautomation.devices.TemperatureSensor;
 import at.fhv.sysarch.lab2.homeautomation.devices.WeatherSensor;
 import at.fhv.sysarch.lab2.homeautomation.domain.Temperature;
+import at.fhv.sysarch.lab2.homeautomation.domain.enums.TemperatureUnit;
 import at.fhv.sysarch.lab2.homeautomation.domain.enums.WeatherCondition;
+import at.fhv.sysarch.lab2.homeautomation.mailbox.Conflatable;
+import at.fhv.sysarch.lab2.homeautomation.metrics.Metrics;
+import at.fhv.sysarch.lab2.homeautomation.output.Console;
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.typesafe.config.Config;
 
-import java.time.Duration;
+import java.util.LinkedHashSet;
 import java.util.Random;
+import java.util.Set;
 
 public class Environment extends AbstractBehavior<Environment.EnvironmentCommand> {
 
-    public interface EnvironmentCommand {
+    public interface EnvironmentCommand extends ClusterMessage {
     }
 
     public static final class TemperatureChangerCommand implements EnvironmentCommand {
+        public static final TemperatureChangerCommand INSTANCE = new TemperatureChangerCommand();
+
+        private TemperatureChangerCommand() {
+        }
     }
 
     public static final class WeatherChangerCommand implements EnvironmentCommand {
+        public static final WeatherChangerCommand INSTANCE = new WeatherChangerCommand();
+
+        private WeatherChangerCommand() {
+        }
     }
 
-    public static final class SetTemperatureCommand implements EnvironmentCommand {
+    public static final class SetTemperatureCommand implements EnvironmentCommand, Conflatable {
         Temperature temperature;
 
         public SetTemperatureCommand(Temperature temperature) {
@@ -30,55 +46,123 @@ public class Environment extends AbstractBehavior<Environment.EnvironmentCommand
         }
     }
 
-    public static final class SetWeatherCommand implements EnvironmentCommand {
+    public static final class SetWeatherCommand implements EnvironmentCommand, Conflatable {
         WeatherCondition weatherCondition;
 
+        @JsonCreator
         public SetWeatherCommand(WeatherCondition weatherCondition) {
             this.weatherCondition = weatherCondition;
         }
     }
 
-    public static final class ReceiveTemperatureRequestCommand implements EnvironmentCommand {
+    /**
+     * Pushes the current temperature to the subscriber right away and then again whenever it moved by at least the
+     * configured delta since the last push.
+     */
+    public static final class SubscribeTemperatureCommand implements EnvironmentCommand {
         ActorRef<TemperatureSensor.TemperatureCommand> temperatureSensor;
 
-        public ReceiveTemperatureRequestCommand(ActorRef<TemperatureSensor.TemperatureCommand> temperatureSensor) {
+        public SubscribeTemperatureCommand(ActorRef<TemperatureSensor.TemperatureCommand> temperatureSensor) {
             this.temperatureSensor = temperatureSensor;
         }
     }
 
-    public static final class ReceiveWeatherRequestCommand implements EnvironmentCommand {
+    public static final class UnsubscribeTemperatureCommand implements EnvironmentCommand {
+        ActorRef<TemperatureSensor.TemperatureCommand> temperatureSensor;
+
+        public UnsubscribeTemperatureCommand(ActorRef<TemperatureSensor.TemperatureCommand> temperatureSensor) {
+            this.temperatureSensor = temperatureSensor;
+        }
+    }
+
+    /**
+     * Pushes the current weather to the subscriber right away and then again on every change.
+     */
+    public static final class SubscribeWeatherCommand implements EnvironmentCommand {
+        ActorRef<WeatherSensor.WeatherCommand> weatherSensor;
+
+        public SubscribeWeatherCommand(ActorRef<WeatherSensor.WeatherCommand> weatherSensor) {
+            this.weatherSensor = weatherSensor;
+        }
+    }
+
+    public static final class UnsubscribeWeatherCommand implements EnvironmentCommand {
         ActorRef<WeatherSensor.WeatherCommand> weatherSensor;
 
-        public ReceiveWeatherRequestCommand(ActorRef<WeatherSensor.WeatherCommand> weatherSensor) {
+        public UnsubscribeWeatherCommand(ActorRef<WeatherSensor.WeatherCommand> weatherSensor) {
             this.weatherSensor = weatherSensor;
         }
     }
 
+    private static final class SubscriberTerminatedCommand implements EnvironmentCommand {
+        ActorRef<?> subscriber;
+
+        SubscriberTerminatedCommand(ActorRef<?> subscriber) {
+            this.subscriber = subscriber;
+        }
+    }
+
+    private static final WeatherCondition[] WEATHER_CONDITIONS = WeatherCondition.values();
+
+    /**
+     * An environment publishing temperature changes of at least {@code homeautomation.environment.temperature-delta}.
+     */
     public static Behavior<EnvironmentCommand> create() {
-        return Behaviors.setup(context -> Behaviors.withTimers(timers -> new Environment(context, timers, timers)));
+        return Behaviors.setup(context -> create(context.getSystem().settings().config().getDouble("homeautomation.environment.temperature-delta")));
+    }
+
+    public static Behavior<EnvironmentCommand> create(double temperatureDelta) {
+        return Behaviors.setup(context -> Metrics.withTimers(timers -> new Environment(context, timers, timers, temperatureDelta)));
     }
 
-    private Temperature temperature = new Temperature(23, "Celsius");
+    private final TemperatureUnit unit = TemperatureUnit.CELSIUS;
+    private double temperature = 23;
     private WeatherCondition weatherCondition = WeatherCondition.SUNNY;
+    private final Random random;
+
+    private final double temperatureDelta;
+    private double publishedTemperature = temperature;
+    private final Set<ActorRef<TemperatureSensor.TemperatureCommand>> temperatureSubscribers = new LinkedHashSet<>();
+    private final Set<ActorRef<WeatherSensor.WeatherCommand>> weatherSubscribers = new LinkedHashSet<>();
+
+    private final Console console;
+    private final String temperatureKey;
+    private final String weatherKey;
 
     private final TimerScheduler<EnvironmentCommand> temperatureTimeScheduler;
     private final TimerScheduler<EnvironmentCommand> weatherTimeScheduler;
 
-    public Environment(ActorContext<EnvironmentCommand> context, TimerScheduler<EnvironmentCommand> temperatureTimeScheduler, TimerScheduler<EnvironmentCommand> weatherTimeScheduler) {
+    public Environment(
+            ActorContext<EnvironmentCommand> context,
+            TimerScheduler<EnvironmentCommand> temperatureTimeScheduler,
+            TimerScheduler<EnvironmentCommand> weatherTimeScheduler,
+            double temperatureDelta
+    ) {
         super(context);
 
         this.temperatureTimeScheduler = temperatureTimeScheduler;
         this.weatherTimeScheduler = weatherTimeScheduler;
+        this.temperatureDelta = temperatureDelta;
+        this.console = Console.get(getContext().getSystem());
+        this.temperatureKey = getContext().getSelf().path() + "/temperature";
+        this.weatherKey = getContext().getSelf().path() + "/weather";
+
+        Config config = getContext().getSystem().settings().config().getConfig("homeautomation.environment");
+        // a seed makes the changes the same on every run, see the simulation mode
+        this.random = config.hasPath("seed") ? new Random(config.getLong("seed")) : new Random();
 
-        temperatureTimeScheduler.startTimerAtFixedRate(new TemperatureChangerCommand(), Duration.ofSeconds(5));
-        weatherTimeScheduler.startTimerAtFixedRate(new WeatherChangerCommand(), Duration.ofSeconds(35));
+        temperatureTimeScheduler.startTimerAtFixedRate(TemperatureChangerCommand.INSTANCE, config.getDuration("temperature-interval"));
+        weatherTimeScheduler.startTimerAtFixedRate(WeatherChangerCommand.INSTANCE, config.getDuration("weather-interval"));
     }
 
     @Override
     public Receive<EnvironmentCommand> createReceive() {
         return newReceiveBuilder()
-                .onMessage(ReceiveTemperatureRequestCommand.class, this::onReceiveTemperatureRequest)
-                .onMessage(ReceiveWeatherRequestCommand.class, this::onReceiveWeatherRequest)
+                .onMessage(SubscribeTemperatureCommand.class, this::onSubscribeTemperature)
+                .onMessage(UnsubscribeTemperatureCommand.class, this::onUnsubscribeTemperature)
+                .onMessage(SubscribeWeatherCommand.class, this::onSubscribeWeather)
+                .onMessage(UnsubscribeWeatherCommand.class, this::onUnsubscribeWeather)
+                .onMessage(SubscriberTerminatedCommand.class, this::onSubscriberTerminated)
                 .onMessage(TemperatureChangerCommand.class, this::onTemperatureChange)
                 .onMessage(WeatherChangerCommand.class, this::onWeatherChange)
                 .onMessage(SetTemperatureCommand.class, this::onSetTemperature)
@@ -86,44 +170,104 @@ public class Environment extends AbstractBehavior<Environment.EnvironmentCommand
                 .build();
     }
 
-    private Behavior<EnvironmentCommand> onReceiveTemperatureRequest(ReceiveTemperatureRequestCommand request) {
-        request.temperatureSensor.tell(new TemperatureSensor.ReadTemperatureCommand(temperature));
+    private Behavior<EnvironmentCommand> onSubscribeTemperature(SubscribeTemperatureCommand c) {
+        watchSubscriber(c.temperatureSensor);
+        temperatureSubscribers.add(c.temperatureSensor);
+        c.temperatureSensor.tell(new TemperatureSensor.ReadTemperatureCommand(temperature, unit));
         return this;
     }
 
-    private Behavior<EnvironmentCommand> onReceiveWeatherRequest(ReceiveWeatherRequestCommand request) {
-        request.weatherSensor.tell(new WeatherSensor.ReadWeatherCommand(weatherCondition));
+    private Behavior<EnvironmentCommand> onUnsubscribeTemperature(UnsubscribeTemperatureCommand c) {
+        temperatureSubscribers.remove(c.temperatureSensor);
+        unwatchSubscriber(c.temperatureSensor);
         return this;
     }
 
+    private Behavior<EnvironmentCommand> onSubscribeWeather(SubscribeWeatherCommand c) {
+        watchSubscriber(c.weatherSensor);
+        weatherSubscribers.add(c.weatherSensor);
+        c.weatherSensor.tell(new WeatherSensor.ReadWeatherCommand(weatherCondition));
+        return this;
+    }
+
+    private Behavior<EnvironmentCommand> onUnsubscribeWeather(UnsubscribeWeatherCommand c) {
+        weatherSubscribers.remove(c.weatherSensor);
+        unwatchSubscriber(c.weatherSensor);
+        return this;
+    }
+
+    private Behavior<EnvironmentCommand> onSubscriberTerminated(SubscriberTerminatedCommand c) {
+        temperatureSubscribers.remove(c.subscriber);
+        weatherSubscribers.remove(c.subscriber);
+        return this;
+    }
+
+    private void watchSubscriber(ActorRef<?> subscriber) {
+        // one watch per actor, no matter how many readings it subscribed to
+        if (!temperatureSubscribers.contains(subscriber) && !weatherSubscribers.contains(subscriber)) {
+            getContext().watchWith(subscriber, new SubscriberTerminatedCommand(subscriber));
+        }
+    }
+
+    private void unwatchSubscriber(ActorRef<?> subscriber) {
+        if (!temperatureSubscribers.contains(subscriber) && !weatherSubscribers.contains(subscriber)) {
+            getContext().unwatch(subscriber);
+        }
+    }
+
     private Behavior<EnvironmentCommand> onTemperatureChange(TemperatureChangerCommand temperatureChanger) {
-        double newRanValue = this.temperature.getValue() + (4 * new Random().nextDouble() - 2);
+        double newRanValue = this.temperature + (4 * random.nextDouble() - 2);
+
+        this.temperature = newRanValue;
 
-        this.temperature.setValue(newRanValue);
+        console.update(temperatureKey, "Temperature: " + newRanValue + " " + unit);
 
-        System.out.println("Temperature: " + newRanValue + " " + this.temperature.getUnit());
+        if (Math.abs(newRanValue - publishedTemperature) >= temperatureDelta) {
+            publishTemperature();
+        }
 
         return this;
     }
 
     private Behavior<EnvironmentCommand> onSetTemperature(SetTemperatureCommand c) {
-        this.temperature.setValue(c.temperature.getValue());
+        this.temperature = c.temperature.to(unit).getValue();
+        // explicitly set values are always published, independent of the delta
+        publishTemperature();
         return this;
     }
 
     private Behavior<EnvironmentCommand> onSetWeather(SetWeatherCommand c) {
-        this.weatherCondition = c.weatherCondition;
+        if (this.weatherCondition != c.weatherCondition) {
+            this.weatherCondition = c.weatherCondition;
+            publishWeather();
+        }
         return this;
     }
 
 
     private Behavior<EnvironmentCommand> onWeatherChange(WeatherChangerCommand weatherChanger) {
-        Random rand = new Random();
+        WeatherCondition newWeatherCondition = WEATHER_CONDITIONS[random.nextInt(WEATHER_CONDITIONS.length)];
 
-        weatherCondition = WeatherCondition.values()[rand.nextInt(WeatherCondition.values().length)];
+        console.update(weatherKey, "WeatherCondition: " + newWeatherCondition);
 
-        System.out.println("WeatherCondition: " + weatherCondition);
+        if (newWeatherCondition != weatherCondition) {
+            weatherCondition = newWeatherCondition;
+            publishWeather();
+        }
 
         return this;
     }
+
+    private void publishTemperature() {
+        publishedTemperature = temperature;
+        for (ActorRef<TemperatureSensor.TemperatureCommand> subscriber : temperatureSubscribers) {
+            subscriber.tell(new TemperatureSensor.ReadTemperatureCommand(temperature, unit));
+        }
+    }
+
+    private void publishWeather() {
+        for (ActorRef<WeatherSensor.WeatherCommand> subscriber : weatherSubscribers) {
+            subscriber.tell(new WeatherSensor.ReadWeatherCommand(weatherCondition));
+        }
+    }
 }
@@ -0,0 +1,40 @@
+package at.fhv.sysarch.lab2.homeautomation.environment;
+
+import at.fhv.sysarch.lab2.homeautomation.cluster.MessageCodec;
+import at.fhv.sysarch.lab2.homeautomation.domain.Temperature;
+import at.fhv.sysarch.lab2.homeautomation.domain.enums.TemperatureUnit;
+import at.fhv.sysarch.lab2.homeautomation.domain.enums.WeatherCondition;
+
+/**
+ * Encodings of the environment commands.
+ */
+public final class EnvironmentCodec extends MessageCodec {
+
+    public EnvironmentCodec() {
+        register("E1", Environment.TemperatureChangerCommand.INSTANCE);
+        register("E2", Environment.WeatherChangerCommand.INSTANCE);
+        register("E3", Environment.SetTemperatureCommand.class, 1,
+                (c, out) -> {
+                    out.writeDouble(c.temperature.getValue());
+                    out.writeEnum(c.temperature.getUnit());
+                },
+                in -> new Environment.SetTemperatureCommand(new Temperature(in.readDouble(), in.readEnum(TemperatureUnit.class))));
+        register("E4", Environment.SetWeatherCommand.class, 1,
+                (c, out) -> out.writeEnum(c.weatherCondition),
+                in -> new Environment.SetWeatherCommand(in.readEnum(WeatherCondition.class)));
+        // E5 and E6 were the temperature and weather requests of the polling sensors, retired
+        register("E7", Environment.SubscribeTemperatureCommand.class, 1,
+                (c, out) -> out.writeActorRef(c.temperatureSensor),
+                in -> new Environment.SubscribeTemperatureCommand(in.readActorRef()));
+        register("E8", Environment.UnsubscribeTemperatureCommand.class, 1,
+                (c, out) -> out.writeActorRef(c.temperatureSensor),
+                in -> new Environment.UnsubscribeTemperatureCommand(in.readActorRef()));
+        register("E9", Environment.SubscribeWeatherCommand.class, 1,
+                (c, out) -> out.writeActorRef(c.weatherSensor),
+                in -> new Environment.SubscribeWeatherCommand(in.readActorRef()));
+        register("E10", Environment.UnsubscribeWeatherCommand.class, 1,
+                (c, out) -> out.writeActorRef(c.weatherSensor),
+                in -> new Environment.UnsubscribeWeatherCommand(in.readActorRef()));
+    }
+
+}
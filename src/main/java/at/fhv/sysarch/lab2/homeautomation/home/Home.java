@@ -0,0 +1,208 @@
+package at.fhv.sysarch.lab2.homeautomation.home;
+
+import akka.actor.typed.ActorRef;
+import akka.actor.typed.Behavior;
+import akka.actor.typed.PostStop;
+import akka.actor.typed.javadsl.AbstractBehavior;
+import akka.actor.typed.javadsl.ActorContext;
+import akka.actor.typed.javadsl.Behaviors;
+import akka.actor.typed.javadsl.Receive;
+import akka.cluster.sharding.typed.javadsl.ClusterSharding;
+import akka.cluster.sharding.typed.javadsl.EntityContext;
+import at.fhv.sysarch.lab2.homeautomation.cluster.ClusterMessage;
+import at.fhv.sysarch.lab2.homeautomation.devices.*;
+import at.fhv.sysarch.lab2.homeautomation.devices.fridge.Fridge;
+import at.fhv.sysarch.lab2.homeautomation.environment.Environment;
+import at.fhv.sysarch.lab2.homeautomation.mailbox.Mailboxes;
+import at.fhv.sysarch.lab2.homeautomation.metrics.Metrics;
+import com.fasterxml.jackson.annotation.JsonCreator;
+
+import java.time.Duration;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Root of the actor tree of a single home. The devices are spawned with the home id as their group id, so every
+ * device of a home can be told apart from the devices of all other homes hosted by the same {@link HomeRegistry}, and
+ * they are registered under it in the {@link DeviceRegistry} of the node.
+ *
+ * A home asks its registry to be passivated once it did not receive a message for the configured idle time. In
+ * cluster mode, homes are the entities of {@link HomeSharding} and ask their shard instead.
+ */
+public class Home extends AbstractBehavior<Home.HomeCommand> {
+
+    public interface HomeCommand extends ClusterMessage {
+    }
+
+    public static final class ForwardToEnvironmentCommand implements HomeCommand {
+        final Environment.EnvironmentCommand command;
+
+        @JsonCreator
+        public ForwardToEnvironmentCommand(Environment.EnvironmentCommand command) {
+            this.command = command;
+        }
+    }
+
+    public static final class ForwardToAirConditionCommand implements HomeCommand {
+        final AirCondition.AirConditionCommand command;
+
+        @JsonCreator
+        public ForwardToAirConditionCommand(AirCondition.AirConditionCommand command) {
+            this.command = command;
+        }
+    }
+
+    public static final class ForwardToTemperatureSensorCommand implements HomeCommand {
+        final TemperatureSensor.TemperatureCommand command;
+
+        @JsonCreator
+        public ForwardToTemperatureSensorCommand(TemperatureSensor.TemperatureCommand command) {
+            this.command = command;
+        }
+    }
+
+    public static final class ForwardToMediaStationCommand implements HomeCommand {
+        final MediaStation.MediaStationCommand command;
+
+        @JsonCreator
+        public ForwardToMediaStationCommand(MediaStation.MediaStationCommand command) {
+            this.command = command;
+        }
+    }
+
+    public static final class ForwardToFridgeCommand implements HomeCommand {
+        final Fridge.FridgeCommand command;
+
+        @JsonCreator
+        public ForwardToFridgeCommand(Fridge.FridgeCommand command) {
+            this.command = command;
+        }
+    }
+
+    static final class StopHomeCommand implements HomeCommand {
+    }
+
+    private static final class IdleCommand implements HomeCommand {
+    }
+
+    /**
+     * @param passivateAfter idle time after which the home asks to be stopped, null to keep it running
+     */
+    public static Behavior<HomeCommand> create(
+            String homeId,
+            ActorRef<HomeRegistry.RegistryCommand> registry,
+            Duration passivateAfter
+    ) {
+        return Behaviors.setup(context -> new Home(
+                context,
+                homeId,
+                self -> registry.tell(new HomeRegistry.PassivateHomeCommand(homeId, self)),
+                passivateAfter
+        ));
+    }
+
+    static Behavior<HomeCommand> create(EntityContext<HomeCommand> entity, Duration passivateAfter) {
+        return Behaviors.setup(context -> new Home(
+                context,
+                entity.getEntityId(),
+                self -> entity.getShard().tell(new ClusterSharding.Passivate<>(self)),
+                passivateAfter
+        ));
+    }
+
+    /**
+     * A local stand-in for a device of a home, e.g. for the command line: everything it receives is wrapped for the
+     * home and handed to {@code toHome}, which delivers it wherever the home runs.
+     *
+     * @param wrap wraps a device command into the home command forwarding it, e.g.
+     *             {@code Home.ForwardToFridgeCommand::new}
+     */
+    public static <T> Behavior<T> forwarder(Consumer<HomeCommand> toHome, Function<T, HomeCommand> wrap) {
+        return Behaviors.receiveMessage(command -> {
+            toHome.accept(wrap.apply(command));
+            return Behaviors.same();
+        });
+    }
+
+    private final String homeId;
+    private final Consumer<ActorRef<HomeCommand>> passivate;
+
+    private final ActorRef<Environment.EnvironmentCommand> environment;
+    private final ActorRef<AirCondition.AirConditionCommand> airCondition;
+    private final ActorRef<TemperatureSensor.TemperatureCommand> tempSensor;
+    private final ActorRef<MediaStation.MediaStationCommand> mediaStation;
+    private final ActorRef<Fridge.FridgeCommand> fridge;
+
+    private Home(
+            ActorContext<HomeCommand> context,
+            String homeId,
+            Consumer<ActorRef<HomeCommand>> passivate,
+            Duration passivateAfter
+    ) {
+        super(context);
+
+        this.homeId = homeId;
+        this.passivate = passivate;
+
+        Metrics metrics = Metrics.get(getContext().getSystem());
+        Mailboxes mailboxes = Mailboxes.get(getContext().getSystem());
+        DeviceRegistry devices = DeviceRegistry.get(getContext().getSystem());
+        this.environment = devices.spawn(getContext(), DeviceKind.ENVIRONMENT, homeId, "1", metrics.instrument(Environment.create()), "Environment", mailboxes.forDevice("environment"));
+
+        this.airCondition = devices.spawn(getContext(), DeviceKind.AIR_CONDITION, homeId, "1", metrics.instrument(AirCondition.create(homeId, "1")), "AirCondition", mailboxes.forDevice("air-condition"));
+        if (getContext().getSystem().settings().config().getBoolean("homeautomation.load.enabled")) {
+            // the load measures one switch of the air condition per temperature change, an average over the room
+            // would only switch it once per slide
+            this.tempSensor = devices.spawn(getContext(), DeviceKind.TEMPERATURE_SENSOR, homeId, "1", metrics.instrument(TemperatureSensor.create(this.airCondition, this.environment, homeId, "1")), "TemperatureSensor", mailboxes.forDevice("temperature-sensor"));
+        } else {
+            devices.spawn(getContext(), DeviceKind.ROOM_AGGREGATOR, homeId, "1", metrics.instrument(RoomAggregator.create(this.airCondition, homeId, "1")), "RoomAggregator", mailboxes.forDevice("room-aggregator"));
+            this.tempSensor = devices.spawn(getContext(), DeviceKind.TEMPERATURE_SENSOR, homeId, "1", metrics.instrument(TemperatureSensor.create(this.environment, homeId, "1")), "TemperatureSensor", mailboxes.forDevice("temperature-sensor"));
+            for (int i = 2; i <= getContext().getSystem().settings().config().getInt("homeautomation.rooms.temperature-sensors"); i++) {
+                String deviceId = String.valueOf(i);
+                devices.spawn(getContext(), DeviceKind.TEMPERATURE_SENSOR, homeId, deviceId, metrics.instrument(TemperatureSensor.create(this.environment, homeId, deviceId)), "TemperatureSensor-" + i, mailboxes.forDevice("temperature-sensor"));
+            }
+        }
+
+        ActorRef<Blinds.BlindsCommand> blinds = devices.spawn(getContext(), DeviceKind.BLINDS, homeId, "1", metrics.instrument(Blinds.create(homeId, "1")), "Blinds", mailboxes.forDevice("blinds"));
+        devices.spawn(getContext(), DeviceKind.WEATHER_SENSOR, homeId, "1", metrics.instrument(WeatherSensor.create(this.environment, blinds, homeId, "1")), "WeatherSensor", mailboxes.forDevice("weather-sensor"));
+        this.mediaStation = devices.spawn(getContext(), DeviceKind.MEDIA_STATION, homeId, "1", metrics.instrument(MediaStation.create(blinds, homeId, "1")), "MediaStation", mailboxes.forDevice("media-station"));
+
+        this.fridge = devices.spawn(getContext(), DeviceKind.FRIDGE, homeId, "1", metrics.instrument(Fridge.create(homeId, "1")), "Fridge", mailboxes.forDevice("fridge"));
+
+        if (passivateAfter != null) {
+            getContext().setReceiveTimeout(passivateAfter, new IdleCommand());
+        }
+
+        getContext().getLog().info("Home {} started", homeId);
+    }
+
+    @Override
+    public Receive<HomeCommand> createReceive() {
+        return newReceiveBuilder()
+                .onMessage(ForwardToEnvironmentCommand.class, c -> forward(environment, c.command))
+                .onMessage(ForwardToAirConditionCommand.class, c -> forward(airCondition, c.command))
+                .onMessage(ForwardToTemperatureSensorCommand.class, c -> forward(tempSensor, c.command))
+                .onMessage(ForwardToMediaStationCommand.class, c -> forward(mediaStation, c.command))
+                .onMessage(ForwardToFridgeCommand.class, c -> forward(fridge, c.command))
+                .onMessage(IdleCommand.class, this::onIdle)
+                .onMessage(StopHomeCommand.class, c -> Behaviors.stopped())
+                .onSignal(PostStop.class, signal -> onPostStop())
+                .build();
+    }
+
+    private <T> Behavior<HomeCommand> forward(ActorRef<T> device, T command) {
+        device.tell(command);
+        return this;
+    }
+
+    private Behavior<HomeCommand> onIdle(IdleCommand c) {
+        passivate.accept(getContext().getSelf());
+        return this;
+    }
+
+    private Home onPostStop() {
+        getContext().getLog().info("Home {} stopped", homeId);
+        return this;
+    }
+
+}
@@ -0,0 +1,33 @@
+package at.fhv.sysarch.lab2.homeautomation.home;
+
+import at.fhv.sysarch.lab2.homeautomation.cluster.MessageCodec;
+import at.fhv.sysarch.lab2.homeautomation.devices.AirCondition;
+import at.fhv.sysarch.lab2.homeautomation.devices.MediaStation;
+import at.fhv.sysarch.lab2.homeautomation.devices.TemperatureSensor;
+import at.fhv.sysarch.lab2.homeautomation.devices.fridge.Fridge;
+import at.fhv.sysarch.lab2.homeautomation.environment.Environment;
+
+/**
+ * Encodings of the commands sent to a home, the forwarded device command is nested.
+ */
+public final class HomeCodec extends MessageCodec {
+
+    public HomeCodec() {
+        register("H1", Home.ForwardToEnvironmentCommand.class, 1,
+                (c, out) -> out.writeMessage(c.command),
+                in -> new Home.ForwardToEnvironmentCommand(in.readMessage(Environment.EnvironmentCommand.class)));
+        register("H2", Home.ForwardToAirConditionCommand.class, 1,
+                (c, out) -> out.writeMessage(c.command),
+                in -> new Home.ForwardToAirConditionCommand(in.readMessage(AirCondition.AirConditionCommand.class)));
+        register("H3", Home.ForwardToTemperatureSensorCommand.class, 1,
+                (c, out) -> out.writeMessage(c.command),
+                in -> new Home.ForwardToTemperatureSensorCommand(in.readMessage(TemperatureSensor.TemperatureCommand.class)));
+        register("H4", Home.ForwardToMediaStationCommand.class, 1,
+                (c, out) -> out.writeMessage(c.command),
+                in -> new Home.ForwardToMediaStationCommand(in.readMessage(MediaStation.MediaStationCommand.class)));
+        register("H5", Home.ForwardToFridgeCommand.class, 1,
+                (c, out) -> out.writeMessage(c.command),
+                in -> new Home.ForwardToFridgeCommand(in.readMessage(Fridge.FridgeCommand.class)));
+    }
+
+}
@@ -0,0 +1,215 @@
+package at.fhv.sysarch.lab2.homeautomation.home;
+
+import akka.actor.typed.ActorRef;
+import akka.actor.typed.Behavior;
+import akka.actor.typed.PostStop;
+import akka.actor.typed.javadsl.AbstractBehavior;
+import akka.actor.typed.javadsl.ActorContext;
+import akka.actor.typed.javadsl.Behaviors;
+import akka.actor.typed.javadsl.Receive;
+
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Hosts many homes in one actor system. The actor tree of a home is spawned on the first message addressed to it
+ * and stopped again once the home has been idle for the passivation timeout, so an idle home costs nothing but its
+ * id. Routing is a single hash lookup.
+ *
+ * Messages for a home that is currently stopping are buffered and delivered to its next incarnation.
+ */
+public class HomeRegistry extends AbstractBehavior<HomeRegistry.RegistryCommand> {
+
+    public interface RegistryCommand {
+    }
+
+    public static final class DeliverToHomeCommand implements RegistryCommand {
+        String homeId;
+        Home.HomeCommand command;
+
+        public DeliverToHomeCommand(String homeId, Home.HomeCommand command) {
+            this.homeId = homeId;
+            this.command = command;
+        }
+    }
+
+    /**
+     * Starts the home if it isn't running, e.g. a home that should run before the first message to it.
+     */
+    public static final class StartHomeCommand implements RegistryCommand {
+        String homeId;
+
+        public StartHomeCommand(String homeId) {
+            this.homeId = homeId;
+        }
+    }
+
+    public static final class GetActiveHomesCommand implements RegistryCommand {
+        ActorRef<ActiveHomes> replyTo;
+
+        public GetActiveHomesCommand(ActorRef<ActiveHomes> replyTo) {
+            this.replyTo = replyTo;
+        }
+    }
+
+    public static final class ActiveHomes {
+        private final int active;
+        private final int passivating;
+
+        public ActiveHomes(int active, int passivating) {
+            this.active = active;
+            this.passivating = passivating;
+        }
+
+        public int getActive() {
+            return active;
+        }
+
+        public int getPassivating() {
+            return passivating;
+        }
+    }
+
+    static final class PassivateHomeCommand implements RegistryCommand {
+        String homeId;
+        ActorRef<Home.HomeCommand> home;
+
+        PassivateHomeCommand(String homeId, ActorRef<Home.HomeCommand> home) {
+            this.homeId = homeId;
+            this.home = home;
+        }
+    }
+
+    private static final class HomeTerminatedCommand implements RegistryCommand {
+        String homeId;
+        ActorRef<Home.HomeCommand> home;
+
+        HomeTerminatedCommand(String homeId, ActorRef<Home.HomeCommand> home) {
+            this.homeId = homeId;
+            this.home = home;
+        }
+    }
+
+    public static final Duration DEFAULT_PASSIVATE_AFTER = Duration.ofMinutes(2);
+
+    public static Behavior<RegistryCommand> create() {
+        return create(DEFAULT_PASSIVATE_AFTER);
+    }
+
+    /**
+     * @param passivateAfter idle time after which a home is stopped, null to keep the homes running once started
+     */
+    public static Behavior<RegistryCommand> create(Duration passivateAfter) {
+        return Behaviors.setup(context -> new HomeRegistry(context, passivateAfter));
+    }
+
+    private final Duration passivateAfter;
+    private final Map<String, ActorRef<Home.HomeCommand>> homes = new HashMap<>();
+    private final Map<String, List<Home.HomeCommand>> passivating = new HashMap<>();
+
+    private HomeRegistry(ActorContext<RegistryCommand> context, Duration passivateAfter) {
+        super(context);
+
+        this.passivateAfter = passivateAfter;
+
+        getContext().getLog().info("HomeRegistry started");
+    }
+
+    @Override
+    public Receive<RegistryCommand> createReceive() {
+        return newReceiveBuilder()
+                .onMessage(DeliverToHomeCommand.class, this::onDeliverToHome)
+                .onMessage(StartHomeCommand.class, this::onStartHome)
+                .onMessage(PassivateHomeCommand.class, this::onPassivateHome)
+                .onMessage(HomeTerminatedCommand.class, this::onHomeTerminated)
+                .onMessage(GetActiveHomesCommand.class, this::onGetActiveHomes)
+                .onSignal(PostStop.class, signal -> onPostStop())
+                .build();
+    }
+
+    private Behavior<RegistryCommand> onDeliverToHome(DeliverToHomeCommand c) {
+        ActorRef<Home.HomeCommand> home = homes.get(c.homeId);
+
+        if (home != null) {
+            home.tell(c.command);
+        } else {
+            List<Home.HomeCommand> buffer = passivating.get(c.homeId);
+            if (buffer != null) {
+                buffer.add(c.command);
+            } else {
+                spawnHome(c.homeId).tell(c.command);
+            }
+        }
+
+        return this;
+    }
+
+    private Behavior<RegistryCommand> onStartHome(StartHomeCommand c) {
+        // a home being passivated is started again once it stopped only if something was buffered for it
+        if (!homes.containsKey(c.homeId) && !passivating.containsKey(c.homeId)) {
+            spawnHome(c.homeId);
+        }
+        return this;
+    }
+
+    private Behavior<RegistryCommand> onPassivateHome(PassivateHomeCommand c) {
+        // a stale request from an incarnation that is already gone must not stop the current one
+        if (c.home.equals(homes.get(c.homeId))) {
+            homes.remove(c.homeId);
+            passivating.put(c.homeId, new ArrayList<>());
+            // stopping through the mailbox lets the home process everything that was delivered before
+            c.home.tell(new Home.StopHomeCommand());
+            getContext().getLog().debug("Passivating home {}", c.homeId);
+        }
+        return this;
+    }
+
+    private Behavior<RegistryCommand> onHomeTerminated(HomeTerminatedCommand c) {
+        if (c.home.equals(homes.get(c.homeId))) {
+            homes.remove(c.homeId);
+        }
+
+        List<Home.HomeCommand> buffer = passivating.remove(c.homeId);
+        if (buffer != null && !buffer.isEmpty()) {
+            ActorRef<Home.HomeCommand> home = spawnHome(c.homeId);
+            for (Home.HomeCommand command : buffer) {
+                home.tell(command);
+            }
+        }
+
+        return this;
+    }
+
+    private Behavior<RegistryCommand> onGetActiveHomes(GetActiveHomesCommand c) {
+        c.replyTo.tell(new ActiveHomes(homes.size(), passivating.size()));
+        return this;
+    }
+
+    private ActorRef<Home.HomeCommand> spawnHome(String homeId) {
+        ActorRef<Home.HomeCommand> home = getContext().spawn(
+                Home.create(homeId, getContext().getSelf(), passivateAfter),
+                name(homeId)
+        );
+        getContext().watchWith(home, new HomeTerminatedCommand(homeId, home));
+        homes.put(homeId, home);
+        return home;
+    }
+
+    /**
+     * @return name of the actor of the home, a child of the registry
+     */
+    public static String name(String homeId) {
+        return "Home-" + URLEncoder.encode(homeId, StandardCharsets.UTF_8);
+    }
+
+    private HomeRegistry onPostStop() {
+        getContext().getLog().info("HomeRegistry stopped");
+        return this;
+    }
+
+}
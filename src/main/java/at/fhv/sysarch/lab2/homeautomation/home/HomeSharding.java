@@ -0,0 +1,37 @@
+package at.fhv.sysarch.lab2.homeautomation.home;
+
+import akka.actor.typed.ActorRef;
+import akka.actor.typed.ActorSystem;
+import akka.cluster.sharding.typed.ShardingEnvelope;
+import akka.cluster.sharding.typed.javadsl.ClusterSharding;
+import akka.cluster.sharding.typed.javadsl.Entity;
+import akka.cluster.sharding.typed.javadsl.EntityTypeKey;
+
+import java.time.Duration;
+
+/**
+ * Homes distributed over the nodes of a cluster, what {@link HomeRegistry} is for a single node. Every node hosts
+ * shards of homes; a home is started on the first message addressed to it, on the node its shard is allocated to,
+ * and passivated once idle. When nodes join or leave, shards are rebalanced: their homes are stopped and started
+ * again on another node on the next message, recovering their devices from their journals.
+ */
+public final class HomeSharding {
+
+    public static final EntityTypeKey<Home.HomeCommand> TYPE_KEY = EntityTypeKey.create(Home.HomeCommand.class, "Home");
+
+    private HomeSharding() {
+    }
+
+    /**
+     * Starts the shard region of the homes on this node.
+     *
+     * @return the shard region, delivers to the home with the id of the envelope wherever it runs
+     */
+    public static ActorRef<ShardingEnvelope<Home.HomeCommand>> init(ActorSystem<?> system, Duration passivateAfter) {
+        return ClusterSharding.get(system).init(
+                Entity.of(TYPE_KEY, entity -> Home.create(entity, passivateAfter))
+                        .withStopMessage(new Home.StopHomeCommand())
+        );
+    }
+
+}
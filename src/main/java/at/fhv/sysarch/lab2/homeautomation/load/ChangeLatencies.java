@@ -0,0 +1,113 @@
+package at.fhv.sysarch.lab2.homeautomation.load;
+
+import at.fhv.sysarch.lab2.homeautomation.metrics.LatencyHistogram;
+
+/**
+ * Latency from changes sent to the environment to the device state changes they cause. The changes alternate
+ * between two target states, change {@code n} targets state {@code n % 2}, so a state change answers the oldest
+ * pending change with that target. Pending changes with the other target were superseded before the device got to
+ * them, e.g. because the device never saw the intermediate state. A change to the state the device is in while
+ * nothing is pending doesn't change it and is never answered, it counts as superseded right away.
+ */
+final class ChangeLatencies {
+
+    private final LatencyHistogram histogram = new LatencyHistogram();
+
+    // send times of the pending changes, indexed by sequence number
+    private long[] pending = new long[1024];
+    private long head;
+    private long next;
+
+    private long recordFrom;
+    private long sent;
+    private long superseded;
+    private long unexpected;
+    // the state of the last change, -1 before there was one
+    private int state = -1;
+
+    /**
+     * Starts a new measurement, changes sent before {@code recordFrom} are answered but not recorded.
+     */
+    void reset(long recordFrom) {
+        this.recordFrom = recordFrom;
+        histogram.reset();
+        sent = 0;
+        superseded = 0;
+        unexpected = 0;
+    }
+
+    /**
+     * @param sentAt {@link System#nanoTime()} when the change was sent
+     * @return 0 or 1, the state the change targets
+     */
+    int send(long sentAt) {
+        sent++;
+        int target = (int) (next & 1);
+        if (head == next && target == state) {
+            superseded++;
+            head++;
+            next++;
+            return target;
+        }
+        if (next - head == pending.length) {
+            grow();
+        }
+        pending[index(next)] = sentAt;
+        next++;
+        return target;
+    }
+
+    void changed(int state, long changedAt) {
+        this.state = state;
+        while (head < next) {
+            long sentAt = pending[index(head)];
+            int target = (int) (head & 1);
+            head++;
+            if (target == state) {
+                if (sentAt >= recordFrom) {
+                    histogram.record(Math.max(0, changedAt - sentAt));
+                }
+                return;
+            }
+            superseded++;
+        }
+        // caused by something else, e.g. the environment changing by itself
+        unexpected++;
+    }
+
+    private int index(long sequence) {
+        return (int) (sequence & (pending.length - 1));
+    }
+
+    private void grow() {
+        long[] grown = new long[pending.length * 2];
+        for (long sequence = head; sequence < next; sequence++) {
+            grown[(int) (sequence & (grown.length - 1))] = pending[index(sequence)];
+        }
+        pending = grown;
+    }
+
+    LatencyHistogram getHistogram() {
+        return histogram;
+    }
+
+    long getSent() {
+        return sent;
+    }
+
+    long getSuperseded() {
+        return superseded;
+    }
+
+    long getUnexpected() {
+        return unexpected;
+    }
+
+    /**
+     * @return changes not answered yet
+     */
+    long getBacklog() {
+        return next - head;
+    }
+
+}
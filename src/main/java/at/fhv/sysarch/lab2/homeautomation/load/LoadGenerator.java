@@ -0,0 +1,293 @@
+package at.fhv.sysarch.lab2.homeautomation.load;
+
+import akka.actor.typed.ActorRef;
+import akka.actor.typed.Behavior;
+import akka.actor.typed.PostStop;
+import akka.actor.typed.eventstream.EventStream;
+import akka.actor.typed.javadsl.AbstractBehavior;
+import akka.actor.typed.javadsl.ActorContext;
+import akka.actor.typed.javadsl.Behaviors;
+import akka.actor.typed.javadsl.Receive;
+import akka.actor.typed.javadsl.TimerScheduler;
+import at.fhv.sysarch.lab2.homeautomation.devices.AirCondition;
+import at.fhv.sysarch.lab2.homeautomation.devices.Blinds;
+import at.fhv.sysarch.lab2.homeautomation.devices.fridge.Fridge;
+import at.fhv.sysarch.lab2.homeautomation.domain.Temperature;
+import at.fhv.sysarch.lab2.homeautomation.domain.enums.BlindsState;
+import at.fhv.sysarch.lab2.homeautomation.domain.enums.TemperatureUnit;
+import at.fhv.sysarch.lab2.homeautomation.domain.enums.WeatherCondition;
+import at.fhv.sysarch.lab2.homeautomation.environment.Environment;
+import at.fhv.sysarch.lab2.homeautomation.metrics.LatencyHistogram;
+import at.fhv.sysarch.lab2.homeautomation.output.Console;
+import com.typesafe.config.Config;
+import com.typesafe.config.ConfigException;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+
+/**
+ * Drives the devices with synthetic load, configured by {@code homeautomation.load}, and reports how long it takes
+ * from a change of the environment to the state change of the device it affects. Temperatures alternate between
+ * 15 and 25 degrees, so every change switches the air condition, which the temperature sensor commands directly
+ * while the load runs (see {@link at.fhv.sysarch.lab2.homeautomation.home.Home}); the weather alternates between cloudy and sunny,
+ * so every change opens or closes the blinds. Fridge orders and consumptions of one product run alongside.
+ * <p>
+ * The load is open: changes are sent at the configured rates no matter how far behind the devices are. They are
+ * sent in bursts every tick and latencies are measured from the burst, so how far the generator itself falls behind
+ * schedule is reported separately as its lag. The rates are stepped through, with a report after each step; the step
+ * where latency and backlog start to grow is where the node saturates.
+ */
+public class LoadGenerator extends AbstractBehavior<LoadGenerator.LoadCommand> {
+
+    public interface LoadCommand {
+    }
+
+    public static final class TickCommand implements LoadCommand {
+        public static final TickCommand INSTANCE = new TickCommand();
+
+        private TickCommand() {
+        }
+    }
+
+    private static final class AirConditionChangedCommand implements LoadCommand {
+        final AirCondition.ActiveChangedEvent event;
+
+        AirConditionChangedCommand(AirCondition.ActiveChangedEvent event) {
+            this.event = event;
+        }
+    }
+
+    private static final class BlindsChangedCommand implements LoadCommand {
+        final Blinds.StateChangedEvent event;
+
+        BlindsChangedCommand(Blinds.StateChangedEvent event) {
+            this.event = event;
+        }
+    }
+
+    public static Behavior<LoadCommand> create(
+            ActorRef<Environment.EnvironmentCommand> environment,
+            ActorRef<AirCondition.AirConditionCommand> airCondition,
+            ActorRef<Fridge.FridgeCommand> fridge
+    ) {
+        return Behaviors.setup(context -> Behaviors.withTimers(timers -> new LoadGenerator(context, timers, environment, airCondition, fridge)));
+    }
+
+    private static final long NANOS_PER_SECOND = Duration.ofSeconds(1).toNanos();
+    private static final int PRODUCT_ID = 0;
+
+    // indexed by the target state of a change, see ChangeLatencies
+    private static final Environment.SetTemperatureCommand[] TEMPERATURES = {
+            new Environment.SetTemperatureCommand(new Temperature(15, TemperatureUnit.CELSIUS)),
+            new Environment.SetTemperatureCommand(new Temperature(25, TemperatureUnit.CELSIUS))
+    };
+    private static final Environment.SetWeatherCommand[] WEATHERS = {
+            new Environment.SetWeatherCommand(WeatherCondition.CLOUDY),
+            new Environment.SetWeatherCommand(WeatherCondition.SUNNY)
+    };
+
+    private final ActorRef<Environment.EnvironmentCommand> environment;
+    private final ActorRef<Fridge.FridgeCommand> fridge;
+    private final Console console;
+
+    private final List<Integer> temperatureRates;
+    private final List<Integer> weatherRates;
+    private final List<Integer> fridgeRates;
+    private final long stepNanos;
+    private final long warmupNanos;
+    private final boolean exit;
+
+    private final ChangeLatencies airConditionLatencies = new ChangeLatencies();
+    private final ChangeLatencies blindsLatencies = new ChangeLatencies();
+    // how long after it was due a change was sent
+    private final LatencyHistogram lag = new LatencyHistogram();
+
+    private int step = -1;
+    private long stepStart;
+    private long temperaturesSent;
+    private long weathersSent;
+    private long fridgeSent;
+
+    private LoadGenerator(
+            ActorContext<LoadCommand> context,
+            TimerScheduler<LoadCommand> timers,
+            ActorRef<Environment.EnvironmentCommand> environment,
+            ActorRef<AirCondition.AirConditionCommand> airCondition,
+            ActorRef<Fridge.FridgeCommand> fridge
+    ) {
+        super(context);
+
+        this.environment = environment;
+        this.fridge = fridge;
+        this.console = Console.get(getContext().getSystem());
+
+        Config config = getContext().getSystem().settings().config().getConfig("homeautomation.load");
+        this.temperatureRates = config.getIntList("temperature-rates");
+        this.weatherRates = config.getIntList("weather-rates");
+        this.fridgeRates = config.getIntList("fridge-rates");
+        if (weatherRates.size() != temperatureRates.size() || fridgeRates.size() != temperatureRates.size()) {
+            throw new ConfigException.BadValue(config.origin(), "temperature-rates", "temperature-rates, weather-rates and fridge-rates need one rate per step each");
+        }
+        this.stepNanos = config.getDuration("step-duration").toNanos();
+        this.warmupNanos = config.getDuration("warmup").toNanos();
+        this.exit = config.getBoolean("exit");
+
+        ActorRef<AirCondition.ActiveChangedEvent> airConditionAdapter = getContext().messageAdapter(AirCondition.ActiveChangedEvent.class, AirConditionChangedCommand::new);
+        ActorRef<Blinds.StateChangedEvent> blindsAdapter = getContext().messageAdapter(Blinds.StateChangedEvent.class, BlindsChangedCommand::new);
+        getContext().getSystem().eventStream().tell(new EventStream.Subscribe<>(AirCondition.ActiveChangedEvent.class, airConditionAdapter));
+        getContext().getSystem().eventStream().tell(new EventStream.Subscribe<>(Blinds.StateChangedEvent.class, blindsAdapter));
+
+        // a powered off air condition never changes
+        airCondition.tell(new AirCondition.PowerAirConditionCommand(Optional.of(true)));
+
+        Duration window = getContext().getSystem().settings().config().getDuration("homeautomation.sensors.coalescing-window");
+        if (!window.isZero()) {
+            getContext().getLog().warn("Sensors hold back changes for {}, at these rates most of them are reverted before and never reach the devices. Set homeautomation.sensors.coalescing-window = 0s to measure the flow.", window);
+        }
+
+        nextStep(System.nanoTime());
+        timers.startTimerAtFixedRate(TickCommand.INSTANCE, config.getDuration("tick"));
+
+        getContext().getLog().info("LoadGenerator started, {} steps of {}", temperatureRates.size(), config.getDuration("step-duration"));
+    }
+
+    @Override
+    public Receive<LoadCommand> createReceive() {
+        return newReceiveBuilder()
+                .onMessage(TickCommand.class, c -> onTick())
+                .onMessage(AirConditionChangedCommand.class, this::onAirConditionChanged)
+                .onMessage(BlindsChangedCommand.class, this::onBlindsChanged)
+                .onSignal(PostStop.class, signal -> onPostStop())
+                .build();
+    }
+
+    private Behavior<LoadCommand> onTick() {
+        long now = System.nanoTime();
+        long elapsed = now - stepStart;
+        if (elapsed >= stepNanos) {
+            report();
+            if (step + 1 == temperatureRates.size()) {
+                return finish();
+            }
+            nextStep(now);
+            elapsed = 0;
+        }
+
+        long temperaturesDue = due(elapsed, temperatureRates.get(step));
+        for (; temperaturesSent < temperaturesDue; temperaturesSent++) {
+            recordLag(now, dueAt(temperaturesSent, temperatureRates.get(step)));
+            environment.tell(TEMPERATURES[airConditionLatencies.send(now)]);
+        }
+
+        long weathersDue = due(elapsed, weatherRates.get(step));
+        for (; weathersSent < weathersDue; weathersSent++) {
+            recordLag(now, dueAt(weathersSent, weatherRates.get(step)));
+            environment.tell(WEATHERS[blindsLatencies.send(now)]);
+        }
+
+        long fridgeDue = due(elapsed, fridgeRates.get(step));
+        for (; fridgeSent < fridgeDue; fridgeSent++) {
+            if ((fridgeSent & 1) == 0) {
+                fridge.tell(new Fridge.RequestOrderProductCommand(PRODUCT_ID));
+            } else {
+                fridge.tell(new Fridge.ConsumeProductCommand(PRODUCT_ID));
+            }
+        }
+
+        return this;
+    }
+
+    private Behavior<LoadCommand> onAirConditionChanged(AirConditionChangedCommand c) {
+        airConditionLatencies.changed(c.event.isActive() ? 1 : 0, c.event.getNanoTime());
+        return this;
+    }
+
+    private Behavior<LoadCommand> onBlindsChanged(BlindsChangedCommand c) {
+        blindsLatencies.changed(c.event.getState() == BlindsState.CLOSED ? 1 : 0, c.event.getNanoTime());
+        return this;
+    }
+
+    private void nextStep(long now) {
+        step++;
+        stepStart = now;
+        temperaturesSent = 0;
+        weathersSent = 0;
+        fridgeSent = 0;
+        airConditionLatencies.reset(now + warmupNanos);
+        blindsLatencies.reset(now + warmupNanos);
+        lag.reset();
+    }
+
+    private void recordLag(long now, long dueAt) {
+        if (dueAt - stepStart >= warmupNanos) {
+            lag.record(now - dueAt);
+        }
+    }
+
+    private static long due(long elapsed, int rate) {
+        return elapsed * rate / NANOS_PER_SECOND;
+    }
+
+    private long dueAt(long sequence, int rate) {
+        return stepStart + sequence * NANOS_PER_SECOND / rate;
+    }
+
+    private void report() {
+        double seconds = (double) stepNanos / NANOS_PER_SECOND;
+        double measured = (double) (stepNanos - warmupNanos) / NANOS_PER_SECOND;
+        StringBuilder text = new StringBuilder();
+        text.append(String.format(Locale.ROOT, "Load step %d/%d, %.0fs, latencies of the last %.0fs in µs%n", step + 1, temperatureRates.size(), seconds, measured));
+        text.append(String.format(Locale.ROOT, "%-24s %8s %8s %10s %8s %8s %8s %8s %8s %8s %8s%n",
+                "", "rate/s", "changes", "superseded", "backlog", "p50", "p90", "p99", "p99.9", "max", "mean"));
+        appendLatencies(text, "temperature > aircon", temperatureRates.get(step), airConditionLatencies);
+        appendLatencies(text, "weather > blinds", weatherRates.get(step), blindsLatencies);
+        text.append(String.format(Locale.ROOT, "%-24s %8d %8d%n", "fridge orders/consumes", fridgeRates.get(step), fridgeSent));
+        text.append(String.format(Locale.ROOT, "%-24s %8s %8s %10s %8s %8d %8d %8d %8d %8d %8.0f", "generator lag", "", "", "", "",
+                micros(lag.getPercentile(50)),
+                micros(lag.getPercentile(90)),
+                micros(lag.getPercentile(99)),
+                micros(lag.getPercentile(99.9)),
+                micros(lag.getMax()),
+                lag.getMean() / 1_000));
+        console.println(text.toString());
+    }
+
+    private static void appendLatencies(StringBuilder text, String name, int rate, ChangeLatencies latencies) {
+        LatencyHistogram histogram = latencies.getHistogram();
+        text.append(String.format(Locale.ROOT, "%-24s %8d %8d %10d %8d %8d %8d %8d %8d %8d %8.0f%n",
+                name,
+                rate,
+                latencies.getSent(),
+                latencies.getSuperseded(),
+                latencies.getBacklog(),
+                micros(histogram.getPercentile(50)),
+                micros(histogram.getPercentile(90)),
+                micros(histogram.getPercentile(99)),
+                micros(histogram.getPercentile(99.9)),
+                micros(histogram.getMax()),
+                histogram.getMean() / 1_000));
+        if (latencies.getUnexpected() > 0) {
+            text.append(String.format(Locale.ROOT, "%-24s %d state changes not caused by the load%n", "", latencies.getUnexpected()));
+        }
+    }
+
+    private static long micros(long nanos) {
+        return nanos / 1_000;
+    }
+
+    private Behavior<LoadCommand> finish() {
+        console.println("Load finished");
+        if (exit) {
+            getContext().getSystem().terminate();
+        }
+        return Behaviors.stopped();
+    }
+
+    private LoadGenerator onPostStop() {
+        getContext().getLog().info("LoadGenerator stopped");
+        return this;
+    }
+
+}
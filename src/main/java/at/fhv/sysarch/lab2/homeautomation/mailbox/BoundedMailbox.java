@@ -0,0 +1,242 @@
+package at.fhv.sysarch.lab2.homeautomation.mailbox;
+
+import akka.actor.ActorPath;
+import akka.actor.ActorRef;
+import akka.actor.ActorSystem;
+import akka.actor.typed.javadsl.Adapter;
+import akka.dispatch.Envelope;
+import akka.dispatch.MailboxType;
+import akka.dispatch.MessageQueue;
+import akka.dispatch.ProducesMessageQueue;
+import at.fhv.sysarch.lab2.homeautomation.metrics.ActorMetrics;
+import at.fhv.sysarch.lab2.homeautomation.metrics.Metrics;
+import com.typesafe.config.Config;
+import scala.Option;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * Mailbox holding at most {@code capacity} messages, what happens beyond is decided by its {@link Overflow}. Dropped
+ * messages are not delivered anywhere, they are counted in the metrics of the actor. With {@code bound = sheddable}
+ * only {@link Sheddable} messages are ever dropped, the others are enqueued even beyond the capacity. Once the
+ * mailbox is {@code backpressure-at} full it signals backpressure to producers asking {@link Mailboxes#isBackpressured}, until
+ * it is drained to half of that.
+ * <p>
+ * Selected per device by {@link Mailboxes#forDevice(String)}, configured in {@code homeautomation.mailboxes}. Also
+ * reports its depth like {@code InstrumentedMailbox} when metrics are enabled.
+ */
+public class BoundedMailbox implements MailboxType, ProducesMessageQueue<BoundedMailbox.BoundedQueue> {
+
+    private final int capacity;
+    private final Overflow overflow;
+    private final boolean sheddableOnly;
+    private final int backpressureAt;
+
+    public BoundedMailbox(ActorSystem.Settings settings, Config config) {
+        this.capacity = config.getInt("capacity");
+        this.overflow = Overflow.parse(config.getString("overflow"));
+        String bound = config.getString("bound");
+        if (!bound.equals("all") && !bound.equals("sheddable")) {
+            throw new IllegalArgumentException("bound must be all or sheddable: " + bound);
+        }
+        this.sheddableOnly = bound.equals("sheddable");
+        double share = config.getDouble("backpressure-at");
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Mailbox capacity must be positive: " + capacity);
+        }
+        if (share <= 0 || share > 1) {
+            throw new IllegalArgumentException("backpressure-at must be in (0, 1]: " + share);
+        }
+        this.backpressureAt = Math.max(1, (int) Math.ceil(capacity * share));
+    }
+
+    @Override
+    public MessageQueue create(Option<ActorRef> owner, Option<ActorSystem> system) {
+        if (owner.isEmpty() || system.isEmpty()) {
+            return new BoundedQueue(this, null, null, null);
+        }
+
+        akka.actor.typed.ActorSystem<?> typed = Adapter.toTyped(system.get());
+        ActorPath path = owner.get().path();
+        Metrics metrics = Metrics.get(typed);
+        BoundedQueue queue = new BoundedQueue(this, path, Mailboxes.get(typed), metrics.isEnabled() ? metrics.actor(path) : null);
+        queue.register();
+        return queue;
+    }
+
+    public static final class BoundedQueue implements MessageQueue {
+
+        private static final class Slot {
+            Envelope envelope;
+            final Object key;
+            final boolean droppable;
+
+            Slot(Envelope envelope, Object key, boolean droppable) {
+                this.envelope = envelope;
+                this.key = key;
+                this.droppable = droppable;
+            }
+        }
+
+        private final int capacity;
+        private final Overflow overflow;
+        private final boolean sheddableOnly;
+        private final int backpressureAt;
+        private final ActorPath owner;
+        private final Mailboxes mailboxes;
+        private final ActorMetrics metrics;
+
+        private final ArrayDeque<Slot> slots;
+        // the waiting conflatable messages by their key, only with Overflow.CONFLATE
+        private final Map<Object, Slot> conflatable = new HashMap<>();
+        private volatile int size;
+        private volatile boolean backpressured;
+
+        BoundedQueue(BoundedMailbox type, ActorPath owner, Mailboxes mailboxes, ActorMetrics metrics) {
+            this.capacity = type.capacity;
+            this.overflow = type.overflow;
+            this.sheddableOnly = type.sheddableOnly;
+            this.backpressureAt = type.backpressureAt;
+            this.owner = owner;
+            this.mailboxes = mailboxes;
+            this.metrics = metrics;
+            this.slots = new ArrayDeque<>(Math.min(capacity, 64));
+        }
+
+        private void register() {
+            mailboxes.register(owner, this);
+            if (metrics != null) {
+                metrics.addMailbox(this);
+            }
+        }
+
+        @Override
+        public void enqueue(ActorRef receiver, Envelope handle) {
+            boolean dropped;
+            int depth;
+            synchronized (this) {
+                dropped = offer(handle);
+                depth = slots.size();
+                size = depth;
+                if (depth >= backpressureAt) {
+                    backpressured = true;
+                }
+            }
+            if (metrics != null) {
+                if (dropped) {
+                    metrics.recordDropped();
+                }
+                metrics.updateMaxMailboxDepth(depth);
+            }
+        }
+
+        /**
+         * @return whether a message was dropped
+         */
+        private boolean offer(Envelope handle) {
+            if (sheddableOnly && !(handle.message() instanceof Sheddable)) {
+                slots.add(new Slot(handle, null, false));
+                return false;
+            }
+
+            Object key = null;
+            if (overflow == Overflow.CONFLATE && handle.message() instanceof Conflatable) {
+                key = ((Conflatable) handle.message()).conflationKey();
+                Slot waiting = conflatable.get(key);
+                if (waiting != null) {
+                    waiting.envelope = handle;
+                    return true;
+                }
+            }
+
+            boolean dropped = false;
+            if (slots.size() >= capacity) {
+                if (overflow != Overflow.DROP_OLDEST || !dropOldest()) {
+                    return true;
+                }
+                dropped = true;
+            }
+            Slot slot = new Slot(handle, key, true);
+            slots.add(slot);
+            if (key != null) {
+                conflatable.put(key, slot);
+            }
+            return dropped;
+        }
+
+        /**
+         * @return false if no waiting message may be dropped
+         */
+        private boolean dropOldest() {
+            Iterator<Slot> waiting = slots.iterator();
+            while (waiting.hasNext()) {
+                Slot slot = waiting.next();
+                if (slot.droppable) {
+                    waiting.remove();
+                    forget(slot);
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private void forget(Slot slot) {
+            if (slot.key != null) {
+                conflatable.remove(slot.key);
+            }
+        }
+
+        @Override
+        public Envelope dequeue() {
+            synchronized (this) {
+                Slot slot = slots.poll();
+                if (slot == null) {
+                    return null;
+                }
+                forget(slot);
+                int depth = slots.size();
+                size = depth;
+                if (depth <= backpressureAt / 2) {
+                    backpressured = false;
+                }
+                return slot.envelope;
+            }
+        }
+
+        @Override
+        public int numberOfMessages() {
+            return size;
+        }
+
+        @Override
+        public boolean hasMessages() {
+            return size > 0;
+        }
+
+        /**
+         * @return whether the mailbox filled up to its backpressure threshold and was not drained since
+         */
+        public boolean isBackpressured() {
+            return backpressured;
+        }
+
+        @Override
+        public void cleanUp(ActorRef owner, MessageQueue deadLetters) {
+            if (mailboxes != null) {
+                mailboxes.unregister(this.owner, this);
+            }
+            if (metrics != null) {
+                metrics.removeMailbox(this);
+            }
+
+            Envelope envelope;
+            while ((envelope = dequeue()) != null) {
+                deadLetters.enqueue(owner, envelope);
+            }
+        }
+    }
+
+}
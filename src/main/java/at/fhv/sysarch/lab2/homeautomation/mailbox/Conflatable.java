@@ -0,0 +1,16 @@
+package at.fhv.sysarch.lab2.homeautomation.mailbox;
+
+/**
+ * A message that only matters until a newer one of the same kind arrives, e.g. a sensor reading. A mailbox with
+ * {@link Overflow#CONFLATE} keeps only the latest of them waiting.
+ */
+public interface Conflatable {
+
+    /**
+     * @return messages with equal keys replace each other, by default all messages of the same class
+     */
+    default Object conflationKey() {
+        return getClass();
+    }
+
+}
@@ -0,0 +1,86 @@
+package at.fhv.sysarch.lab2.homeautomation.mailbox;
+
+import akka.actor.ActorPath;
+import akka.actor.typed.ActorRef;
+import akka.actor.typed.ActorSystem;
+import akka.actor.typed.Extension;
+import akka.actor.typed.ExtensionId;
+import akka.actor.typed.MailboxSelector;
+import akka.actor.typed.Props;
+import at.fhv.sysarch.lab2.homeautomation.metrics.Metrics;
+import com.typesafe.config.Config;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The mailboxes of the devices, configured by {@code homeautomation.mailboxes}: a device kind with an entry there
+ * gets a {@link BoundedMailbox}, every other one the unbounded mailbox of {@link Metrics#mailbox()}.
+ * <p>
+ * Producers that can slow down, e.g. a sensor commanding its actuator, ask {@link #isBackpressured(ActorRef)} before
+ * sending and hold back while the mailbox of the receiver is filling up.
+ */
+public final class Mailboxes implements Extension {
+
+    public static class Id extends ExtensionId<Mailboxes> {
+
+        private static final Id instance = new Id();
+
+        private Id() {
+        }
+
+        @Override
+        public Mailboxes createExtension(ActorSystem<?> system) {
+            return new Mailboxes(system);
+        }
+
+        public static Mailboxes get(ActorSystem<?> system) {
+            return instance.apply(system);
+        }
+    }
+
+    public static Mailboxes get(ActorSystem<?> system) {
+        return Id.get(system);
+    }
+
+    private static final String PATH = "homeautomation.mailboxes";
+
+    private final Config config;
+    private final Metrics metrics;
+    private final Map<ActorPath, BoundedMailbox.BoundedQueue> bounded = new ConcurrentHashMap<>();
+
+    private Mailboxes(ActorSystem<?> system) {
+        this.config = system.settings().config().getConfig(PATH);
+        this.metrics = Metrics.get(system);
+    }
+
+    /**
+     * Mailbox to spawn a device with.
+     *
+     * @param device kind of the device as in {@code homeautomation.mailboxes}, e.g. {@code air-condition}
+     */
+    public Props forDevice(String device) {
+        if (config.hasPath(device)) {
+            return MailboxSelector.fromConfig(PATH + "." + device);
+        }
+        return metrics.mailbox();
+    }
+
+    /**
+     * @return whether {@code receiver} has a bounded mailbox on this node that is filling up. Messages to it may be
+     * dropped soon, depending on its {@link Overflow}.
+     */
+    public boolean isBackpressured(ActorRef<?> receiver) {
+        BoundedMailbox.BoundedQueue queue = bounded.get(receiver.path());
+        return queue != null && queue.isBackpressured();
+    }
+
+    void register(ActorPath owner, BoundedMailbox.BoundedQueue queue) {
+        bounded.put(owner, queue);
+    }
+
+    void unregister(ActorPath owner, BoundedMailbox.BoundedQueue queue) {
+        bounded.remove(owner, queue);
+    }
+
+}
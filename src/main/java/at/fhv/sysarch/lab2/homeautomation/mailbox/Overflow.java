@@ -0,0 +1,33 @@
+package at.fhv.sysarch.lab2.homeautomation.mailbox;
+
+import java.util.Locale;
+
+/**
+ * What a {@link BoundedMailbox} does with a message arriving when it is full.
+ */
+public enum Overflow {
+
+    /**
+     * The arriving message is dropped, the ones waiting are handled in order.
+     */
+    DROP_NEWEST,
+
+    /**
+     * The message waiting longest is dropped to make room.
+     */
+    DROP_OLDEST,
+
+    /**
+     * A {@link Conflatable} message replaces the one of its kind waiting, full or not, so it is handled in its place
+     * with the latest value. Other messages are dropped when the mailbox is full.
+     */
+    CONFLATE;
+
+    /**
+     * @param name as configured, e.g. {@code drop-oldest}
+     */
+    public static Overflow parse(String name) {
+        return valueOf(name.trim().toUpperCase(Locale.ROOT).replace('-', '_'));
+    }
+
+}
@@ -0,0 +1,9 @@
+package at.fhv.sysarch.lab2.homeautomation.mailbox;
+
+/**
+ * A request from outside a device, e.g. an operator command, that the device may refuse when it can't keep up. A
+ * {@link BoundedMailbox} configured with {@code bound = sheddable} only drops these; every other message, e.g. a step
+ * of the protocol between the actors of the device or a timer, is always enqueued.
+ */
+public interface Sheddable {
+}
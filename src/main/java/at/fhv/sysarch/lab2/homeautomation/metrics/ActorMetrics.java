@@ -0,0 +1,118 @@
+package at.fhv.sysarch.lab2.homeautomation.metrics;
+
+import akka.dispatch.MessageQueue;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * Metrics of one kind of actor, e.g. every {@code Environment}, shared by all its instances so the number of metrics
+ * does not grow with the number of homes or orders.
+ */
+public final class ActorMetrics implements ActorMetricsMXBean {
+
+    private final String name;
+    private final Consumer<MessageMetrics> onNewMessageType;
+    private final Map<Class<?>, MessageMetrics> messages = new ConcurrentHashMap<>();
+    private final Set<MessageQueue> mailboxes = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger maxMailboxDepth = new AtomicInteger();
+    private final LongAdder dropped = new LongAdder();
+
+    ActorMetrics(String name, Consumer<MessageMetrics> onNewMessageType) {
+        this.name = name;
+        this.onNewMessageType = onNewMessageType;
+    }
+
+    void record(Class<?> messageType, long nanos) {
+        MessageMetrics metrics = messages.get(messageType);
+        if (metrics == null) {
+            metrics = messages.computeIfAbsent(messageType, this::newMessageMetrics);
+        }
+        metrics.record(nanos);
+    }
+
+    private MessageMetrics newMessageMetrics(Class<?> messageType) {
+        MessageMetrics metrics = new MessageMetrics(name, messageType.getSimpleName());
+        onNewMessageType.accept(metrics);
+        return metrics;
+    }
+
+    /**
+     * Counts the mailbox of an actor of this kind, until it is removed again when the actor stopped.
+     */
+    public void addMailbox(MessageQueue mailbox) {
+        mailboxes.add(mailbox);
+    }
+
+    public void removeMailbox(MessageQueue mailbox) {
+        mailboxes.remove(mailbox);
+    }
+
+    public void updateMaxMailboxDepth(int depth) {
+        int max = maxMailboxDepth.get();
+        while (depth > max && !maxMailboxDepth.compareAndSet(max, depth)) {
+            max = maxMailboxDepth.get();
+        }
+    }
+
+    /**
+     * Counts a message a bounded mailbox dropped instead of delivering it.
+     */
+    public void recordDropped() {
+        dropped.increment();
+    }
+
+    void tick() {
+        for (MessageMetrics metrics : messages.values()) {
+            metrics.tick();
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public Collection<MessageMetrics> getMessages() {
+        return Collections.unmodifiableCollection(messages.values());
+    }
+
+    @Override
+    public int getInstances() {
+        return mailboxes.size();
+    }
+
+    @Override
+    public long getMailboxDepth() {
+        long depth = 0;
+        for (MessageQueue mailbox : mailboxes) {
+            depth += mailbox.numberOfMessages();
+        }
+        return depth;
+    }
+
+    @Override
+    public int getMaxMailboxDepth() {
+        return maxMailboxDepth.get();
+    }
+
+    @Override
+    public long getDroppedMessages() {
+        return dropped.sum();
+    }
+
+    @Override
+    public long getMessageCount() {
+        long count = 0;
+        for (MessageMetrics metrics : messages.values()) {
+            count += metrics.getCount();
+        }
+        return count;
+    }
+
+}
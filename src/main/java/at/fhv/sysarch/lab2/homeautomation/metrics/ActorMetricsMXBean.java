@@ -0,0 +1,24 @@
+package at.fhv.sysarch.lab2.homeautomation.metrics;
+
+public interface ActorMetricsMXBean {
+
+    /**
+     * @return number of live actors of this kind
+     */
+    int getInstances();
+
+    /**
+     * @return messages waiting in the mailboxes of all actors of this kind
+     */
+    long getMailboxDepth();
+
+    int getMaxMailboxDepth();
+
+    /**
+     * @return messages the bounded mailboxes of this kind dropped, see {@code BoundedMailbox}
+     */
+    long getDroppedMessages();
+
+    long getMessageCount();
+
+}
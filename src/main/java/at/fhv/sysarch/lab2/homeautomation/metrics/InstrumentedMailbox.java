@@ -0,0 +1,90 @@
+package at.fhv.sysarch.lab2.homeautomation.metrics;
+
+import akka.actor.ActorRef;
+import akka.actor.ActorSystem;
+import akka.actor.typed.javadsl.Adapter;
+import akka.dispatch.Envelope;
+import akka.dispatch.MailboxType;
+import akka.dispatch.MessageQueue;
+import akka.dispatch.ProducesMessageQueue;
+import akka.dispatch.UnboundedMessageQueueSemantics;
+import com.typesafe.config.Config;
+import scala.Option;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Unbounded mailbox that knows its depth without walking the queue and reports it to the {@link ActorMetrics} of its
+ * actor. Selected with {@link Metrics#mailbox()}, configured as {@code homeautomation.metrics.mailbox}.
+ */
+public class InstrumentedMailbox implements MailboxType, ProducesMessageQueue<InstrumentedMailbox.InstrumentedQueue> {
+
+    public InstrumentedMailbox(ActorSystem.Settings settings, Config config) {
+    }
+
+    @Override
+    public MessageQueue create(Option<ActorRef> owner, Option<ActorSystem> system) {
+        if (owner.isEmpty() || system.isEmpty()) {
+            return new InstrumentedQueue(null);
+        }
+
+        ActorMetrics metrics = Metrics.get(Adapter.toTyped(system.get())).actor(owner.get().path());
+        InstrumentedQueue queue = new InstrumentedQueue(metrics);
+        metrics.addMailbox(queue);
+        return queue;
+    }
+
+    public static final class InstrumentedQueue implements MessageQueue, UnboundedMessageQueueSemantics {
+
+        private final Queue<Envelope> queue = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger depth = new AtomicInteger();
+        private final ActorMetrics metrics;
+
+        InstrumentedQueue(ActorMetrics metrics) {
+            this.metrics = metrics;
+        }
+
+        @Override
+        public void enqueue(ActorRef receiver, Envelope handle) {
+            queue.add(handle);
+            int depth = this.depth.incrementAndGet();
+            if (metrics != null) {
+                metrics.updateMaxMailboxDepth(depth);
+            }
+        }
+
+        @Override
+        public Envelope dequeue() {
+            Envelope envelope = queue.poll();
+            if (envelope != null) {
+                depth.decrementAndGet();
+            }
+            return envelope;
+        }
+
+        @Override
+        public int numberOfMessages() {
+            return Math.max(0, depth.get());
+        }
+
+        @Override
+        public boolean hasMessages() {
+            return !queue.isEmpty();
+        }
+
+        @Override
+        public void cleanUp(ActorRef owner, MessageQueue deadLetters) {
+            if (metrics != null) {
+                metrics.removeMailbox(this);
+            }
+
+            Envelope envelope;
+            while ((envelope = dequeue()) != null) {
+                deadLetters.enqueue(owner, envelope);
+            }
+        }
+    }
+
+}
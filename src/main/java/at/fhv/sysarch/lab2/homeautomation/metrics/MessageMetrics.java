@@ -0,0 +1,95 @@
+package at.fhv.sysarch.lab2.homeautomation.metrics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Handling time and rate of one message type of one kind of actor.
+ */
+public final class MessageMetrics implements MessageMetricsMXBean {
+
+    static final long TICK_SECONDS = 5;
+    private static final double ALPHA = 1 - Math.exp(-TICK_SECONDS / 60.0);
+
+    private final String actor;
+    private final String message;
+    private final LatencyHistogram handlingNanos = new LatencyHistogram();
+    private final LongAdder sinceTick = new LongAdder();
+    private volatile double oneMinuteRate;
+    private volatile boolean rateInitialized;
+
+    MessageMetrics(String actor, String message) {
+        this.actor = actor;
+        this.message = message;
+    }
+
+    void record(long nanos) {
+        handlingNanos.record(nanos);
+        sinceTick.increment();
+    }
+
+    /**
+     * Called every {@link #TICK_SECONDS} seconds to update the rate.
+     */
+    void tick() {
+        double instantRate = (double) sinceTick.sumThenReset() / TICK_SECONDS;
+        if (rateInitialized) {
+            oneMinuteRate += ALPHA * (instantRate - oneMinuteRate);
+        } else {
+            oneMinuteRate = instantRate;
+            rateInitialized = true;
+        }
+    }
+
+    public String getActor() {
+        return actor;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    public LatencyHistogram getHandlingNanos() {
+        return handlingNanos;
+    }
+
+    @Override
+    public long getCount() {
+        return handlingNanos.getCount();
+    }
+
+    @Override
+    public double getOneMinuteRate() {
+        return oneMinuteRate;
+    }
+
+    @Override
+    public double getMeanMicros() {
+        return handlingNanos.getMean() / 1000;
+    }
+
+    @Override
+    public long getP50Micros() {
+        return micros(handlingNanos.getPercentile(50));
+    }
+
+    @Override
+    public long getP99Micros() {
+        return micros(handlingNanos.getPercentile(99));
+    }
+
+    @Override
+    public long getP999Micros() {
+        return micros(handlingNanos.getPercentile(99.9));
+    }
+
+    @Override
+    public long getMaxMicros() {
+        return micros(handlingNanos.getMax());
+    }
+
+    private static long micros(long nanos) {
+        return TimeUnit.NANOSECONDS.toMicros(nanos);
+    }
+
+}
@@ -0,0 +1,22 @@
+package at.fhv.sysarch.lab2.homeautomation.metrics;
+
+public interface MessageMetricsMXBean {
+
+    long getCount();
+
+    /**
+     * @return messages per second, exponentially weighted over the last minute
+     */
+    double getOneMinuteRate();
+
+    double getMeanMicros();
+
+    long getP50Micros();
+
+    long getP99Micros();
+
+    long getP999Micros();
+
+    long getMaxMicros();
+
+}
@@ -0,0 +1,328 @@
+package at.fhv.sysarch.lab2.homeautomation.metrics;
+
+import akka.actor.ActorPath;
+import akka.actor.typed.ActorSystem;
+import akka.actor.typed.Behavior;
+import akka.actor.typed.Extension;
+import akka.actor.typed.ExtensionId;
+import akka.actor.typed.MailboxSelector;
+import akka.actor.typed.Props;
+import akka.actor.typed.javadsl.Behaviors;
+import akka.actor.typed.javadsl.TimerScheduler;
+import com.sun.net.httpserver.HttpServer;
+import com.typesafe.config.Config;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.function.Function;
+
+/**
+ * Handling time, rate and mailbox depth of the actors, configured by {@code homeautomation.metrics}. Actors are
+ * measured by kind: their path below the user guardian with every {@code -<id>} suffix removed, so all
+ * {@code /user/HomeRegistry/Home-7/Environment} share the metrics {@code HomeRegistry/Home/Environment}. Numbers
+ * that are not about messages, e.g. orders that timed out, are {@link #counter(String) counters} and
+ * {@link #gauge(String) gauges} shared by all actors.
+ *
+ * The metrics are registered as MXBeans and, if enabled, served as text on {@code http://<interface>:<port>/metrics}.
+ */
+public class Metrics implements Extension {
+
+    public static class Id extends ExtensionId<Metrics> {
+
+        private static final Id instance = new Id();
+
+        private Id() {
+        }
+
+        @Override
+        public Metrics createExtension(ActorSystem<?> system) {
+            return new Metrics(system, system.settings().config().getConfig("homeautomation.metrics"));
+        }
+
+        public static Metrics get(ActorSystem<?> system) {
+            return instance.apply(system);
+        }
+    }
+
+    public static Metrics get(ActorSystem<?> system) {
+        return Id.get(system);
+    }
+
+    private static final Logger log = LoggerFactory.getLogger(Metrics.class);
+
+    private static final String DOMAIN = "at.fhv.sysarch.lab2.homeautomation";
+
+    private final boolean enabled;
+    private final boolean jmx;
+    private final String systemName;
+    private final Map<String, ActorMetrics> actors = new ConcurrentHashMap<>();
+    private final Map<String, ValueMetrics> values = new ConcurrentHashMap<>();
+    private final List<ObjectName> registered = new CopyOnWriteArrayList<>();
+    private final MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+
+    private Metrics(ActorSystem<?> system, Config config) {
+        this.enabled = config.getBoolean("enabled");
+        this.jmx = enabled && config.getBoolean("jmx.enabled");
+        this.systemName = system.name();
+
+        if (!enabled) {
+            return;
+        }
+
+        Duration tick = Duration.ofSeconds(MessageMetrics.TICK_SECONDS);
+        system.scheduler().scheduleAtFixedRate(tick, tick, this::tick, system.executionContext());
+
+        if (config.getBoolean("http.enabled")) {
+            startHttp(system, config.getString("http.interface"), config.getInt("http.port"));
+        }
+        system.getWhenTerminated().thenRun(this::unregisterAll);
+    }
+
+    /**
+     * Measures every message {@code behavior} handles. The behavior is returned unchanged if metrics are disabled.
+     */
+    public <T> Behavior<T> instrument(Behavior<T> behavior) {
+        if (!enabled) {
+            return behavior;
+        }
+        return Behaviors.setup(context -> {
+            ActorMetrics metrics = actor(context.getSelf().path());
+            @SuppressWarnings("unchecked")
+            Behavior<Object> untyped = (Behavior<Object>) behavior;
+            return Behaviors.intercept(() -> new MetricsInterceptor(metrics), untyped);
+        }).narrow();
+    }
+
+    /**
+     * {@link Behaviors#withTimers} for actors that may be {@link #instrument instrumented}: their timer messages are
+     * measured as the command the timer delivers rather than as the scheduler's own message.
+     */
+    public static <T> Behavior<T> withTimers(Function<TimerScheduler<T>, Behavior<T>> factory) {
+        return Behaviors.withTimers(timers -> {
+            @SuppressWarnings("unchecked")
+            Behavior<Object> untyped = (Behavior<Object>) factory.apply(timers);
+            return Behaviors.intercept(MetricsInterceptor.DeliveredMessageInterceptor::new, untyped).<T>narrow();
+        });
+    }
+
+    /**
+     * Mailbox that reports its depth, to be used when spawning an instrumented behavior.
+     */
+    public Props mailbox() {
+        return enabled ? MailboxSelector.fromConfig("homeautomation.metrics.mailbox") : Props.empty();
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public Collection<ActorMetrics> getActors() {
+        return Collections.unmodifiableCollection(actors.values());
+    }
+
+    /**
+     * @return the metrics of the kind of the actor at {@code path}
+     */
+    public ActorMetrics actor(ActorPath path) {
+        return actors.computeIfAbsent(kindOf(path), this::newActorMetrics);
+    }
+
+    /**
+     * @param name in the Prometheus format, ending with {@code _total}
+     * @return the counter of that name, shared by everyone asking for it
+     */
+    public ValueMetrics counter(String name) {
+        return value(name, "counter");
+    }
+
+    /**
+     * @return the gauge of that name, shared by everyone asking for it
+     */
+    public ValueMetrics gauge(String name) {
+        return value(name, "gauge");
+    }
+
+    private ValueMetrics value(String name, String type) {
+        ValueMetrics value = values.computeIfAbsent(name, n -> {
+            ValueMetrics created = new ValueMetrics(n, type);
+            register("type=Value,name=" + n, created);
+            return created;
+        });
+        if (!value.getType().equals(type)) {
+            throw new IllegalArgumentException(name + " is a " + value.getType() + ", not a " + type);
+        }
+        return value;
+    }
+
+    static String kindOf(ActorPath path) {
+        StringBuilder kind = new StringBuilder();
+        boolean first = true;
+        for (String element : path.getElements()) {
+            if (first && element.equals("user")) {
+                first = false;
+                continue;
+            }
+            first = false;
+
+            int suffix = element.indexOf('-');
+            if (kind.length() > 0) {
+                kind.append('/');
+            }
+            kind.append(suffix > 0 ? element.substring(0, suffix) : element);
+        }
+        return kind.toString();
+    }
+
+    private ActorMetrics newActorMetrics(String kind) {
+        ActorMetrics metrics = new ActorMetrics(kind, this::register);
+        register("type=Actor,actor=" + ObjectName.quote(kind), metrics);
+        return metrics;
+    }
+
+    private void register(MessageMetrics metrics) {
+        register("type=Message,actor=" + ObjectName.quote(metrics.getActor()) + ",message=" + metrics.getMessage(), metrics);
+    }
+
+    private void register(String properties, Object mBean) {
+        if (!jmx) {
+            return;
+        }
+        try {
+            ObjectName name = new ObjectName(DOMAIN + ":system=" + systemName + "," + properties);
+            mBeanServer.registerMBean(mBean, name);
+            registered.add(name);
+        } catch (JMException e) {
+            log.warn("Metrics {} not registered with JMX", properties, e);
+        }
+    }
+
+    private void unregisterAll() {
+        for (ObjectName name : registered) {
+            try {
+                mBeanServer.unregisterMBean(name);
+            } catch (JMException e) {
+                log.debug("Unregistering {} failed", name, e);
+            }
+        }
+        registered.clear();
+    }
+
+    private void tick() {
+        for (ActorMetrics metrics : actors.values()) {
+            metrics.tick();
+        }
+    }
+
+    private void startHttp(ActorSystem<?> system, String host, int port) {
+        try {
+            HttpServer server = HttpServer.create(new InetSocketAddress(host, port), 0);
+            server.setExecutor(Executors.newSingleThreadExecutor(runnable -> {
+                Thread thread = new Thread(runnable, systemName + "-metrics-http");
+                thread.setDaemon(true);
+                return thread;
+            }));
+            server.createContext("/metrics", exchange -> {
+                byte[] body = render().getBytes(StandardCharsets.UTF_8);
+                exchange.getResponseHeaders().set("Content-Type", "text/plain; version=0.0.4; charset=utf-8");
+                exchange.sendResponseHeaders(200, body.length);
+                try (OutputStream out = exchange.getResponseBody()) {
+                    out.write(body);
+                }
+            });
+            server.start();
+            system.getWhenTerminated().thenRun(() -> server.stop(0));
+            log.info("Metrics served on http://{}:{}/metrics", host, server.getAddress().getPort());
+        } catch (IOException e) {
+            log.warn("Metrics endpoint could not be started on {}:{}", host, port, e);
+        }
+    }
+
+    /**
+     * @return all metrics in the Prometheus text format
+     */
+    public String render() {
+        List<ActorMetrics> sorted = new ArrayList<>(actors.values());
+        sorted.sort((a, b) -> a.getName().compareTo(b.getName()));
+
+        StringBuilder text = new StringBuilder();
+        text.append("# TYPE actor_instances gauge\n");
+        for (ActorMetrics actor : sorted) {
+            line(text, "actor_instances", actor.getName(), null, null, actor.getInstances());
+        }
+        text.append("# TYPE actor_mailbox_depth gauge\n");
+        for (ActorMetrics actor : sorted) {
+            line(text, "actor_mailbox_depth", actor.getName(), null, null, actor.getMailboxDepth());
+        }
+        text.append("# TYPE actor_mailbox_depth_max gauge\n");
+        for (ActorMetrics actor : sorted) {
+            line(text, "actor_mailbox_depth_max", actor.getName(), null, null, actor.getMaxMailboxDepth());
+        }
+        text.append("# TYPE actor_mailbox_dropped_total counter\n");
+        for (ActorMetrics actor : sorted) {
+            line(text, "actor_mailbox_dropped_total", actor.getName(), null, null, actor.getDroppedMessages());
+        }
+        text.append("# TYPE actor_messages_total counter\n");
+        for (ActorMetrics actor : sorted) {
+            for (MessageMetrics message : actor.getMessages()) {
+                line(text, "actor_messages_total", actor.getName(), message.getMessage(), null, message.getCount());
+            }
+        }
+        text.append("# TYPE actor_messages_per_second gauge\n");
+        for (ActorMetrics actor : sorted) {
+            for (MessageMetrics message : actor.getMessages()) {
+                line(text, "actor_messages_per_second", actor.getName(), message.getMessage(), null, message.getOneMinuteRate());
+            }
+        }
+        text.append("# TYPE actor_message_handling_microseconds summary\n");
+        for (ActorMetrics actor : sorted) {
+            for (MessageMetrics message : actor.getMessages()) {
+                line(text, "actor_message_handling_microseconds", actor.getName(), message.getMessage(), "0.5", message.getP50Micros());
+                line(text, "actor_message_handling_microseconds", actor.getName(), message.getMessage(), "0.99", message.getP99Micros());
+                line(text, "actor_message_handling_microseconds", actor.getName(), message.getMessage(), "0.999", message.getP999Micros());
+                line(text, "actor_message_handling_microseconds", actor.getName(), message.getMessage(), "1", message.getMaxMicros());
+            }
+        }
+        List<ValueMetrics> sortedValues = new ArrayList<>(values.values());
+        sortedValues.sort((a, b) -> a.getName().compareTo(b.getName()));
+        for (ValueMetrics value : sortedValues) {
+            text.append("# TYPE ").append(value.getName()).append(' ').append(value.getType()).append('\n');
+            text.append(value.getName()).append(' ').append(value.getValue()).append('\n');
+        }
+        return text.toString();
+    }
+
+    private static void line(StringBuilder text, String metric, String actor, String message, String quantile, double value) {
+        text.append(metric).append("{actor=\"").append(actor).append('"');
+        if (message != null) {
+            text.append(",message=\"").append(message).append('"');
+        }
+        if (quantile != null) {
+            text.append(",quantile=\"").append(quantile).append('"');
+        }
+        text.append("} ");
+        if (value == Math.rint(value) && !Double.isInfinite(value)) {
+            text.append((long) value);
+        } else {
+            text.append(value);
+        }
+        text.append('\n');
+    }
+
+}
@@ -0,0 +1,54 @@
+package at.fhv.sysarch.lab2.homeautomation.metrics;
+
+import akka.actor.typed.Behavior;
+import akka.actor.typed.BehaviorInterceptor;
+import akka.actor.typed.TypedActorContext;
+
+/**
+ * Times how long the intercepted behavior takes to handle each message.
+ * Timer messages reach the interceptor before the timer scheduler has unwrapped them, they are accounted to the
+ * command the scheduler delivered, as reported by a {@link DeliveredMessageInterceptor} below the timers, see
+ * {@link Metrics#withTimers}.
+ */
+final class MetricsInterceptor extends BehaviorInterceptor<Object, Object> {
+
+    // class of the message delivered below the timer scheduler while this thread runs the actor, null if none was
+    private static final ThreadLocal<Class<?>> delivered = new ThreadLocal<>();
+
+    private final ActorMetrics metrics;
+
+    MetricsInterceptor(ActorMetrics metrics) {
+        super(Object.class);
+        this.metrics = metrics;
+    }
+
+    @Override
+    public Behavior<Object> aroundReceive(TypedActorContext<Object> ctx, Object msg, ReceiveTarget<Object> target) {
+        delivered.remove();
+        long start = System.nanoTime();
+        try {
+            return target.apply(ctx, msg);
+        } finally {
+            long nanos = System.nanoTime() - start;
+            Class<?> messageClass = delivered.get();
+            metrics.record(messageClass != null ? messageClass : msg.getClass(), nanos);
+        }
+    }
+
+    /**
+     * Sits below the timer scheduler and reports the class of every message it delivers.
+     */
+    static final class DeliveredMessageInterceptor extends BehaviorInterceptor<Object, Object> {
+
+        DeliveredMessageInterceptor() {
+            super(Object.class);
+        }
+
+        @Override
+        public Behavior<Object> aroundReceive(TypedActorContext<Object> ctx, Object msg, ReceiveTarget<Object> target) {
+            delivered.set(msg.getClass());
+            return target.apply(ctx, msg);
+        }
+    }
+
+}
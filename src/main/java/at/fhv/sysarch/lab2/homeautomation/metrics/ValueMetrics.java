@@ -0,0 +1,43 @@
+package at.fhv.sysarch.lab2.homeautomation.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A number that is not about messages, e.g. the orders in flight, shared by all actors updating it. Counters only
+ * grow, gauges go up and down.
+ */
+public final class ValueMetrics implements ValueMetricsMXBean {
+
+    private final String name;
+    private final String type;
+    private final LongAdder value = new LongAdder();
+
+    ValueMetrics(String name, String type) {
+        this.name = name;
+        this.type = type;
+    }
+
+    public void increment() {
+        value.increment();
+    }
+
+    public void add(long delta) {
+        value.add(delta);
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public String getType() {
+        return type;
+    }
+
+    @Override
+    public long getValue() {
+        return value.sum();
+    }
+
+}
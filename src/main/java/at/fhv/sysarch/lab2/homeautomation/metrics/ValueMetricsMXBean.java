@@ -0,0 +1,14 @@
+package at.fhv.sysarch.lab2.homeautomation.metrics;
+
+public interface ValueMetricsMXBean {
+
+    String getName();
+
+    /**
+     * @return {@code counter} or {@code gauge}
+     */
+    String getType();
+
+    long getValue();
+
+}
@@ -0,0 +1,111 @@
+package at.fhv.sysarch.lab2.homeautomation.output;
+
+import akka.actor.typed.ActorRef;
+import akka.actor.typed.ActorSystem;
+import akka.actor.typed.DispatcherSelector;
+import akka.actor.typed.Extension;
+import akka.actor.typed.ExtensionId;
+import com.typesafe.config.Config;
+
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Console output of the devices, configured by {@code homeautomation.output}. In {@code async} mode lines are queued
+ * for an {@link OutputSink} running on its own dispatcher, in {@code direct} mode they are printed right away by the
+ * caller.
+ */
+public class Console implements Extension {
+
+    public static class Id extends ExtensionId<Console> {
+
+        private static final Id instance = new Id();
+
+        private Id() {
+        }
+
+        @Override
+        public Console createExtension(ActorSystem<?> system) {
+            return new Console(system, system.settings().config().getConfig("homeautomation.output"));
+        }
+
+        public static Console get(ActorSystem<?> system) {
+            return instance.apply(system);
+        }
+    }
+
+    public static Console get(ActorSystem<?> system) {
+        return Id.get(system);
+    }
+
+    private final OutputQueue queue;
+    private final ActorRef<OutputSink.OutputCommand> sink;
+
+    private Console(ActorSystem<?> system, Config config) {
+        if (config.getString("mode").equals("direct")) {
+            this.queue = null;
+            this.sink = null;
+        } else {
+            this.queue = new OutputQueue(config.getInt("batch-size"), config.getInt("max-pending"));
+            this.sink = system.systemActorOf(
+                    OutputSink.create(
+                            queue,
+                            openTarget(config.getString("target")),
+                            config.getDuration("flush-interval")
+                    ),
+                    "output",
+                    DispatcherSelector.fromConfig("homeautomation.output.dispatcher")
+            );
+        }
+    }
+
+    private static WritableByteChannel openTarget(String target) {
+        switch (target) {
+            case "stdout":
+                return new FileOutputStream(FileDescriptor.out).getChannel();
+            case "system-out":
+                // whatever System.out is at startup, e.g. when it was redirected
+                return Channels.newChannel(System.out);
+            case "none":
+                return Channels.newChannel(OutputStream.nullOutputStream());
+            default:
+                try {
+                    return FileChannel.open(Paths.get(target), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+                } catch (IOException e) {
+                    throw new UncheckedIOException("Cannot open output target " + target, e);
+                }
+        }
+    }
+
+    /**
+     * Prints a line that must not be conflated with others, e.g. a receipt.
+     */
+    public void println(String text) {
+        print(null, text);
+    }
+
+    /**
+     * Prints the latest state of something, e.g. the current temperature. When output is saturated only the latest
+     * line of every key is printed.
+     */
+    public void update(String key, String text) {
+        print(key, text);
+    }
+
+    private void print(String key, String text) {
+        if (sink == null) {
+            System.out.println(text);
+        } else if (queue.offer(key, text)) {
+            sink.tell(OutputSink.FlushCommand.INSTANCE);
+        }
+    }
+
+}
@@ -0,0 +1,72 @@
+package at.fhv.sysarch.lab2.homeautomation.output;
+
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Lines waiting for the {@link OutputSink}, handed over without waking the sink for every line. Holds at most
+ * {@code maxPending} lines. When full, a line with a key replaces the previous overflowing line of that key, so the
+ * latest state still gets printed, and other lines are dropped.
+ */
+final class OutputQueue {
+
+    private final Queue<String> lines = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger size = new AtomicInteger();
+    private final Map<String, String> overflow = new ConcurrentHashMap<>();
+    private final AtomicLong dropped = new AtomicLong();
+
+    private final int batchSize;
+    private final int maxPending;
+
+    OutputQueue(int batchSize, int maxPending) {
+        this.batchSize = batchSize;
+        this.maxPending = Math.max(batchSize, maxPending);
+    }
+
+    /**
+     * @return true if this line completed a batch, the sink should be told to write it
+     */
+    boolean offer(String key, String text) {
+        int pending = size.incrementAndGet();
+        if (pending > maxPending) {
+            size.decrementAndGet();
+            if (key != null) {
+                overflow.put(key, text);
+            } else {
+                dropped.incrementAndGet();
+            }
+            return false;
+        }
+
+        lines.offer(text);
+        return pending == batchSize;
+    }
+
+    /**
+     * Hands every pending line to {@code consumer}, in the order they were offered, followed by the latest
+     * overflowing line of every key.
+     *
+     * @return number of lines dropped since the last drain
+     */
+    long drain(Consumer<String> consumer) {
+        String line;
+        while ((line = lines.poll()) != null) {
+            size.decrementAndGet();
+            consumer.accept(line);
+        }
+
+        for (Map.Entry<String, String> latest : overflow.entrySet()) {
+            consumer.accept(latest.getValue());
+            // keeps a newer line put in the meantime
+            overflow.remove(latest.getKey(), latest.getValue());
+        }
+
+        return dropped.getAndSet(0);
+    }
+
+}
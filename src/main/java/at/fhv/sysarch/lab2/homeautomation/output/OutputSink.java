@@ -0,0 +1,130 @@
+package at.fhv.sysarch.lab2.homeautomation.output;
+
+import akka.actor.typed.Behavior;
+import akka.actor.typed.PostStop;
+import akka.actor.typed.javadsl.AbstractBehavior;
+import akka.actor.typed.javadsl.ActorContext;
+import akka.actor.typed.javadsl.Behaviors;
+import akka.actor.typed.javadsl.Receive;
+import akka.actor.typed.javadsl.TimerScheduler;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+
+/**
+ * Writes the console output of the devices in batches through one channel, so the devices never block on the
+ * console themselves. Lines are taken from an {@link OutputQueue} every flush interval, or as soon as a batch is
+ * complete. If the console can't keep up, the queue fills up and conflates or drops lines; the number of dropped
+ * lines is printed with the next batch.
+ */
+public class OutputSink extends AbstractBehavior<OutputSink.OutputCommand> {
+
+    public interface OutputCommand {
+    }
+
+    public static final class FlushCommand implements OutputCommand {
+        public static final FlushCommand INSTANCE = new FlushCommand();
+
+        private FlushCommand() {
+        }
+    }
+
+    static Behavior<OutputCommand> create(
+            OutputQueue queue,
+            WritableByteChannel channel,
+            Duration flushInterval
+    ) {
+        return Behaviors.setup(context -> Behaviors.withTimers(timers -> new OutputSink(context, timers, queue, channel, flushInterval)));
+    }
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final OutputQueue queue;
+    private final WritableByteChannel channel;
+
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    private final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder();
+    private boolean failed;
+
+    private OutputSink(
+            ActorContext<OutputCommand> context,
+            TimerScheduler<OutputCommand> timers,
+            OutputQueue queue,
+            WritableByteChannel channel,
+            Duration flushInterval
+    ) {
+        super(context);
+
+        this.queue = queue;
+        this.channel = channel;
+
+        timers.startTimerWithFixedDelay(FlushCommand.INSTANCE, flushInterval);
+    }
+
+    @Override
+    public Receive<OutputCommand> createReceive() {
+        return newReceiveBuilder()
+                .onMessage(FlushCommand.class, c -> onFlush())
+                .onSignal(PostStop.class, signal -> onPostStop())
+                .build();
+    }
+
+    private Behavior<OutputCommand> onFlush() {
+        flush();
+        return this;
+    }
+
+    private void flush() {
+        try {
+            long dropped = queue.drain(this::writeLine);
+            if (dropped > 0) {
+                writeLine("[output saturated, " + dropped + " lines dropped]");
+            }
+            drain();
+        } catch (IOException | UncheckedIOException e) {
+            if (!failed) {
+                getContext().getLog().error("Writing output failed, output is discarded", e);
+                failed = true;
+            }
+            buffer.clear();
+        }
+    }
+
+    private void writeLine(String line) {
+        try {
+            write(line);
+            write("\n");
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void write(String text) throws IOException {
+        CharBuffer chars = CharBuffer.wrap(text);
+        encoder.reset();
+        while (encoder.encode(chars, buffer, true) == CoderResult.OVERFLOW) {
+            drain();
+        }
+    }
+
+    private void drain() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    private OutputSink onPostStop() {
+        flush();
+        return this;
+    }
+
+}
@@ -0,0 +1,42 @@
+package at.fhv.sysarch.lab2.homeautomation.persistence;
+
+import java.io.Closeable;
+import java.nio.ByteBuffer;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Event journal plus snapshot of a single device. A device replays its state once on start with {@link #recover}
+ * and then persists an event for every state change. Every so many events the store asks the device for a compact
+ * snapshot of its state and drops the events the snapshot covers, so recovery never has to replay more than a short
+ * tail of events.
+ *
+ * Failing to write throws an {@link java.io.UncheckedIOException}, which stops the device rather than letting it
+ * continue with state that would be lost on restart.
+ */
+public interface DeviceStore extends Closeable {
+
+    /**
+     * @return the sequence number of the last recovered event or snapshot, -1 if the store was empty. A snapshot saved
+     * before the first event, e.g. of the initial state, is recovered at 0.
+     */
+    long recover(Consumer<ByteBuffer> snapshotHandler, Consumer<ByteBuffer> eventHandler);
+
+    /**
+     * @param snapshot state of the device after the event, only called if a snapshot is due
+     */
+    void persist(byte[] event, Supplier<byte[]> snapshot);
+
+    void saveSnapshot(byte[] snapshot);
+
+    @Override
+    void close();
+
+    /**
+     * @return a store that keeps nothing, for devices running without persistence
+     */
+    static DeviceStore disabled() {
+        return DisabledDeviceStore.INSTANCE;
+    }
+
+}
@@ -0,0 +1,65 @@
+package at.fhv.sysarch.lab2.homeautomation.persistence;
+
+import akka.actor.typed.ActorSystem;
+import akka.actor.typed.Extension;
+import akka.actor.typed.ExtensionId;
+import com.typesafe.config.Config;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Hands out the {@link DeviceStore} of a device, configured by {@code homeautomation.persistence}. With persistence
+ * disabled every device gets a store that keeps nothing.
+ */
+public class DeviceStores implements Extension {
+
+    public static class Id extends ExtensionId<DeviceStores> {
+
+        private static final Id instance = new Id();
+
+        private Id() {
+        }
+
+        @Override
+        public DeviceStores createExtension(ActorSystem<?> system) {
+            return new DeviceStores(system.settings().config().getConfig("homeautomation.persistence"));
+        }
+
+        public static DeviceStores get(ActorSystem<?> system) {
+            return instance.apply(system);
+        }
+    }
+
+    public static DeviceStores get(ActorSystem<?> system) {
+        return Id.get(system);
+    }
+
+    private final boolean enabled;
+    private final Path directory;
+    private final int snapshotEvery;
+
+    private DeviceStores(Config config) {
+        this.enabled = config.getBoolean("enabled");
+        this.directory = Paths.get(config.getString("directory"));
+        this.snapshotEvery = config.getInt("snapshot-every");
+    }
+
+    /**
+     * @param persistenceId unique id of the device, used as file name
+     */
+    public DeviceStore open(String persistenceId) {
+        if (!enabled) {
+            return DeviceStore.disabled();
+        }
+
+        try {
+            return FileDeviceStore.open(directory, persistenceId, snapshotEvery);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot open store of " + persistenceId, e);
+        }
+    }
+
+}
@@ -0,0 +1,31 @@
+package at.fhv.sysarch.lab2.homeautomation.persistence;
+
+import java.nio.ByteBuffer;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+final class DisabledDeviceStore implements DeviceStore {
+
+    static final DisabledDeviceStore INSTANCE = new DisabledDeviceStore();
+
+    private DisabledDeviceStore() {
+    }
+
+    @Override
+    public long recover(Consumer<ByteBuffer> snapshotHandler, Consumer<ByteBuffer> eventHandler) {
+        return -1;
+    }
+
+    @Override
+    public void persist(byte[] event, Supplier<byte[]> snapshot) {
+    }
+
+    @Override
+    public void saveSnapshot(byte[] snapshot) {
+    }
+
+    @Override
+    public void close() {
+    }
+
+}
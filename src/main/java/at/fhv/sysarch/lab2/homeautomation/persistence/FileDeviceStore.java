@@ -0,0 +1,185 @@
+package at.fhv.sysarch.lab2.homeautomation.persistence;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.zip.CRC32;
+
+/**
+ * {@link DeviceStore} keeping two files per device:
+ *
+ * <pre>
+ * &lt;id&gt;.journal:  { seqNr (long) | length (int) | event bytes | crc32 (int) }*
+ * &lt;id&gt;.snapshot: seqNr (long) | length (int) | snapshot bytes | crc32 (int)
+ * </pre>
+ *
+ * A snapshot is written to a temporary file and moved over the previous one before the journal is truncated, so a
+ * crash in between leaves events that recovery skips by their sequence number. A torn record at the end of the
+ * journal is cut off on recovery.
+ */
+final class FileDeviceStore implements DeviceStore {
+
+    private static final int RECORD_OVERHEAD = 8 + 4 + 4;
+
+    private final String persistenceId;
+    private final Path journalFile;
+    private final Path snapshotFile;
+    private final int snapshotEvery;
+    private final FileChannel journal;
+    private final CRC32 crc = new CRC32();
+
+    private long seqNr;
+    private int eventsSinceSnapshot;
+
+    private FileDeviceStore(String persistenceId, Path journalFile, Path snapshotFile, int snapshotEvery, FileChannel journal) {
+        this.persistenceId = persistenceId;
+        this.journalFile = journalFile;
+        this.snapshotFile = snapshotFile;
+        this.snapshotEvery = snapshotEvery;
+        this.journal = journal;
+    }
+
+    static FileDeviceStore open(Path directory, String persistenceId, int snapshotEvery) throws IOException {
+        Files.createDirectories(directory);
+        Path journalFile = directory.resolve(persistenceId + ".journal");
+        Path snapshotFile = directory.resolve(persistenceId + ".snapshot");
+        FileChannel journal = FileChannel.open(journalFile, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        return new FileDeviceStore(persistenceId, journalFile, snapshotFile, snapshotEvery, journal);
+    }
+
+    @Override
+    public long recover(Consumer<ByteBuffer> snapshotHandler, Consumer<ByteBuffer> eventHandler) {
+        try {
+            boolean recovered = false;
+            if (Files.exists(snapshotFile)) {
+                ByteBuffer snapshot = ByteBuffer.wrap(Files.readAllBytes(snapshotFile));
+                ByteBuffer payload = readRecord(snapshot);
+                if (payload == null) {
+                    throw new IOException("Corrupt snapshot " + snapshotFile);
+                }
+                seqNr = snapshot.getLong(0);
+                snapshotHandler.accept(payload);
+                recovered = true;
+            }
+
+            ByteBuffer events = ByteBuffer.allocate((int) journal.size());
+            while (events.hasRemaining() && journal.read(events, events.position()) > 0) {
+                // read the whole journal, it only holds the events since the last snapshot
+            }
+            events.flip();
+
+            long validLength = 0;
+            while (events.hasRemaining()) {
+                int start = events.position();
+                ByteBuffer payload = readRecord(events);
+                if (payload == null) {
+                    break;
+                }
+                validLength = events.position();
+                long eventSeqNr = events.getLong(start);
+                if (eventSeqNr > seqNr) {
+                    seqNr = eventSeqNr;
+                    eventsSinceSnapshot++;
+                    eventHandler.accept(payload);
+                    recovered = true;
+                }
+            }
+
+            journal.truncate(validLength);
+            journal.position(validLength);
+            return recovered ? seqNr : -1;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Recovery of " + persistenceId + " failed", e);
+        }
+    }
+
+    @Override
+    public void persist(byte[] event, Supplier<byte[]> snapshot) {
+        try {
+            seqNr++;
+            ByteBuffer record = writeRecord(seqNr, event);
+            while (record.hasRemaining()) {
+                journal.write(record);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Persisting event " + seqNr + " of " + persistenceId + " failed", e);
+        }
+
+        if (++eventsSinceSnapshot >= snapshotEvery) {
+            saveSnapshot(snapshot.get());
+        }
+    }
+
+    @Override
+    public void saveSnapshot(byte[] snapshot) {
+        try {
+            Path temporary = snapshotFile.resolveSibling(snapshotFile.getFileName() + ".tmp");
+            try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                ByteBuffer record = writeRecord(seqNr, snapshot);
+                while (record.hasRemaining()) {
+                    channel.write(record);
+                }
+                channel.force(true);
+            }
+            Files.move(temporary, snapshotFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+            journal.truncate(0);
+            journal.position(0);
+            eventsSinceSnapshot = 0;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Snapshot of " + persistenceId + " at " + seqNr + " failed", e);
+        }
+    }
+
+    @Override
+    public void close() {
+        try {
+            journal.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Closing " + journalFile + " failed", e);
+        }
+    }
+
+    private ByteBuffer writeRecord(long seqNr, byte[] payload) {
+        crc.reset();
+        crc.update(payload);
+
+        ByteBuffer record = ByteBuffer.allocate(RECORD_OVERHEAD + payload.length);
+        record.putLong(seqNr).putInt(payload.length).put(payload).putInt((int) crc.getValue());
+        return record.flip();
+    }
+
+    /**
+     * @return the payload of the record at the buffer's position, or null if it is incomplete or damaged
+     */
+    private ByteBuffer readRecord(ByteBuffer buffer) {
+        int start = buffer.position();
+        if (buffer.remaining() < RECORD_OVERHEAD) {
+            return null;
+        }
+        int length = buffer.getInt(start + 8);
+        if (length < 0 || buffer.remaining() < RECORD_OVERHEAD + length) {
+            return null;
+        }
+
+        ByteBuffer payload = buffer.duplicate();
+        payload.limit(start + 12 + length).position(start + 12);
+        payload = payload.slice();
+        crc.reset();
+        crc.update(payload.duplicate());
+        if ((int) crc.getValue() != buffer.getInt(start + 12 + length)) {
+            return null;
+        }
+
+        buffer.position(start + RECORD_OVERHEAD + length);
+        return payload;
+    }
+
+}
@@ -0,0 +1,37 @@
+package at.fhv.sysarch.lab2.homeautomation.rules;
+
+/**
+ * What a rule does when its condition holds. Each action belongs to one device, and the sensor that device is
+ * driven by is the only one its rules may read.
+ */
+public enum Action {
+    AIR_CONDITION_ON(Device.AIR_CONDITION),
+    AIR_CONDITION_OFF(Device.AIR_CONDITION),
+    BLINDS_OPEN(Device.BLINDS),
+    BLINDS_CLOSE(Device.BLINDS),
+    FRIDGE_ORDER(Device.FRIDGE);
+
+    public enum Device {
+        AIR_CONDITION(Sensor.TEMPERATURE), BLINDS(Sensor.WEATHER), FRIDGE(Sensor.STOCK);
+
+        private final Sensor sensor;
+
+        Device(Sensor sensor) {
+            this.sensor = sensor;
+        }
+
+        public Sensor getSensor() {
+            return sensor;
+        }
+    }
+
+    private final Device device;
+
+    Action(Device device) {
+        this.device = device;
+    }
+
+    public Device getDevice() {
+        return device;
+    }
+}
@@ -0,0 +1,72 @@
+package at.fhv.sysarch.lab2.homeautomation.rules;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The rules of one sensor compiled into a lookup by value. The bounds of all rules split the values into regions:
+ * below the first bound, each bound itself and each gap between two bounds, up to above the last bound. Every value
+ * of a region matches the same rules, so a lookup is a binary search for the region and touches no rule that
+ * doesn't match.
+ */
+final class DecisionTable {
+
+    private static final Rule[] NONE = new Rule[0];
+
+    // sorted, distinct and finite
+    private final double[] bounds;
+    // region 2i is below bounds[i], region 2i + 1 is bounds[i] itself, region 2 * bounds.length is above all
+    private final Rule[][] regions;
+
+    /**
+     * @param rules in the order they were defined, matches keep that order
+     */
+    DecisionTable(List<Rule> rules) {
+        this.bounds = rules.stream()
+                .flatMapToDouble(rule -> Arrays.stream(new double[]{rule.getLower(), rule.getUpper()}))
+                .filter(Double::isFinite)
+                .sorted()
+                .distinct()
+                .toArray();
+
+        List<List<Rule>> matching = new ArrayList<>();
+        for (int region = 0; region <= 2 * bounds.length; region++) {
+            matching.add(new ArrayList<>());
+        }
+        for (Rule rule : rules) {
+            for (int region = firstRegion(rule); region <= lastRegion(rule); region++) {
+                matching.get(region).add(rule);
+            }
+        }
+        this.regions = matching.stream().map(list -> list.isEmpty() ? NONE : list.toArray(NONE)).toArray(Rule[][]::new);
+    }
+
+    /**
+     * @return the rules matching {@code value}, in the order they were defined; must not be changed
+     */
+    Rule[] match(double value) {
+        if (Double.isNaN(value)) {
+            return NONE;
+        }
+        int index = Arrays.binarySearch(bounds, value);
+        return regions[index >= 0 ? 2 * index + 1 : 2 * (-index - 1)];
+    }
+
+    private int firstRegion(Rule rule) {
+        if (rule.getLower() == Double.NEGATIVE_INFINITY) {
+            return 0;
+        }
+        int index = Arrays.binarySearch(bounds, rule.getLower());
+        return rule.isLowerInclusive() ? 2 * index + 1 : 2 * index + 2;
+    }
+
+    private int lastRegion(Rule rule) {
+        if (rule.getUpper() == Double.POSITIVE_INFINITY) {
+            return 2 * bounds.length;
+        }
+        int index = Arrays.binarySearch(bounds, rule.getUpper());
+        return rule.isUpperInclusive() ? 2 * index + 1 : 2 * index;
+    }
+
+}
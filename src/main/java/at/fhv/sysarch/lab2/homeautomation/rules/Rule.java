@@ -0,0 +1,84 @@
+package at.fhv.sysarch.lab2.homeautomation.rules;
+
+/**
+ * If the value of {@link #getSensor()} lies within the range of the rule, do {@link #getAction()}. The range is
+ * bounded by {@link Double#NEGATIVE_INFINITY} and {@link Double#POSITIVE_INFINITY} where the rule has no bound.
+ */
+public final class Rule {
+
+    private final String name;
+    private final String home;
+    private final Sensor sensor;
+    private final double lower;
+    private final boolean lowerInclusive;
+    private final double upper;
+    private final boolean upperInclusive;
+    private final Action action;
+
+    /**
+     * @param home id of the home the rule applies to, null for every home
+     */
+    public Rule(String name, String home, Sensor sensor, double lower, boolean lowerInclusive, double upper, boolean upperInclusive, Action action) {
+        if (action.getDevice().getSensor() != sensor) {
+            throw new IllegalArgumentException("Rule " + name + ": " + action + " can only depend on " + action.getDevice().getSensor());
+        }
+        this.name = name;
+        this.home = home;
+        this.sensor = sensor;
+        this.lower = lower;
+        this.lowerInclusive = lowerInclusive && lower != Double.NEGATIVE_INFINITY;
+        this.upper = upper;
+        this.upperInclusive = upperInclusive && upper != Double.POSITIVE_INFINITY;
+        this.action = action;
+    }
+
+    public boolean matches(double value) {
+        return (lowerInclusive ? value >= lower : value > lower) && (upperInclusive ? value <= upper : value < upper);
+    }
+
+    /**
+     * @return true if no value can match
+     */
+    public boolean isEmpty() {
+        return lower > upper || (lower == upper && !(lowerInclusive && upperInclusive));
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getHome() {
+        return home;
+    }
+
+    public Sensor getSensor() {
+        return sensor;
+    }
+
+    public double getLower() {
+        return lower;
+    }
+
+    public boolean isLowerInclusive() {
+        return lowerInclusive;
+    }
+
+    public double getUpper() {
+        return upper;
+    }
+
+    public boolean isUpperInclusive() {
+        return upperInclusive;
+    }
+
+    public Action getAction() {
+        return action;
+    }
+
+    @Override
+    public String toString() {
+        return name + ": " + (home == null ? "" : "for " + home + " ") + sensor + " in "
+                + (lowerInclusive ? "[" : "(") + lower + ", " + upper + (upperInclusive ? "]" : ")") + " -> " + action;
+    }
+
+}
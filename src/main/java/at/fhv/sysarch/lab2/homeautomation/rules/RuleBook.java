@@ -0,0 +1,124 @@
+package at.fhv.sysarch.lab2.homeautomation.rules;
+
+import akka.actor.typed.ActorSystem;
+import akka.actor.typed.Extension;
+import akka.actor.typed.ExtensionId;
+import com.typesafe.config.Config;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * The automation rules of all homes, loaded from {@code homeautomation.rules.file} (see {@link RuleParser} for the
+ * format) or the bundled {@code rules.txt}. They are compiled into one {@link DecisionTable} per home and sensor, so
+ * deciding about a reading only looks at the rules of that home and sensor matching its value, no matter how many
+ * rules there are.
+ * <p>
+ * Rules for a home take precedence over rules for every home. Among the rules that match, the one defined last wins.
+ */
+public final class RuleBook implements Extension {
+
+    public static class Id extends ExtensionId<RuleBook> {
+
+        private static final Id instance = new Id();
+
+        private Id() {
+        }
+
+        @Override
+        public RuleBook createExtension(ActorSystem<?> system) {
+            return load(system.settings().config().getConfig("homeautomation.rules"));
+        }
+
+        public static RuleBook get(ActorSystem<?> system) {
+            return instance.apply(system);
+        }
+    }
+
+    public static RuleBook get(ActorSystem<?> system) {
+        return Id.get(system);
+    }
+
+    private static final String BUNDLED = "rules.txt";
+
+    private final Map<Sensor, DecisionTable> everyHome;
+    private final Map<String, Map<Sensor, DecisionTable>> homes;
+    private final List<Rule> rules;
+
+    private RuleBook(List<Rule> rules) {
+        this.rules = Collections.unmodifiableList(new ArrayList<>(rules));
+        this.everyHome = compile(rules.stream().filter(rule -> rule.getHome() == null).collect(Collectors.toList()));
+        this.homes = new HashMap<>();
+        rules.stream()
+                .filter(rule -> rule.getHome() != null)
+                .collect(Collectors.groupingBy(Rule::getHome))
+                .forEach((home, homeRules) -> homes.put(home, compile(homeRules)));
+    }
+
+    public static RuleBook of(List<Rule> rules) {
+        return new RuleBook(rules);
+    }
+
+    static RuleBook load(Config config) {
+        String file = config.hasPath("file") ? config.getString("file") : null;
+        try (InputStream in = file != null ? Files.newInputStream(Paths.get(file)) : RuleBook.class.getClassLoader().getResourceAsStream(BUNDLED)) {
+            if (in == null) {
+                throw new IllegalStateException(BUNDLED + " is missing from the classpath");
+            }
+            Reader reader = new InputStreamReader(in, StandardCharsets.UTF_8);
+            return new RuleBook(RuleParser.parse(reader, file != null ? file : BUNDLED));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot read rules from " + (file != null ? file : BUNDLED), e);
+        }
+    }
+
+    private static Map<Sensor, DecisionTable> compile(List<Rule> rules) {
+        Map<Sensor, DecisionTable> tables = new EnumMap<>(Sensor.class);
+        rules.stream()
+                .collect(Collectors.groupingBy(Rule::getSensor))
+                .forEach((sensor, sensorRules) -> tables.put(sensor, new DecisionTable(sensorRules)));
+        return tables;
+    }
+
+    /**
+     * @param home  id of the home the reading is from, the group id of its devices
+     * @param value reading of the sensor {@code device} depends on
+     * @return what the rules want {@code device} to do, null if no rule matches
+     */
+    public Action decide(String home, Action.Device device, double value) {
+        Action action = decide(homes.get(home), device, value);
+        return action != null ? action : decide(everyHome, device, value);
+    }
+
+    private static Action decide(Map<Sensor, DecisionTable> tables, Action.Device device, double value) {
+        DecisionTable table = tables != null ? tables.get(device.getSensor()) : null;
+        if (table == null) {
+            return null;
+        }
+        Rule[] matching = table.match(value);
+        for (int i = matching.length - 1; i >= 0; i--) {
+            if (matching[i].getAction().getDevice() == device) {
+                return matching[i].getAction();
+            }
+        }
+        return null;
+    }
+
+    public List<Rule> getRules() {
+        return rules;
+    }
+
+}
@@ -0,0 +1,176 @@
+package at.fhv.sysarch.lab2.homeautomation.rules;
+
+import at.fhv.sysarch.lab2.homeautomation.domain.enums.WeatherCondition;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Reads rules, one per line:
+ * <pre>
+ * # comment
+ * name: [for home] when sensor op value [and sensor op value]... then device state
+ * </pre>
+ * The sensors are {@code temperature} (degrees Celsius), {@code weather} ({@code sunny}, {@code cloudy}) and
+ * {@code stock}, the operators {@code <}, {@code <=}, {@code ==}, {@code >=} and {@code >}. A rule only depends on
+ * one sensor, several conditions narrow its range. The actions are {@code aircondition on|off} for temperatures,
+ * {@code blinds open|close} for the weather and {@code fridge order} for the stock.
+ * <p>
+ * Rules without {@code for} apply to every home.
+ */
+public final class RuleParser {
+
+    private RuleParser() {
+    }
+
+    /**
+     * @param source where the rules come from, for error messages
+     * @throws IllegalArgumentException at the first line that is not a valid rule
+     */
+    public static List<Rule> parse(Reader reader, String source) throws IOException {
+        List<Rule> rules = new ArrayList<>();
+        BufferedReader lines = new BufferedReader(reader);
+        String line;
+        for (int number = 1; (line = lines.readLine()) != null; number++) {
+            int comment = line.indexOf('#');
+            String text = (comment >= 0 ? line.substring(0, comment) : line).trim();
+            if (text.isEmpty()) {
+                continue;
+            }
+            try {
+                rules.add(parseRule(text));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException(source + ":" + number + ": " + e.getMessage(), e);
+            }
+        }
+        return rules;
+    }
+
+    static Rule parseRule(String text) {
+        int colon = text.indexOf(':');
+        if (colon <= 0) {
+            throw new IllegalArgumentException("expected 'name: ...'");
+        }
+        String name = text.substring(0, colon).trim();
+        String[] tokens = text.substring(colon + 1).trim().split("\\s+");
+        int i = 0;
+
+        String home = null;
+        if (tokens[i].equals("for")) {
+            home = token(tokens, i + 1, "home");
+            i += 2;
+        }
+        expect(tokens, i++, "when");
+
+        Sensor sensor = null;
+        double lower = Double.NEGATIVE_INFINITY;
+        boolean lowerInclusive = false;
+        double upper = Double.POSITIVE_INFINITY;
+        boolean upperInclusive = false;
+        while (true) {
+            Sensor conditionSensor = sensor(token(tokens, i, "sensor"));
+            if (sensor != null && conditionSensor != sensor) {
+                throw new IllegalArgumentException("all conditions of a rule have to read the same sensor");
+            }
+            sensor = conditionSensor;
+            String op = token(tokens, i + 1, "operator");
+            if (!op.matches("[<>]=?|==")) {
+                throw new IllegalArgumentException("unknown operator '" + op + "'");
+            }
+            double value = value(sensor, token(tokens, i + 2, "value"));
+            i += 3;
+
+            // narrow the range, a bound replaces a looser one
+            if (op.equals(">") || op.equals(">=") || op.equals("==")) {
+                boolean inclusive = !op.equals(">");
+                if (value > lower || (value == lower && !inclusive)) {
+                    lower = value;
+                    lowerInclusive = inclusive;
+                }
+            }
+            if (op.equals("<") || op.equals("<=") || op.equals("==")) {
+                boolean inclusive = !op.equals("<");
+                if (value < upper || (value == upper && !inclusive)) {
+                    upper = value;
+                    upperInclusive = inclusive;
+                }
+            }
+
+            if (i < tokens.length && tokens[i].equals("and")) {
+                i++;
+            } else {
+                break;
+            }
+        }
+
+        expect(tokens, i++, "then");
+        Action action = action(token(tokens, i, "device"), token(tokens, i + 1, "state"));
+        if (i + 2 < tokens.length) {
+            throw new IllegalArgumentException("unexpected '" + tokens[i + 2] + "'");
+        }
+
+        Rule rule = new Rule(name, home, sensor, lower, lowerInclusive, upper, upperInclusive, action);
+        if (rule.isEmpty()) {
+            throw new IllegalArgumentException("the conditions never hold together");
+        }
+        return rule;
+    }
+
+    private static String token(String[] tokens, int index, String expected) {
+        if (index >= tokens.length || tokens[index].isEmpty()) {
+            throw new IllegalArgumentException("missing " + expected);
+        }
+        return tokens[index];
+    }
+
+    private static void expect(String[] tokens, int index, String keyword) {
+        if (!token(tokens, index, "'" + keyword + "'").equals(keyword)) {
+            throw new IllegalArgumentException("expected '" + keyword + "' instead of '" + tokens[index] + "'");
+        }
+    }
+
+    private static Sensor sensor(String token) {
+        try {
+            return Sensor.valueOf(token.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("unknown sensor '" + token + "'");
+        }
+    }
+
+    private static double value(Sensor sensor, String token) {
+        if (sensor == Sensor.WEATHER) {
+            try {
+                return WeatherCondition.valueOf(token.toUpperCase(Locale.ROOT)).ordinal();
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("unknown weather '" + token + "'");
+            }
+        }
+        try {
+            return Double.parseDouble(token);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("'" + token + "' is not a number");
+        }
+    }
+
+    private static Action action(String device, String state) {
+        switch (device + " " + state) {
+            case "aircondition on":
+                return Action.AIR_CONDITION_ON;
+            case "aircondition off":
+                return Action.AIR_CONDITION_OFF;
+            case "blinds open":
+                return Action.BLINDS_OPEN;
+            case "blinds close":
+                return Action.BLINDS_CLOSE;
+            case "fridge order":
+                return Action.FRIDGE_ORDER;
+            default:
+                throw new IllegalArgumentException("unknown action '" + device + " " + state + "'");
+        }
+    }
+
+}
@@ -0,0 +1,10 @@
+package at.fhv.sysarch.lab2.homeautomation.rules;
+
+/**
+ * What a rule condition reads. Temperatures are in degrees Celsius, the weather is the ordinal of the
+ * {@link at.fhv.sysarch.lab2.homeautomation.domain.enums.WeatherCondition} and the stock is the number of items of
+ * the product just consumed left in the fridge.
+ */
+public enum Sensor {
+    TEMPERATURE, WEATHER, STOCK
+}
@@ -0,0 +1,99 @@
+package at.fhv.sysarch.lab2.homeautomation.simulation;
+
+import akka.actor.typed.ActorSystem;
+import akka.actor.typed.Extension;
+import akka.actor.typed.ExtensionId;
+import com.typesafe.config.Config;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+
+/**
+ * The time devices stamp their readings and orders with. That is the wall clock, except in simulation mode
+ * ({@code homeautomation.simulation.enabled}), where it is the virtual time of the {@link SimulationScheduler}
+ * counted from {@code homeautomation.simulation.start}, in UTC. It only moves when the {@link Simulation} advances it.
+ */
+public class DeviceClock implements Extension {
+
+    public static class Id extends ExtensionId<DeviceClock> {
+
+        private static final Id instance = new Id();
+
+        private Id() {
+        }
+
+        @Override
+        public DeviceClock createExtension(ActorSystem<?> system) {
+            return new DeviceClock(system);
+        }
+
+        public static DeviceClock get(ActorSystem<?> system) {
+            return instance.apply(system);
+        }
+    }
+
+    public static DeviceClock get(ActorSystem<?> system) {
+        return Id.get(system);
+    }
+
+    private final Clock clock;
+
+    private DeviceClock(ActorSystem<?> system) {
+        Config config = system.settings().config().getConfig("homeautomation.simulation");
+        if (config.getBoolean("enabled")) {
+            long start = Instant.parse(config.getString("start")).toEpochMilli();
+            this.clock = new VirtualClock(start, (SimulationScheduler) system.classicSystem().scheduler(), ZoneOffset.UTC);
+        } else {
+            this.clock = Clock.systemDefaultZone();
+        }
+    }
+
+    public long millis() {
+        return clock.millis();
+    }
+
+    public LocalDateTime now() {
+        return LocalDateTime.now(clock);
+    }
+
+    public Clock getClock() {
+        return clock;
+    }
+
+    private static final class VirtualClock extends Clock {
+
+        private final long start;
+        private final SimulationScheduler scheduler;
+        private final ZoneId zone;
+
+        private VirtualClock(long start, SimulationScheduler scheduler, ZoneId zone) {
+            this.start = start;
+            this.scheduler = scheduler;
+            this.zone = zone;
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return zone;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return new VirtualClock(start, scheduler, zone);
+        }
+
+        @Override
+        public long millis() {
+            return start + scheduler.now();
+        }
+
+        @Override
+        public Instant instant() {
+            return Instant.ofEpochMilli(millis());
+        }
+    }
+
+}
@@ -0,0 +1,109 @@
+package at.fhv.sysarch.lab2.homeautomation.simulation;
+
+import akka.actor.typed.ActorRef;
+import akka.actor.typed.ActorSystem;
+import akka.actor.typed.Behavior;
+import akka.actor.typed.javadsl.Adapter;
+import akka.actor.typed.javadsl.AskPattern;
+import com.typesafe.config.Config;
+import com.typesafe.config.ConfigFactory;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.function.Function;
+
+/**
+ * Runs the home on virtual time, as fast as the actors can handle their messages. Time only moves when
+ * {@link #advance(Duration)} moves it, from one timer to the next: each timer fires once every actor has handled
+ * everything the previous one caused. With the same seed and config, every run handles the same messages in the
+ * same order and ends in the same state.
+ * <p>
+ * The actors run on the thread that calls the simulation, see {@link SimulationExecutor}. Only one simulation can
+ * run per JVM, all of them would share its queue.
+ */
+public class Simulation implements AutoCloseable {
+
+    // only passed to Akka, the actors are idle when the simulation looks at the answers
+    private static final Duration RESPONSE_TIMEOUT = Duration.ofSeconds(10);
+
+    /**
+     * @return {@code fallback} in simulation mode, with the changes of the environment drawn from {@code seed}
+     */
+    public static Config config(long seed, Config fallback) {
+        return ConfigFactory.parseString("homeautomation.environment.seed = " + seed)
+                .withFallback(ConfigFactory.parseResources("simulation.conf"))
+                .withFallback(fallback)
+                .resolve();
+    }
+
+    private final ActorSystem<?> system;
+    private final SimulationScheduler scheduler;
+
+    public Simulation(Behavior<?> guardian, String name, Config config) {
+        // the actor system waits for its system actors while it is created, they run on this thread
+        CompletableFuture<ActorSystem<?>> created = new CompletableFuture<>();
+        Thread creator = new Thread(() -> {
+            try {
+                created.complete(ActorSystem.create(guardian, name, config));
+            } catch (Throwable e) {
+                created.completeExceptionally(e);
+            }
+        }, name + "-start");
+        creator.start();
+        SimulationExecutor.runUntil(created);
+        this.system = created.join();
+        this.scheduler = (SimulationScheduler) system.classicSystem().scheduler();
+        // the guardian spawns the devices, they subscribe and read their first values
+        SimulationExecutor.runUntilIdle();
+    }
+
+    public ActorSystem<?> getSystem() {
+        return system;
+    }
+
+    /**
+     * Moves virtual time forward by {@code duration}, returning once all actors are idle at its end.
+     */
+    public void advance(Duration duration) {
+        long until = scheduler.now() + duration.toMillis();
+        while (scheduler.runNext(until)) {
+            SimulationExecutor.runUntilIdle();
+        }
+    }
+
+    /**
+     * Asks the actor at {@code path}, e.g. {@code /user/HomeRegistry/Home-1/TemperatureSensor}, without advancing virtual time.
+     *
+     * @param <T> protocol of the actor, not checked
+     */
+    public <T, R> R ask(String path, Function<ActorRef<R>, T> message) {
+        ActorRef<T> target = Adapter.toTyped(await(system.classicSystem().actorSelection(path).resolveOne(RESPONSE_TIMEOUT)));
+        return await(AskPattern.ask(target, message::apply, RESPONSE_TIMEOUT, system.scheduler()));
+    }
+
+    private static <R> R await(CompletionStage<R> stage) {
+        // the timeouts never fire on virtual time, an answer not there once the actors are idle never comes
+        SimulationExecutor.runUntilIdle();
+        CompletableFuture<R> future = stage.toCompletableFuture();
+        if (!future.isDone()) {
+            throw new IllegalStateException("Simulation query wasn't answered");
+        }
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            throw new IllegalStateException("Simulation query failed", e.getCause());
+        }
+    }
+
+    @Override
+    public void close() {
+        system.terminate();
+        SimulationExecutor.runUntilIdle();
+        if (!system.getWhenTerminated().toCompletableFuture().isDone()) {
+            system.log().warn("Simulation didn't terminate");
+        }
+    }
+
+}
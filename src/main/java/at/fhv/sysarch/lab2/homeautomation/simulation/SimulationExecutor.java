@@ -0,0 +1,101 @@
+package at.fhv.sysarch.lab2.homeautomation.simulation;
+
+import akka.dispatch.DispatcherPrerequisites;
+import akka.dispatch.ExecutorServiceConfigurator;
+import akka.dispatch.ExecutorServiceFactory;
+import com.typesafe.config.Config;
+
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Executor of the dispatchers in simulation mode. Tasks only run when the {@link Simulation} runs them, one after
+ * the other on its own thread, in the order they were submitted. That makes the order actors handle their messages
+ * in depend on nothing but the messages, and the simulation knows when there is nothing left to do.
+ * <p>
+ * Akka creates one executor per dispatcher, all of them share one queue so idle means idle everywhere.
+ */
+public class SimulationExecutor extends ExecutorServiceConfigurator {
+
+    private static final BlockingQueue<Runnable> tasks = new LinkedBlockingQueue<>();
+
+    public SimulationExecutor(Config config, DispatcherPrerequisites prerequisites) {
+        super(config, prerequisites);
+    }
+
+    @Override
+    public ExecutorServiceFactory createExecutorServiceFactory(String id, ThreadFactory threadFactory) {
+        return DispatcherExecutor::new;
+    }
+
+    /**
+     * Runs the tasks as they are submitted until {@code done} completes, for another thread waiting on actors.
+     */
+    static void runUntil(Future<?> done) {
+        try {
+            while (!done.isDone()) {
+                Runnable task = tasks.poll(1, TimeUnit.MILLISECONDS);
+                if (task != null) {
+                    task.run();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Runs the submitted tasks, including the tasks those submit, until there are none left.
+     */
+    static void runUntilIdle() {
+        Runnable task;
+        while ((task = tasks.poll()) != null) {
+            task.run();
+        }
+    }
+
+    /**
+     * The view of the shared queue one dispatcher gets. Shutting it down leaves the queue to the other dispatchers.
+     */
+    private static final class DispatcherExecutor extends AbstractExecutorService {
+
+        private volatile boolean shutdown;
+
+        @Override
+        public void execute(Runnable task) {
+            tasks.add(task);
+        }
+
+        @Override
+        public void shutdown() {
+            shutdown = true;
+        }
+
+        @Override
+        public List<Runnable> shutdownNow() {
+            shutdown = true;
+            return List.of();
+        }
+
+        @Override
+        public boolean isShutdown() {
+            return shutdown;
+        }
+
+        @Override
+        public boolean isTerminated() {
+            return shutdown;
+        }
+
+        @Override
+        public boolean awaitTermination(long timeout, TimeUnit unit) {
+            return shutdown;
+        }
+    }
+
+}
@@ -0,0 +1,106 @@
+package at.fhv.sysarch.lab2.homeautomation.simulation;
+
+import at.fhv.sysarch.lab2.homeautomation.devices.TemperatureSensor;
+import at.fhv.sysarch.lab2.homeautomation.devices.WeatherSensor;
+import at.fhv.sysarch.lab2.homeautomation.home.HomeRegistry;
+import at.fhv.sysarch.lab2.homeautomation.timeseries.ReadingsQuery;
+import at.fhv.sysarch.lab2.homeautomation.timeseries.Series;
+import com.typesafe.config.Config;
+
+import java.io.PrintStream;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+
+/**
+ * What the sensors of a {@link Simulation} recorded: per day the temperature range and its time-weighted average,
+ * and the share of the day it was cloudy. Readings only change when a value was published, so a reading holds until
+ * the next one. The fingerprint is a hash of all readings, runs with the same seed and config print the same one.
+ */
+public final class SimulationReport {
+
+    private static final long DAY = ChronoUnit.DAYS.getDuration().toMillis();
+
+    private final Series temperatures;
+    private final Series weather;
+    private final long from;
+    private final long to;
+
+    private SimulationReport(Series temperatures, Series weather, long from, long to) {
+        this.temperatures = temperatures;
+        this.weather = weather;
+        this.from = from;
+        this.to = to;
+    }
+
+    /**
+     * Collects the readings of the temperature and the weather sensor of the home of the node since {@code from}.
+     *
+     * @param from epoch millis
+     */
+    public static SimulationReport collect(Simulation simulation, long from) {
+        Config config = simulation.getSystem().settings().config();
+        int capacity = config.getInt("homeautomation.timeseries.capacity");
+        String home = "/user/HomeRegistry/" + HomeRegistry.name(config.getString("homeautomation.homes.home"));
+        Series temperatures = simulation.ask(home + "/TemperatureSensor",
+                replyTo -> new TemperatureSensor.QueryReadingsCommand(ReadingsQuery.last(capacity), replyTo));
+        Series weather = simulation.ask(home + "/WeatherSensor",
+                replyTo -> new WeatherSensor.QueryReadingsCommand(ReadingsQuery.last(capacity), replyTo));
+        long to = DeviceClock.get(simulation.getSystem()).millis();
+        return new SimulationReport(temperatures, weather, from, to);
+    }
+
+    public void print(PrintStream out) {
+        out.printf("Simulated %s to %s, %d temperature (Celsius) and %d weather readings%n",
+                Instant.ofEpochMilli(from), Instant.ofEpochMilli(to), temperatures.size(), weather.size());
+        out.printf("%-10s %8s %8s %8s %8s%n", "day", "min", "avg", "max", "cloudy");
+        for (long day = from - Math.floorMod(from, DAY); day < to; day += DAY) {
+            long start = Math.max(day, from);
+            long end = Math.min(day + DAY, to);
+            double[] temperature = summarize(temperatures, start, end);
+            // the weather is recorded as the ordinal of the condition, so its average is the cloudy share
+            double[] cloudy = summarize(weather, start, end);
+            out.printf("%-10s %8.2f %8.2f %8.2f %7.1f%%%n",
+                    LocalDate.ofInstant(Instant.ofEpochMilli(day), ZoneOffset.UTC),
+                    temperature[0], temperature[1], temperature[2], 100 * cloudy[1]);
+        }
+        out.printf("Fingerprint %016x%n", fingerprint());
+    }
+
+    /**
+     * @return min, time-weighted average and max of the readings that hold in {@code [start, end)}, NaN if none does
+     */
+    private static double[] summarize(Series series, long start, long end) {
+        double min = Double.NaN;
+        double max = Double.NaN;
+        double weighted = 0;
+        long covered = 0;
+        for (int i = 0; i < series.size(); i++) {
+            long holdsFrom = Math.max(series.timestampAt(i), start);
+            long holdsTo = Math.min(i + 1 < series.size() ? series.timestampAt(i + 1) : end, end);
+            if (holdsTo <= holdsFrom) {
+                continue;
+            }
+            double value = series.valueAt(i);
+            min = Double.isNaN(min) ? value : Math.min(min, value);
+            max = Double.isNaN(max) ? value : Math.max(max, value);
+            weighted += value * (holdsTo - holdsFrom);
+            covered += holdsTo - holdsFrom;
+        }
+        return new double[]{min, covered == 0 ? Double.NaN : weighted / covered, max};
+    }
+
+    public long fingerprint() {
+        return hash(hash(17, temperatures), weather);
+    }
+
+    private static long hash(long hash, Series series) {
+        for (int i = 0; i < series.size(); i++) {
+            hash = 31 * hash + series.timestampAt(i);
+            hash = 31 * hash + Double.doubleToLongBits(series.valueAt(i));
+        }
+        return hash;
+    }
+
+}
@@ -0,0 +1,127 @@
+package at.fhv.sysarch.lab2.homeautomation.simulation;
+
+import akka.actor.Cancellable;
+import akka.actor.Scheduler;
+import akka.event.LoggingAdapter;
+import com.typesafe.config.Config;
+import scala.concurrent.ExecutionContext;
+import scala.concurrent.duration.FiniteDuration;
+
+import java.util.PriorityQueue;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Scheduler of the actor system in simulation mode, on virtual time. Nothing runs by itself, the {@link Simulation}
+ * runs the tasks one at a time in the order they are due, waiting for the actors to handle what each of them caused
+ * before the next one. Tasks due at the same time run in the order they were scheduled.
+ * <p>
+ * Time is in millis since the start of the simulation.
+ */
+public class SimulationScheduler implements Scheduler {
+
+    private final PriorityQueue<Task> tasks = new PriorityQueue<>();
+    private long now;
+    private long scheduled;
+
+    public SimulationScheduler(Config config, LoggingAdapter log, ThreadFactory threadFactory) {
+    }
+
+    @Override
+    public synchronized Cancellable scheduleOnce(FiniteDuration delay, Runnable runnable, ExecutionContext executor) {
+        return add(new Task(now + Math.max(0, delay.toMillis()), 0, runnable, executor));
+    }
+
+    @Override
+    public synchronized Cancellable scheduleAtFixedRate(FiniteDuration initialDelay, FiniteDuration interval, Runnable runnable, ExecutionContext executor) {
+        // at least one milli, or time would never pass
+        return add(new Task(now + Math.max(0, initialDelay.toMillis()), Math.max(1, interval.toMillis()), runnable, executor));
+    }
+
+    /**
+     * Abstract in {@link Scheduler} although deprecated, so it has to be implemented. Means the same as
+     * {@link #scheduleAtFixedRate}.
+     */
+    @Override
+    @SuppressWarnings("deprecation")
+    public Cancellable schedule(FiniteDuration initialDelay, FiniteDuration interval, Runnable runnable, ExecutionContext executor) {
+        return scheduleAtFixedRate(initialDelay, interval, runnable, executor);
+    }
+
+    private Task add(Task task) {
+        task.sequence = scheduled++;
+        tasks.add(task);
+        return task;
+    }
+
+    @Override
+    public double maxFrequency() {
+        return 1000;
+    }
+
+    synchronized long now() {
+        return now;
+    }
+
+    /**
+     * Runs the next task due at or before {@code until}, moving time to when it was due.
+     *
+     * @return false if there is no such task, time is at {@code until} then
+     */
+    boolean runNext(long until) {
+        Task task;
+        synchronized (this) {
+            if (tasks.isEmpty() || tasks.peek().due > until) {
+                now = Math.max(now, until);
+                return false;
+            }
+            task = tasks.poll();
+            now = task.due;
+            if (task.interval > 0) {
+                task.due += task.interval;
+                add(task);
+            }
+        }
+        task.executor.execute(task.runnable);
+        return true;
+    }
+
+    private final class Task implements Cancellable, Comparable<Task> {
+
+        private final long interval;
+        private final Runnable runnable;
+        private final ExecutionContext executor;
+        private long due;
+        private long sequence;
+        private volatile boolean cancelled;
+
+        private Task(long due, long interval, Runnable runnable, ExecutionContext executor) {
+            this.due = due;
+            this.interval = interval;
+            this.runnable = runnable;
+            this.executor = executor;
+        }
+
+        @Override
+        public boolean cancel() {
+            synchronized (SimulationScheduler.this) {
+                if (cancelled) {
+                    return false;
+                }
+                cancelled = true;
+                return tasks.remove(this);
+            }
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return cancelled;
+        }
+
+        @Override
+        public int compareTo(Task other) {
+            int byDue = Long.compare(due, other.due);
+            return byDue != 0 ? byDue : Long.compare(sequence, other.sequence);
+        }
+    }
+
+}
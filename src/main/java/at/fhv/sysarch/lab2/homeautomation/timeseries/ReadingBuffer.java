@@ -0,0 +1,183 @@
+package at.fhv.sysarch.lab2.homeautomation.timeseries;
+
+import akka.actor.typed.ActorSystem;
+
+/**
+ * Fixed-size ring of the most recent timestamped readings of one sensor, kept in two primitive arrays. Once full,
+ * every new reading overwrites the oldest one, so a buffer never takes more than {@link #bytesFor(int)}.
+ * Timestamps never decrease, which lets window queries find their range by binary search.
+ *
+ * Owned by a single actor, not thread safe.
+ */
+public final class ReadingBuffer {
+
+    /**
+     * Number of readings every sensor keeps, from {@code homeautomation.timeseries.capacity}.
+     */
+    public static int configuredCapacity(ActorSystem<?> system) {
+        return system.settings().config().getInt("homeautomation.timeseries.capacity");
+    }
+
+    /**
+     * @return bytes taken by the readings of a buffer with this capacity, not counting the object headers
+     */
+    public static long bytesFor(int capacity) {
+        return (long) capacity * (Long.BYTES + Double.BYTES);
+    }
+
+    private final long[] timestamps;
+    private final double[] values;
+    private int next;
+    private int size;
+
+    public ReadingBuffer(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive but was " + capacity);
+        }
+        this.timestamps = new long[capacity];
+        this.values = new double[capacity];
+    }
+
+    /**
+     * @param timestamp epoch millis, moved up to the previous reading's timestamp if it is older
+     */
+    public void add(long timestamp, double value) {
+        if (size > 0) {
+            timestamp = Math.max(timestamp, timestampAt(size - 1));
+        }
+
+        timestamps[next] = timestamp;
+        values[next] = value;
+        next = next + 1 == timestamps.length ? 0 : next + 1;
+        if (size < timestamps.length) {
+            size++;
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int capacity() {
+        return timestamps.length;
+    }
+
+    /**
+     * @param index 0 being the oldest reading still kept
+     */
+    public long timestampAt(int index) {
+        return timestamps[slot(index)];
+    }
+
+    /**
+     * @param index 0 being the oldest reading still kept
+     */
+    public double valueAt(int index) {
+        return values[slot(index)];
+    }
+
+    /**
+     * @return the newest {@code n} readings, oldest first
+     */
+    public Series last(int n) {
+        int count = Math.max(0, Math.min(n, size));
+        long[] ts = new long[count];
+        double[] vs = new double[count];
+        int first = size - count;
+        for (int i = 0; i < count; i++) {
+            int slot = slot(first + i);
+            ts[i] = timestamps[slot];
+            vs[i] = values[slot];
+        }
+        return new Series(ts, vs);
+    }
+
+    /**
+     * @param from inclusive, epoch millis
+     * @param to   exclusive, epoch millis
+     */
+    public WindowStats stats(long from, long to) {
+        int start = firstAtOrAfter(from);
+        int end = firstAtOrAfter(to);
+
+        double min = Double.NaN;
+        double max = Double.NaN;
+        double sum = 0;
+        for (int i = start; i < end; i++) {
+            double value = values[slot(i)];
+            if (i == start) {
+                min = value;
+                max = value;
+            } else {
+                min = Math.min(min, value);
+                max = Math.max(max, value);
+            }
+            sum += value;
+        }
+
+        int count = end - start;
+        return new WindowStats(from, to, count, min, max, count == 0 ? Double.NaN : sum / count);
+    }
+
+    /**
+     * Averages the readings in {@code [from, to)} into {@code buckets} equally long buckets. Buckets without a
+     * reading have the value {@link Double#NaN}.
+     *
+     * @return one entry per bucket, timestamped with the start of the bucket
+     */
+    public Series downsample(long from, long to, int buckets) {
+        if (buckets <= 0 || to <= from) {
+            throw new IllegalArgumentException("Need at least one bucket and to > from");
+        }
+
+        long[] ts = new long[buckets];
+        double[] sums = new double[buckets];
+        int[] counts = new int[buckets];
+        long width = to - from;
+        for (int b = 0; b < buckets; b++) {
+            ts[b] = from + width * b / buckets;
+        }
+
+        int end = firstAtOrAfter(to);
+        for (int i = firstAtOrAfter(from); i < end; i++) {
+            int slot = slot(i);
+            int bucket = (int) ((timestamps[slot] - from) * buckets / width);
+            sums[bucket] += values[slot];
+            counts[bucket]++;
+        }
+
+        for (int b = 0; b < buckets; b++) {
+            sums[b] = counts[b] == 0 ? Double.NaN : sums[b] / counts[b];
+        }
+        return new Series(ts, sums);
+    }
+
+    /**
+     * @return logical index of the oldest reading with a timestamp of at least {@code timestamp}, {@link #size()} if
+     * there is none
+     */
+    private int firstAtOrAfter(long timestamp) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (timestampAt(mid) < timestamp) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private int slot(int index) {
+        int slot = next - size + index;
+        return slot < 0 ? slot + timestamps.length : slot;
+    }
+
+    @Override
+    public String toString() {
+        return "ReadingBuffer{" + size + "/" + timestamps.length + " readings}";
+    }
+
+}
@@ -0,0 +1,88 @@
+package at.fhv.sysarch.lab2.homeautomation.timeseries;
+
+import java.time.Duration;
+
+/**
+ * Question about the recent readings of a sensor, answered by the sensor itself from its {@link ReadingBuffer}.
+ * Windows end at the time the sensor answers.
+ *
+ * @param <R> type of the answer
+ */
+public abstract class ReadingsQuery<R> {
+
+    enum Kind {
+        LAST, STATS, DOWNSAMPLE
+    }
+
+    /**
+     * @return the newest {@code n} readings
+     * @throws IllegalArgumentException if {@code n} is negative
+     */
+    public static ReadingsQuery<Series> last(int n) {
+        if (n < 0) {
+            throw new IllegalArgumentException("Can't ask for the last " + n + " readings");
+        }
+        return new ReadingsQuery<>(Kind.LAST, n, 0) {
+            @Override
+            public Series answer(ReadingBuffer readings, long now) {
+                return readings.last(n);
+            }
+        };
+    }
+
+    /**
+     * @return min, max and average of the readings of the last {@code window}
+     * @throws IllegalArgumentException if the window is negative
+     */
+    public static ReadingsQuery<WindowStats> stats(Duration window) {
+        long millis = windowMillis(window);
+        return new ReadingsQuery<>(Kind.STATS, 0, millis) {
+            @Override
+            public WindowStats answer(ReadingBuffer readings, long now) {
+                return readings.stats(now - millis, now + 1);
+            }
+        };
+    }
+
+    /**
+     * @return the last {@code window} averaged into {@code buckets} buckets
+     * @throws IllegalArgumentException if the window is negative or there is no bucket, checked here as the sensor
+     * answering would fail on it
+     */
+    public static ReadingsQuery<Series> downsample(Duration window, int buckets) {
+        if (buckets <= 0) {
+            throw new IllegalArgumentException("Need at least one bucket but got " + buckets);
+        }
+        long millis = windowMillis(window);
+        return new ReadingsQuery<>(Kind.DOWNSAMPLE, buckets, millis) {
+            @Override
+            public Series answer(ReadingBuffer readings, long now) {
+                return readings.downsample(now - millis, now + 1, buckets);
+            }
+        };
+    }
+
+    private static long windowMillis(Duration window) {
+        if (window.isNegative()) {
+            throw new IllegalArgumentException("Window " + window + " is negative");
+        }
+        return window.toMillis();
+    }
+
+    // what the query asks, so it can be sent to a sensor on another node, see TimeseriesCodec
+    final Kind kind;
+    final int count;
+    final long windowMillis;
+
+    private ReadingsQuery(Kind kind, int count, long windowMillis) {
+        this.kind = kind;
+        this.count = count;
+        this.windowMillis = windowMillis;
+    }
+
+    /**
+     * @param now epoch millis
+     */
+    public abstract R answer(ReadingBuffer readings, long now);
+
+}
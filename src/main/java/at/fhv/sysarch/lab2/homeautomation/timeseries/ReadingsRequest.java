@@ -0,0 +1,34 @@
+package at.fhv.sysarch.lab2.homeautomation.timeseries;
+
+import akka.actor.typed.ActorRef;
+
+/**
+ * A {@link ReadingsQuery} together with the actor waiting for its answer, so sensor messages don't need a type
+ * parameter for the answer.
+ */
+public final class ReadingsRequest {
+
+    public static <R> ReadingsRequest of(ReadingsQuery<R> query, ActorRef<R> replyTo) {
+        return new ReadingsRequest(query, replyTo);
+    }
+
+    final ReadingsQuery<?> query;
+    final ActorRef<?> replyTo;
+
+    private ReadingsRequest(ReadingsQuery<?> query, ActorRef<?> replyTo) {
+        this.query = query;
+        this.replyTo = replyTo;
+    }
+
+    /**
+     * Answers the query from {@code readings}, with windows ending at {@code now}.
+     *
+     * @param now epoch millis
+     */
+    @SuppressWarnings("unchecked")
+    public void answer(ReadingBuffer readings, long now) {
+        // of() only pairs a query with an actor taking its answers
+        ((ActorRef<Object>) replyTo).tell(query.answer(readings, now));
+    }
+
+}
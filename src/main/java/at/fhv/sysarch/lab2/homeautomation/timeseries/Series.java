@@ -0,0 +1,48 @@
+package at.fhv.sysarch.lab2.homeautomation.timeseries;
+
+import at.fhv.sysarch.lab2.homeautomation.cluster.ClusterMessage;
+
+/**
+ * Immutable sequence of timestamped readings, oldest first, held in primitive arrays.
+ */
+public final class Series implements ClusterMessage {
+
+    private final long[] timestamps;
+    private final double[] values;
+
+    /**
+     * Takes ownership of the arrays, they must not be changed afterwards.
+     */
+    Series(long[] timestamps, double[] values) {
+        this.timestamps = timestamps;
+        this.values = values;
+    }
+
+    public int size() {
+        return timestamps.length;
+    }
+
+    /**
+     * @return epoch millis
+     */
+    public long timestampAt(int index) {
+        return timestamps[index];
+    }
+
+    public double valueAt(int index) {
+        return values[index];
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder("Series[");
+        for (int i = 0; i < timestamps.length; i++) {
+            if (i > 0) {
+                builder.append(", ");
+            }
+            builder.append(timestamps[i]).append('=').append(values[i]);
+        }
+        return builder.append(']').toString();
+    }
+
+}
@@ -0,0 +1,76 @@
+package at.fhv.sysarch.lab2.homeautomation.timeseries;
+
+import akka.actor.typed.ActorRef;
+import at.fhv.sysarch.lab2.homeautomation.cluster.MessageCodec;
+import at.fhv.sysarch.lab2.homeautomation.cluster.MessageReader;
+import at.fhv.sysarch.lab2.homeautomation.cluster.MessageWriter;
+
+import java.time.Duration;
+
+/**
+ * Encodings of the answers to readings queries, and of the requests the sensor query commands carry.
+ */
+public final class TimeseriesCodec extends MessageCodec {
+
+    public TimeseriesCodec() {
+        register("R1", Series.class, 1,
+                (series, out) -> {
+                    out.writeLength(series.size());
+                    // timestamps as the difference to the previous one, a few bytes each
+                    long previous = 0;
+                    for (int i = 0; i < series.size(); i++) {
+                        out.writeLong(series.timestampAt(i) - previous);
+                        out.writeDouble(series.valueAt(i));
+                        previous = series.timestampAt(i);
+                    }
+                },
+                in -> {
+                    int size = in.readLength();
+                    long[] timestamps = new long[size];
+                    double[] values = new double[size];
+                    long previous = 0;
+                    for (int i = 0; i < size; i++) {
+                        previous += in.readLong();
+                        timestamps[i] = previous;
+                        values[i] = in.readDouble();
+                    }
+                    return new Series(timestamps, values);
+                });
+        register("R2", WindowStats.class, 1,
+                (stats, out) -> {
+                    out.writeLong(stats.getFrom());
+                    out.writeLong(stats.getTo());
+                    out.writeInt(stats.getCount());
+                    out.writeDouble(stats.getMin());
+                    out.writeDouble(stats.getMax());
+                    out.writeDouble(stats.getAverage());
+                },
+                in -> new WindowStats(in.readLong(), in.readLong(), in.readInt(), in.readDouble(), in.readDouble(), in.readDouble()));
+    }
+
+    public static void writeRequest(ReadingsRequest request, MessageWriter out) {
+        ReadingsQuery<?> query = request.query;
+        out.writeEnum(query.kind);
+        out.writeInt(query.count);
+        out.writeLong(query.windowMillis);
+        out.writeActorRef(request.replyTo);
+    }
+
+    public static ReadingsRequest readRequest(MessageReader in) {
+        ReadingsQuery.Kind kind = in.readEnum(ReadingsQuery.Kind.class);
+        int count = in.readInt();
+        Duration window = Duration.ofMillis(in.readLong());
+        ActorRef<Object> replyTo = in.readActorRef();
+        switch (kind) {
+            case LAST:
+                return ReadingsRequest.of(ReadingsQuery.last(count), replyTo.narrow());
+            case STATS:
+                return ReadingsRequest.of(ReadingsQuery.stats(window), replyTo.narrow());
+            case DOWNSAMPLE:
+                return ReadingsRequest.of(ReadingsQuery.downsample(window, count), replyTo.narrow());
+            default:
+                throw new IllegalArgumentException("Unknown query " + kind);
+        }
+    }
+
+}
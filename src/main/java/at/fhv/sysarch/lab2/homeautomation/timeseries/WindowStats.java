@@ -0,0 +1,60 @@
+package at.fhv.sysarch.lab2.homeautomation.timeseries;
+
+import at.fhv.sysarch.lab2.homeautomation.cluster.ClusterMessage;
+
+/**
+ * Summary of the readings in {@code [from, to)}. Min, max and average are {@link Double#NaN} for an empty window.
+ */
+public final class WindowStats implements ClusterMessage {
+
+    private final long from;
+    private final long to;
+    private final int count;
+    private final double min;
+    private final double max;
+    private final double average;
+
+    WindowStats(long from, long to, int count, double min, double max, double average) {
+        this.from = from;
+        this.to = to;
+        this.count = count;
+        this.min = min;
+        this.max = max;
+        this.average = average;
+    }
+
+    public long getFrom() {
+        return from;
+    }
+
+    public long getTo() {
+        return to;
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    public double getMin() {
+        return min;
+    }
+
+    public double getMax() {
+        return max;
+    }
+
+    public double getAverage() {
+        return average;
+    }
+
+    @Override
+    public String toString() {
+        return "WindowStats{" +
+                "count=" + count +
+                ", min=" + min +
+                ", max=" + max +
+                ", average=" + average +
+                '}';
+    }
+
+}
@@ -0,0 +1,92 @@
+package at.fhv.sysarch.lab2.homeautomation.ui;
+
+import akka.actor.typed.ActorRef;
+import at.fhv.sysarch.lab2.homeautomation.devices.AirCondition;
+import at.fhv.sysarch.lab2.homeautomation.devices.DeviceKind;
+import at.fhv.sysarch.lab2.homeautomation.devices.DeviceRegistry;
+import at.fhv.sysarch.lab2.homeautomation.devices.MediaStation;
+import at.fhv.sysarch.lab2.homeautomation.devices.TemperatureSensor;
+import at.fhv.sysarch.lab2.homeautomation.devices.fridge.Fridge;
+import at.fhv.sysarch.lab2.homeautomation.domain.enums.TemperatureUnit;
+import at.fhv.sysarch.lab2.homeautomation.domain.enums.WeatherCondition;
+import at.fhv.sysarch.lab2.homeautomation.environment.Environment;
+
+import java.util.Optional;
+
+/**
+ * Turns the operator commands into messages to the devices of a home, looked up by their ids in a
+ * {@link DeviceRegistry}. Shared by the command line and the command server, both parse with a {@link CommandParser}.
+ * Thread safe, it only looks up and tells.
+ */
+public final class CommandDispatcher {
+
+    private static final AirCondition.PowerAirConditionCommand POWER_ON = new AirCondition.PowerAirConditionCommand(Optional.of(true));
+    private static final AirCondition.PowerAirConditionCommand POWER_OFF = new AirCondition.PowerAirConditionCommand(Optional.of(false));
+    private static final MediaStation.StartMovieCommand START_MOVIE = new MediaStation.StartMovieCommand();
+    private static final MediaStation.StopMovieCommand STOP_MOVIE = new MediaStation.StopMovieCommand();
+    private static final Fridge.DisplayStockCommand DISPLAY_STOCK = new Fridge.DisplayStockCommand();
+
+    /**
+     * Id of the devices the commands go to, in the group of the home.
+     */
+    public static final String DEVICE_ID = "1";
+
+    private final DeviceRegistry devices;
+    private final String homeId;
+
+    /**
+     * @param homeId group of the devices the commands go to
+     */
+    public CommandDispatcher(DeviceRegistry devices, String homeId) {
+        this.devices = devices;
+        this.homeId = homeId;
+    }
+
+    // every command returns false if its device is not there, e.g. not started yet
+
+    public boolean readTemperature(double celsius) {
+        return tell(DeviceKind.TEMPERATURE_SENSOR, new TemperatureSensor.ReadTemperatureCommand(celsius, TemperatureUnit.CELSIUS));
+    }
+
+    public boolean powerAirCondition(boolean on) {
+        return tell(DeviceKind.AIR_CONDITION, on ? POWER_ON : POWER_OFF);
+    }
+
+    public boolean startMovie() {
+        return tell(DeviceKind.MEDIA_STATION, START_MOVIE);
+    }
+
+    public boolean stopMovie() {
+        return tell(DeviceKind.MEDIA_STATION, STOP_MOVIE);
+    }
+
+    public boolean orderProduct(int productId) {
+        return tell(DeviceKind.FRIDGE, new Fridge.RequestOrderProductCommand(productId));
+    }
+
+    public boolean consumeProduct(int productId) {
+        return tell(DeviceKind.FRIDGE, new Fridge.ConsumeProductCommand(productId));
+    }
+
+    public boolean displayStock() {
+        return tell(DeviceKind.FRIDGE, DISPLAY_STOCK);
+    }
+
+    public boolean displayOrderHistory(long page) {
+        return tell(DeviceKind.FRIDGE, new Fridge.DisplayOrderHistoryCommand(page, Fridge.DEFAULT_HISTORY_PAGE_SIZE));
+    }
+
+    public boolean setWeather(WeatherCondition weatherCondition) {
+        return tell(DeviceKind.ENVIRONMENT, new Environment.SetWeatherCommand(weatherCondition));
+    }
+
+    private <T> boolean tell(DeviceKind<T> kind, T command) {
+        ActorRef<T> device = devices.lookup(kind, homeId, DEVICE_ID);
+        if (device == null) {
+            return false;
+        }
+        device.tell(command);
+        return true;
+    }
+
+}
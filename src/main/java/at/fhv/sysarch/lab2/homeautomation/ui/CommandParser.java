@@ -0,0 +1,376 @@
+package at.fhv.sysarch.lab2.homeautomation.ui;
+
+import at.fhv.sysarch.lab2.homeautomation.domain.enums.WeatherCondition;
+import at.fhv.sysarch.lab2.homeautomation.domain.valueobjects.ProductCatalog;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * Parses operator command lines and dispatches them. Works on the bytes of a line, the keywords, product names and
+ * weather conditions are matched against pre-encoded tables and numbers are parsed in place, so a valid command
+ * allocates nothing but the message sent to the device.
+ * <pre>
+ * t [temperature]      a [true|false]      m [on|off]
+ * fadd [product]       frem [product]      fdis
+ * dhis [page]          ew [SUNNY|CLOUDY]   ?      quit
+ * </pre>
+ * Stateless, one instance can be shared by any number of threads.
+ */
+public final class CommandParser {
+
+    /**
+     * Outcome of a command line, with the text to show the operator. Always a single line, so a client of the
+     * {@link CommandServer} reads exactly one line per command.
+     */
+    public static final class Reply {
+
+        private final String text;
+        private final byte[] line;
+        private final boolean error;
+
+        private Reply(String text, boolean error) {
+            if (text.indexOf('\n') >= 0 || text.indexOf('\r') >= 0) {
+                throw new IllegalArgumentException("A reply is a single line but was '" + text + "'");
+            }
+            this.text = text;
+            this.line = (text + "\n").getBytes(StandardCharsets.UTF_8);
+            this.error = error;
+        }
+
+        public String getText() {
+            return text;
+        }
+
+        public boolean isError() {
+            return error;
+        }
+
+        /**
+         * @return the text as UTF-8 terminated by a newline, not to be modified
+         */
+        byte[] line() {
+            return line;
+        }
+    }
+
+    private static final byte[] TEMPERATURE = ascii("t");
+    private static final byte[] AIR_CONDITION = ascii("a");
+    private static final byte[] MOVIE = ascii("m");
+    private static final byte[] ORDER = ascii("fadd");
+    private static final byte[] CONSUME = ascii("frem");
+    private static final byte[] DISPLAY_STOCK = ascii("fdis");
+    private static final byte[] HISTORY = ascii("dhis");
+    private static final byte[] WEATHER = ascii("ew");
+    private static final byte[] HELP = ascii("?");
+    private static final byte[] QUIT = ascii("quit");
+    private static final byte[] TRUE = ascii("true");
+    private static final byte[] FALSE = ascii("false");
+    private static final byte[] ON = ascii("on");
+    private static final byte[] OFF = ascii("off");
+
+    private static final WeatherCondition[] WEATHER_CONDITIONS = WeatherCondition.values();
+    private static final byte[][] WEATHER_NAMES = new byte[WEATHER_CONDITIONS.length][];
+
+    static {
+        for (WeatherCondition condition : WEATHER_CONDITIONS) {
+            WEATHER_NAMES[condition.ordinal()] = ascii(condition.name());
+        }
+    }
+
+    /**
+     * Up to this many significant digits the value is exact as a long and its quotient by a power of ten is rounded
+     * the same way {@link Double#parseDouble} rounds.
+     */
+    private static final int MAX_FAST_DIGITS = 15;
+    private static final double[] POWERS_OF_TEN = new double[MAX_FAST_DIGITS + 1];
+
+    static {
+        POWERS_OF_TEN[0] = 1;
+        for (int i = 1; i < POWERS_OF_TEN.length; i++) {
+            POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10;
+        }
+    }
+
+    public static final Reply OK = new Reply("ok", false);
+    public static final Reply BYE = new Reply("bye", false);
+    public static final Reply NONE = new Reply("", false);
+    public static final Reply UNKNOWN_COMMAND = new Reply("unknown command, ? lists the commands", true);
+    public static final Reply WRONG_TEMPERATURE = new Reply("wrong temperature, try e.g. 't 21.5'", true);
+    public static final Reply WRONG_POWER = new Reply("wrong command, please try 'true' or 'false'", true);
+    public static final Reply WRONG_MOVIE = new Reply("wrong command, please try 'on' or 'off'", true);
+    public static final Reply WRONG_PAGE = new Reply("wrong page, try a number from 0", true);
+    public static final Reply LINE_TOO_LONG = new Reply("line too long", true);
+    public static final Reply NO_DEVICE = new Reply("device not available", true);
+    public static final Reply HELP_TEXT = new Reply(String.join(" | ",
+            "commands: t [temperature] set temperature",
+            "a [true|false] turn on/off air condition",
+            "m [on|off] turn on/off movie station",
+            "fadd [product] add item to fridge",
+            "frem [product] remove item from fridge",
+            "fdis display stock of fridge",
+            "dhis [page] display order history, page 0 is the latest",
+            "ew [SUNNY|CLOUDY] set weather condition",
+            "quit end the session"
+    ), false);
+
+    private final CommandDispatcher dispatcher;
+    private final byte[][] productNames;
+    private final Reply wrongProduct;
+    private final Reply wrongWeather;
+    private final int maxReplyLength;
+
+    public CommandParser(CommandDispatcher dispatcher, ProductCatalog catalog) {
+        this.dispatcher = dispatcher;
+
+        List<String> names = catalog.getNames();
+        this.productNames = new byte[names.size()][];
+        for (int id = 0; id < productNames.length; id++) {
+            productNames[id] = names.get(id).getBytes(StandardCharsets.UTF_8);
+        }
+        this.wrongProduct = new Reply("wrong product try one of " + names, true);
+        this.wrongWeather = new Reply("wrong weather condition try one of " + List.of(WEATHER_CONDITIONS), true);
+
+        int maxReplyLength = HELP_TEXT.line.length;
+        for (Reply reply : List.of(UNKNOWN_COMMAND, WRONG_TEMPERATURE, WRONG_POWER, WRONG_MOVIE, WRONG_PAGE, LINE_TOO_LONG, NO_DEVICE, wrongProduct, wrongWeather)) {
+            maxReplyLength = Math.max(maxReplyLength, reply.line.length);
+        }
+        this.maxReplyLength = maxReplyLength;
+    }
+
+    /**
+     * @return the length of the longest {@link Reply#line()}
+     */
+    int maxReplyLength() {
+        return maxReplyLength;
+    }
+
+    public Reply execute(String line) {
+        byte[] bytes = line.getBytes(StandardCharsets.UTF_8);
+        return execute(ByteBuffer.wrap(bytes), 0, bytes.length);
+    }
+
+    /**
+     * Parses and dispatches the line in {@code buffer} between {@code from} and {@code to}, without its newline.
+     * Only absolute reads are used, position and limit are left as they are.
+     */
+    public Reply execute(ByteBuffer buffer, int from, int to) {
+        while (from < to && isBlank(buffer.get(from))) {
+            from++;
+        }
+        while (to > from && isBlank(buffer.get(to - 1))) {
+            to--;
+        }
+        if (from == to) {
+            return NONE;
+        }
+
+        int wordEnd = from;
+        while (wordEnd < to && !isBlank(buffer.get(wordEnd))) {
+            wordEnd++;
+        }
+        int argument = wordEnd;
+        while (argument < to && isBlank(buffer.get(argument))) {
+            argument++;
+        }
+
+        if (matches(buffer, from, wordEnd, TEMPERATURE)) {
+            return readTemperature(buffer, argument, to);
+        }
+        if (matches(buffer, from, wordEnd, AIR_CONDITION)) {
+            return powerAirCondition(buffer, argument, to);
+        }
+        if (matches(buffer, from, wordEnd, MOVIE)) {
+            return movie(buffer, argument, to);
+        }
+        if (matches(buffer, from, wordEnd, ORDER)) {
+            int productId = productId(buffer, argument, to);
+            if (productId < 0) {
+                return wrongProduct;
+            }
+            return sent(dispatcher.orderProduct(productId));
+        }
+        if (matches(buffer, from, wordEnd, CONSUME)) {
+            int productId = productId(buffer, argument, to);
+            if (productId < 0) {
+                return wrongProduct;
+            }
+            return sent(dispatcher.consumeProduct(productId));
+        }
+        if (matches(buffer, from, wordEnd, DISPLAY_STOCK)) {
+            return sent(dispatcher.displayStock());
+        }
+        if (matches(buffer, from, wordEnd, HISTORY)) {
+            return displayOrderHistory(buffer, argument, to);
+        }
+        if (matches(buffer, from, wordEnd, WEATHER)) {
+            for (int i = 0; i < WEATHER_NAMES.length; i++) {
+                if (matches(buffer, argument, to, WEATHER_NAMES[i])) {
+                    return sent(dispatcher.setWeather(WEATHER_CONDITIONS[i]));
+                }
+            }
+            return wrongWeather;
+        }
+        if (matches(buffer, from, wordEnd, HELP)) {
+            return HELP_TEXT;
+        }
+        if (matches(buffer, from, wordEnd, QUIT)) {
+            return BYE;
+        }
+        return UNKNOWN_COMMAND;
+    }
+
+    private Reply readTemperature(ByteBuffer buffer, int from, int to) {
+        double value = parseDouble(buffer, from, to);
+        if (Double.isNaN(value)) {
+            return WRONG_TEMPERATURE;
+        }
+        return sent(dispatcher.readTemperature(value));
+    }
+
+    private Reply powerAirCondition(ByteBuffer buffer, int from, int to) {
+        if (matches(buffer, from, to, TRUE)) {
+            return sent(dispatcher.powerAirCondition(true));
+        }
+        if (matches(buffer, from, to, FALSE)) {
+            return sent(dispatcher.powerAirCondition(false));
+        }
+        return WRONG_POWER;
+    }
+
+    private Reply movie(ByteBuffer buffer, int from, int to) {
+        if (matches(buffer, from, to, ON)) {
+            return sent(dispatcher.startMovie());
+        }
+        if (matches(buffer, from, to, OFF)) {
+            return sent(dispatcher.stopMovie());
+        }
+        return WRONG_MOVIE;
+    }
+
+    private Reply displayOrderHistory(ByteBuffer buffer, int from, int to) {
+        long page = 0;
+        if (from < to) {
+            page = parsePage(buffer, from, to);
+            if (page < 0) {
+                return WRONG_PAGE;
+            }
+        }
+        return sent(dispatcher.displayOrderHistory(page));
+    }
+
+    private static Reply sent(boolean sent) {
+        return sent ? OK : NO_DEVICE;
+    }
+
+    /**
+     * @return the id of the product named by the bytes, -1 if there is none
+     */
+    private int productId(ByteBuffer buffer, int from, int to) {
+        for (int id = 0; id < productNames.length; id++) {
+            if (matches(buffer, from, to, productNames[id])) {
+                return id;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @return the non-negative decimal number in the bytes, -1 if they are not one or it overflows
+     */
+    private static long parsePage(ByteBuffer buffer, int from, int to) {
+        long value = 0;
+        for (int i = from; i < to; i++) {
+            int digit = buffer.get(i) - '0';
+            if (digit < 0 || digit > 9 || value > (Long.MAX_VALUE - digit) / 10) {
+                return -1;
+            }
+            value = value * 10 + digit;
+        }
+        return value;
+    }
+
+    /**
+     * Parses {@code [-+]digits[.digits]} in place. Longer or differently formatted numbers fall back to
+     * {@link Double#parseDouble}.
+     *
+     * @return the number, NaN if the bytes are not one
+     */
+    static double parseDouble(ByteBuffer buffer, int from, int to) {
+        int i = from;
+        boolean negative = false;
+        if (i < to && (buffer.get(i) == '-' || buffer.get(i) == '+')) {
+            negative = buffer.get(i) == '-';
+            i++;
+        }
+
+        long mantissa = 0;
+        boolean anyDigit = false;
+        int digits = 0;
+        int fractionDigits = -1;
+        for (; i < to; i++) {
+            byte b = buffer.get(i);
+            if (b >= '0' && b <= '9') {
+                if (digits == MAX_FAST_DIGITS) {
+                    return parseDoubleSlowly(buffer, from, to);
+                }
+                anyDigit = true;
+                mantissa = mantissa * 10 + (b - '0');
+                if (mantissa != 0) {
+                    digits++;
+                }
+                if (fractionDigits >= 0) {
+                    fractionDigits++;
+                }
+            } else if (b == '.' && fractionDigits < 0) {
+                fractionDigits = 0;
+            } else {
+                return parseDoubleSlowly(buffer, from, to);
+            }
+        }
+
+        if (!anyDigit) {
+            return Double.NaN;
+        }
+        if (fractionDigits > MAX_FAST_DIGITS) {
+            return parseDoubleSlowly(buffer, from, to);
+        }
+        double value = fractionDigits > 0 ? mantissa / POWERS_OF_TEN[fractionDigits] : mantissa;
+        return negative ? -value : value;
+    }
+
+    private static double parseDoubleSlowly(ByteBuffer buffer, int from, int to) {
+        byte[] bytes = new byte[to - from];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = buffer.get(from + i);
+        }
+        try {
+            double value = Double.parseDouble(new String(bytes, StandardCharsets.US_ASCII));
+            return Double.isInfinite(value) ? Double.NaN : value;
+        } catch (NumberFormatException e) {
+            return Double.NaN;
+        }
+    }
+
+    private static boolean matches(ByteBuffer buffer, int from, int to, byte[] word) {
+        if (to - from != word.length) {
+            return false;
+        }
+        for (int i = 0; i < word.length; i++) {
+            if (buffer.get(from + i) != word[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isBlank(byte b) {
+        return b == ' ' || b == '\t' || b == '\r';
+    }
+
+    private static byte[] ascii(String text) {
+        return text.getBytes(StandardCharsets.US_ASCII);
+    }
+
+}
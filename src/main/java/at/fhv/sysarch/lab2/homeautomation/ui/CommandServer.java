@@ -0,0 +1,272 @@
+package at.fhv.sysarch.lab2.homeautomation.ui;
+
+import akka.actor.typed.Behavior;
+import akka.actor.typed.PostStop;
+import akka.actor.typed.javadsl.AbstractBehavior;
+import akka.actor.typed.javadsl.ActorContext;
+import akka.actor.typed.javadsl.Behaviors;
+import akka.actor.typed.javadsl.Receive;
+import com.typesafe.config.Config;
+import org.slf4j.Logger;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Accepts operator commands from any number of clients over a local socket, configured by
+ * {@code homeautomation.commands.server}. Clients send the command line grammar of {@link CommandParser}, one command
+ * per line, and get one reply per command in the same order. Clients may pipeline: every line that arrived with a
+ * read is executed and all replies go out with one write. A client that doesn't read its replies is not read from
+ * until it does.
+ * <p>
+ * All connections are served by a single selector thread, the actor only owns its lifecycle.
+ */
+public class CommandServer extends AbstractBehavior<Void> {
+
+    public static Behavior<Void> create(CommandParser parser) {
+        return Behaviors.setup(context -> new CommandServer(context, parser));
+    }
+
+    private final CommandParser parser;
+    private final Logger log;
+    private final int bufferSize;
+    private final Path socketFile;
+
+    private Selector selector;
+    private ServerSocketChannel server;
+    private volatile boolean running;
+
+    private CommandServer(ActorContext<Void> context, CommandParser parser) {
+        super(context);
+
+        this.parser = parser;
+        // the selector thread logs through this one, getLog() may only be called by the actor
+        this.log = getContext().getLog();
+
+        Config config = getContext().getSystem().settings().config().getConfig("homeautomation.commands.server");
+        this.bufferSize = Math.max((int) config.getBytes("buffer-size").longValue(), parser.maxReplyLength());
+        boolean unix = config.getString("transport").equals("unix");
+        this.socketFile = unix ? Paths.get(config.getString("path")) : null;
+
+        SocketAddress address = unix ? UnixDomainSocketAddress.of(socketFile) : new InetSocketAddress(config.getString("interface"), config.getInt("port"));
+        try {
+            open(address);
+            running = true;
+            Thread thread = new Thread(this::serve, getContext().getSystem().name() + "-command-server");
+            thread.setDaemon(true);
+            thread.start();
+            log.info("CommandServer listening on {}", server.getLocalAddress());
+        } catch (IOException e) {
+            close();
+            log.warn("CommandServer could not listen on {}", address, e);
+        }
+    }
+
+    private void open(SocketAddress address) throws IOException {
+        selector = Selector.open();
+        if (socketFile != null) {
+            // left over by a server that wasn't stopped
+            Files.deleteIfExists(socketFile);
+            server = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+        } else {
+            server = ServerSocketChannel.open();
+        }
+        server.bind(address);
+        server.configureBlocking(false);
+        server.register(selector, SelectionKey.OP_ACCEPT);
+    }
+
+    @Override
+    public Receive<Void> createReceive() {
+        return newReceiveBuilder().onSignal(PostStop.class, signal -> onPostStop()).build();
+    }
+
+    private CommandServer onPostStop() {
+        if (running) {
+            running = false;
+            selector.wakeup();
+        }
+        getContext().getLog().info("CommandServer stopped");
+        return this;
+    }
+
+    private void serve() {
+        try {
+            while (running) {
+                selector.select();
+                for (SelectionKey key : selector.selectedKeys()) {
+                    if (!key.isValid()) {
+                        continue;
+                    }
+                    if (key.isAcceptable()) {
+                        accept();
+                    } else {
+                        Connection connection = (Connection) key.attachment();
+                        try {
+                            connection.ready();
+                        } catch (IOException e) {
+                            log.debug("Command connection {} failed", connection, e);
+                            connection.close();
+                        }
+                    }
+                }
+                selector.selectedKeys().clear();
+            }
+        } catch (IOException e) {
+            log.error("CommandServer failed", e);
+        } finally {
+            close();
+        }
+    }
+
+    private void accept() throws IOException {
+        SocketChannel channel;
+        while ((channel = server.accept()) != null) {
+            channel.configureBlocking(false);
+            SelectionKey key = channel.register(selector, SelectionKey.OP_READ);
+            key.attach(new Connection(channel, key));
+        }
+    }
+
+    private void close() {
+        try {
+            if (selector != null) {
+                for (SelectionKey key : selector.keys()) {
+                    key.channel().close();
+                }
+                selector.close();
+            }
+            if (server != null) {
+                server.close();
+            }
+            if (socketFile != null) {
+                Files.deleteIfExists(socketFile);
+            }
+        } catch (IOException e) {
+            log.warn("CommandServer could not be closed", e);
+        }
+    }
+
+    /**
+     * A client. Its input buffer holds the lines not executed yet, its output buffer the replies not written yet.
+     */
+    private final class Connection {
+
+        private final SocketChannel channel;
+        private final SelectionKey key;
+        private final ByteBuffer in = ByteBuffer.allocate(bufferSize);
+        private final ByteBuffer out = ByteBuffer.allocate(bufferSize);
+
+        /**
+         * The line being read didn't fit into the buffer, the rest of it is skipped.
+         */
+        private boolean skipping;
+        private boolean closing;
+
+        private Connection(SocketChannel channel, SelectionKey key) {
+            this.channel = channel;
+            this.key = key;
+        }
+
+        void ready() throws IOException {
+            if (key.isReadable() && channel.read(in) < 0) {
+                close();
+                return;
+            }
+            do {
+                execute();
+                out.flip();
+                channel.write(out);
+                out.compact();
+                // replies held back for lack of space can go on once the output buffer is empty
+            } while (out.position() == 0 && !closing && hasCompleteLine());
+
+            if (out.position() > 0) {
+                // the client isn't reading its replies, stop reading its commands
+                key.interestOps(SelectionKey.OP_WRITE);
+            } else if (closing) {
+                close();
+            } else {
+                key.interestOps(SelectionKey.OP_READ);
+            }
+        }
+
+        /**
+         * Executes the complete lines in the input buffer, as long as their replies fit into the output buffer.
+         */
+        private void execute() {
+            in.flip();
+            int lineStart = in.position();
+            int limit = in.limit();
+            for (int i = lineStart; i < limit && !closing; i++) {
+                if (in.get(i) != '\n') {
+                    continue;
+                }
+                if (skipping) {
+                    skipping = false;
+                } else {
+                    if (out.remaining() < parser.maxReplyLength()) {
+                        break;
+                    }
+                    CommandParser.Reply reply = parser.execute(in, lineStart, i);
+                    if (reply != CommandParser.NONE) {
+                        out.put(reply.line());
+                    }
+                    closing = reply == CommandParser.BYE;
+                }
+                lineStart = i + 1;
+            }
+            in.position(lineStart);
+
+            if (in.position() == 0 && in.limit() == in.capacity()) {
+                // a full buffer without a newline
+                in.clear();
+                if (!skipping && out.remaining() >= CommandParser.LINE_TOO_LONG.line().length) {
+                    out.put(CommandParser.LINE_TOO_LONG.line());
+                }
+                skipping = true;
+                return;
+            }
+            in.compact();
+        }
+
+        private boolean hasCompleteLine() {
+            for (int i = 0; i < in.position(); i++) {
+                if (in.get(i) == '\n') {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        void close() {
+            key.cancel();
+            try {
+                channel.close();
+            } catch (IOException e) {
+                log.debug("Command connection {} could not be closed", this, e);
+            }
+        }
+
+        @Override
+        public String toString() {
+            try {
+                return String.valueOf(channel.getRemoteAddress());
+            } catch (IOException e) {
+                return "closed";
+            }
+        }
+    }
+
+}
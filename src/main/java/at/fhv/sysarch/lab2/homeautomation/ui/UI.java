@@ -1,57 +1,38 @@
 package at.fhv.sysarch.lab2.homeautomation.ui;
 
-import akka.actor.typed.ActorRef;
 import akka.actor.typed.Behavior;
 import akka.actor.typed.PostStop;
 import akka.actor.typed.javadsl.AbstractBehavior;
 import akka.actor.typed.javadsl.ActorContext;
 import akka.actor.typed.javadsl.Behaviors;
 import akka.actor.typed.javadsl.Receive;
-import at.fhv.sysarch.lab2.homeautomation.devices.*;
-import at.fhv.sysarch.lab2.homeautomation.devices.fridge.Fridge;
-import at.fhv.sysarch.lab2.homeautomation.domain.enums.WeatherCondition;
-import at.fhv.sysarch.lab2.homeautomation.domain.valueobjects.Product;
-import at.fhv.sysarch.lab2.homeautomation.environment.Environment;
-import at.fhv.sysarch.lab2.homeautomation.domain.Temperature;
+import at.fhv.sysarch.lab2.homeautomation.output.Console;
+import org.slf4j.Logger;
 
-import java.util.Optional;
-import java.util.Scanner;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
 
 public class UI extends AbstractBehavior<Void> {
 
-    private final ActorRef<Environment.EnvironmentCommand> environment;
-    private final ActorRef<AirCondition.AirConditionCommand> airCondition;
-    private final ActorRef<TemperatureSensor.TemperatureCommand> tempSensor;
-    private final ActorRef<MediaStation.MediaStationCommand> mediaStation;
-    private final ActorRef<Fridge.FridgeCommand> fridge;
+    private final CommandParser parser;
+    private final Console console;
+    // the command line thread logs through this one, getLog() may only be called by the actor
+    private final Logger log;
 
-    public static Behavior<Void> create(
-            ActorRef<Environment.EnvironmentCommand> environment,
-            ActorRef<AirCondition.AirConditionCommand> airCondition,
-            ActorRef<TemperatureSensor.TemperatureCommand> tempSensor,
-            ActorRef<MediaStation.MediaStationCommand> mediaStation,
-            ActorRef<Fridge.FridgeCommand> fridge
-    ) {
-        return Behaviors.setup(context -> new UI(context, environment, airCondition, tempSensor, mediaStation, fridge));
+    public static Behavior<Void> create(CommandParser parser) {
+        return Behaviors.setup(context -> new UI(context, parser));
     }
 
-    private UI(
-            ActorContext<Void> context,
-            ActorRef<Environment.EnvironmentCommand> environment,
-            ActorRef<AirCondition.AirConditionCommand> airCondition,
-            ActorRef<TemperatureSensor.TemperatureCommand> tempSensor,
-            ActorRef<MediaStation.MediaStationCommand> mediaStation,
-            ActorRef<Fridge.FridgeCommand> fridge
-    ) {
+    private UI(ActorContext<Void> context, CommandParser parser) {
         super(context);
 
-        this.environment = environment;
-        this.airCondition = airCondition;
-        this.tempSensor = tempSensor;
-        this.mediaStation = mediaStation;
-        this.fridge = fridge;
+        this.parser = parser;
+        this.console = Console.get(getContext().getSystem());
+        this.log = getContext().getLog();
 
-        new Thread(this::runCommandLine).start();
+        new Thread(this::runCommandLine, getContext().getSystem().name() + "-command-line").start();
 
         getContext().getLog().info("UI started");
     }
@@ -66,72 +47,23 @@ public class UI extends AbstractBehavior<Void> {
         return this;
     }
 
-    //TODO: UI OK?
-    public void runCommandLine() {
-        Scanner scanner = new Scanner(System.in);
-//        String[] input = null;
-        String reader = "";
-
-        while (!reader.equalsIgnoreCase("quit") && scanner.hasNextLine()) {
-            reader = scanner.nextLine();
-            String[] command = reader.split(" ");
-
-            if (command[0].equals("t")) {
-                this.tempSensor.tell(new TemperatureSensor.ReadTemperatureCommand(new Temperature(Double.parseDouble(command[1]), "Celsius")));
-            }
-            if (command[0].equals("a")) {
-                this.airCondition.tell(new AirCondition.PowerAirConditionCommand(Optional.of(Boolean.valueOf(command[1]))));
-            }
-
-            if (command[0].equals("m")) {
-                if (command[1].equals("on")) {
-                    this.mediaStation.tell(new MediaStation.StartMovieCommand());
-                } else if (command[1].equals("off")) {
-                    this.mediaStation.tell(new MediaStation.StopMovieCommand());
-                } else {
-                    System.out.println("wrong command");
-                    System.out.println("please try 'on' or 'off' ✔");
+    private void runCommandLine() {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8));
+        try {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                CommandParser.Reply reply = parser.execute(line);
+                if (reply == CommandParser.BYE) {
+                    break;
                 }
-            }
-
-            if (command[0].equals("fadd")) {
-                Optional<Product> product = Product.create(command[1]);
-                if (product.isPresent()) {
-                    this.fridge.tell(new Fridge.RequestOrderProductCommand(product.get()));
-                } else {
-                    System.out.println("wrong product try: 'apple', 'watermelon' or 'beer'");
+                if (reply != CommandParser.OK && reply != CommandParser.NONE) {
+                    console.println(reply.getText());
                 }
             }
-            if (command[0].equals("frem")) {
-                Optional<Product> product = Product.create(command[1]);
-                if (product.isPresent()) {
-                    this.fridge.tell(new Fridge.ConsumeProductCommand(product.get()));
-                } else {
-                    System.out.println("wrong product try: 'apple', 'watermelon' or 'beer'");
-                }
-            }
-            if (command[0].equals("fdis")) {
-                this.fridge.tell(new Fridge.DisplayStockCommand());
-            }
-            if (command[0].equals("dhis")) {
-                this.fridge.tell(new Fridge.DisplayOrderHistoryCommand());
-            }
-            if (command[0].equals("ew")) {
-                this.environment.tell(new Environment.SetWeatherCommand(WeatherCondition.valueOf(command[1])));
-            }
-            if (command[0].equals("?")) {
-                System.out.println("Commands:");
-                System.out.println("t [temperature]                 - set temperature");
-                System.out.println("a [true|false]                  - turn on/off air condition");
-                System.out.println("m [on|off]                      - turn on/off movie station");
-                System.out.println("fadd [apple|watermelon|beer]    - add item to fridge");
-                System.out.println("frem [apple|watermelon|beer]    - remove item from fridge");
-                System.out.println("fdis                            - display stock of fridge");
-                System.out.println("dhis                            - displays oder history");
-                System.out.println("ew [SUNNY|CLOUDY]               - set weather condition");
-            }
+        } catch (IOException e) {
+            log.error("Reading commands failed", e);
         }
 
-        getContext().getLog().info("UI done");
+        log.info("UI done");
     }
 }
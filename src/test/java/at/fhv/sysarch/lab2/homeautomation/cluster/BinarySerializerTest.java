@@ -0,0 +1,166 @@
+package at.fhv.sysarch.lab2.homeautomation.cluster;
+
+import akka.actor.ExtendedActorSystem;
+import akka.actor.testkit.typed.javadsl.ActorTestKit;
+import akka.actor.testkit.typed.javadsl.TestProbe;
+import akka.actor.typed.javadsl.Adapter;
+import akka.serialization.Serialization;
+import akka.serialization.SerializationExtension;
+import akka.serialization.Serializer;
+import at.fhv.sysarch.lab2.homeautomation.devices.AirCondition;
+import at.fhv.sysarch.lab2.homeautomation.devices.TemperatureSensor;
+import at.fhv.sysarch.lab2.homeautomation.devices.WeatherSensor;
+import at.fhv.sysarch.lab2.homeautomation.devices.fridge.FridgeCapacityView;
+import at.fhv.sysarch.lab2.homeautomation.devices.fridge.OrderHistory;
+import at.fhv.sysarch.lab2.homeautomation.domain.Order;
+import at.fhv.sysarch.lab2.homeautomation.domain.enums.TemperatureUnit;
+import at.fhv.sysarch.lab2.homeautomation.domain.valueobjects.ProductCatalog;
+import at.fhv.sysarch.lab2.homeautomation.environment.Environment;
+import at.fhv.sysarch.lab2.homeautomation.home.Home;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BinarySerializerTest {
+
+    private static final ActorTestKit testKit = ActorTestKit.create();
+
+    private static final ExtendedActorSystem system = (ExtendedActorSystem) Adapter.toClassic(testKit.system());
+
+    @AfterAll
+    static void shutdown() {
+        testKit.shutdownTestKit();
+    }
+
+    @Test
+    void encodesATemperatureReadingInTenBytes() {
+        Encoded encoded = roundTrip(new TemperatureSensor.ReadTemperatureCommand(21.5, TemperatureUnit.CELSIUS));
+
+        assertEquals(10, encoded.bytes.length);
+    }
+
+    @Test
+    void roundTripsNestedMessagesAndActorRefs() {
+        TestProbe<WeatherSensor.WeatherCommand> probe = testKit.createTestProbe();
+
+        roundTrip(new Home.ForwardToAirConditionCommand(new AirCondition.PowerAirConditionCommand(Optional.of(true))));
+        roundTrip(new Home.ForwardToAirConditionCommand(new AirCondition.PowerAirConditionCommand(Optional.empty())));
+        roundTrip(new Environment.SubscribeWeatherCommand(probe.getRef()));
+        roundTrip(new FridgeCapacityView.SpaceChangedCommand(Long.MAX_VALUE, -1, 1));
+    }
+
+    @Test
+    void roundTripsTheOrderHistory() {
+        Order order = new Order(new UUID(1, 2), LocalDateTime.of(2024, 1, 2, 3, 4, 5, 6_000_000), ProductCatalog.getDefault().get(1));
+        OrderHistory history = (OrderHistory) roundTrip(new OrderHistory(12, 0, 20, 1, List.of(order))).message;
+
+        assertEquals(12, history.getVersion());
+        assertEquals(20, history.getPageSize());
+        Order decoded = history.getOrders().get(0);
+        assertEquals(order.getUuid(), decoded.getUuid());
+        assertEquals(order.getOrderDate(), decoded.getOrderDate());
+        assertEquals(order.getProduct(), decoded.getProduct());
+    }
+
+    @Test
+    void refusesMessagesWithoutAnEncoding() {
+        BinarySerializer serializer = new BinarySerializer(system);
+
+        assertThrows(IllegalArgumentException.class, () -> serializer.toBinary(new LocalOnly()));
+        assertThrows(IllegalArgumentException.class, () -> serializer.fromBinary(new byte[]{1}, "no such manifest"));
+    }
+
+    @Test
+    void readsTheVersionsBeforeTheCurrentOne() {
+        BinarySerializer previous = new BinarySerializer(system, List.of(new ReadingCodec(1)));
+        BinarySerializer current = new BinarySerializer(system, List.of(new ReadingCodec(2)));
+
+        Reading fromPrevious = (Reading) current.fromBinary(previous.toBinary(new Reading(21.5, "F")), "R");
+        assertEquals(21.5, fromPrevious.value);
+        assertEquals("C", fromPrevious.unit);
+
+        Reading fromCurrent = (Reading) current.fromBinary(current.toBinary(new Reading(21.5, "F")), "R");
+        assertEquals("F", fromCurrent.unit);
+    }
+
+    @Test
+    void refusesVersionsItDoesNotKnow() {
+        BinarySerializer previous = new BinarySerializer(system, List.of(new ReadingCodec(1)));
+        BinarySerializer current = new BinarySerializer(system, List.of(new ReadingCodec(2)));
+
+        byte[] bytes = current.toBinary(new Reading(21.5, "F"));
+        assertThrows(IllegalArgumentException.class, () -> previous.fromBinary(bytes, "R"));
+
+        bytes[0] = 0;
+        assertThrows(IllegalArgumentException.class, () -> current.fromBinary(bytes, "R"));
+    }
+
+    @Test
+    void refusesManifestsRegisteredTwice() {
+        assertThrows(IllegalStateException.class, () -> new BinarySerializer(system, List.of(new ReadingCodec(1), new ReadingCodec(2))));
+    }
+
+    private static final class Encoded {
+        final byte[] bytes;
+        final Object message;
+
+        Encoded(byte[] bytes, Object message) {
+            this.bytes = bytes;
+            this.message = message;
+        }
+    }
+
+    /**
+     * Serializes as Akka does and checks that the decoded message encodes to the same bytes again.
+     */
+    private static Encoded roundTrip(Object message) {
+        Serialization serialization = SerializationExtension.get(system);
+        Serializer serializer = serialization.findSerializerFor(message);
+        assertEquals(BinarySerializer.IDENTIFIER, serializer.identifier());
+
+        byte[] bytes = serializer.toBinary(message);
+        String manifest = ((BinarySerializer) serializer).manifest(message);
+        Object decoded = serialization.deserialize(bytes, serializer.identifier(), manifest).get();
+
+        assertSame(message.getClass(), decoded.getClass());
+        assertArrayEquals(bytes, serializer.toBinary(decoded));
+        return new Encoded(bytes, decoded);
+    }
+
+    private static final class LocalOnly implements ClusterMessage {
+    }
+
+    private static final class Reading {
+        final double value;
+        final String unit;
+
+        Reading(double value, String unit) {
+            this.value = value;
+            this.unit = unit;
+        }
+    }
+
+    /**
+     * Version 1 of a reading had no unit, it was always Celsius.
+     */
+    private static final class ReadingCodec extends MessageCodec {
+
+        ReadingCodec(int version) {
+            register("R", Reading.class, version,
+                    (reading, out) -> {
+                        out.writeDouble(reading.value);
+                        if (version >= 2) {
+                            out.writeString(reading.unit);
+                        }
+                    },
+                    in -> new Reading(in.readDouble(), in.getVersion() >= 2 ? in.readString() : "C"));
+        }
+    }
+
+}
@@ -0,0 +1,114 @@
+package at.fhv.sysarch.lab2.homeautomation.devices;
+
+import akka.actor.testkit.typed.javadsl.ActorTestKit;
+import akka.actor.testkit.typed.javadsl.TestProbe;
+import akka.actor.typed.ActorRef;
+import akka.actor.typed.Behavior;
+import akka.actor.typed.javadsl.Behaviors;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CoalescingActuationTest {
+
+    private static final ActorTestKit testKit = ActorTestKit.create();
+
+    private static final Duration WINDOW = Duration.ofMillis(300);
+    private static final Duration RETRY = Duration.ofMillis(100);
+    private static final Object WINDOW_OVER = "window over";
+
+    @AfterAll
+    static void shutdown() {
+        testKit.shutdownTestKit();
+    }
+
+    private final TestProbe<String> actuator = testKit.createTestProbe();
+    private final AtomicBoolean backpressured = new AtomicBoolean();
+
+    @Test
+    void commandsOnlyTransitionsAndTheFirstStateRightAway() {
+        ActorRef<Object> sensor = spawn(WINDOW);
+        sensor.tell("off");
+        assertEquals("off", actuator.receiveMessage(Duration.ofMillis(100)));
+
+        sensor.tell("off");
+        sensor.tell("off");
+        actuator.expectNoMessage(WINDOW.multipliedBy(2));
+    }
+
+    @Test
+    void dropsATransitionRevertedWithinTheWindow() {
+        ActorRef<Object> sensor = spawn(WINDOW);
+        sensor.tell("off");
+        actuator.expectMessage("off");
+
+        sensor.tell("on");
+        sensor.tell("off");
+        actuator.expectNoMessage(WINDOW.multipliedBy(2));
+    }
+
+    @Test
+    void sendsTheStateWantedWhenTheWindowIsOver() {
+        ActorRef<Object> sensor = spawn(WINDOW);
+        sensor.tell("off");
+        actuator.expectMessage("off");
+
+        sensor.tell("on");
+        sensor.tell("off");
+        sensor.tell("on");
+        actuator.expectNoMessage(WINDOW.dividedBy(2));
+        assertEquals("on", actuator.receiveMessage(WINDOW));
+        actuator.expectNoMessage(WINDOW);
+    }
+
+    @Test
+    void sendsEveryTransitionWithoutAWindow() {
+        ActorRef<Object> sensor = spawn(Duration.ZERO);
+        sensor.tell("off");
+        sensor.tell("on");
+        sensor.tell("off");
+
+        assertEquals("off", actuator.receiveMessage());
+        assertEquals("on", actuator.receiveMessage());
+        assertEquals("off", actuator.receiveMessage());
+    }
+
+    @Test
+    void holdsTransitionsBackWhileTheActuatorIsBackpressured() {
+        ActorRef<Object> sensor = spawn(Duration.ZERO);
+        sensor.tell("off");
+        actuator.expectMessage("off");
+
+        backpressured.set(true);
+        sensor.tell("on");
+        sensor.tell("dimmed");
+        actuator.expectNoMessage(RETRY.multipliedBy(3));
+
+        backpressured.set(false);
+        assertEquals("dimmed", actuator.receiveMessage(RETRY.multipliedBy(3)));
+        actuator.expectNoMessage(RETRY.multipliedBy(3));
+    }
+
+    /**
+     * A sensor wanting the states it is sent, commanding them to the actuator probe.
+     */
+    private ActorRef<Object> spawn(Duration window) {
+        Behavior<Object> sensor = Behaviors.withTimers(timers -> {
+            CoalescingActuation<Object, String> actuation = new CoalescingActuation<>(timers, WINDOW_OVER, window, RETRY, backpressured::get, actuator.getRef()::tell);
+            return Behaviors.receiveMessage(message -> {
+                if (message == WINDOW_OVER) {
+                    actuation.windowOver();
+                } else {
+                    actuation.want((String) message);
+                }
+                return Behaviors.same();
+            });
+        });
+        return testKit.spawn(sensor);
+    }
+
+}
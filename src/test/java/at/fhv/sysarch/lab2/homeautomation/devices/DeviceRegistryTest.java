@@ -0,0 +1,108 @@
+package at.fhv.sysarch.lab2.homeautomation.devices;
+
+import akka.actor.testkit.typed.javadsl.ActorTestKit;
+import akka.actor.testkit.typed.javadsl.TestProbe;
+import akka.actor.typed.ActorRef;
+import akka.actor.typed.Behavior;
+import akka.actor.typed.Props;
+import akka.actor.typed.javadsl.Behaviors;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DeviceRegistryTest {
+
+    private static final ActorTestKit testKit = ActorTestKit.create();
+
+    @AfterAll
+    static void shutdown() {
+        testKit.shutdownTestKit();
+    }
+
+    private final DeviceRegistry registry = new DeviceRegistry();
+
+    @Test
+    void findsDevicesByKindGroupAndId() {
+        ActorRef<TemperatureSensor.TemperatureCommand> kitchen1 = testKit.<TemperatureSensor.TemperatureCommand>createTestProbe().getRef();
+        ActorRef<TemperatureSensor.TemperatureCommand> kitchen2 = testKit.<TemperatureSensor.TemperatureCommand>createTestProbe().getRef();
+        ActorRef<TemperatureSensor.TemperatureCommand> hall = testKit.<TemperatureSensor.TemperatureCommand>createTestProbe().getRef();
+        ActorRef<AirCondition.AirConditionCommand> airCondition = testKit.<AirCondition.AirConditionCommand>createTestProbe().getRef();
+        registry.register(DeviceKind.TEMPERATURE_SENSOR, "kitchen", "1", kitchen1);
+        registry.register(DeviceKind.TEMPERATURE_SENSOR, "kitchen", "2", kitchen2);
+        registry.register(DeviceKind.TEMPERATURE_SENSOR, "hall", "1", hall);
+        registry.register(DeviceKind.AIR_CONDITION, "kitchen", "1", airCondition);
+
+        assertEquals(kitchen2, registry.lookup(DeviceKind.TEMPERATURE_SENSOR, "kitchen", "2"));
+        assertEquals(hall, registry.lookup(DeviceKind.TEMPERATURE_SENSOR, "hall", "1"));
+        assertEquals(airCondition, registry.lookup(DeviceKind.AIR_CONDITION, "kitchen", "1"));
+        assertNull(registry.lookup(DeviceKind.TEMPERATURE_SENSOR, "kitchen", "3"));
+        assertNull(registry.lookup(DeviceKind.BLINDS, "kitchen", "1"));
+        assertNull(registry.lookup(DeviceKind.AIR_CONDITION, "hall", "1"));
+
+        assertEquals(Set.of(kitchen1, kitchen2), Set.copyOf(registry.group(DeviceKind.TEMPERATURE_SENSOR, "kitchen")));
+        assertTrue(registry.group(DeviceKind.BLINDS, "kitchen").isEmpty());
+        assertTrue(registry.group(DeviceKind.TEMPERATURE_SENSOR, "cellar").isEmpty());
+
+        List<DeviceRegistry.Device> kitchen = registry.group("kitchen");
+        assertEquals(Set.of("temperature-sensor-1", "temperature-sensor-2", "air-condition-1"),
+                kitchen.stream().map(d -> d.getKind() + "-" + d.getDeviceId()).collect(Collectors.toSet()));
+    }
+
+    @Test
+    void registersASpawnedDeviceBeforeTheSpawnReturns() {
+        TestProbe<Boolean> registered = testKit.createTestProbe();
+        testKit.spawn(Behaviors.setup(context -> {
+            ActorRef<AirCondition.AirConditionCommand> device = registry.spawn(context, DeviceKind.AIR_CONDITION, "1", "1", stoppedByAnyCommand(), "AirCondition", Props.empty());
+            registered.getRef().tell(device.equals(registry.lookup(DeviceKind.AIR_CONDITION, "1", "1")));
+            return Behaviors.empty();
+        }));
+
+        assertTrue(registered.receiveMessage());
+    }
+
+    @Test
+    void removesADeviceOnceItStops() {
+        ActorRef<AirCondition.AirConditionCommand> device = testKit.spawn(registry.track(DeviceKind.AIR_CONDITION, "1", "1", stoppedByAnyCommand()));
+        TestProbe<Object> watcher = testKit.createTestProbe();
+        awaitRegistered(watcher, device);
+
+        device.tell(new AirCondition.PowerAirConditionCommand(Optional.of(false)));
+        watcher.expectTerminated(device);
+        assertNull(registry.lookup(DeviceKind.AIR_CONDITION, "1", "1"));
+        assertTrue(registry.group("1").isEmpty());
+    }
+
+    @Test
+    void keepsTheDeviceThatReplacedAStoppedOne() {
+        ActorRef<AirCondition.AirConditionCommand> replaced = testKit.spawn(registry.track(DeviceKind.AIR_CONDITION, "1", "1", stoppedByAnyCommand()));
+        TestProbe<Object> watcher = testKit.createTestProbe();
+        awaitRegistered(watcher, replaced);
+        ActorRef<AirCondition.AirConditionCommand> replacing = testKit.<AirCondition.AirConditionCommand>createTestProbe().getRef();
+        registry.register(DeviceKind.AIR_CONDITION, "1", "1", replacing);
+
+        testKit.stop(replaced);
+        watcher.expectTerminated(replaced);
+        assertEquals(replacing, registry.lookup(DeviceKind.AIR_CONDITION, "1", "1"));
+    }
+
+    /**
+     * A tracked device registers once it started, not right after the spawn.
+     */
+    private void awaitRegistered(TestProbe<?> probe, ActorRef<AirCondition.AirConditionCommand> device) {
+        probe.awaitAssert(() -> {
+            assertEquals(device, registry.lookup(DeviceKind.AIR_CONDITION, "1", "1"));
+            return null;
+        });
+    }
+
+    private static Behavior<AirCondition.AirConditionCommand> stoppedByAnyCommand() {
+        return Behaviors.receiveMessage(command -> Behaviors.stopped());
+    }
+
+}
@@ -0,0 +1,66 @@
+package at.fhv.sysarch.lab2.homeautomation.devices;
+
+import akka.actor.testkit.typed.javadsl.ActorTestKit;
+import akka.actor.testkit.typed.javadsl.TestProbe;
+import akka.actor.typed.ActorRef;
+import akka.actor.typed.javadsl.Behaviors;
+import akka.actor.typed.receptionist.Receptionist;
+import akka.actor.typed.receptionist.ServiceKey;
+import com.typesafe.config.ConfigFactory;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RoomAggregatorTest {
+
+    private static final ActorTestKit testKit = ActorTestKit.create(ConfigFactory.parseString(
+            "homeautomation.rooms.window = 200ms\n" +
+            "homeautomation.rooms.slide = 200ms"
+    ).withFallback(ActorTestKit.applicationTestConfig()));
+
+    @AfterAll
+    static void shutdown() {
+        testKit.shutdownTestKit();
+    }
+
+    @Test
+    void ignoresLateReadingsOfASensorWhoseSlotWasReused() {
+        ServiceKey<TemperatureSensor.TemperatureCommand> key = TemperatureSensor.serviceKey("reused");
+        TestProbe<AirCondition.AirConditionCommand> airCondition = testKit.createTestProbe();
+        ActorRef<RoomAggregator.RoomAggregatorCommand> aggregator = testKit.spawn(RoomAggregator.create(airCondition.getRef(), "reused", "1"));
+
+        TestProbe<TemperatureSensor.TemperatureCommand> left = testKit.createTestProbe();
+        ActorRef<TemperatureSensor.TemperatureCommand> leaving = register(key, left);
+        TemperatureSensor.SubscribeReadingsCommand first = left.expectMessageClass(TemperatureSensor.SubscribeReadingsCommand.class);
+
+        testKit.stop(leaving);
+        TestProbe<Receptionist.Listing> listings = testKit.createTestProbe();
+        listings.awaitAssert(() -> {
+            testKit.system().receptionist().tell(Receptionist.find(key, listings.getRef()));
+            assertTrue(listings.receiveMessage().getServiceInstances(key).isEmpty());
+            return null;
+        });
+
+        TestProbe<TemperatureSensor.TemperatureCommand> joined = testKit.createTestProbe();
+        register(key, joined);
+        TemperatureSensor.SubscribeReadingsCommand second = joined.expectMessageClass(TemperatureSensor.SubscribeReadingsCommand.class);
+        assertEquals(first.slot, second.slot);
+        assertNotEquals(first.generation, second.generation);
+
+        // counted, the late reading would lift the average to 22.5 and switch the air condition on
+        aggregator.tell(new RoomAggregator.TemperatureReadCommand(first.slot, first.generation, 30));
+        aggregator.tell(new RoomAggregator.TemperatureReadCommand(second.slot, second.generation, 15));
+
+        AirCondition.EnrichedTemperatureCommand command = airCondition.expectMessageClass(AirCondition.EnrichedTemperatureCommand.class);
+        assertFalse(command.active);
+        assertEquals(15.0, command.value);
+    }
+
+    private static ActorRef<TemperatureSensor.TemperatureCommand> register(ServiceKey<TemperatureSensor.TemperatureCommand> key, TestProbe<TemperatureSensor.TemperatureCommand> probe) {
+        ActorRef<TemperatureSensor.TemperatureCommand> sensor = testKit.spawn(Behaviors.monitor(TemperatureSensor.TemperatureCommand.class, probe.getRef(), Behaviors.ignore()));
+        testKit.system().receptionist().tell(Receptionist.register(key, sensor));
+        return sensor;
+    }
+
+}
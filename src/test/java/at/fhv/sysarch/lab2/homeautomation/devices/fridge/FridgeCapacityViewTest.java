@@ -0,0 +1,140 @@
+package at.fhv.sysarch.lab2.homeautomation.devices.fridge;
+
+import akka.actor.testkit.typed.javadsl.ActorTestKit;
+import akka.actor.testkit.typed.javadsl.TestProbe;
+import akka.actor.typed.ActorRef;
+import at.fhv.sysarch.lab2.homeautomation.domain.valueobjects.Product;
+import at.fhv.sysarch.lab2.homeautomation.domain.valueobjects.ProductCatalog;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FridgeCapacityViewTest {
+
+    private static final ActorTestKit testKit = ActorTestKit.create();
+
+    private final Product apple = ProductCatalog.getDefault().find("apple").get();
+
+    private TestProbe<Fridge.FridgeCommand> fridge;
+    private TestProbe<FridgeWeightSensor.FridgeWeightSensorCommand> weightSensor;
+    private TestProbe<FridgeSpaceSensor.FridgeSpaceSensorCommand> spaceSensor;
+    private ActorRef<FridgeCapacityView.FridgeCapacityViewCommand> view;
+
+    @AfterAll
+    static void shutdown() {
+        testKit.shutdownTestKit();
+    }
+
+    @BeforeEach
+    void spawnView() {
+        fridge = testKit.createTestProbe();
+        weightSensor = testKit.createTestProbe();
+        spaceSensor = testKit.createTestProbe();
+        view = testKit.spawn(FridgeCapacityView.create(fridge.getRef(), "1", "1"));
+        view.tell(new FridgeCapacityView.ConnectSensorsCommand(weightSensor.getRef(), spaceSensor.getRef()));
+    }
+
+    @Test
+    void neverAdmitsMoreOrdersThanFitAtOnce() {
+        report(1, 1000, 0, 1, 2, 0);
+
+        assertTrue(reserve().reserved);
+        assertTrue(reserve().reserved);
+        OrderProcessor.CapacityReservedCommand refused = reserve();
+        assertFalse(refused.reserved);
+        assertEquals(0, refused.capacity.getAvailableSpace());
+
+        fridge.expectMessageClass(Fridge.StockFridgeCommand.class);
+        fridge.expectMessageClass(Fridge.StockFridgeCommand.class);
+        fridge.expectNoMessage();
+        assertEquals(apple.getWeight(), weightSensor.expectMessageClass(FridgeWeightSensor.AddWeightCommand.class).weight);
+        spaceSensor.expectMessageClass(FridgeSpaceSensor.AddSpaceCommand.class);
+    }
+
+    @Test
+    void releasesAReservationOnceTheSensorReportedIt() {
+        report(1, 1000, 0, 1, 1, 0);
+        assertTrue(reserve().reserved);
+        assertFalse(reserve().reserved);
+
+        // the space sensor reports the item it added, and an item consumed since
+        report(2, 1000 - apple.getWeight(), apple.getWeight(), 2, 0, 1);
+        report(3, 1000, 0, 3, 1, 0);
+
+        OrderProcessor.CapacityReservedCommand admitted = reserve();
+        assertTrue(admitted.reserved);
+        assertEquals(1000 - apple.getWeight(), admitted.capacity.getAvailableWeight());
+        assertEquals(0, admitted.capacity.getAvailableSpace());
+    }
+
+    @Test
+    void admitsWaitingOrdersOnceBothSensorsReportedUnlessWithdrawn() {
+        TestProbe<OrderProcessor.OrderProcessorCommand> withdrawn = testKit.createTestProbe();
+        TestProbe<OrderProcessor.OrderProcessorCommand> waiting = testKit.createTestProbe();
+        view.tell(new FridgeCapacityView.ReserveCapacityCommand(apple, withdrawn.getRef()));
+        view.tell(new FridgeCapacityView.ReserveCapacityCommand(apple, waiting.getRef()));
+        view.tell(new FridgeCapacityView.CancelReservationCommand(withdrawn.getRef()));
+
+        report(1, 1000, 0, 1, 1, 0);
+
+        withdrawn.expectMessageClass(OrderProcessor.ReservationCancelledCommand.class);
+        assertTrue(waiting.expectMessageClass(OrderProcessor.CapacityReservedCommand.class).reserved);
+        withdrawn.expectNoMessage();
+        fridge.expectMessageClass(Fridge.StockFridgeCommand.class);
+        fridge.expectNoMessage();
+    }
+
+    @Test
+    void sharesTheRefusalUntilTheCapacityChanges() {
+        report(1, 1000, 0, 1, 1, 0);
+        assertTrue(reserve().reserved);
+
+        OrderProcessor.CapacityReservedCommand refused = reserve();
+        assertFalse(refused.reserved);
+        assertSame(refused, reserve());
+
+        // an item consumed makes room again
+        report(2, 1000, 0, 2, 1, 1);
+        assertTrue(reserve().reserved);
+        OrderProcessor.CapacityReservedCommand refusedAgain = reserve();
+        assertNotSame(refused, refusedAgain);
+        assertEquals(0, refusedAgain.capacity.getAvailableSpace());
+    }
+
+    @Test
+    void refusesToReserveForAnUnknownProduct() {
+        report(1, 1000, 0, 1, 2, 0);
+        TestProbe<OrderProcessor.OrderProcessorCommand> processor = testKit.createTestProbe();
+        view.tell(new FridgeCapacityView.ReserveCapacityCommand(ProductCatalog.getDefault().size(), processor.getRef()));
+
+        assertFalse(processor.expectMessageClass(OrderProcessor.CapacityReservedCommand.class).reserved);
+        assertTrue(reserve().reserved);
+        fridge.expectMessageClass(Fridge.StockFridgeCommand.class);
+        fridge.expectNoMessage();
+    }
+
+    @Test
+    void answersAWithdrawalAfterTheAnswerToTheRequest() {
+        report(1, 1000, 0, 1, 1, 0);
+        TestProbe<OrderProcessor.OrderProcessorCommand> processor = testKit.createTestProbe();
+        view.tell(new FridgeCapacityView.ReserveCapacityCommand(apple, processor.getRef()));
+        view.tell(new FridgeCapacityView.CancelReservationCommand(processor.getRef()));
+
+        assertTrue(processor.expectMessageClass(OrderProcessor.CapacityReservedCommand.class).reserved);
+        processor.expectMessageClass(OrderProcessor.ReservationCancelledCommand.class);
+    }
+
+    private void report(long weightVersion, int availableWeight, int settledWeight, long spaceVersion, int availableSpace, int settledSpace) {
+        view.tell(new FridgeCapacityView.WeightChangedCommand(weightVersion, availableWeight, settledWeight));
+        view.tell(new FridgeCapacityView.SpaceChangedCommand(spaceVersion, availableSpace, settledSpace));
+    }
+
+    private OrderProcessor.CapacityReservedCommand reserve() {
+        TestProbe<OrderProcessor.OrderProcessorCommand> processor = testKit.createTestProbe();
+        view.tell(new FridgeCapacityView.ReserveCapacityCommand(apple, processor.getRef()));
+        return processor.expectMessageClass(OrderProcessor.CapacityReservedCommand.class);
+    }
+
+}
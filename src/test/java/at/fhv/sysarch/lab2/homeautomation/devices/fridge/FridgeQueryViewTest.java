@@ -0,0 +1,127 @@
+package at.fhv.sysarch.lab2.homeautomation.devices.fridge;
+
+import akka.actor.testkit.typed.javadsl.ActorTestKit;
+import akka.actor.testkit.typed.javadsl.TestProbe;
+import akka.actor.typed.ActorRef;
+import at.fhv.sysarch.lab2.homeautomation.domain.Order;
+import at.fhv.sysarch.lab2.homeautomation.domain.valueobjects.Product;
+import at.fhv.sysarch.lab2.homeautomation.domain.valueobjects.ProductCatalog;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FridgeQueryViewTest {
+
+    private static final ActorTestKit testKit = ActorTestKit.create();
+
+    private static final LocalDateTime START = LocalDateTime.of(2020, 1, 1, 0, 0);
+
+    private final ProductCatalog catalog = ProductCatalog.getDefault();
+    private final Product apple = catalog.find("apple").get();
+    private final Product beer = catalog.find("beer").get();
+
+    @TempDir
+    Path directory;
+
+    private OrderJournal orders;
+    private ActorRef<FridgeQueryView.FridgeQueryViewCommand> view;
+
+    @AfterAll
+    static void shutdown() {
+        testKit.shutdownTestKit();
+    }
+
+    @BeforeEach
+    void spawnView() throws IOException {
+        orders = OrderJournal.open(directory.resolve("fridge.orders"));
+        Inventory inventory = new Inventory(catalog);
+        inventory.add(apple, 2);
+        view = testKit.spawn(FridgeQueryView.create(inventory.snapshot(1), orders, "1", "1"));
+    }
+
+    @AfterEach
+    void stopView() throws IOException {
+        testKit.stop(view);
+        orders.close();
+    }
+
+    @Test
+    void sharesTheStockOfAVersionAndIgnoresOlderChanges() {
+        FridgeStock initial = stock();
+        assertEquals(1, initial.getVersion());
+        assertEquals(2, initial.count(apple));
+        assertSame(initial, stock());
+
+        view.tell(new FridgeQueryView.StockChangedCommand(3, beer.getId(), 1));
+        // overtaken by the change of version 3
+        view.tell(new FridgeQueryView.StockChangedCommand(2, apple.getId(), 5));
+
+        FridgeStock changed = stock();
+        assertEquals(3, changed.getVersion());
+        assertEquals(2, changed.count(apple));
+        assertEquals(1, changed.count(beer));
+        assertEquals(3, changed.getTotalItems());
+        assertSame(changed, stock());
+    }
+
+    @Test
+    void pagesTheHistoryFromTheMostRecentOrders() throws IOException {
+        append(25);
+
+        OrderHistory latest = history(0, 10);
+        assertEquals(25, latest.getVersion());
+        assertEquals(3, latest.getPages());
+        assertEquals(new UUID(0, 15), latest.getOrders().get(0).getUuid());
+        assertEquals(new UUID(0, 24), latest.getOrders().get(9).getUuid());
+        assertSame(latest, history(0, 10));
+
+        OrderHistory oldest = history(2, 10);
+        assertEquals(5, oldest.getOrders().size());
+        assertTrue(history(3, 10).getOrders().isEmpty());
+        assertTrue(history(Long.MAX_VALUE, Integer.MAX_VALUE).getOrders().isEmpty());
+
+        // an order placed since makes it a new page
+        append(1);
+        OrderHistory next = history(0, 10);
+        assertNotSame(latest, next);
+        assertEquals(26, next.getVersion());
+    }
+
+    @Test
+    void refusesHistoryPagesThatDoNotExist() {
+        TestProbe<OrderHistory> probe = testKit.createTestProbe();
+        assertThrows(IllegalArgumentException.class, () -> new Fridge.GetOrderHistoryCommand(-1, 10, probe.getRef()));
+        assertThrows(IllegalArgumentException.class, () -> new Fridge.GetOrderHistoryCommand(0, 0, probe.getRef()));
+        assertThrows(IllegalArgumentException.class, () -> new Fridge.DisplayOrderHistoryCommand(-1, 10));
+        assertThrows(IllegalArgumentException.class, () -> new Fridge.DisplayOrderHistoryCommand(0, -5));
+    }
+
+    private void append(int count) throws IOException {
+        long first = orders.size();
+        for (long i = first; i < first + count; i++) {
+            orders.append(new Order(new UUID(0, i), START.plusMinutes(i), beer));
+        }
+    }
+
+    private FridgeStock stock() {
+        TestProbe<FridgeStock> probe = testKit.createTestProbe();
+        view.tell(new Fridge.GetStockCommand(probe.getRef()));
+        return probe.receiveMessage();
+    }
+
+    private OrderHistory history(long page, int pageSize) {
+        TestProbe<OrderHistory> probe = testKit.createTestProbe();
+        view.tell(new Fridge.GetOrderHistoryCommand(page, pageSize, probe.getRef()));
+        return probe.receiveMessage();
+    }
+
+}
@@ -0,0 +1,129 @@
+package at.fhv.sysarch.lab2.homeautomation.devices.fridge;
+
+import akka.actor.testkit.typed.javadsl.ActorTestKit;
+import akka.actor.testkit.typed.javadsl.TestProbe;
+import akka.actor.typed.ActorRef;
+import at.fhv.sysarch.lab2.homeautomation.domain.enums.OrderStrategy;
+import at.fhv.sysarch.lab2.homeautomation.domain.valueobjects.Product;
+import at.fhv.sysarch.lab2.homeautomation.domain.valueobjects.ProductCatalog;
+import com.typesafe.config.ConfigFactory;
+import com.typesafe.config.ConfigValueFactory;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FridgeTest {
+
+    private static final Path directory = createDirectory();
+
+    private static final ActorTestKit testKit = ActorTestKit.create(ConfigFactory.parseString(
+            "homeautomation.persistence.enabled = on"
+    ).withValue("homeautomation.persistence.directory", ConfigValueFactory.fromAnyRef(directory.resolve("devices").toString()))
+            .withValue("homeautomation.rules.file", ConfigValueFactory.fromAnyRef(directory.resolve("rules.txt").toString()))
+            .withFallback(ActorTestKit.applicationTestConfig()));
+
+    private static Path createDirectory() {
+        try {
+            Path directory = Files.createTempDirectory("fridge-test");
+            // no rules, an emptied fridge would order again
+            Files.writeString(directory.resolve("rules.txt"), "# none\n");
+            return directory;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @AfterAll
+    static void shutdown() throws IOException {
+        testKit.shutdownTestKit();
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path file : (Iterable<Path>) files.sorted(Comparator.reverseOrder())::iterator) {
+                Files.delete(file);
+            }
+        }
+    }
+
+    @Test
+    void recoversTheInitialStockFromItsSnapshotWithoutStockingItAgain() {
+        ActorRef<Fridge.FridgeCommand> fridge = spawn("initial");
+        assertEquals(6, stock(fridge).getTotalItems());
+        testKit.stop(fridge);
+
+        fridge = spawn("initial");
+        FridgeStock stock = stock(fridge);
+        assertEquals(6, stock.getTotalItems());
+        assertEquals(3, stock.count(ProductCatalog.getDefault().find("apple").get()));
+        testKit.stop(fridge);
+    }
+
+    @Test
+    void staysEmptyAfterARestart() {
+        ActorRef<Fridge.FridgeCommand> fridge = spawn("emptied");
+        ProductCatalog catalog = ProductCatalog.getDefault();
+        for (String name : new String[]{"apple", "apple", "apple", "watermelon", "elden ring", "beer"}) {
+            fridge.tell(new Fridge.ConsumeProductCommand(catalog.find(name).get()));
+        }
+        assertEquals(0, stock(fridge).getTotalItems());
+        testKit.stop(fridge);
+
+        fridge = spawn("emptied");
+        assertEquals(0, stock(fridge).getTotalItems());
+        testKit.stop(fridge);
+    }
+
+    @Test
+    void neverOverfillsWithConcurrentOrdersOfTheirOwn() {
+        ActorRef<Fridge.FridgeCommand> fridge = spawn("per-order", FridgeSettings.DEFAULT.withOrderStrategy(OrderStrategy.PER_ORDER).withCapacity(1000, 8));
+        Product apple = ProductCatalog.getDefault().find("apple").get();
+        for (int i = 0; i < 5; i++) {
+            fridge.tell(new Fridge.RequestOrderProductCommand(apple));
+        }
+
+        TestProbe<FridgeStock> probe = testKit.createTestProbe();
+        probe.awaitAssert(() -> {
+            assertEquals(8, stock(fridge).getTotalItems());
+            return null;
+        });
+        probe.expectNoMessage(Duration.ofMillis(500));
+        assertEquals(8, stock(fridge).getTotalItems());
+        testKit.stop(fridge);
+    }
+
+    @Test
+    void ignoresUnknownProductIds() {
+        ActorRef<Fridge.FridgeCommand> fridge = spawn("unknown");
+        int unknown = ProductCatalog.getDefault().size();
+        fridge.tell(new Fridge.RequestOrderProductCommand(unknown));
+        fridge.tell(new Fridge.ConsumeProductCommand(-1));
+        fridge.tell(new Fridge.StockFridgeCommand(unknown));
+        fridge.tell(new Fridge.ConsumeProductCommand(ProductCatalog.getDefault().find("beer").get()));
+
+        // a fridge stopped by an unknown id would never answer
+        assertEquals(5, stock(fridge).getTotalItems());
+        testKit.stop(fridge);
+    }
+
+    private static ActorRef<Fridge.FridgeCommand> spawn(String groupId) {
+        return spawn(groupId, FridgeSettings.DEFAULT);
+    }
+
+    private static ActorRef<Fridge.FridgeCommand> spawn(String groupId, FridgeSettings settings) {
+        return testKit.spawn(Fridge.create(groupId, "1", settings.withOrderJournalFile(directory.resolve(groupId + ".orders"))));
+    }
+
+    private static FridgeStock stock(ActorRef<Fridge.FridgeCommand> fridge) {
+        TestProbe<FridgeStock> probe = testKit.createTestProbe();
+        fridge.tell(new Fridge.GetStockCommand(probe.getRef()));
+        return probe.receiveMessage();
+    }
+
+}
@@ -0,0 +1,117 @@
+package at.fhv.sysarch.lab2.homeautomation.devices.fridge;
+
+import akka.actor.testkit.typed.javadsl.ActorTestKit;
+import akka.actor.testkit.typed.javadsl.TestProbe;
+import akka.actor.typed.ActorRef;
+import at.fhv.sysarch.lab2.homeautomation.domain.valueobjects.Product;
+import at.fhv.sysarch.lab2.homeautomation.domain.valueobjects.ProductCatalog;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OrderAdmissionTest {
+
+    private static final ActorTestKit testKit = ActorTestKit.create();
+
+    private final Product apple = ProductCatalog.getDefault().find("apple").get();
+    private final Product watermelon = ProductCatalog.getDefault().find("watermelon").get();
+    private final Product beer = ProductCatalog.getDefault().find("beer").get();
+
+    private TestProbe<Fridge.FridgeCommand> fridge;
+    private TestProbe<FridgeWeightSensor.FridgeWeightSensorCommand> weightSensor;
+    private TestProbe<FridgeSpaceSensor.FridgeSpaceSensorCommand> spaceSensor;
+
+    @AfterAll
+    static void shutdown() {
+        testKit.shutdownTestKit();
+    }
+
+    @BeforeEach
+    void createProbes() {
+        fridge = testKit.createTestProbe();
+        weightSensor = testKit.createTestProbe();
+        spaceSensor = testKit.createTestProbe();
+    }
+
+    @Test
+    void batchesTheOrdersArrivingWhileABatchIsAdmitted() {
+        ActorRef<OrderAdmission.OrderAdmissionCommand> admission = spawn(2, Duration.ofSeconds(5));
+        admission.tell(new OrderAdmission.AdmitOrderCommand(apple));
+        admission.tell(new OrderAdmission.AdmitOrderCommand(watermelon));
+        admission.tell(new OrderAdmission.AdmitOrderCommand(beer));
+        admission.tell(new OrderAdmission.AdmitOrderCommand(apple));
+
+        FridgeWeightSensor.ReserveWeightCommand first = weightSensor.expectMessageClass(FridgeWeightSensor.ReserveWeightCommand.class);
+        assertArrayEquals(new int[]{apple.getWeight()}, first.weights);
+        weightSensor.expectNoMessage();
+
+        admit(first, new boolean[]{true}, 1);
+        assertEquals(apple.getId(), fridge.expectMessageClass(Fridge.StockFridgeCommand.class).productId);
+
+        // the three waiting orders exceed the batch size
+        FridgeWeightSensor.ReserveWeightCommand second = weightSensor.expectMessageClass(FridgeWeightSensor.ReserveWeightCommand.class);
+        assertArrayEquals(new int[]{watermelon.getWeight(), beer.getWeight()}, second.weights);
+        admit(second, new boolean[]{true, true}, 2);
+        fridge.expectMessageClass(Fridge.StockFridgeCommand.class);
+        fridge.expectMessageClass(Fridge.StockFridgeCommand.class);
+
+        FridgeWeightSensor.ReserveWeightCommand third = weightSensor.expectMessageClass(FridgeWeightSensor.ReserveWeightCommand.class);
+        assertArrayEquals(new int[]{apple.getWeight()}, third.weights);
+        assertTrue(third.batchId > second.batchId);
+    }
+
+    @Test
+    void stocksOnlyProductsWithWeightAndSpaceAndReleasesTheRest() {
+        ActorRef<OrderAdmission.OrderAdmissionCommand> admission = spawn(3, Duration.ofSeconds(5));
+        admission.tell(new OrderAdmission.AdmitOrderCommand(apple));
+        FridgeWeightSensor.ReserveWeightCommand single = weightSensor.expectMessageClass(FridgeWeightSensor.ReserveWeightCommand.class);
+        admission.tell(new OrderAdmission.AdmitOrderCommand(watermelon));
+        admission.tell(new OrderAdmission.AdmitOrderCommand(beer));
+        admission.tell(new OrderAdmission.AdmitOrderCommand(apple));
+        admit(single, new boolean[]{true}, 1);
+        fridge.expectMessageClass(Fridge.StockFridgeCommand.class);
+
+        FridgeWeightSensor.ReserveWeightCommand batch = weightSensor.expectMessageClass(FridgeWeightSensor.ReserveWeightCommand.class);
+        // the watermelon is too heavy, only one of beer and apple gets space
+        admission.tell(new OrderAdmission.WeightReservedCommand(batch.batchId, new boolean[]{false, true, true}));
+        FridgeSpaceSensor.ReserveSpaceCommand space = spaceSensor.expectMessageClass(FridgeSpaceSensor.ReserveSpaceCommand.class);
+        assertEquals(2, space.count);
+        admission.tell(new OrderAdmission.SpaceReservedCommand(batch.batchId, 1));
+
+        assertEquals(beer.getId(), fridge.expectMessageClass(Fridge.StockFridgeCommand.class).productId);
+        fridge.expectNoMessage();
+        assertEquals(apple.getWeight(), weightSensor.expectMessageClass(FridgeWeightSensor.RemoveWeightCommand.class).weight);
+    }
+
+    @Test
+    void releasesWhatTheSensorsReservedForATimedOutBatch() {
+        ActorRef<OrderAdmission.OrderAdmissionCommand> admission = spawn(2, Duration.ofMillis(200));
+        admission.tell(new OrderAdmission.AdmitOrderCommand(apple));
+        FridgeWeightSensor.ReserveWeightCommand timedOut = weightSensor.expectMessageClass(FridgeWeightSensor.ReserveWeightCommand.class);
+        admission.tell(new OrderAdmission.AdmitOrderCommand(beer));
+
+        // the next batch starts once the first one failed
+        FridgeWeightSensor.ReserveWeightCommand next = weightSensor.expectMessageClass(FridgeWeightSensor.ReserveWeightCommand.class, Duration.ofSeconds(3));
+        assertNotEquals(timedOut.batchId, next.batchId);
+
+        admission.tell(new OrderAdmission.WeightReservedCommand(timedOut.batchId, new boolean[]{true}));
+        assertEquals(apple.getWeight(), weightSensor.expectMessageClass(FridgeWeightSensor.RemoveWeightCommand.class).weight);
+        fridge.expectNoMessage();
+        spaceSensor.expectNoMessage();
+    }
+
+    private ActorRef<OrderAdmission.OrderAdmissionCommand> spawn(int maxBatchSize, Duration timeout) {
+        return testKit.spawn(OrderAdmission.create(fridge.getRef(), weightSensor.getRef(), spaceSensor.getRef(), maxBatchSize, timeout, "1", "1"));
+    }
+
+    private void admit(FridgeWeightSensor.ReserveWeightCommand batch, boolean[] weightGranted, int spaceGranted) {
+        batch.orderAdmission.tell(new OrderAdmission.WeightReservedCommand(batch.batchId, weightGranted));
+        spaceSensor.expectMessageClass(FridgeSpaceSensor.ReserveSpaceCommand.class);
+        batch.orderAdmission.tell(new OrderAdmission.SpaceReservedCommand(batch.batchId, spaceGranted));
+    }
+
+}
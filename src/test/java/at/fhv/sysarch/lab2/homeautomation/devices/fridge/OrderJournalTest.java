@@ -0,0 +1,141 @@
+package at.fhv.sysarch.lab2.homeautomation.devices.fridge;
+
+import at.fhv.sysarch.lab2.homeautomation.domain.Order;
+import at.fhv.sysarch.lab2.homeautomation.domain.valueobjects.Product;
+import at.fhv.sysarch.lab2.homeautomation.domain.valueobjects.ProductCatalog;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OrderJournalTest {
+
+    private static final LocalDateTime START = LocalDateTime.of(2020, 1, 1, 0, 0);
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void growsPastItsFirstMappingAndKeepsTheOrdersOnReopen() throws IOException {
+        Product apple = ProductCatalog.getDefault().get(0);
+        int orders = (1 << 14) + 100;
+
+        Path file = directory.resolve("grow.orders");
+        try (OrderJournal journal = OrderJournal.open(file)) {
+            for (int i = 0; i < orders; i++) {
+                journal.append(new Order(new UUID(0, i), START.plusSeconds(i), apple));
+            }
+            assertEquals(orders, journal.size());
+        }
+
+        try (OrderJournal journal = OrderJournal.open(file)) {
+            assertEquals(orders, journal.size());
+            List<Order> read = journal.read(orders - 2, 10);
+            assertEquals(2, read.size());
+            assertEquals(new UUID(0, orders - 2), read.get(0).getUuid());
+            assertEquals(START.plusSeconds(orders - 1), read.get(1).getOrderDate());
+            assertSame(apple, read.get(1).getProduct());
+
+            journal.append(new Order(new UUID(1, 0), START.plusSeconds(orders), apple));
+            assertEquals(orders + 1, journal.size());
+        }
+    }
+
+    @Test
+    void pagesFromTheMostRecentOrders() throws IOException {
+        try (OrderJournal journal = OrderJournal.open(directory.resolve("page.orders"))) {
+            append(journal, 25);
+
+            assertEquals(uuids(15, 25), uuids(journal.page(0, 10)));
+            assertEquals(uuids(5, 15), uuids(journal.page(1, 10)));
+            assertEquals(uuids(0, 5), uuids(journal.page(2, 10)));
+            assertTrue(journal.page(3, 10).isEmpty());
+        }
+    }
+
+    @Test
+    void neverMistakesAPageFarBackForARecentOne() throws IOException {
+        try (OrderJournal journal = OrderJournal.open(directory.resolve("far.orders"))) {
+            append(journal, 25);
+
+            // page * pageSize overflows to a multiple of 2^64, which would read as page 0
+            assertTrue(journal.page(1L << 62, 4).isEmpty());
+            assertTrue(journal.page(Long.MAX_VALUE, Integer.MAX_VALUE).isEmpty());
+            assertEquals(uuids(0, 25), uuids(journal.page(0, Integer.MAX_VALUE)));
+
+            assertThrows(IllegalArgumentException.class, () -> journal.page(-1, 10));
+            assertThrows(IllegalArgumentException.class, () -> journal.page(0, 0));
+        }
+    }
+
+    @Test
+    void findsTheOrdersOfARange() throws IOException {
+        try (OrderJournal journal = OrderJournal.open(directory.resolve("between.orders"))) {
+            append(journal, 100);
+
+            assertEquals(uuids(10, 20), uuids(journal.between(START.plusMinutes(10), START.plusMinutes(20), 100)));
+            assertEquals(uuids(10, 13), uuids(journal.between(START.plusMinutes(10), START.plusMinutes(20), 3)));
+            assertEquals(uuids(95, 100), uuids(journal.between(START.plusMinutes(95), START.plusDays(1), 100)));
+            assertEquals(uuids(0, 1), uuids(journal.between(START.minusDays(1), START.plusSeconds(1), 100)));
+            assertTrue(journal.between(START.plusDays(1), START.plusDays(2), 100).isEmpty());
+        }
+    }
+
+    @Test
+    void readsTheOrdersWithThePriceAndWeightTheyWerePlacedWith() throws IOException {
+        ProductCatalog then = ProductCatalog.read(new BufferedReader(new StringReader(
+                "0,apple,1.5,4\n" +
+                "1,watermelon,3.0,20\n" +
+                "2,elden ring,69.0,2\n" +
+                "3,beer,2.3,3\n" +
+                "4,mead,7.0,5\n"
+        )), "test");
+
+        try (OrderJournal journal = OrderJournal.open(directory.resolve("recorded.orders"))) {
+            journal.append(new Order(new UUID(0, 0), START, then.get(0)));
+            journal.append(new Order(new UUID(0, 1), START, then.get(3)));
+            journal.append(new Order(new UUID(0, 2), START, then.get(4)));
+
+            List<Order> orders = journal.read(0, 3);
+
+            Product apple = orders.get(0).getProduct();
+            assertEquals("apple", apple.getName());
+            assertEquals(1.5, apple.getPrice());
+            assertEquals(4, apple.getWeight());
+
+            assertSame(ProductCatalog.getDefault().get(3), orders.get(1).getProduct());
+
+            Product mead = orders.get(2).getProduct();
+            assertEquals(4, mead.getId());
+            assertEquals("#4", mead.getName());
+            assertEquals(7.0, mead.getPrice());
+            assertEquals(5, mead.getWeight());
+        }
+    }
+
+    private static void append(OrderJournal journal, int orders) throws IOException {
+        Product beer = ProductCatalog.getDefault().get(3);
+        for (int i = 0; i < orders; i++) {
+            journal.append(new Order(new UUID(0, i), START.plusMinutes(i), beer));
+        }
+    }
+
+    private static List<UUID> uuids(List<Order> orders) {
+        return orders.stream().map(Order::getUuid).collect(Collectors.toList());
+    }
+
+    private static List<UUID> uuids(int from, int to) {
+        return IntStream.range(from, to).mapToObj(i -> new UUID(0, i)).collect(Collectors.toList());
+    }
+
+}
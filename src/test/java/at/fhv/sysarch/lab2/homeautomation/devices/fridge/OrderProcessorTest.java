@@ -0,0 +1,90 @@
+package at.fhv.sysarch.lab2.homeautomation.devices.fridge;
+
+import akka.actor.testkit.typed.javadsl.ActorTestKit;
+import akka.actor.testkit.typed.javadsl.TestProbe;
+import akka.actor.typed.ActorRef;
+import at.fhv.sysarch.lab2.homeautomation.domain.valueobjects.Product;
+import at.fhv.sysarch.lab2.homeautomation.domain.valueobjects.ProductCatalog;
+import at.fhv.sysarch.lab2.homeautomation.metrics.Metrics;
+import at.fhv.sysarch.lab2.homeautomation.metrics.ValueMetrics;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OrderProcessorTest {
+
+    private static final ActorTestKit testKit = ActorTestKit.create();
+
+    private static final Duration TIMEOUT = Duration.ofMillis(200);
+
+    private final Product apple = ProductCatalog.getDefault().find("apple").get();
+    private final FridgeCapacity capacity = new FridgeCapacity(1, 1, 100, 10);
+    private final ValueMetrics timedOut = Metrics.get(testKit.system()).counter("fridge_orders_timed_out_total");
+    private final TestProbe<FridgeCapacityView.FridgeCapacityViewCommand> view = testKit.createTestProbe();
+    private final TestProbe<Object> watcher = testKit.createTestProbe();
+
+    @AfterAll
+    static void shutdown() {
+        testKit.shutdownTestKit();
+    }
+
+    @Test
+    void failsOnceTheRequestWasWithdrawnAfterTheTimeout() {
+        long timedOutBefore = timedOut.getValue();
+        ActorRef<OrderProcessor.OrderProcessorCommand> processor = spawn();
+        view.expectMessageClass(FridgeCapacityView.ReserveCapacityCommand.class);
+
+        FridgeCapacityView.CancelReservationCommand cancel = view.expectMessageClass(FridgeCapacityView.CancelReservationCommand.class, TIMEOUT.multipliedBy(3));
+        assertEquals(processor, cancel.replyTo);
+        processor.tell(new OrderProcessor.ReservationCancelledCommand());
+
+        watcher.expectTerminated(processor);
+        assertEquals(timedOutBefore + 1, timedOut.getValue());
+    }
+
+    @Test
+    void doesNotFailAnOrderAdmittedBeforeItsWithdrawal() {
+        long timedOutBefore = timedOut.getValue();
+        ActorRef<OrderProcessor.OrderProcessorCommand> processor = spawn();
+        view.expectMessageClass(FridgeCapacityView.ReserveCapacityCommand.class);
+        view.expectMessageClass(FridgeCapacityView.CancelReservationCommand.class, TIMEOUT.multipliedBy(3));
+
+        // the view admitted the order while the withdrawal was on its way
+        processor.tell(new OrderProcessor.CapacityReservedCommand(true, capacity));
+        processor.tell(new OrderProcessor.ReservationCancelledCommand());
+
+        watcher.expectTerminated(processor);
+        assertEquals(timedOutBefore, timedOut.getValue());
+    }
+
+    @Test
+    void failsIfTheViewAnswersNeitherTheRequestNorItsWithdrawal() {
+        long timedOutBefore = timedOut.getValue();
+        ActorRef<OrderProcessor.OrderProcessorCommand> processor = spawn();
+        view.expectMessageClass(FridgeCapacityView.ReserveCapacityCommand.class);
+        view.expectMessageClass(FridgeCapacityView.CancelReservationCommand.class, TIMEOUT.multipliedBy(3));
+
+        watcher.expectTerminated(processor, TIMEOUT.multipliedBy(3));
+        assertEquals(timedOutBefore + 1, timedOut.getValue());
+    }
+
+    @Test
+    void stopsWithoutFailingOnceAnswered() {
+        long timedOutBefore = timedOut.getValue();
+        ActorRef<OrderProcessor.OrderProcessorCommand> processor = spawn();
+        view.expectMessageClass(FridgeCapacityView.ReserveCapacityCommand.class);
+        processor.tell(new OrderProcessor.CapacityReservedCommand(false, capacity));
+
+        watcher.expectTerminated(processor);
+        view.expectNoMessage(TIMEOUT.multipliedBy(2));
+        assertEquals(timedOutBefore, timedOut.getValue());
+    }
+
+    private ActorRef<OrderProcessor.OrderProcessorCommand> spawn() {
+        return testKit.spawn(OrderProcessor.create(view.getRef(), apple, TIMEOUT, "1", "1"));
+    }
+
+}
@@ -0,0 +1,74 @@
+package at.fhv.sysarch.lab2.homeautomation.domain.valueobjects;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ProductCatalogTest {
+
+    @Test
+    void findsEveryProductByIdAndNameAsOneInstance() throws IOException {
+        ProductCatalog catalog = read("id,name,price,weight\n# snacks\n1,chips,1.5,1\n\n0,apple,1.0,2\n");
+
+        assertEquals(2, catalog.size());
+        assertEquals(List.of("apple", "chips"), catalog.getNames());
+
+        Product chips = catalog.get(1);
+        assertEquals("chips", chips.getName());
+        assertEquals(1.5, chips.getPrice());
+        assertEquals(1, chips.getWeight());
+        assertSame(chips, catalog.find(1).get());
+        assertSame(chips, catalog.find("chips").get());
+        // the optional is kept with the product instead of allocated per lookup
+        assertSame(catalog.find(1), catalog.find("chips"));
+    }
+
+    @Test
+    void answersUnknownProductsWithAnEmptyOptional() throws IOException {
+        ProductCatalog catalog = read("0,apple,1.0,2\n");
+
+        assertEquals(Optional.empty(), catalog.find(1));
+        assertEquals(Optional.empty(), catalog.find(-1));
+        assertEquals(Optional.empty(), catalog.find("pear"));
+        assertThrows(IllegalArgumentException.class, () -> catalog.get(1));
+    }
+
+    @Test
+    void keepsThePriceAndWeightAProductWasRecordedWith() throws IOException {
+        ProductCatalog catalog = read("0,apple,1.0,2\n");
+        Product apple = catalog.get(0);
+
+        assertSame(apple, catalog.recorded(0, 1.0, 2));
+
+        Product cheaper = catalog.recorded(0, 0.5, 2);
+        assertEquals("apple", cheaper.getName());
+        assertEquals(0.5, cheaper.getPrice());
+        assertNotEquals(apple, cheaper);
+
+        assertEquals("#7", catalog.recorded(7, 2.0, 3).getName());
+    }
+
+    @Test
+    void rejectsCatalogsWhoseIdsAreNotDenseAndUnique() {
+        for (String csv : new String[]{
+                "1,apple,1.0,2\n",
+                "0,apple,1.0,2\n0,pear,1.0,2\n",
+                "0,apple,1.0,2\n1,apple,1.0,2\n",
+                "0,apple,1.0\n",
+                "0,apple,cheap,2\n",
+        }) {
+            assertThrows(IllegalArgumentException.class, () -> read(csv), csv);
+        }
+    }
+
+    private static ProductCatalog read(String csv) throws IOException {
+        return ProductCatalog.read(new BufferedReader(new StringReader(csv)), "test");
+    }
+
+}
@@ -0,0 +1,101 @@
+package at.fhv.sysarch.lab2.homeautomation.home;
+
+import akka.actor.testkit.typed.javadsl.ActorTestKit;
+import akka.actor.testkit.typed.javadsl.TestProbe;
+import akka.actor.typed.ActorRef;
+import at.fhv.sysarch.lab2.homeautomation.devices.AirCondition;
+import at.fhv.sysarch.lab2.homeautomation.devices.DeviceKind;
+import at.fhv.sysarch.lab2.homeautomation.devices.DeviceRegistry;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HomeRegistryTest {
+
+    private static final ActorTestKit testKit = ActorTestKit.create();
+
+    private static final DeviceRegistry devices = DeviceRegistry.get(testKit.system());
+
+    @AfterAll
+    static void shutdown() throws IOException {
+        testKit.shutdownTestKit();
+        for (String homeId : new String[]{"lazy", "started", "idle"}) {
+            Files.deleteIfExists(Paths.get("data", "fridge-" + homeId + "-1.orders"));
+        }
+    }
+
+    @Test
+    void spawnsAHomeOnItsFirstMessage() {
+        ActorRef<HomeRegistry.RegistryCommand> registry = testKit.spawn(HomeRegistry.create(null));
+
+        assertEquals(0, activeHomes(registry).getActive());
+        assertNull(devices.lookup(DeviceKind.AIR_CONDITION, "lazy", "1"));
+
+        registry.tell(new HomeRegistry.DeliverToHomeCommand("lazy", powerOn()));
+
+        assertEquals(1, activeHomes(registry).getActive());
+        awaitDevice("lazy");
+    }
+
+    @Test
+    void startsAHomeBeforeItsFirstMessage() {
+        ActorRef<HomeRegistry.RegistryCommand> registry = testKit.spawn(HomeRegistry.create(null));
+
+        registry.tell(new HomeRegistry.StartHomeCommand("started"));
+        registry.tell(new HomeRegistry.StartHomeCommand("started"));
+
+        assertEquals(1, activeHomes(registry).getActive());
+        awaitDevice("started");
+    }
+
+    @Test
+    void passivatesAnIdleHomeAndSpawnsItAgainOnTheNextMessage() {
+        ActorRef<HomeRegistry.RegistryCommand> registry = testKit.spawn(HomeRegistry.create(Duration.ofMillis(200)));
+
+        registry.tell(new HomeRegistry.DeliverToHomeCommand("idle", powerOn()));
+        ActorRef<AirCondition.AirConditionCommand> first = awaitDevice("idle");
+
+        TestProbe<HomeRegistry.ActiveHomes> probe = testKit.createTestProbe();
+        probe.awaitAssert(() -> {
+            registry.tell(new HomeRegistry.GetActiveHomesCommand(probe.getRef()));
+            HomeRegistry.ActiveHomes homes = probe.receiveMessage();
+            assertEquals(0, homes.getActive());
+            assertEquals(0, homes.getPassivating());
+            // the devices of a stopped home leave the registry with it
+            assertNull(devices.lookup(DeviceKind.AIR_CONDITION, "idle", "1"));
+            return null;
+        });
+
+        registry.tell(new HomeRegistry.DeliverToHomeCommand("idle", powerOn()));
+
+        assertEquals(1, activeHomes(registry).getActive());
+        assertNotEquals(first, awaitDevice("idle"));
+    }
+
+    private static HomeRegistry.ActiveHomes activeHomes(ActorRef<HomeRegistry.RegistryCommand> registry) {
+        TestProbe<HomeRegistry.ActiveHomes> probe = testKit.createTestProbe();
+        registry.tell(new HomeRegistry.GetActiveHomesCommand(probe.getRef()));
+        return probe.receiveMessage();
+    }
+
+    private static ActorRef<AirCondition.AirConditionCommand> awaitDevice(String homeId) {
+        TestProbe<Void> probe = testKit.createTestProbe();
+        return probe.awaitAssert(() -> {
+            ActorRef<AirCondition.AirConditionCommand> airCondition = devices.lookup(DeviceKind.AIR_CONDITION, homeId, "1");
+            assertNotNull(airCondition);
+            return airCondition;
+        });
+    }
+
+    private static Home.HomeCommand powerOn() {
+        return new Home.ForwardToAirConditionCommand(new AirCondition.PowerAirConditionCommand(Optional.of(true)));
+    }
+
+}
@@ -0,0 +1,132 @@
+package at.fhv.sysarch.lab2.homeautomation.load;
+
+import akka.actor.testkit.typed.javadsl.ActorTestKit;
+import akka.actor.testkit.typed.javadsl.TestProbe;
+import akka.actor.typed.ActorRef;
+import at.fhv.sysarch.lab2.homeautomation.devices.AirCondition;
+import at.fhv.sysarch.lab2.homeautomation.devices.fridge.Fridge;
+import at.fhv.sysarch.lab2.homeautomation.environment.Environment;
+import com.typesafe.config.ConfigFactory;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LoadGeneratorTest {
+
+    private static final ActorTestKit testKit = ActorTestKit.create(ConfigFactory.parseString(
+            "homeautomation.load.temperature-rates = [40, 100]\n" +
+            "homeautomation.load.weather-rates = [20, 0]\n" +
+            "homeautomation.load.fridge-rates = [10, 0]\n" +
+            "homeautomation.load.step-duration = 500ms\n" +
+            "homeautomation.load.warmup = 0s\n" +
+            "homeautomation.load.exit = off\n" +
+            "homeautomation.sensors.coalescing-window = 0s"
+    ).withFallback(ActorTestKit.applicationTestConfig()));
+
+    @AfterAll
+    static void shutdown() {
+        testKit.shutdownTestKit();
+    }
+
+    @Test
+    void pairsEachStateChangeWithTheOldestChangeTargetingIt() {
+        ChangeLatencies latencies = new ChangeLatencies();
+        latencies.reset(0);
+        assertEquals(0, latencies.send(100));
+        assertEquals(1, latencies.send(200));
+        assertEquals(0, latencies.send(300));
+
+        latencies.changed(0, 1_000);
+        assertEquals(2, latencies.getBacklog());
+        assertEquals(900, latencies.getHistogram().getMax());
+
+        // the device never saw the change to 1, it was superseded by the change back to 0
+        latencies.changed(0, 1_500);
+        assertEquals(1, latencies.getSuperseded());
+        assertEquals(0, latencies.getBacklog());
+        assertEquals(2, latencies.getHistogram().getCount());
+        assertEquals(1_200, latencies.getHistogram().getMax());
+
+        latencies.changed(1, 2_000);
+        assertEquals(1, latencies.getUnexpected());
+        assertEquals(3, latencies.getSent());
+    }
+
+    @Test
+    void doesNotWaitForAChangeToTheStateTheDeviceIsIn() {
+        ChangeLatencies latencies = new ChangeLatencies();
+        latencies.reset(0);
+        latencies.send(100);
+        latencies.changed(0, 200);
+        // switched on by something else in between
+        latencies.changed(1, 300);
+
+        assertEquals(1, latencies.send(400));
+        assertEquals(1, latencies.getSuperseded());
+        assertEquals(0, latencies.getBacklog());
+        assertEquals(0, latencies.send(500));
+        latencies.changed(0, 600);
+        assertEquals(0, latencies.getBacklog());
+        assertEquals(2, latencies.getHistogram().getCount());
+        assertEquals(1, latencies.getUnexpected());
+    }
+
+    @Test
+    void answersButDoesNotRecordChangesSentDuringTheWarmup() {
+        ChangeLatencies latencies = new ChangeLatencies();
+        latencies.reset(1_000);
+        for (long sentAt = 0; sentAt < 3_000; sentAt++) {
+            latencies.send(sentAt);
+        }
+        for (long sequence = 0; sequence < 3_000; sequence++) {
+            latencies.changed((int) (sequence & 1), sequence + 10);
+        }
+
+        assertEquals(0, latencies.getBacklog());
+        assertEquals(0, latencies.getSuperseded());
+        assertEquals(2_000, latencies.getHistogram().getCount());
+        assertEquals(10, latencies.getHistogram().getMax());
+    }
+
+    @Test
+    void sendsTheChangesOfEveryStepAtItsRatesAndStops() {
+        TestProbe<Environment.EnvironmentCommand> environment = testKit.createTestProbe();
+        TestProbe<AirCondition.AirConditionCommand> airCondition = testKit.createTestProbe();
+        TestProbe<Fridge.FridgeCommand> fridge = testKit.createTestProbe();
+        ActorRef<LoadGenerator.LoadCommand> generator = testKit.spawn(LoadGenerator.create(environment.getRef(), airCondition.getRef(), fridge.getRef()));
+
+        airCondition.expectMessageClass(AirCondition.PowerAirConditionCommand.class);
+        TestProbe<Object> watcher = testKit.createTestProbe();
+        watcher.expectTerminated(generator, Duration.ofSeconds(5));
+
+        List<Environment.EnvironmentCommand> changes = drain(environment);
+        long temperatures = changes.stream().filter(c -> c instanceof Environment.SetTemperatureCommand).count();
+        long weathers = changes.stream().filter(c -> c instanceof Environment.SetWeatherCommand).count();
+        // at most as many as due in each step, the last tick of a step may come before its end
+        assertTrue(temperatures > 35 && temperatures <= 20 + 50, "temperatures " + temperatures);
+        assertTrue(weathers > 5 && weathers <= 10, "weathers " + weathers);
+
+        List<Fridge.FridgeCommand> orders = drain(fridge);
+        assertTrue(orders.size() > 1 && orders.size() <= 5, "fridge " + orders.size());
+        for (int i = 0; i < orders.size(); i++) {
+            assertEquals(i % 2 == 0 ? Fridge.RequestOrderProductCommand.class : Fridge.ConsumeProductCommand.class, orders.get(i).getClass());
+        }
+    }
+
+    private static <T> List<T> drain(TestProbe<T> probe) {
+        List<T> messages = new ArrayList<>();
+        while (true) {
+            try {
+                messages.add(probe.receiveMessage(Duration.ofMillis(100)));
+            } catch (AssertionError e) {
+                return messages;
+            }
+        }
+    }
+
+}
@@ -0,0 +1,185 @@
+package at.fhv.sysarch.lab2.homeautomation.mailbox;
+
+import akka.actor.ActorRef;
+import akka.actor.ActorSystem;
+import akka.actor.testkit.typed.javadsl.ActorTestKit;
+import akka.actor.typed.javadsl.Adapter;
+import akka.dispatch.Envelope;
+import at.fhv.sysarch.lab2.homeautomation.metrics.ActorMetrics;
+import at.fhv.sysarch.lab2.homeautomation.metrics.Metrics;
+import com.typesafe.config.ConfigFactory;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import scala.Option;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BoundedMailboxTest {
+
+    private static final ActorTestKit testKit = ActorTestKit.create();
+
+    private static final ActorSystem system = Adapter.toClassic(testKit.system());
+
+    @AfterAll
+    static void shutdown() {
+        testKit.shutdownTestKit();
+    }
+
+    private static final class Reading implements Conflatable {
+        final String sensor;
+        final int value;
+
+        Reading(String sensor, int value) {
+            this.sensor = sensor;
+            this.value = value;
+        }
+
+        @Override
+        public Object conflationKey() {
+            return sensor;
+        }
+
+        @Override
+        public String toString() {
+            return sensor + value;
+        }
+    }
+
+    private static final class Request implements Sheddable {
+        final String name;
+
+        Request(String name) {
+            this.name = name;
+        }
+
+        @Override
+        public String toString() {
+            return name;
+        }
+    }
+
+    @Test
+    void dropsArrivingMessagesWhenFull() {
+        Mailbox mailbox = new Mailbox(3, "drop-newest", "all");
+        mailbox.enqueue("a", "b", "c", "d", "e");
+
+        assertEquals(List.of("a", "b", "c"), mailbox.drain());
+        assertEquals(2, mailbox.dropped());
+    }
+
+    @Test
+    void dropsTheOldestMessagesToMakeRoom() {
+        Mailbox mailbox = new Mailbox(3, "drop-oldest", "all");
+        mailbox.enqueue("a", "b", "c", "d", "e");
+
+        assertEquals(List.of("c", "d", "e"), mailbox.drain());
+        assertEquals(2, mailbox.dropped());
+    }
+
+    @Test
+    void conflatesReadingsInPlaceAndCountsTheReplacedOnes() {
+        Mailbox mailbox = new Mailbox(3, "conflate", "all");
+        mailbox.enqueue(new Reading("t", 1), "a", new Reading("w", 1), new Reading("t", 2), new Reading("t", 3));
+
+        assertEquals(List.of("t3", "a", "w1"), mailbox.drainText());
+        assertEquals(2, mailbox.dropped());
+
+        // full, plain messages are dropped
+        mailbox.enqueue("x", "y", "z", "overflow");
+        assertEquals(List.of("x", "y", "z"), mailbox.drainText());
+        assertEquals(3, mailbox.dropped());
+    }
+
+    @Test
+    void boundsOnlySheddableMessagesIfConfigured() {
+        Mailbox mailbox = new Mailbox(2, "drop-newest", "sheddable");
+        mailbox.enqueue("protocol 1", new Request("r1"), new Request("r2"), "protocol 2", "protocol 3");
+
+        assertEquals(List.of("protocol 1", "r1", "protocol 2", "protocol 3"), mailbox.drainText());
+        assertEquals(1, mailbox.dropped());
+    }
+
+    @Test
+    void dropsTheOldestSheddableMessageOnly() {
+        Mailbox mailbox = new Mailbox(2, "drop-oldest", "sheddable");
+        mailbox.enqueue("protocol 1", new Request("r1"), "protocol 2", new Request("r2"));
+
+        assertEquals(List.of("protocol 1", "protocol 2", "r2"), mailbox.drainText());
+        assertEquals(1, mailbox.dropped());
+
+        // nothing may make room for it
+        mailbox.enqueue("protocol 3", "protocol 4", new Request("r3"));
+        assertEquals(List.of("protocol 3", "protocol 4"), mailbox.drainText());
+        assertEquals(2, mailbox.dropped());
+    }
+
+    @Test
+    void signalsBackpressureUntilDrainedToHalf() {
+        Mailbox mailbox = new Mailbox(10, "drop-newest", "all");
+        mailbox.enqueue("1", "2", "3", "4", "5", "6", "7");
+        assertFalse(mailbox.queue.isBackpressured());
+
+        mailbox.enqueue("8");
+        assertTrue(mailbox.queue.isBackpressured());
+        for (int i = 0; i < 3; i++) {
+            mailbox.queue.dequeue();
+        }
+        assertTrue(mailbox.queue.isBackpressured());
+        mailbox.queue.dequeue();
+        assertFalse(mailbox.queue.isBackpressured());
+    }
+
+    @Test
+    void refusesAnUnknownBound() {
+        assertThrows(IllegalArgumentException.class, () -> new Mailbox(1, "drop-newest", "some"));
+    }
+
+    /**
+     * A queue of its own, with an owner of its own so its drops are counted apart from the other tests.
+     */
+    private static final class Mailbox {
+        final BoundedMailbox.BoundedQueue queue;
+        final ActorMetrics metrics;
+        final long droppedBefore;
+
+        Mailbox(int capacity, String overflow, String bound) {
+            BoundedMailbox type = new BoundedMailbox(system.settings(), ConfigFactory.parseString(
+                    "capacity = " + capacity + ", overflow = " + overflow + ", bound = " + bound + ", backpressure-at = 0.8"));
+            ActorRef owner = Adapter.toClassic(testKit.createTestProbe().getRef());
+            this.queue = (BoundedMailbox.BoundedQueue) type.create(Option.apply(owner), Option.apply(system));
+            this.metrics = Metrics.get(testKit.system()).actor(owner.path());
+            this.droppedBefore = metrics.getDroppedMessages();
+        }
+
+        void enqueue(Object... messages) {
+            for (Object message : messages) {
+                queue.enqueue(ActorRef.noSender(), Envelope.apply(message, ActorRef.noSender(), system));
+            }
+        }
+
+        List<Object> drain() {
+            List<Object> messages = new ArrayList<>();
+            Envelope envelope;
+            while ((envelope = queue.dequeue()) != null) {
+                messages.add(envelope.message());
+            }
+            return messages;
+        }
+
+        List<String> drainText() {
+            List<String> messages = new ArrayList<>();
+            for (Object message : drain()) {
+                messages.add(message.toString());
+            }
+            return messages;
+        }
+
+        long dropped() {
+            return metrics.getDroppedMessages() - droppedBefore;
+        }
+    }
+
+}
@@ -0,0 +1,117 @@
+package at.fhv.sysarch.lab2.homeautomation.metrics;
+
+import akka.actor.ActorPaths;
+import akka.actor.testkit.typed.javadsl.ActorTestKit;
+import akka.actor.testkit.typed.javadsl.TestProbe;
+import akka.actor.typed.Behavior;
+import akka.actor.typed.javadsl.Behaviors;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MetricsTest {
+
+    private static final ActorTestKit testKit = ActorTestKit.create();
+
+    private static final Metrics metrics = Metrics.get(testKit.system());
+
+    @AfterAll
+    static void shutdown() {
+        testKit.shutdownTestKit();
+    }
+
+    private static final class Tick {
+    }
+
+    private static final class Ping {
+    }
+
+    @Test
+    void reportsPercentilesAtMostOneBucketAboveTheRecordedValue() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long value = 1; value <= 1000; value++) {
+            histogram.record(value);
+        }
+        histogram.record(-5);
+
+        assertEquals(1001, histogram.getCount());
+        assertEquals(1000, histogram.getMax());
+        assertEquals(500_500 / 1001.0, histogram.getMean(), 1e-9);
+        long p50 = histogram.getPercentile(50);
+        assertTrue(p50 >= 500 && p50 <= 500 * 1.125, "p50 " + p50);
+        long p99 = histogram.getPercentile(99);
+        assertTrue(p99 >= 990 && p99 <= 1000, "p99 " + p99);
+        assertEquals(1000, histogram.getPercentile(100));
+
+        histogram.reset();
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getPercentile(99));
+    }
+
+    @Test
+    void placesEveryValueInTheBucketBoundingIt() {
+        for (long value : new long[]{0, 7, 8, 9, 15, 16, 17, 1000, 123_456_789, Long.MAX_VALUE}) {
+            int index = LatencyHistogram.indexOf(value);
+            assertTrue(value <= LatencyHistogram.upperBoundOf(index), Long.toString(value));
+            assertTrue(index == 0 || value > LatencyHistogram.upperBoundOf(index - 1), Long.toString(value));
+        }
+    }
+
+    @Test
+    void groupsActorsByTheirNameWithoutTheInstanceSuffix() {
+        assertEquals("Home/Fridge/OrderProcessor", Metrics.kindOf(ActorPaths.fromString("akka://system/user/Home-7/Fridge/OrderProcessor-4f1c")));
+        assertEquals("system/receptionist", Metrics.kindOf(ActorPaths.fromString("akka://system/system/receptionist")));
+    }
+
+    @Test
+    void countsTimerMessagesAsTheCommandTheTimerDelivered() {
+        TestProbe<Object> probe = testKit.createTestProbe();
+        Behavior<Object> timed = Metrics.withTimers(timers -> {
+            timers.startSingleTimer(new Tick(), Duration.ofMillis(10));
+            return Behaviors.receiveMessage(message -> {
+                probe.getRef().tell(message);
+                return Behaviors.same();
+            });
+        });
+        testKit.spawn(metrics.instrument(timed), "timed").tell(new Ping());
+
+        probe.expectMessageClass(Ping.class);
+        probe.expectMessageClass(Tick.class);
+        ActorMetrics actor = metrics.actor(ActorPaths.fromString("akka://system/user/timed"));
+        probe.awaitAssert(() -> {
+            assertEquals(List.of("Ping", "Tick"), messageNames(actor));
+            return null;
+        });
+        assertEquals(2, actor.getMessageCount());
+    }
+
+    @Test
+    void sharesValuesByNameAndRendersThemInThePrometheusFormat() {
+        ValueMetrics orders = metrics.counter("test_orders_total");
+        orders.increment();
+        metrics.counter("test_orders_total").add(2);
+        metrics.gauge("test_orders_in_flight").add(-1);
+
+        assertEquals(3, orders.getValue());
+        assertThrows(IllegalArgumentException.class, () -> metrics.gauge("test_orders_total"));
+
+        String text = metrics.render();
+        assertTrue(text.contains("# TYPE test_orders_total counter\ntest_orders_total 3\n"), text);
+        assertTrue(text.contains("# TYPE test_orders_in_flight gauge\ntest_orders_in_flight -1\n"), text);
+    }
+
+    private static List<String> messageNames(ActorMetrics actor) {
+        List<String> names = new ArrayList<>();
+        for (MessageMetrics message : actor.getMessages()) {
+            names.add(message.getMessage());
+        }
+        names.sort(null);
+        return names;
+    }
+
+}
@@ -0,0 +1,108 @@
+package at.fhv.sysarch.lab2.homeautomation.output;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OutputQueueTest {
+
+    @Test
+    void wakesTheSinkOncePerCompletedBatch() {
+        OutputQueue queue = new OutputQueue(3, 10);
+
+        assertFalse(queue.offer(null, "1"));
+        assertFalse(queue.offer(null, "2"));
+        assertTrue(queue.offer(null, "3"));
+        assertFalse(queue.offer(null, "4"));
+
+        List<String> lines = new ArrayList<>();
+        assertEquals(0, queue.drain(lines::add));
+        assertEquals(List.of("1", "2", "3", "4"), lines);
+
+        // counted from the start again after a drain
+        assertFalse(queue.offer(null, "5"));
+        assertFalse(queue.offer(null, "6"));
+        assertTrue(queue.offer(null, "7"));
+    }
+
+    @Test
+    void keepsTheLatestOverflowingLineOfAKeyAndCountsTheDroppedOnes() {
+        OutputQueue queue = new OutputQueue(2, 2);
+        queue.offer(null, "a");
+        queue.offer("tv", "tv on");
+        queue.offer("ac", "ac on");
+        queue.offer(null, "b");
+        queue.offer("ac", "ac off");
+        queue.offer(null, "c");
+
+        List<String> lines = new ArrayList<>();
+        assertEquals(2, queue.drain(lines::add));
+        assertEquals(List.of("a", "tv on", "ac off"), lines);
+
+        lines.clear();
+        assertEquals(0, queue.drain(lines::add));
+        assertTrue(lines.isEmpty());
+    }
+
+    @Test
+    void neverHoldsFewerLinesThanABatch() {
+        OutputQueue queue = new OutputQueue(4, 1);
+        for (int i = 0; i < 4; i++) {
+            queue.offer(null, Integer.toString(i));
+        }
+
+        List<String> lines = new ArrayList<>();
+        assertEquals(0, queue.drain(lines::add));
+        assertEquals(4, lines.size());
+    }
+
+    @Test
+    void losesNoLineOfConcurrentWriters() throws InterruptedException {
+        int writers = 4;
+        int linesPerWriter = 10_000;
+        OutputQueue queue = new OutputQueue(64, writers * linesPerWriter);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+        for (int w = 0; w < writers; w++) {
+            String writer = "w" + w;
+            Thread thread = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int i = 0; i < linesPerWriter; i++) {
+                    queue.offer(null, writer + ":" + i);
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+
+        // drained while the writers are still offering, as the sink does
+        List<String> lines = new ArrayList<>();
+        start.countDown();
+        long dropped = 0;
+        for (Thread thread : threads) {
+            while (thread.isAlive()) {
+                dropped += queue.drain(lines::add);
+            }
+            thread.join();
+        }
+        dropped += queue.drain(lines::add);
+
+        assertEquals(0, dropped);
+        assertEquals(writers * linesPerWriter, lines.size());
+        // each writer's lines stay in the order offered
+        int[] next = new int[writers];
+        for (String line : lines) {
+            int writer = line.charAt(1) - '0';
+            assertEquals(next[writer]++, Integer.parseInt(line.substring(3)));
+        }
+    }
+
+}
@@ -0,0 +1,49 @@
+package at.fhv.sysarch.lab2.homeautomation.rules;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DecisionTableTest {
+
+    private static final Rule COLD = RuleParser.parseRule("cold: when temperature < 10 then aircondition off");
+    private static final Rule MILD = RuleParser.parseRule("mild: when temperature >= 10 and temperature <= 20 then aircondition off");
+    private static final Rule WARM = RuleParser.parseRule("warm: when temperature > 20 then aircondition on");
+    private static final Rule HOT = RuleParser.parseRule("hot: when temperature >= 15 then aircondition on");
+    private static final Rule AT_20 = RuleParser.parseRule("at20: when temperature == 20 then aircondition on");
+
+    @Test
+    void matchesTheRulesOfEveryRegionInTheirOrder() {
+        DecisionTable table = new DecisionTable(List.of(COLD, MILD, WARM, HOT, AT_20));
+
+        assertArrayEquals(new Rule[]{COLD}, table.match(-40));
+        assertArrayEquals(new Rule[]{COLD}, table.match(9.99));
+        assertArrayEquals(new Rule[]{MILD}, table.match(10));
+        assertArrayEquals(new Rule[]{MILD}, table.match(12));
+        assertArrayEquals(new Rule[]{MILD, HOT}, table.match(15));
+        assertArrayEquals(new Rule[]{MILD, HOT, AT_20}, table.match(20));
+        assertArrayEquals(new Rule[]{WARM, HOT}, table.match(20.01));
+        assertArrayEquals(new Rule[]{WARM, HOT}, table.match(Double.POSITIVE_INFINITY));
+    }
+
+    @Test
+    void agreesWithTheRulesEverywhere() {
+        List<Rule> rules = List.of(COLD, MILD, WARM, HOT, AT_20);
+        DecisionTable table = new DecisionTable(rules);
+
+        for (double value = -5; value <= 30; value += 0.25) {
+            final double v = value;
+            assertArrayEquals(rules.stream().filter(rule -> rule.matches(v)).toArray(Rule[]::new), table.match(value), "at " + value);
+        }
+    }
+
+    @Test
+    void matchesNothingWithoutRulesOrAValue() {
+        assertEquals(0, new DecisionTable(List.of()).match(20).length);
+        assertEquals(0, new DecisionTable(List.of(COLD, WARM)).match(Double.NaN).length);
+        assertEquals(0, new DecisionTable(List.of(COLD, WARM)).match(15).length);
+    }
+
+}
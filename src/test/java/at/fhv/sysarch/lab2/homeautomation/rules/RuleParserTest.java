@@ -0,0 +1,93 @@
+package at.fhv.sysarch.lab2.homeautomation.rules;
+
+import at.fhv.sysarch.lab2.homeautomation.domain.enums.WeatherCondition;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RuleParserTest {
+
+    @Test
+    void parsesARule() {
+        Rule rule = RuleParser.parseRule("cool: for 7 when temperature >= 20 and temperature < 30.5 then aircondition on");
+
+        assertEquals("cool", rule.getName());
+        assertEquals("7", rule.getHome());
+        assertEquals(Sensor.TEMPERATURE, rule.getSensor());
+        assertEquals(20, rule.getLower());
+        assertTrue(rule.isLowerInclusive());
+        assertEquals(30.5, rule.getUpper());
+        assertFalse(rule.isUpperInclusive());
+        assertEquals(Action.AIR_CONDITION_ON, rule.getAction());
+
+        assertTrue(rule.matches(20));
+        assertFalse(rule.matches(30.5));
+        assertFalse(rule.matches(19.9));
+    }
+
+    @Test
+    void narrowsTheRangeToTheTightestBounds() {
+        Rule rule = RuleParser.parseRule("narrow: when temperature > 10 and temperature >= 15 and temperature <= 25 and temperature < 25 then aircondition off");
+
+        assertEquals(15, rule.getLower());
+        assertTrue(rule.isLowerInclusive());
+        assertEquals(25, rule.getUpper());
+        assertFalse(rule.isUpperInclusive());
+
+        Rule exact = RuleParser.parseRule("restock: when stock == 0 then fridge order");
+        assertTrue(exact.matches(0));
+        assertFalse(exact.matches(1));
+        assertNull(exact.getHome());
+    }
+
+    @Test
+    void readsTheWeatherByName() {
+        Rule rule = RuleParser.parseRule("shade: when weather == sunny then blinds close");
+
+        assertTrue(rule.matches(WeatherCondition.SUNNY.ordinal()));
+        assertFalse(rule.matches(WeatherCondition.CLOUDY.ordinal()));
+    }
+
+    @Test
+    void rejectsInvalidRules() {
+        for (String text : new String[]{
+                "when temperature > 1 then aircondition on",
+                "x: temperature > 1 then aircondition on",
+                "x: when humidity > 1 then aircondition on",
+                "x: when temperature ~ 1 then aircondition on",
+                "x: when temperature > warm then aircondition on",
+                "x: when weather == foggy then blinds close",
+                "x: when temperature > 1 and weather == sunny then aircondition on",
+                "x: when temperature > 1 then aircondition maybe",
+                "x: when temperature > 1 then aircondition on now",
+                "x: when temperature > 1",
+                "x: when temperature > 5 and temperature < 5 then aircondition on",
+                "x: when weather == sunny then aircondition on"
+        }) {
+            assertThrows(IllegalArgumentException.class, () -> RuleParser.parseRule(text), text);
+        }
+    }
+
+    @Test
+    void namesTheLineOfAnInvalidRule() {
+        String rules = "# comment\n\nok: when stock <= 0 then fridge order # trailing\nbroken: when\n";
+
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> RuleParser.parse(new StringReader(rules), "test"));
+        assertTrue(e.getMessage().startsWith("test:4: "), e.getMessage());
+    }
+
+    @Test
+    void parsesTheShippedRules() throws IOException {
+        List<Rule> rules = RuleParser.parse(new InputStreamReader(RuleParserTest.class.getResourceAsStream("/rules.txt"), StandardCharsets.UTF_8), "rules.txt");
+
+        assertEquals(5, rules.size());
+        assertEquals("cool", rules.get(0).getName());
+    }
+
+}
@@ -0,0 +1,53 @@
+package at.fhv.sysarch.lab2.homeautomation.simulation;
+
+import at.fhv.sysarch.lab2.homeautomation.HomeAutomationController;
+import com.typesafe.config.Config;
+import com.typesafe.config.ConfigFactory;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SimulationTest {
+
+    private static final Duration DURATION = Duration.ofDays(1);
+
+    @Test
+    void endsInTheSameStateForTheSameSeed() {
+        long first = fingerprint(42);
+
+        assertEquals(first, fingerprint(42));
+        assertNotEquals(first, fingerprint(7));
+    }
+
+    @Test
+    void movesVirtualTimeOnlyAsFarAsAdvanced() {
+        try (Simulation simulation = start(42)) {
+            DeviceClock clock = DeviceClock.get(simulation.getSystem());
+            long from = clock.millis();
+
+            simulation.advance(Duration.ofHours(3));
+            assertEquals(from + Duration.ofHours(3).toMillis(), clock.millis());
+            simulation.advance(Duration.ZERO);
+            assertEquals(from + Duration.ofHours(3).toMillis(), clock.millis());
+        }
+    }
+
+    private static long fingerprint(long seed) {
+        try (Simulation simulation = start(seed)) {
+            long from = DeviceClock.get(simulation.getSystem()).millis();
+            simulation.advance(DURATION);
+            return SimulationReport.collect(simulation, from).fingerprint();
+        }
+    }
+
+    private static Simulation start(long seed) {
+        Config config = Simulation.config(seed, ConfigFactory.load());
+        // room for every temperature reading of the run, as HomeAutomationSimulation makes
+        long readings = DURATION.toMillis() / config.getDuration("homeautomation.environment.temperature-interval").toMillis() + 16;
+        config = ConfigFactory.parseString("homeautomation.timeseries.capacity = " + readings).withFallback(config);
+        return new Simulation(HomeAutomationController.create(), "SimulationTest", config);
+    }
+
+}
@@ -0,0 +1,96 @@
+package at.fhv.sysarch.lab2.homeautomation.timeseries;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReadingBufferTest {
+
+    @Test
+    void overwritesTheOldestReadingsOnceFull() {
+        ReadingBuffer buffer = new ReadingBuffer(4);
+        for (int i = 0; i < 6; i++) {
+            buffer.add(i * 10L, i);
+        }
+
+        assertEquals(4, buffer.size());
+        assertEquals(20, buffer.timestampAt(0));
+        assertEquals(5.0, buffer.valueAt(3));
+
+        Series last = buffer.last(3);
+        assertEquals(3, last.size());
+        assertEquals(30, last.timestampAt(0));
+        assertEquals(5.0, last.valueAt(2));
+        assertEquals(4, buffer.last(10).size());
+    }
+
+    @Test
+    void neverMovesTimestampsBackwards() {
+        ReadingBuffer buffer = new ReadingBuffer(4);
+        buffer.add(100, 1);
+        buffer.add(50, 2);
+
+        assertEquals(100, buffer.timestampAt(1));
+    }
+
+    @Test
+    void summarizesTheReadingsOfAHalfOpenWindow() {
+        ReadingBuffer buffer = new ReadingBuffer(8);
+        for (int i = 0; i < 12; i++) {
+            buffer.add(i * 10L, i);
+        }
+
+        // readings 4 to 11 are kept, [40, 70) holds 4, 5 and 6
+        WindowStats stats = buffer.stats(40, 70);
+        assertEquals(3, stats.getCount());
+        assertEquals(4.0, stats.getMin());
+        assertEquals(6.0, stats.getMax());
+        assertEquals(5.0, stats.getAverage());
+
+        // the part of the window before the oldest kept reading is empty
+        assertEquals(2, buffer.stats(0, 55).getCount());
+
+        WindowStats empty = buffer.stats(200, 300);
+        assertEquals(0, empty.getCount());
+        assertTrue(Double.isNaN(empty.getAverage()));
+    }
+
+    @Test
+    void averagesReadingsIntoBuckets() {
+        ReadingBuffer buffer = new ReadingBuffer(16);
+        buffer.add(0, 1);
+        buffer.add(5, 3);
+        buffer.add(25, 10);
+        buffer.add(40, 99);
+
+        Series buckets = buffer.downsample(0, 40, 4);
+        assertEquals(4, buckets.size());
+        assertEquals(0, buckets.timestampAt(0));
+        assertEquals(30, buckets.timestampAt(3));
+        assertEquals(2.0, buckets.valueAt(0));
+        assertTrue(Double.isNaN(buckets.valueAt(1)));
+        assertEquals(10.0, buckets.valueAt(2));
+        assertTrue(Double.isNaN(buckets.valueAt(3)));
+
+        assertThrows(IllegalArgumentException.class, () -> buffer.downsample(10, 10, 1));
+    }
+
+    @Test
+    void refusesQueriesTheSensorCouldNotAnswerWhenTheyAreCreated() {
+        ReadingBuffer buffer = new ReadingBuffer(4);
+        buffer.add(100, 7);
+
+        assertThrows(IllegalArgumentException.class, () -> ReadingsQuery.downsample(Duration.ofSeconds(1), 0));
+        assertThrows(IllegalArgumentException.class, () -> ReadingsQuery.downsample(Duration.ofSeconds(-1), 4));
+        assertThrows(IllegalArgumentException.class, () -> ReadingsQuery.stats(Duration.ofMillis(-1)));
+        assertThrows(IllegalArgumentException.class, () -> ReadingsQuery.last(-1));
+
+        // an empty window still holds the reading of the moment the sensor answers
+        Series now = ReadingsQuery.downsample(Duration.ZERO, 1).answer(buffer, 100);
+        assertEquals(7.0, now.valueAt(0));
+        assertEquals(1, ReadingsQuery.stats(Duration.ZERO).answer(buffer, 100).getCount());
+    }
+
+}
@@ -0,0 +1,154 @@
+package at.fhv.sysarch.lab2.homeautomation.ui;
+
+import akka.actor.testkit.typed.javadsl.ActorTestKit;
+import akka.actor.testkit.typed.javadsl.TestProbe;
+import at.fhv.sysarch.lab2.homeautomation.devices.AirCondition;
+import at.fhv.sysarch.lab2.homeautomation.devices.DeviceKind;
+import at.fhv.sysarch.lab2.homeautomation.devices.DeviceRegistry;
+import at.fhv.sysarch.lab2.homeautomation.devices.MediaStation;
+import at.fhv.sysarch.lab2.homeautomation.devices.TemperatureSensor;
+import at.fhv.sysarch.lab2.homeautomation.devices.fridge.Fridge;
+import at.fhv.sysarch.lab2.homeautomation.domain.valueobjects.ProductCatalog;
+import at.fhv.sysarch.lab2.homeautomation.environment.Environment;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CommandParserTest {
+
+    private static final ActorTestKit testKit = ActorTestKit.create();
+
+    private TestProbe<TemperatureSensor.TemperatureCommand> temperatureSensor;
+    private TestProbe<AirCondition.AirConditionCommand> airCondition;
+    private TestProbe<MediaStation.MediaStationCommand> mediaStation;
+    private TestProbe<Fridge.FridgeCommand> fridge;
+    private TestProbe<Environment.EnvironmentCommand> environment;
+    private DeviceRegistry devices;
+    private CommandParser parser;
+
+    @AfterAll
+    static void shutdown() {
+        testKit.shutdownTestKit();
+    }
+
+    @BeforeEach
+    void registerDevices() {
+        temperatureSensor = testKit.createTestProbe();
+        airCondition = testKit.createTestProbe();
+        mediaStation = testKit.createTestProbe();
+        fridge = testKit.createTestProbe();
+        environment = testKit.createTestProbe();
+
+        devices = new DeviceRegistry();
+        devices.register(DeviceKind.TEMPERATURE_SENSOR, "1", CommandDispatcher.DEVICE_ID, temperatureSensor.getRef());
+        devices.register(DeviceKind.AIR_CONDITION, "1", CommandDispatcher.DEVICE_ID, airCondition.getRef());
+        devices.register(DeviceKind.MEDIA_STATION, "1", CommandDispatcher.DEVICE_ID, mediaStation.getRef());
+        devices.register(DeviceKind.FRIDGE, "1", CommandDispatcher.DEVICE_ID, fridge.getRef());
+        devices.register(DeviceKind.ENVIRONMENT, "1", CommandDispatcher.DEVICE_ID, environment.getRef());
+        parser = new CommandParser(new CommandDispatcher(devices, "1"), ProductCatalog.getDefault());
+    }
+
+    @Test
+    void dispatchesEveryCommandToItsDevice() {
+        assertSame(CommandParser.OK, parser.execute("t 21.5"));
+        assertSame(CommandParser.OK, parser.execute("a false"));
+        assertSame(CommandParser.OK, parser.execute("m on"));
+        assertSame(CommandParser.OK, parser.execute("fadd elden ring"));
+        assertSame(CommandParser.OK, parser.execute("frem beer"));
+        assertSame(CommandParser.OK, parser.execute("fdis"));
+        assertSame(CommandParser.OK, parser.execute("dhis 2"));
+        assertSame(CommandParser.OK, parser.execute("ew CLOUDY"));
+
+        temperatureSensor.expectMessageClass(TemperatureSensor.ReadTemperatureCommand.class);
+        airCondition.expectMessageClass(AirCondition.PowerAirConditionCommand.class);
+        mediaStation.expectMessageClass(MediaStation.StartMovieCommand.class);
+        fridge.expectMessageClass(Fridge.RequestOrderProductCommand.class);
+        fridge.expectMessageClass(Fridge.ConsumeProductCommand.class);
+        fridge.expectMessageClass(Fridge.DisplayStockCommand.class);
+        fridge.expectMessageClass(Fridge.DisplayOrderHistoryCommand.class);
+        environment.expectMessageClass(Environment.SetWeatherCommand.class);
+    }
+
+    @Test
+    void rejectsMalformedCommands() {
+        assertSame(CommandParser.UNKNOWN_COMMAND, parser.execute("teleport"));
+        assertSame(CommandParser.WRONG_TEMPERATURE, parser.execute("t warm"));
+        assertSame(CommandParser.WRONG_TEMPERATURE, parser.execute("t"));
+        assertSame(CommandParser.WRONG_POWER, parser.execute("a yes"));
+        assertSame(CommandParser.WRONG_MOVIE, parser.execute("m maybe"));
+        assertSame(CommandParser.WRONG_PAGE, parser.execute("dhis -1"));
+        assertSame(CommandParser.WRONG_PAGE, parser.execute("dhis 99999999999999999999"));
+        assertTrue(parser.execute("fadd mead").isError());
+        assertTrue(parser.execute("ew FOGGY").isError());
+
+        temperatureSensor.expectNoMessage();
+        fridge.expectNoMessage();
+    }
+
+    @Test
+    void ignoresBlanksAroundTheCommand() {
+        assertSame(CommandParser.NONE, parser.execute(" \t\r"));
+        assertSame(CommandParser.OK, parser.execute("  a \t true\r"));
+        assertSame(CommandParser.HELP_TEXT, parser.execute("?"));
+        assertSame(CommandParser.BYE, parser.execute("quit"));
+        airCondition.expectMessageClass(AirCondition.PowerAirConditionCommand.class);
+    }
+
+    @Test
+    void parsesTemperaturesLikeDoubleDoes() {
+        for (String number : new String[]{"21.5", "-3", "+0.1", "0.000001", "123456789012345678", "1e3", ".5"}) {
+            byte[] bytes = number.getBytes(StandardCharsets.US_ASCII);
+            assertEquals(Double.parseDouble(number), CommandParser.parseDouble(ByteBuffer.wrap(bytes), 0, bytes.length), number);
+        }
+        for (String notANumber : new String[]{"", "-", ".", "1.2.3", "1e999", "NaN?"}) {
+            byte[] bytes = notANumber.getBytes(StandardCharsets.US_ASCII);
+            assertTrue(Double.isNaN(CommandParser.parseDouble(ByteBuffer.wrap(bytes), 0, bytes.length)), notANumber);
+        }
+    }
+
+    @Test
+    void executesPipelinedLinesInOrderWithoutMovingTheBuffer() {
+        // as a client sends them, several commands arriving with one read
+        ByteBuffer buffer = ByteBuffer.allocate(64).put("m on\nbogus\nfdis\nm off\nquit\n".getBytes(StandardCharsets.US_ASCII)).flip();
+        int limit = buffer.limit();
+
+        List<CommandParser.Reply> replies = new ArrayList<>();
+        int lineStart = 0;
+        for (int i = 0; i < limit; i++) {
+            if (buffer.get(i) == '\n') {
+                replies.add(parser.execute(buffer, lineStart, i));
+                lineStart = i + 1;
+            }
+        }
+
+        assertEquals(List.of(CommandParser.OK, CommandParser.UNKNOWN_COMMAND, CommandParser.OK, CommandParser.OK, CommandParser.BYE), replies);
+        assertEquals(0, buffer.position());
+        assertEquals(limit, buffer.limit());
+        mediaStation.expectMessageClass(MediaStation.StartMovieCommand.class);
+        mediaStation.expectMessageClass(MediaStation.StopMovieCommand.class);
+        fridge.expectMessageClass(Fridge.DisplayStockCommand.class);
+    }
+
+    @Test
+    void repliesWithASingleLine() {
+        for (CommandParser.Reply reply : List.of(CommandParser.HELP_TEXT, CommandParser.WRONG_POWER, CommandParser.WRONG_MOVIE, parser.execute("fadd mead"))) {
+            byte[] line = reply.line();
+            assertEquals(line.length - 1, new String(line, StandardCharsets.UTF_8).indexOf('\n'), reply.getText());
+            assertTrue(line.length <= parser.maxReplyLength());
+        }
+    }
+
+    @Test
+    void answersWithoutADevice() {
+        CommandParser withoutDevices = new CommandParser(new CommandDispatcher(new DeviceRegistry(), "1"), ProductCatalog.getDefault());
+        assertSame(CommandParser.NO_DEVICE, withoutDevices.execute("fdis"));
+    }
+
+}